@@ -54,6 +54,7 @@ import org.jumpmind.symmetric.common.SystemConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.db.JdbcSymmetricDialectFactory;
 import org.jumpmind.symmetric.io.stage.IStagingManager;
+import org.jumpmind.symmetric.io.stage.MappedStagingManager;
 import org.jumpmind.symmetric.io.stage.StagingManager;
 import org.jumpmind.symmetric.job.IJobManager;
 import org.jumpmind.symmetric.job.JobManager;
@@ -316,6 +317,7 @@ public class ClientSymmetricEngine extends AbstractSymmetricEngine {
         settings.setFetchSize(properties.getInt(ParameterConstants.DB_FETCH_SIZE, 1000));
         settings.setQueryTimeout(properties.getInt(ParameterConstants.DB_QUERY_TIMEOUT_SECS, 300));
         settings.setBatchSize(properties.getInt(ParameterConstants.JDBC_EXECUTE_BATCH_SIZE, 100));
+        settings.setStatementCacheSize(properties.getInt(ParameterConstants.JDBC_STATEMENT_CACHE_SIZE, 20));
         settings.setOverrideIsolationLevel(properties.getInt(ParameterConstants.JDBC_ISOLATION_LEVEL, -1));
         settings.setReadStringsAsBytes(properties.is(ParameterConstants.JDBC_READ_STRINGS_AS_BYTES, false));
         LogSqlBuilder logSqlBuilder = new LogSqlBuilder();
@@ -342,7 +344,12 @@ public class ClientSymmetricEngine extends AbstractSymmetricEngine {
     @Override
     protected IStagingManager createStagingManager() {
         String directory = parameterService.getTempDirectory();
-        return new StagingManager(directory);
+        if (parameterService.is(ParameterConstants.STREAM_TO_FILE_MEMORY_MAPPED)) {
+            return new MappedStagingManager(directory,
+                    parameterService.getInt(ParameterConstants.STREAM_TO_FILE_BUFFER_POOL_SIZE, 256));
+        } else {
+            return new StagingManager(directory);
+        }
     }
 
     protected static void waitForAvailableDatabase(DataSource dataSource) {
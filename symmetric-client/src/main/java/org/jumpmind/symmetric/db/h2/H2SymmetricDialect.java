@@ -20,7 +20,9 @@
  */
 package org.jumpmind.symmetric.db.h2;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
@@ -63,6 +65,14 @@ public class H2SymmetricDialect extends AbstractEmbeddedSymmetricDialect impleme
         return exists;
     }
 
+    @Override
+    public Set<String> getTriggerNames(String catalogName, String schemaName) {
+        return new HashSet<String>(platform.getSqlTemplate().query(
+                "select TRIGGER_NAME from INFORMATION_SCHEMA.TRIGGERS T WHERE (TRIGGER_CATALOG=? or ? is null) and (TRIGGER_SCHEMA=? or ? is null) "
+                        + "and exists (select 1 from INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = T.TRIGGER_NAME || '_CONFIG' and TABLE_SCHEMA = T.TRIGGER_SCHEMA)",
+                new StringMapper(), catalogName, catalogName, schemaName, schemaName));
+    }
+
     @Override
     public void removeTrigger(StringBuilder sqlBuffer, String catalogName, String schemaName, String triggerName,
             String tableName) {
@@ -22,11 +22,14 @@ package org.jumpmind.symmetric.db.mysql;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.JdbcSqlTransaction;
 import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.db.sql.mapper.StringMapper;
 import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.symmetric.Version;
 import org.jumpmind.symmetric.common.ParameterConstants;
@@ -137,6 +140,18 @@ public class MySqlSymmetricDialect extends AbstractSymmetricDialect implements I
                                 + checkCatalogSql, new Object[] { triggerName, tableName }) > 0;
     }
 
+    @Override
+    public Set<String> getTriggerNames(String catalog, String schema) {
+        catalog = catalog == null ? platform.getDefaultCatalog() : catalog;
+        if (catalog != null && catalog.length() > 0) {
+            return new HashSet<String>(platform.getSqlTemplate().query(
+                    "select trigger_name from information_schema.triggers where trigger_schema = ?",
+                    new StringMapper(), catalog));
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public void removeTrigger(StringBuilder sqlBuffer, String catalogName, String schemaName,
             String triggerName, String tableName) {
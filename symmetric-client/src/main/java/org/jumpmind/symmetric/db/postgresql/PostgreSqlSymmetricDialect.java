@@ -21,10 +21,13 @@
 package org.jumpmind.symmetric.db.postgresql;
 
 import java.sql.Types;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.mapper.StringMapper;
 import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.symmetric.SymmetricException;
 import org.jumpmind.symmetric.common.ParameterConstants;
@@ -159,6 +162,13 @@ public class PostgreSqlSymmetricDialect extends AbstractSymmetricDialect impleme
                         + "and routine_schema = ?", new Object[] { "f" + triggerName.toLowerCase(),
                         schema == null ? platform.getDefaultSchema() : schema }) > 0;
     }
+
+    @Override
+    public Set<String> getTriggerNames(String catalogName, String schema) {
+        return new HashSet<String>(platform.getSqlTemplate().query(
+                "select distinct trigger_name from information_schema.triggers where trigger_schema = ?",
+                new StringMapper(), schema == null ? platform.getDefaultSchema() : schema));
+    }
     
     @Override
     public void removeTrigger(StringBuilder sqlBuffer, String catalogName, String schemaName,
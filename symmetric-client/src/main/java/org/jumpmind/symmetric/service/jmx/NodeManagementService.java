@@ -43,6 +43,8 @@ import org.jumpmind.symmetric.ext.ISymmetricEngineAware;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.service.IDataExtractorService;
 import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.NodeConnectionStatistics;
+import org.jumpmind.symmetric.transport.http.HttpConnectionStatistics.HostConnectionStatistics;
+import org.jumpmind.symmetric.transport.http.HttpTransportManager;
 import org.jumpmind.util.FormatUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -175,6 +177,37 @@ public class NodeManagementService implements IBuiltInExtensionPoint, ISymmetric
         return out.toString();
     }
 
+    @ManagedAttribute(description = "Get statistics about the http requests made to other nodes and how many connections were kept open to be used again")
+    public String getHttpConnectionStatisticsAsText() {
+        String lineFeed = "\n";
+        if (engine.getParameterService().getString(ParameterConstants.JMX_LINE_FEED).equals("html")) {
+            lineFeed = "</br>";
+        }
+        StringBuilder out = new StringBuilder();
+        if (engine.getTransportManager() instanceof HttpTransportManager) {
+            Map<String, HostConnectionStatistics> stats = ((HttpTransportManager) engine
+                    .getTransportManager()).getConnectionStatistics().getStatisticsByHost();
+            out.append("-------------------------------------------------------------------------------------------------------------------------------");
+            out.append(lineFeed);
+            out.append("                                    HOST             LAST REQUEST TIME         REQUESTS    KEPT ALIVE  DISCONNECTED");
+            out.append(lineFeed);
+            out.append("-------------------------------------------------------------------------------------------------------------------------------");
+            out.append(lineFeed);
+            for (String host : stats.keySet()) {
+                HostConnectionStatistics hostStat = stats.get(host);
+                out.append(StringUtils.leftPad(host, 40));
+                out.append(StringUtils.leftPad(
+                        DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.MEDIUM)
+                                .format(new Date(hostStat.getLastRequestTimeMs())), 30));
+                out.append(StringUtils.leftPad(Long.toString(hostStat.getRequestCount()), 17));
+                out.append(StringUtils.leftPad(Long.toString(hostStat.getReleasedCount()), 14));
+                out.append(StringUtils.leftPad(Long.toString(hostStat.getDisconnectedCount()), 14));
+                out.append(lineFeed);
+            }
+        }
+        return out.toString();
+    }
+
     @ManagedOperation(description = "Clean up both incoming and outgoing resources that are older than the passed in number of milliseconds")
     @ManagedOperationParameters({ @ManagedOperationParameter(name = "timeToLiveInMS", description = "The number of milliseconds old a resource should be before it is cleaned up") })
     public long cleanStaging(long timeToLiveInMS) {
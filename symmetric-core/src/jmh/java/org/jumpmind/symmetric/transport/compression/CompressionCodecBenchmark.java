@@ -0,0 +1,135 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the cpu each {@link ICompressionCodec} takes to compress and
+ * uncompress a batch that looks like what the protocol data writer produces.
+ * The bytes on the wire for each codec are printed at setup. Run with
+ * <code>gradle :symmetric-core:jmh</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompressionCodecBenchmark {
+
+    @Param({ GzipCompressionCodec.NAME, SnappyCompressionCodec.NAME })
+    public String codecName;
+
+    private ICompressionCodec codec;
+
+    private byte[] batch;
+
+    private byte[] compressedBatch;
+
+    private byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setup() throws IOException {
+        codec = CompressionCodecs.get(codecName);
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("nodeid,00000\nbinary,BASE64\nchannel,default\nbatch,1\n");
+        builder.append("table,test_table\nkeys,id\ncolumns,id,name,description,amount,created\n");
+        for (int i = 0; i < 10000; i++) {
+            builder.append("insert,\"").append(i).append("\",\"name ").append(i)
+                    .append("\",\"a \\\"quoted\\\" description\\nwith a newline\",\"")
+                    .append(i * 3.14).append("\",\"2016-01-01 12:00:00.000\"\n");
+            if (i % 10 == 0) {
+                builder.append("old,\"").append(i).append("\",,,,\n");
+                builder.append("update,\"").append(i).append("\",\"changed\",,\"1.00\",,\"")
+                        .append(i).append("\"\n");
+            }
+        }
+        builder.append("commit,1\n");
+        batch = builder.toString().getBytes("UTF-8");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compress(out);
+        compressedBatch = out.toByteArray();
+    }
+
+    @Benchmark
+    public void compress(Blackhole blackhole) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        compress(out);
+        blackhole.consume(out.count);
+    }
+
+    @Benchmark
+    public void decompress(Blackhole blackhole) throws IOException {
+        InputStream in = codec.decompress(new ByteArrayInputStream(compressedBatch));
+        long count = 0;
+        int read = 0;
+        while ((read = in.read(buffer)) >= 0) {
+            count += read;
+        }
+        in.close();
+        blackhole.consume(count);
+    }
+
+    protected void compress(OutputStream out) throws IOException {
+        OutputStream compressed = codec.compress(out, Deflater.DEFAULT_COMPRESSION,
+                Deflater.DEFAULT_STRATEGY);
+        compressed.write(batch);
+        compressed.close();
+    }
+
+    static class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+}
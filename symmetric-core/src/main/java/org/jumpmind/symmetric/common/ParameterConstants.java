@@ -45,6 +45,7 @@ final public class ParameterConstants {
     public final static String AUTO_START_ENGINE = "auto.start.engine";
 
     public final static String JDBC_EXECUTE_BATCH_SIZE = "db.jdbc.execute.batch.size";
+    public final static String JDBC_STATEMENT_CACHE_SIZE = "db.jdbc.statement.cache.size";
     public final static String JDBC_READ_STRINGS_AS_BYTES = "db.read.strings.as.bytes";
     public final static String JDBC_ISOLATION_LEVEL = "db.jdbc.isolation.level";
 
@@ -105,6 +106,8 @@ final public class ParameterConstants {
     public final static String AUTO_SYNC_TRIGGERS_AT_STARTUP = "auto.sync.triggers.at.startup";
     public final static String AUTO_SYNC_TRIGGERS_AFTER_CONFIG_CHANGED = "auto.sync.triggers.after.config.change";
     public final static String AUTO_SYNC_TRIGGERS_AFTER_CONFIG_LOADED = "auto.sync.triggers.after.config.loaded";
+    public final static String SYNC_TRIGGERS_THREAD_COUNT_PER_SERVER = "sync.triggers.thread.count.per.server";
+    public final static String SYNC_TRIGGERS_SKIP_UNCHANGED_TABLES = "sync.triggers.skip.unchanged.tables.enabled";
     public final static String AUTO_REFRESH_AFTER_CONFIG_CHANGED = "auto.refresh.after.config.changes.detected";
     public final static String AUTO_CONFIGURE_REG_SVR_SQL_SCRIPT = "auto.config.registration.svr.sql.script";
     public final static String AUTO_CONFIGURE_REG_SVR_DDLUTIL_XML = "auto.config.registration.svr.ddlutil.xml";
@@ -129,14 +132,22 @@ final public class ParameterConstants {
     public final static String INITIAL_LOAD_SCHEMA_DUMP_COMMAND = "initial.load.schema.dump.command";
     public final static String INITIAL_LOAD_SCHEMA_LOAD_COMMAND = "initial.load.schema.load.command";
     public final static String INITIAL_LOAD_EXTRACT_AND_SEND_WHEN_STAGED = "initial.load.extract.and.send.when.staged";
+    public final static String INITIAL_LOAD_EXTRACT_CHUNK_THREAD_COUNT = "initial.load.extract.chunk.thread.count";
+    public final static String INITIAL_LOAD_EXTRACT_CHUNK_BATCH_COUNT = "initial.load.extract.chunk.batch.count";
     
     public final static String CREATE_TABLE_WITHOUT_DEFAULTS = "create.table.without.defaults";
     public final static String CREATE_TABLE_WITHOUT_FOREIGN_KEYS = "create.table.without.foreign.keys";
 
     public final static String STREAM_TO_FILE_ENABLED = "stream.to.file.enabled";
     public final static String STREAM_TO_FILE_THRESHOLD = "stream.to.file.threshold.bytes";
+    public final static String STREAM_TO_FILE_MEMORY_MAPPED = "stream.to.file.memory.mapped.enabled";
+    public final static String STREAM_TO_FILE_BUFFER_POOL_SIZE = "stream.to.file.buffer.pool.size";
     public final static String STREAM_TO_FILE_TIME_TO_LIVE_MS = "stream.to.file.ttl.ms";
 
+    public final static String EXTRACT_LOOKAHEAD_BATCHES = "extract.lookahead.batches";
+
+    public final static String EXTRACT_LOOKAHEAD_THREAD_COUNT = "extract.lookahead.thread.count";
+
     public final static String PARAMETER_REFRESH_PERIOD_IN_MS = "parameter.reload.timeout.ms";
 
     public final static String CONCURRENT_WORKERS = "http.concurrent.workers.max";
@@ -144,16 +155,20 @@ final public class ParameterConstants {
 
     public final static String OUTGOING_BATCH_PEEK_AHEAD_BATCH_COMMIT_SIZE = "outgoing.batches.peek.ahead.batch.commit.size";
     public final static String ROUTING_FLUSH_JDBC_BATCH_SIZE = "routing.flush.jdbc.batch.size";
+
+    public final static String ROUTING_DATA_CHUNK_SIZE = "routing.data.chunk.size";
     public final static String ROUTING_WAIT_FOR_DATA_TIMEOUT_SECONDS = "routing.wait.for.data.timeout.seconds";
     public final static String ROUTING_MAX_GAPS_TO_QUALIFY_IN_SQL = "routing.max.gaps.to.qualify.in.sql";
     public final static String ROUTING_PEEK_AHEAD_MEMORY_THRESHOLD = "routing.peek.ahead.memory.threshold.percent";
     public final static String ROUTING_PEEK_AHEAD_WINDOW = "routing.peek.ahead.window.after.max.size";
     public final static String ROUTING_STALE_DATA_ID_GAP_TIME = "routing.stale.dataid.gap.time.ms";
     public final static String ROUTING_LARGEST_GAP_SIZE = "routing.largest.gap.size";
+    public final static String ROUTING_DATA_GAP_BITMAP_ENABLED = "routing.data.gap.bitmap.enabled";
 //    public final static String ROUTING_DATA_READER_TYPE_GAP_RETENTION_MINUTES = "routing.data.reader.type.gap.retention.period.minutes";
     public final static String ROUTING_DATA_READER_ORDER_BY_DATA_ID_ENABLED = "routing.data.reader.order.by.gap.id.enabled";
     public final static String ROUTING_DATA_READER_THRESHOLD_GAPS_TO_USE_GREATER_QUERY = "routing.data.reader.threshold.gaps.to.use.greater.than.query";
     public final static String ROUTING_LOG_STATS_ON_BATCH_ERROR = "routing.log.stats.on.batch.error";
+    public final static String ROUTING_THREAD_COUNT = "routing.thread.count";
 
     public final static String INCOMING_BATCH_SKIP_DUPLICATE_BATCHES_ENABLED = "incoming.batches.skip.duplicates";
     @Deprecated
@@ -167,6 +182,10 @@ final public class ParameterConstants {
     public final static String DATA_LOADER_NUM_OF_ACK_RETRIES = "num.of.ack.retries";
     public final static String DATA_LOADER_TIME_BETWEEN_ACK_RETRIES = "time.between.ack.retries.ms";
     public final static String DATA_LOADER_MAX_ROWS_BEFORE_COMMIT = "dataloader.max.rows.before.commit";
+    public final static String DATA_LOADER_LOAD_BEHIND_TRANSFER = "dataloader.load.behind.transfer.enabled";
+    public final static String DATA_LOADER_LOAD_BEHIND_TRANSFER_QUEUE_SIZE = "dataloader.load.behind.transfer.queue.size";
+    public final static String DATA_LOADER_LOAD_CHANNELS_IN_PARALLEL = "dataloader.load.channels.in.parallel.enabled";
+    public final static String DATA_LOADER_COALESCE_WINDOW_SIZE = "dataloader.coalesce.window.size";
     public final static String DATA_LOADER_CREATE_TABLE_ALTER_TO_MATCH_DB_CASE = "dataloader.create.table.alter.to.match.db.case";
     public final static String DATA_LOADER_TEXT_COLUMN_EXPRESSION = "dataloader.text.column.expression";
     public final static String DATA_LOADER_SLEEP_TIME_AFTER_EARLY_COMMIT = "dataloader.sleep.time.after.early.commit";
@@ -178,6 +197,8 @@ final public class ParameterConstants {
     public final static String DATA_EXTRACTOR_ENABLED = "dataextractor.enable";
     public final static String DATA_EXTRACTOR_TEXT_COLUMN_EXPRESSION = "dataextractor.text.column.expression";
     public final static String OUTGOING_BATCH_MAX_BATCHES_TO_SELECT = "outgoing.batches.max.to.select";
+    public final static String OUTGOING_BATCH_PENDING_INDEX_ENABLED = "outgoing.batches.pending.index.enabled";
+    public final static String OUTGOING_BATCH_PENDING_INDEX_REFRESH_MS = "outgoing.batches.pending.index.refresh.ms";
 
     public final static String DBDIALECT_ORACLE_USE_TRANSACTION_VIEW = "oracle.use.transaction.view";
     public final static String DBDIALECT_ORACLE_TEMPLATE_NUMBER_SPEC = "oracle.template.precision";
@@ -189,12 +210,16 @@ final public class ParameterConstants {
 
     public final static String TRANSPORT_HTTP_MANUAL_REDIRECTS_ENABLED = "http.manual.redirects.enabled";
     public final static String TRANSPORT_HTTP_TIMEOUT = "http.timeout.ms";
+    public final static String TRANSPORT_HTTP_KEEP_ALIVE_ENABLED = "http.keep.alive.enabled";
+    public final static String TRANSPORT_HTTP_KEEP_ALIVE_MAX_CONNECTIONS = "http.keep.alive.max.connections";
+    public final static String TRANSPORT_HTTP_KEEP_ALIVE_TIMEOUT_SECONDS = "http.keep.alive.timeout.seconds";
     public final static String TRANSPORT_HTTP_PUSH_STREAM_ENABLED = "http.push.stream.output.enabled";
     public final static String TRANSPORT_HTTP_PUSH_STREAM_SIZE = "http.push.stream.output.size";
     public final static String TRANSPORT_HTTP_USE_COMPRESSION_CLIENT = "http.compression";
     public final static String TRANSPORT_HTTP_COMPRESSION_DISABLED_SERVLET = "web.compression.disabled";
     public final static String TRANSPORT_HTTP_COMPRESSION_LEVEL = "compression.level";
     public final static String TRANSPORT_HTTP_COMPRESSION_STRATEGY = "compression.strategy";
+    public final static String TRANSPORT_HTTP_COMPRESSION_CODECS = "http.compression.codecs";
     public final static String TRANSPORT_HTTP_BASIC_AUTH_USERNAME = "http.basic.auth.username";
     public final static String TRANSPORT_HTTP_BASIC_AUTH_PASSWORD = "http.basic.auth.password";
     public final static String TRANSPORT_TYPE = "transport.type";
@@ -242,6 +267,9 @@ final public class ParameterConstants {
     public final static String PURGE_MAX_NUMBER_OF_DATA_IDS = "job.purge.max.num.data.to.delete.in.tx";
     public final static String PURGE_MAX_NUMBER_OF_BATCH_IDS = "job.purge.max.num.batches.to.delete.in.tx";
     public final static String PURGE_MAX_NUMBER_OF_EVENT_BATCH_IDS = "job.purge.max.num.data.event.batches.to.delete.in.tx";
+    public final static String PURGE_THREAD_COUNT = "purge.thread.count";
+    public final static String PURGE_TARGET_STATEMENT_TIME_MS = "purge.target.statement.time.ms";
+    public final static String PURGE_PAUSE_BETWEEN_DELETES_MS = "purge.pause.between.deletes.ms";
 
     public final static String JMX_LINE_FEED = "jmx.line.feed";
 
@@ -286,6 +314,12 @@ final public class ParameterConstants {
     
     public final static String FILE_SYNC_FAST_SCAN = "file.sync.fast.scan";
     
+    public final static String FILE_SYNC_WATCH = "file.sync.watch";
+    
+    public final static String FILE_SYNC_DELTA_ENABLED = "file.sync.delta.enabled";
+    
+    public final static String FILE_SYNC_DELTA_MIN_FILE_SIZE = "file.sync.delta.min.file.size";
+    
     public final static String FILE_SYNC_USE_CRC = "file.sync.use.crc";
     
     public final static String FILE_SYNC_PREVENT_PING_BACK = "file.sync.prevent.ping.back";
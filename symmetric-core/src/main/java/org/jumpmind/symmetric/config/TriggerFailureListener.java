@@ -20,8 +20,8 @@
  */
 package org.jumpmind.symmetric.config;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jumpmind.extension.IBuiltInExtensionPoint;
 import org.jumpmind.symmetric.model.Trigger;
@@ -37,7 +37,7 @@ public class TriggerFailureListener extends TriggerCreationAdapter implements IB
     private Map<Trigger, Exception> failures;
 
     public TriggerFailureListener() {
-        this.failures = new HashMap<Trigger, Exception>();
+        this.failures = new ConcurrentHashMap<Trigger, Exception>();
     }
 
     @Override
@@ -198,6 +198,16 @@ abstract public class AbstractSymmetricDialect implements ISymmetricDialect {
         }
     }
     
+    /**
+     * Dialects that can read the triggers of a whole schema in one query
+     * override this. Callers check each trigger with
+     * {@link #doesTriggerExist(String, String, String, String)} when it
+     * returns null.
+     */
+    public Set<String> getTriggerNames(String catalogName, String schema) {
+        return null;
+    }
+
     public abstract void dropRequiredDatabaseObjects();
     
     public abstract void createRequiredDatabaseObjects();
@@ -60,6 +60,12 @@ public interface ISymmetricDialect {
             String tableName);
 
     public boolean doesTriggerExist(String catalogName, String schema, String tableName, String triggerName);
+
+    /**
+     * @return the names of all the triggers in a catalog and schema, read with
+     *         one query, or null if the platform cannot list them
+     */
+    public Set<String> getTriggerNames(String catalogName, String schema);
 
     public void verifyDatabaseIsCompatible();
 
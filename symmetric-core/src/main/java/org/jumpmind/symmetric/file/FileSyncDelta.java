@@ -0,0 +1,340 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.SymmetricException;
+
+/**
+ * Describes a new version of a file as the blocks it shares with an old
+ * version and the bytes in between, in the manner of rsync. The source finds
+ * the shared blocks with the {@link FileSyncSignature} of the old version,
+ * and the target rebuilds the new version from its copy of the old one.
+ * <p>
+ * The target checks the MD5 checksum of every block it copies and the CRC32
+ * checksum of the result, so a target file that is not the old version is
+ * never silently corrupted.
+ */
+final public class FileSyncDelta {
+
+    static final int MAGIC = 0x53594d44;
+
+    static final byte END = 0;
+
+    static final byte COPY = 1;
+
+    static final byte DATA = 2;
+
+    static final int MAX_DATA_LENGTH = 1024 * 1024;
+
+    private FileSyncDelta() {
+    }
+
+    /**
+     * Writes the delta of new content against the signature of an old
+     * version.
+     * 
+     * @param newSignature
+     *            if not null, it is updated with the new content so its
+     *            signature can be kept for the next delta
+     */
+    public static void write(FileSyncSignature base, InputStream newContent, long lastModified,
+            OutputStream os, FileSyncSignature.Builder newSignature) {
+        try {
+            new Writer(base, newContent, os, newSignature).write(lastModified);
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+    }
+
+    /**
+     * Replaces the target file with the version that is described by the
+     * delta.
+     * 
+     * @throws SymmetricException
+     *             if the target file is not the version the delta was written
+     *             against
+     */
+    public static void apply(File delta, File target) {
+        File tmpFile = new File(delta.getPath() + ".tmp");
+        DataInputStream in = null;
+        RandomAccessFile base = null;
+        OutputStream out = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(delta)));
+            if (in.readInt() != MAGIC) {
+                throw new IoException("Not a file sync delta: " + delta.getAbsolutePath());
+            }
+            int blockSize = in.readInt();
+            long baseLength = in.readLong();
+            long lastModified = in.readLong();
+
+            boolean matches = target.isFile() && target.length() == baseLength;
+            if (matches) {
+                base = new RandomAccessFile(target, "r");
+                out = new BufferedOutputStream(new FileOutputStream(tmpFile));
+            }
+
+            MessageDigest strongChecksum = FileSyncSignature.newStrongChecksum();
+            CRC32 crc = new CRC32();
+            long length = 0;
+            byte[] block = new byte[blockSize];
+            byte[] expected = new byte[16];
+            byte[] buffer = new byte[64 * 1024];
+            byte op = 0;
+            while ((op = in.readByte()) != END) {
+                if (op == COPY) {
+                    int blockIndex = in.readInt();
+                    in.readFully(expected);
+                    if (matches) {
+                        try {
+                            base.seek((long) blockIndex * blockSize);
+                            base.readFully(block);
+                            matches = MessageDigest.isEqual(strongChecksum.digest(block), expected);
+                        } catch (EOFException e) {
+                            matches = false;
+                        }
+                        if (matches) {
+                            out.write(block);
+                            crc.update(block);
+                            length += blockSize;
+                        }
+                    }
+                } else if (op == DATA) {
+                    int dataLength = in.readInt();
+                    while (dataLength > 0) {
+                        int count = Math.min(dataLength, buffer.length);
+                        in.readFully(buffer, 0, count);
+                        if (matches) {
+                            out.write(buffer, 0, count);
+                            crc.update(buffer, 0, count);
+                            length += count;
+                        }
+                        dataLength -= count;
+                    }
+                } else {
+                    throw new IoException("Unexpected operation " + op + " in file sync delta "
+                            + delta.getAbsolutePath());
+                }
+            }
+            long newLength = in.readLong();
+            long newCrc32Checksum = in.readLong();
+
+            IOUtils.closeQuietly(base);
+            base = null;
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+
+            if (matches) {
+                if (length != newLength || crc.getValue() != newCrc32Checksum) {
+                    throw new IoException("The file sync delta " + delta.getAbsolutePath()
+                            + " did not rebuild the expected file");
+                }
+                if (!tmpFile.renameTo(target)) {
+                    FileUtils.copyFile(tmpFile, target);
+                }
+                target.setLastModified(lastModified);
+            } else if (!target.isFile() || target.length() != newLength
+                    || FileUtils.checksumCRC32(target) != newCrc32Checksum) {
+                throw new SymmetricException("The %s file is not the version the delta was made from",
+                        target.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            IOUtils.closeQuietly(in);
+            IOUtils.closeQuietly(base);
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    static class Writer {
+
+        final FileSyncSignature base;
+
+        final InputStream in;
+
+        final DataOutputStream out;
+
+        final FileSyncSignature.Builder newSignature;
+
+        final int blockSize;
+
+        final byte[] buffer;
+
+        final CRC32 crc = new CRC32();
+
+        final MessageDigest strongChecksum = FileSyncSignature.newStrongChecksum();
+
+        long length;
+
+        int start;
+
+        int end;
+
+        int dataStart;
+
+        boolean eof;
+
+        Writer(FileSyncSignature base, InputStream in, OutputStream os,
+                FileSyncSignature.Builder newSignature) {
+            this.base = base;
+            this.in = in;
+            this.out = new DataOutputStream(os);
+            this.newSignature = newSignature;
+            this.blockSize = base.getBlockSize();
+            this.buffer = new byte[Math.max(blockSize * 8, MAX_DATA_LENGTH)];
+        }
+
+        void write(long lastModified) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(blockSize);
+            out.writeLong(base.getLength());
+            out.writeLong(lastModified);
+
+            boolean rolling = false;
+            int a = 0;
+            int b = 0;
+            while (true) {
+                fill();
+                if (end - start < blockSize) {
+                    break;
+                }
+
+                if (!rolling) {
+                    int weak = FileSyncSignature.weakChecksum(buffer, start, blockSize);
+                    a = weak & 0xffff;
+                    b = weak >>> 16;
+                    rolling = true;
+                }
+
+                int block = findBlock((b << 16) | a);
+                if (block >= 0) {
+                    writeData();
+                    out.writeByte(COPY);
+                    out.writeInt(block);
+                    out.write(base.getStrongChecksum(block));
+                    start += blockSize;
+                    dataStart = start;
+                    rolling = false;
+                } else {
+                    if (start + blockSize < end) {
+                        int leaving = buffer[start] & 0xff;
+                        int entering = buffer[start + blockSize] & 0xff;
+                        a = (a - leaving + entering) & 0xffff;
+                        b = (b - blockSize * leaving + a) & 0xffff;
+                    } else {
+                        rolling = false;
+                    }
+                    start++;
+                    if (start - dataStart >= MAX_DATA_LENGTH) {
+                        writeData();
+                    }
+                }
+            }
+
+            start = end;
+            writeData();
+            out.writeByte(END);
+            out.writeLong(length);
+            out.writeLong(crc.getValue());
+            out.flush();
+        }
+
+        int findBlock(int weakChecksum) {
+            List<Integer> blocks = base.findBlocks(weakChecksum);
+            if (blocks != null) {
+                byte[] checksum = null;
+                for (Integer block : blocks) {
+                    if (checksum == null) {
+                        strongChecksum.update(buffer, start, blockSize);
+                        checksum = strongChecksum.digest();
+                    }
+                    if (Arrays.equals(checksum, base.getStrongChecksum(block))) {
+                        return block;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Makes sure the buffer holds a block and the byte after it, unless the
+         * end of the content was reached. The bytes before the window are
+         * written out first so the buffer can be compacted.
+         */
+        void fill() throws IOException {
+            if (!eof && end - start <= blockSize) {
+                writeData();
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+                dataStart = 0;
+                while (!eof && end < buffer.length) {
+                    int count = in.read(buffer, end, buffer.length - end);
+                    if (count < 0) {
+                        eof = true;
+                    } else {
+                        crc.update(buffer, end, count);
+                        if (newSignature != null) {
+                            newSignature.update(buffer, end, count);
+                        }
+                        length += count;
+                        end += count;
+                    }
+                }
+            }
+        }
+
+        void writeData() throws IOException {
+            int count = start - dataStart;
+            if (count > 0) {
+                out.writeByte(DATA);
+                out.writeInt(count);
+                out.write(buffer, dataStart, count);
+                dataStart = start;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,236 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.jumpmind.exception.IoException;
+
+/**
+ * The block checksums of one version of a file. Every full block of the file
+ * has a weak checksum that can be rolled forward one byte at a time and an MD5
+ * checksum. {@link FileSyncDelta} uses them to find the blocks of a new
+ * version of the file that are already in the old version.
+ */
+public class FileSyncSignature {
+
+    static final int MAGIC = 0x53594d53;
+
+    static final int MIN_BLOCK_SIZE = 2048;
+
+    private int blockSize;
+
+    private long length;
+
+    private long crc32Checksum;
+
+    private int[] weakChecksums;
+
+    private byte[][] strongChecksums;
+
+    private Map<Integer, List<Integer>> blocksByWeakChecksum;
+
+    FileSyncSignature(int blockSize, long length, long crc32Checksum, int[] weakChecksums,
+            byte[][] strongChecksums) {
+        this.blockSize = blockSize;
+        this.length = length;
+        this.crc32Checksum = crc32Checksum;
+        this.weakChecksums = weakChecksums;
+        this.strongChecksums = strongChecksums;
+    }
+
+    /**
+     * @return a block size that grows with the square root of the file length,
+     *         which keeps the signature of large files small
+     */
+    public static int getBlockSize(long length) {
+        return (int) Math.max(MIN_BLOCK_SIZE, Math.sqrt(length));
+    }
+
+    public static int weakChecksum(byte[] buffer, int offset, int length) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            int value = buffer[offset + i] & 0xff;
+            a += value;
+            b += (length - i) * value;
+        }
+        return ((b & 0xffff) << 16) | (a & 0xffff);
+    }
+
+    static MessageDigest newStrongChecksum() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getCrc32Checksum() {
+        return crc32Checksum;
+    }
+
+    public int getBlockCount() {
+        return weakChecksums.length;
+    }
+
+    public byte[] getStrongChecksum(int block) {
+        return strongChecksums[block];
+    }
+
+    /**
+     * @return the blocks with the weak checksum, or null if there are none
+     */
+    public List<Integer> findBlocks(int weakChecksum) {
+        if (blocksByWeakChecksum == null) {
+            blocksByWeakChecksum = new HashMap<Integer, List<Integer>>(weakChecksums.length * 2);
+            for (int i = 0; i < weakChecksums.length; i++) {
+                List<Integer> blocks = blocksByWeakChecksum.get(weakChecksums[i]);
+                if (blocks == null) {
+                    blocks = new ArrayList<Integer>(1);
+                    blocksByWeakChecksum.put(weakChecksums[i], blocks);
+                }
+                blocks.add(i);
+            }
+        }
+        return blocksByWeakChecksum.get(weakChecksum);
+    }
+
+    public void write(OutputStream os) {
+        try {
+            DataOutputStream out = new DataOutputStream(os);
+            out.writeInt(MAGIC);
+            out.writeInt(blockSize);
+            out.writeLong(length);
+            out.writeLong(crc32Checksum);
+            out.writeInt(weakChecksums.length);
+            for (int i = 0; i < weakChecksums.length; i++) {
+                out.writeInt(weakChecksums[i]);
+                out.write(strongChecksums[i]);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+    }
+
+    public static FileSyncSignature read(InputStream is) {
+        try {
+            DataInputStream in = new DataInputStream(is);
+            if (in.readInt() != MAGIC) {
+                throw new IoException("Not a file sync signature");
+            }
+            int blockSize = in.readInt();
+            long length = in.readLong();
+            long crc32Checksum = in.readLong();
+            int blockCount = in.readInt();
+            int[] weakChecksums = new int[blockCount];
+            byte[][] strongChecksums = new byte[blockCount][];
+            for (int i = 0; i < blockCount; i++) {
+                weakChecksums[i] = in.readInt();
+                strongChecksums[i] = new byte[16];
+                in.readFully(strongChecksums[i]);
+            }
+            return new FileSyncSignature(blockSize, length, crc32Checksum, weakChecksums,
+                    strongChecksums);
+        } catch (IOException e) {
+            throw new IoException(e);
+        }
+    }
+
+    /**
+     * Builds the signature of a file from its content as it is read, so the
+     * signature of a new version can be taken while it is being sent.
+     */
+    public static class Builder {
+
+        private int blockSize;
+
+        private byte[] block;
+
+        private int blockLength;
+
+        private long length;
+
+        private CRC32 crc = new CRC32();
+
+        private MessageDigest strongChecksum = newStrongChecksum();
+
+        private List<Integer> weakChecksums = new ArrayList<Integer>();
+
+        private List<byte[]> strongChecksums = new ArrayList<byte[]>();
+
+        public Builder(int blockSize) {
+            this.blockSize = blockSize;
+            this.block = new byte[blockSize];
+        }
+
+        public void update(byte[] buffer, int offset, int count) {
+            crc.update(buffer, offset, count);
+            length += count;
+            while (count > 0) {
+                int toCopy = Math.min(count, blockSize - blockLength);
+                System.arraycopy(buffer, offset, block, blockLength, toCopy);
+                blockLength += toCopy;
+                offset += toCopy;
+                count -= toCopy;
+                if (blockLength == blockSize) {
+                    weakChecksums.add(weakChecksum(block, 0, blockSize));
+                    strongChecksums.add(strongChecksum.digest(block));
+                    blockLength = 0;
+                }
+            }
+        }
+
+        public long getCrc32Checksum() {
+            return crc.getValue();
+        }
+
+        public FileSyncSignature build() {
+            int[] weak = new int[weakChecksums.size()];
+            for (int i = 0; i < weak.length; i++) {
+                weak[i] = weakChecksums.get(i);
+            }
+            return new FileSyncSignature(blockSize, length, crc.getValue(), weak,
+                    strongChecksums.toArray(new byte[strongChecksums.size()][]));
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.filefilter.SuffixFileFilter;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the signatures of the versions of files that were sent, by the CRC32
+ * checksum of each version. Target nodes can be behind each other, so a few
+ * versions are kept for each file.
+ */
+public class FileSyncSignatureStore {
+
+    static final Logger log = LoggerFactory.getLogger(FileSyncSignatureStore.class);
+
+    static final String SUFFIX = ".sig";
+
+    private File directory;
+
+    private int versionsToKeep;
+
+    public FileSyncSignatureStore(File directory, int versionsToKeep) {
+        this.directory = directory;
+        this.versionsToKeep = versionsToKeep;
+    }
+
+    /**
+     * @return the signature of the version of the file with the checksum, or
+     *         null if it was not kept
+     */
+    public FileSyncSignature find(FileSnapshot snapshot, long crc32Checksum) {
+        File file = new File(getDirectory(snapshot), crc32Checksum + SUFFIX);
+        if (file.isFile()) {
+            InputStream is = null;
+            try {
+                is = new BufferedInputStream(new FileInputStream(file));
+                FileSyncSignature signature = FileSyncSignature.read(is);
+                file.setLastModified(System.currentTimeMillis());
+                return signature;
+            } catch (Exception e) {
+                log.warn("Failed to read the file sync signature {}: {}", file.getAbsolutePath(),
+                        e.getMessage());
+                FileUtils.deleteQuietly(file);
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+        }
+        return null;
+    }
+
+    public void save(FileSnapshot snapshot, FileSyncSignature signature) {
+        File dir = getDirectory(snapshot);
+        File file = new File(dir, signature.getCrc32Checksum() + SUFFIX);
+        File tmpFile = new File(dir, signature.getCrc32Checksum() + SUFFIX + ".tmp");
+        OutputStream os = null;
+        try {
+            dir.mkdirs();
+            os = new BufferedOutputStream(new FileOutputStream(tmpFile));
+            signature.write(os);
+            os.close();
+            os = null;
+            FileUtils.deleteQuietly(file);
+            if (!tmpFile.renameTo(file)) {
+                log.debug("Failed to rename the file sync signature {}", tmpFile.getAbsolutePath());
+            }
+            removeOldVersions(dir);
+        } catch (Exception e) {
+            log.warn("Failed to save the file sync signature {}: {}", file.getAbsolutePath(),
+                    e.getMessage());
+        } finally {
+            IOUtils.closeQuietly(os);
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    public void delete(FileSnapshot snapshot) {
+        FileUtils.deleteQuietly(getDirectory(snapshot));
+    }
+
+    protected void removeOldVersions(File dir) {
+        File[] files = dir.listFiles((FileFilter) new SuffixFileFilter(SUFFIX));
+        if (files != null && files.length > versionsToKeep) {
+            Arrays.sort(files, new Comparator<File>() {
+                public int compare(File f1, File f2) {
+                    long diff = f2.lastModified() - f1.lastModified();
+                    return diff > 0 ? 1 : (diff < 0 ? -1 : 0);
+                }
+            });
+            for (int i = versionsToKeep; i < files.length; i++) {
+                FileUtils.deleteQuietly(files[i]);
+            }
+        }
+    }
+
+    protected File getDirectory(FileSnapshot snapshot) {
+        StringBuilder path = new StringBuilder();
+        path.append(snapshot.getTriggerId()).append("/").append(snapshot.getRouterId())
+                .append("/");
+        if (!".".equals(snapshot.getRelativeDir())) {
+            path.append(snapshot.getRelativeDir()).append("/");
+        }
+        path.append(snapshot.getFileName());
+        return new File(directory, path.toString());
+    }
+
+}
@@ -21,8 +21,10 @@
 package org.jumpmind.symmetric.file;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 
 final public class FileSyncUtils {
@@ -128,4 +130,21 @@ final public class FileSyncUtils {
         relative.append(normalizedTargetPath.substring(common.length()));
         return relative.toString();
     }
+
+    /**
+     * Moves a file that was received over the target file. The file is renamed
+     * when it is on the same file system as the target, which replaces the
+     * target in one step without writing the file again. Otherwise it is
+     * copied.
+     */
+    public static void replaceFile(File source, File target) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        if (!source.renameTo(target)) {
+            FileUtils.copyFile(source, target, true);
+            FileUtils.deleteQuietly(source);
+        }
+    }
 }
@@ -23,6 +23,8 @@ package org.jumpmind.symmetric.file;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +33,7 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
@@ -57,6 +60,8 @@ public class FileSyncZipDataWriter implements IDataWriter {
 
     static final Logger log = LoggerFactory.getLogger(FileSyncZipDataWriter.class);
 
+    static final String DELTA_DIR = ".sym-delta";
+
     protected long byteCount;
     protected long maxBytesToSync;
     protected IFileSyncService fileSyncService;
@@ -68,6 +73,9 @@ public class FileSyncZipDataWriter implements IDataWriter {
     protected List<FileSnapshot> snapshotEvents;
     protected DataContext context;
     protected INodeService nodeService;
+    protected FileSyncSignatureStore signatureStore;
+    protected long deltaMinFileSize;
+    protected boolean deltaEnabled;
 
     public FileSyncZipDataWriter(long maxBytesToSync, IFileSyncService fileSyncService,
             INodeService nodeService, IStagedResource stagedResource) {
@@ -77,6 +85,24 @@ public class FileSyncZipDataWriter implements IDataWriter {
         this.nodeService = nodeService;
     }
 
+    /**
+     * Keeps the signatures of the files that are sent so the next version of
+     * each file that is at least the minimum size can be sent as a delta.
+     */
+    public void setSignatureStore(FileSyncSignatureStore signatureStore, long deltaMinFileSize) {
+        this.signatureStore = signatureStore;
+        this.deltaMinFileSize = deltaMinFileSize;
+    }
+
+    /**
+     * Whether the files of the next batch can be sent as deltas. A batch that
+     * failed to load could have failed because a target file was not the
+     * version a delta was made from, so it should send the whole files.
+     */
+    public void setDeltaEnabled(boolean deltaEnabled) {
+        this.deltaEnabled = deltaEnabled;
+    }
+
     public void open(DataContext context) {
         this.context = context;
     }
@@ -198,6 +224,13 @@ public class FileSyncZipDataWriter implements IDataWriter {
                             entryName.append("/");
                         }
 
+                        FileSyncSignature baseSignature = findBaseSignature(snapshot, file);
+                        String deltaEntryName = null;
+                        if (baseSignature != null) {
+                            deltaEntryName = batch.getBatchId() + "/" + DELTA_DIR + "/"
+                                    + entryName.substring(entryName.indexOf("/") + 1);
+                        }
+
                         if (StringUtils.isNotBlank(fileTrigger.getBeforeCopyScript())) {
                             command.append(fileTrigger.getBeforeCopyScript()).append("\n");
                         }
@@ -246,11 +279,30 @@ public class FileSyncZipDataWriter implements IDataWriter {
                                     } 
                                     
                                     command.append("  if (processFile) {\n");
-                                    command.append("    if (sourceFile.isDirectory()) {\n");
-                                    command.append("      org.apache.commons.io.FileUtils.copyDirectory(sourceFile, targetFile, true);\n");                                    
-                                    command.append("    } else {\n");
-                                    command.append("      org.apache.commons.io.FileUtils.copyFile(sourceFile, targetFile, true);\n");                                    
-                                    command.append("    }\n");
+                                    if (baseSignature != null) {
+                                        command.append("    org.jumpmind.symmetric.file.FileSyncDelta.apply(new java.io.File(batchDir + \"/");
+                                        command.append(DELTA_DIR).append("/\"");
+                                        if (!snapshot.getRelativeDir().equals(".")) {
+                                            command.append(" + sourceFilePath + \"/\"");
+                                        }
+                                        command.append(" + sourceFileName), targetFile);\n");
+                                    } else {
+                                        command.append("    if (sourceFile.isDirectory()) {\n");
+                                        command.append("      org.apache.commons.io.FileUtils.copyDirectory(sourceFile, targetFile, true);\n");
+                                        if (StringUtils.isBlank(fileTrigger.getAfterCopyScript())) {
+                                            /*
+                                             * Nodes that load the batch from a
+                                             * stream set moveSourceFiles, so
+                                             * the received file can be moved
+                                             * into place instead of copied
+                                             */
+                                            command.append("    } else if (moveSourceFiles != void && moveSourceFiles) {\n");
+                                            command.append("      org.jumpmind.symmetric.file.FileSyncUtils.replaceFile(sourceFile, targetFile);\n");
+                                        }
+                                        command.append("    } else {\n");
+                                        command.append("      org.apache.commons.io.FileUtils.copyFile(sourceFile, targetFile, true);\n");
+                                        command.append("    }\n");
+                                    }
                                     command.append("  }\n");
                                     command.append("  fileList.put(").append(targetFile)
                                             .append(",\"");
@@ -259,6 +311,9 @@ public class FileSyncZipDataWriter implements IDataWriter {
                                 }
                                 break;
                             case DELETE:
+                                if (signatureStore != null) {
+                                    signatureStore.delete(snapshot);
+                                }
                                 command.append("  org.apache.commons.io.FileUtils.deleteQuietly(new java.io.File(");
                                 command.append(targetFile);
                                 command.append("));\n");
@@ -287,20 +342,41 @@ public class FileSyncZipDataWriter implements IDataWriter {
                         if (process) {
                             if (eventType != LastEventType.DELETE) {
                                 if (file.exists()) {
-                                    byteCount += file.length();
-                                    ZipEntry entry = new ZipEntry(entryName.toString());
-                                    entry.setSize(file.length());
+                                    FileSyncSignature.Builder signature = null;
+                                    if (signatureStore != null && file.isFile()
+                                            && file.length() >= deltaMinFileSize) {
+                                        signature = new FileSyncSignature.Builder(
+                                                FileSyncSignature.getBlockSize(file.length()));
+                                    }
+                                    ZipEntry entry = null;
+                                    if (baseSignature != null) {
+                                        entry = new ZipEntry(deltaEntryName);
+                                    } else {
+                                        byteCount += file.length();
+                                        entry = new ZipEntry(entryName.toString());
+                                        entry.setSize(file.length());
+                                    }
                                     entry.setTime(file.lastModified());
                                     zos.putNextEntry(entry);
                                     if (file.isFile()) {
                                         FileInputStream fis = new FileInputStream(file);
                                         try {
-                                            IOUtils.copy(fis, zos);
+                                            if (baseSignature != null) {
+                                                CountingOutputStream cos = new CountingOutputStream(zos);
+                                                FileSyncDelta.write(baseSignature, fis,
+                                                        file.lastModified(), cos, signature);
+                                                byteCount += cos.getByteCount();
+                                            } else {
+                                                copy(fis, zos, signature);
+                                            }
                                         } finally {
                                             IOUtils.closeQuietly(fis);
                                         }
                                     }
                                     zos.closeEntry();
+                                    if (signature != null) {
+                                        signatureStore.save(snapshot, signature.build());
+                                    }
                                     entries.put(entryName.toString(), eventType);
                                 } else {
                                     log.warn(
@@ -340,6 +416,33 @@ public class FileSyncZipDataWriter implements IDataWriter {
 
     }
 
+    /**
+     * @return the signature of the version of the file the target has, if the
+     *         file can be sent as a delta against it
+     */
+    protected FileSyncSignature findBaseSignature(FileSnapshot snapshot, File file) {
+        if (deltaEnabled && signatureStore != null
+                && snapshot.getLastEventType() == LastEventType.MODIFY
+                && snapshot.getOldCrc32Checksum() > 0 && file.isFile()
+                && file.length() >= deltaMinFileSize) {
+            return signatureStore.find(snapshot, snapshot.getOldCrc32Checksum());
+        } else {
+            return null;
+        }
+    }
+
+    protected void copy(InputStream is, OutputStream os, FileSyncSignature.Builder signature)
+            throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        int count = 0;
+        while ((count = is.read(buffer)) != -1) {
+            os.write(buffer, 0, count);
+            if (signature != null) {
+                signature.update(buffer, 0, count);
+            }
+        }
+    }
+
     public void finish() {
         try {
             if (zos != null) {
@@ -0,0 +1,275 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.filefilter.IOFileFilter;
+import org.apache.commons.lang.ObjectUtils;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
+import org.jumpmind.symmetric.model.FileTrigger;
+import org.jumpmind.symmetric.model.FileTriggerRouter;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks changes to the directory of a file trigger with a {@link WatchService}
+ * instead of walking the directory tree. Every directory in the tree is
+ * registered once, and the events that arrive between calls to
+ * {@link #takeChanges(ProcessInfo)} are coalesced to one change per file.
+ * <p>
+ * The operating system can drop events, and the files of a directory that is
+ * moved out of the tree report no events of their own. When events are lost
+ * or a watched directory goes away
+ * {@link #takeChanges(ProcessInfo)} returns null and the caller has to scan
+ * the whole directory tree to find the changes.
+ */
+@IgnoreJRERequirement
+public class FileTriggerWatcher {
+
+    final protected Logger log = LoggerFactory.getLogger(getClass());
+
+    private FileTriggerRouter fileTriggerRouter;
+
+    private IOFileFilter fileFilter;
+
+    private boolean useCrc;
+
+    private WatchService watchService;
+
+    private Map<WatchKey, File> directories = new HashMap<WatchKey, File>();
+
+    private Map<File, WatchKey> watchKeys = new HashMap<File, WatchKey>();
+
+    private Map<File, LastEventType> changes = new LinkedHashMap<File, LastEventType>();
+
+    private boolean fullScanNeeded;
+
+    public FileTriggerWatcher(FileTriggerRouter fileTriggerRouter, boolean useCrc) {
+        this.fileTriggerRouter = fileTriggerRouter;
+        this.fileFilter = fileTriggerRouter.getFileTrigger().createIOFileFilter();
+        this.useCrc = useCrc;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            register(new File(fileTriggerRouter.getFileTrigger().getBaseDir()), false);
+        } catch (IOException e) {
+            close();
+            throw new IoException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if this watcher was created for the same configuration of
+     *         the file trigger router
+     */
+    public boolean isWatching(FileTriggerRouter fileTriggerRouter) {
+        return ObjectUtils.equals(this.fileTriggerRouter.getLastUpdateTime(),
+                fileTriggerRouter.getLastUpdateTime())
+                && ObjectUtils.equals(this.fileTriggerRouter.getFileTrigger().getLastUpdateTime(),
+                        fileTriggerRouter.getFileTrigger().getLastUpdateTime());
+    }
+
+    /**
+     * @return the files that changed since the last call, or null if events
+     *         were lost and the directory tree needs a full scan
+     */
+    synchronized public DirectorySnapshot takeChanges(ProcessInfo processInfo) {
+        WatchKey key = null;
+        while ((key = watchService.poll()) != null) {
+            File directory = directories.get(key);
+            if (directory != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    onEvent(directory, event);
+                }
+            }
+            if (!key.reset()) {
+                File invalidDirectory = directories.remove(key);
+                /*
+                 * a directory that was replaced by a new one with the same
+                 * name is already watched under the key of the new one
+                 */
+                if (invalidDirectory != null && watchKeys.get(invalidDirectory) == key) {
+                    watchKeys.remove(invalidDirectory);
+                }
+                if (directories.size() == 0) {
+                    fullScanNeeded = true;
+                }
+            }
+        }
+
+        DirectorySnapshot snapshot = null;
+        if (!fullScanNeeded) {
+            snapshot = new DirectorySnapshot(fileTriggerRouter);
+            for (Map.Entry<File, LastEventType> change : changes.entrySet()) {
+                File file = change.getKey();
+                LastEventType lastEventType = getLastEventType(file, change.getValue());
+                if (lastEventType != null) {
+                    if (processInfo != null) {
+                        processInfo.incrementCurrentDataCount();
+                    }
+                    snapshot.add(new FileSnapshot(fileTriggerRouter, file, lastEventType, useCrc));
+                }
+            }
+        }
+        changes.clear();
+        fullScanNeeded = false;
+        return snapshot;
+    }
+
+    synchronized public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Failed to close the watch service", e);
+            }
+            watchService = null;
+        }
+        directories.clear();
+        watchKeys.clear();
+        changes.clear();
+    }
+
+    protected void onEvent(File directory, WatchEvent<?> event) {
+        if (event.kind() == OVERFLOW) {
+            log.debug("Events were lost while watching {}", directory.getAbsolutePath());
+            fullScanNeeded = true;
+        } else {
+            File file = new File(directory, ((Path) event.context()).toString());
+            if (event.kind() == ENTRY_CREATE) {
+                if (file.isDirectory()) {
+                    if (fileTriggerRouter.getFileTrigger().isRecurse()) {
+                        addChange(file, LastEventType.CREATE);
+                        try {
+                            register(file, true);
+                        } catch (IOException e) {
+                            log.warn("Failed to watch {}: {}", file.getAbsolutePath(),
+                                    e.getMessage());
+                            fullScanNeeded = true;
+                        }
+                    }
+                } else {
+                    addChange(file, LastEventType.CREATE);
+                    if (file.getName().endsWith(".ctl")) {
+                        File ctlTarget = new File(directory, file.getName().substring(0,
+                                file.getName().length() - 4));
+                        addChange(ctlTarget, LastEventType.CREATE);
+                    }
+                }
+            } else if (event.kind() == ENTRY_MODIFY) {
+                if (!file.isDirectory()) {
+                    addChange(file, LastEventType.MODIFY);
+                }
+            } else if (event.kind() == ENTRY_DELETE) {
+                if (watchKeys.containsKey(file)) {
+                    /*
+                     * The files of a directory that was moved away do not
+                     * report their own delete events
+                     */
+                    fullScanNeeded = true;
+                } else {
+                    addChange(file, LastEventType.DELETE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the first event of a file. The change that is reported is decided
+     * from the first event and whether the file still exists.
+     */
+    protected void addChange(File file, LastEventType lastEventType) {
+        if (!changes.containsKey(file)) {
+            changes.put(file, lastEventType);
+        }
+    }
+
+    protected LastEventType getLastEventType(File file, LastEventType firstEventType) {
+        FileTrigger fileTrigger = fileTriggerRouter.getFileTrigger();
+        if (file.exists()) {
+            if (!fileFilter.accept(file)) {
+                return null;
+            } else if (firstEventType == LastEventType.CREATE) {
+                if (fileTrigger.isSyncOnCtlFile() && file.isFile()
+                        && !new File(file.getAbsolutePath() + ".ctl").exists()) {
+                    return null;
+                }
+                return LastEventType.CREATE;
+            } else {
+                return LastEventType.MODIFY;
+            }
+        } else if (firstEventType != LastEventType.CREATE && fileFilter.accept(file)) {
+            return LastEventType.DELETE;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Registers a directory and the directories below it. Files that are found
+     * in a new directory are reported as created because they could have been
+     * written before the directory was registered.
+     */
+    protected void register(File directory, boolean created) throws IOException {
+        WatchKey key = directory.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE,
+                ENTRY_MODIFY);
+        directories.put(key, directory);
+        watchKeys.put(directory, key);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                boolean isDirectory = file.isDirectory();
+                if (created && (!isDirectory || fileTriggerRouter.getFileTrigger().isRecurse())) {
+                    addChange(file, LastEventType.CREATE);
+                }
+                if (isDirectory && fileTriggerRouter.getFileTrigger().isRecurse()) {
+                    register(file, created);
+                }
+            }
+        }
+    }
+
+    public FileTriggerRouter getFileTriggerRouter() {
+        return fileTriggerRouter;
+    }
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.symmetric.common.Constants;
+
+/**
+ * A reusable, columnar buffer of data events. Data ids and batch ids are held
+ * in primitive arrays and router ids are interned into a small table so that
+ * adding an event does not allocate once the buffer has grown to its working
+ * size. {@link #clear()} only resets the size so the arrays are reused across
+ * flushes.
+ */
+public class DataEventBuffer {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] dataIds;
+
+    private long[] batchIds;
+
+    private int[] routerIndexes;
+
+    private int size;
+
+    private List<String> routerIds = new ArrayList<String>();
+
+    private Map<String, Integer> routerIndexById = new HashMap<String, Integer>();
+
+    private String lastRouterId;
+
+    private int lastRouterIndex = -1;
+
+    public DataEventBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DataEventBuffer(int initialCapacity) {
+        initialCapacity = Math.max(initialCapacity, 1);
+        this.dataIds = new long[initialCapacity];
+        this.batchIds = new long[initialCapacity];
+        this.routerIndexes = new int[initialCapacity];
+    }
+
+    public void add(long dataId, long batchId, String routerId) {
+        if (size == dataIds.length) {
+            grow();
+        }
+        dataIds[size] = dataId;
+        batchIds[size] = batchId;
+        routerIndexes[size] = indexOf(routerId);
+        size++;
+    }
+
+    protected int indexOf(String routerId) {
+        /*
+         * Data is usually routed by the same router many times in a row so
+         * check the last router id by reference before the map lookup
+         */
+        if (routerId == lastRouterId && lastRouterIndex >= 0) {
+            return lastRouterIndex;
+        }
+        String key = StringUtils.isBlank(routerId) ? Constants.UNKNOWN_ROUTER_ID : routerId;
+        Integer index = routerIndexById.get(key);
+        if (index == null) {
+            index = routerIds.size();
+            routerIds.add(key);
+            routerIndexById.put(key, index);
+        }
+        lastRouterId = routerId;
+        lastRouterIndex = index;
+        return index;
+    }
+
+    protected void grow() {
+        int capacity = dataIds.length * 2;
+        long[] newDataIds = new long[capacity];
+        long[] newBatchIds = new long[capacity];
+        int[] newRouterIndexes = new int[capacity];
+        System.arraycopy(dataIds, 0, newDataIds, 0, size);
+        System.arraycopy(batchIds, 0, newBatchIds, 0, size);
+        System.arraycopy(routerIndexes, 0, newRouterIndexes, 0, size);
+        dataIds = newDataIds;
+        batchIds = newBatchIds;
+        routerIndexes = newRouterIndexes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Reset the buffer for reuse. The arrays and the interned router ids are
+     * kept.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public long getDataId(int index) {
+        checkIndex(index);
+        return dataIds[index];
+    }
+
+    public long getBatchId(int index) {
+        checkIndex(index);
+        return batchIds[index];
+    }
+
+    /**
+     * @return the router id of the event at the index. A blank router id is
+     *         stored as {@link Constants#UNKNOWN_ROUTER_ID}.
+     */
+    public String getRouterId(int index) {
+        checkIndex(index);
+        return routerIds.get(routerIndexes[index]);
+    }
+
+    public DataEvent getDataEvent(int index) {
+        return new DataEvent(getDataId(index), getBatchId(index), getRouterId(index));
+    }
+
+    protected void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+}
@@ -0,0 +1,250 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A run-length encoded set of data ids. Ids are kept as sorted, disjoint
+ * ranges of consecutive ids in primitive arrays, so the ids routed in a
+ * busy period take a few ranges instead of one entry per id. Adding the next
+ * id in sequence only extends the last range.
+ * <p>
+ * All methods are synchronized because ids can be recorded by the router and
+ * other services while gap detection reads a copy.
+ */
+public class DataIdBitmap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] starts;
+
+    private long[] ends;
+
+    private int size;
+
+    public DataIdBitmap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DataIdBitmap(int initialCapacity) {
+        initialCapacity = Math.max(initialCapacity, 1);
+        this.starts = new long[initialCapacity];
+        this.ends = new long[initialCapacity];
+    }
+
+    public synchronized void add(long dataId) {
+        if (size > 0 && dataId >= starts[size - 1]) {
+            if (dataId <= ends[size - 1]) {
+                return;
+            } else if (dataId == ends[size - 1] + 1) {
+                ends[size - 1] = dataId;
+                return;
+            }
+        }
+        add(dataId, dataId);
+    }
+
+    /**
+     * Add all the ids from start to end, inclusive.
+     */
+    public synchronized void add(long start, long end) {
+        if (start > end) {
+            return;
+        }
+        if (size > 0 && start > ends[size - 1] + 1) {
+            replace(size, size, start, end);
+            return;
+        }
+        int from = indexOfFirstEndingAtOrAfter(start - 1);
+        int to = from;
+        while (to < size && starts[to] - 1 <= end) {
+            start = Math.min(start, starts[to]);
+            end = Math.max(end, ends[to]);
+            to++;
+        }
+        replace(from, to, start, end);
+    }
+
+    public void addAll(DataIdBitmap other) {
+        long[] ranges = other.toRanges();
+        synchronized (this) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                add(ranges[i], ranges[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Remove all the ids from start to end, inclusive.
+     */
+    public synchronized void remove(long start, long end) {
+        if (start > end) {
+            return;
+        }
+        int from = indexOfFirstEndingAtOrAfter(start);
+        int to = from;
+        while (to < size && starts[to] <= end) {
+            to++;
+        }
+        if (from < to) {
+            long headStart = starts[from];
+            long tailEnd = ends[to - 1];
+            if (headStart < start && tailEnd > end) {
+                replace(from, to, headStart, start - 1);
+                replace(from + 1, from + 1, end + 1, tailEnd);
+            } else if (headStart < start) {
+                replace(from, to, headStart, start - 1);
+            } else if (tailEnd > end) {
+                replace(from, to, end + 1, tailEnd);
+            } else {
+                replace(from, to);
+            }
+        }
+    }
+
+    public void removeAll(DataIdBitmap other) {
+        long[] ranges = other.toRanges();
+        synchronized (this) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                remove(ranges[i], ranges[i + 1]);
+            }
+        }
+    }
+
+    public synchronized boolean contains(long dataId) {
+        int index = indexOfFirstEndingAtOrAfter(dataId);
+        return index < size && starts[index] <= dataId;
+    }
+
+    /**
+     * @return the ids from start to end, inclusive, in ascending order
+     */
+    public synchronized List<Long> getDataIds(long start, long end) {
+        List<Long> dataIds = new ArrayList<Long>();
+        for (int i = indexOfFirstEndingAtOrAfter(start); i < size && starts[i] <= end; i++) {
+            long last = Math.min(ends[i], end);
+            for (long dataId = Math.max(starts[i], start); dataId <= last; dataId++) {
+                dataIds.add(dataId);
+            }
+        }
+        return dataIds;
+    }
+
+    public synchronized DataIdBitmap copy() {
+        DataIdBitmap copy = new DataIdBitmap(size);
+        System.arraycopy(starts, 0, copy.starts, 0, size);
+        System.arraycopy(ends, 0, copy.ends, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * @return the ranges as start and end pairs
+     */
+    public synchronized long[] toRanges() {
+        long[] ranges = new long[size * 2];
+        for (int i = 0; i < size; i++) {
+            ranges[i * 2] = starts[i];
+            ranges[i * 2 + 1] = ends[i];
+        }
+        return ranges;
+    }
+
+    public synchronized long getCardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += ends[i] - starts[i] + 1;
+        }
+        return cardinality;
+    }
+
+    public synchronized int getRangeCount() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized void clear() {
+        size = 0;
+    }
+
+    protected int indexOfFirstEndingAtOrAfter(long dataId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] < dataId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Replace the ranges from index from, inclusive, to index to, exclusive,
+     * with the given range.
+     */
+    protected void replace(int from, int to, long start, long end) {
+        int newSize = size - (to - from) + 1;
+        if (newSize > starts.length) {
+            int capacity = Math.max(starts.length * 2, newSize);
+            long[] newStarts = new long[capacity];
+            long[] newEnds = new long[capacity];
+            System.arraycopy(starts, 0, newStarts, 0, size);
+            System.arraycopy(ends, 0, newEnds, 0, size);
+            starts = newStarts;
+            ends = newEnds;
+        }
+        System.arraycopy(starts, to, starts, from + 1, size - to);
+        System.arraycopy(ends, to, ends, from + 1, size - to);
+        starts[from] = start;
+        ends[from] = end;
+        size = newSize;
+    }
+
+    protected void replace(int from, int to) {
+        System.arraycopy(starts, to, starts, from, size - to);
+        System.arraycopy(ends, to, ends, from, size - to);
+        size -= to - from;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(starts[i]);
+            if (ends[i] > starts[i]) {
+                sb.append("-").append(ends[i]);
+            }
+        }
+        return sb.append("]").toString();
+    }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jumpmind.symmetric.model.OutgoingBatch.Status;
+
+/**
+ * An in memory index of the outgoing batches that are waiting to be sent,
+ * by node. It lets pushes and pulls learn that a node has nothing to send
+ * without selecting from the outgoing batch table.
+ * <p>
+ * The index may name batches that are no longer pending, but it must never
+ * miss one. Batches are added as soon as they are written with a pending
+ * status, even before the transaction commits, and removed when they are
+ * written with any other status. A refresh from the table adds what was
+ * changed outside of the service and only drops batches that were indexed
+ * before a cutoff time, so batches that are not committed yet and batches
+ * indexed while the table was being read are kept.
+ */
+public class PendingBatchIndex {
+
+    private Map<String, Map<Long, Entry>> batchesByNode = new HashMap<String, Map<Long, Entry>>();
+
+    private long lastRefreshTime = -1;
+
+    public static boolean isPending(Status status) {
+        return status == Status.RQ || status == Status.NE || status == Status.QY
+                || status == Status.SE || status == Status.LD || status == Status.ER
+                || status == Status.IG;
+    }
+
+    public synchronized void put(String nodeId, long batchId, String channelId) {
+        Map<Long, Entry> batches = batchesByNode.get(nodeId);
+        if (batches == null) {
+            batches = new HashMap<Long, Entry>();
+            batchesByNode.put(nodeId, batches);
+        }
+        batches.put(batchId, new Entry(channelId, System.currentTimeMillis()));
+    }
+
+    public synchronized void remove(String nodeId, long batchId) {
+        Map<Long, Entry> batches = batchesByNode.get(nodeId);
+        if (batches != null) {
+            batches.remove(batchId);
+            if (batches.isEmpty()) {
+                batchesByNode.remove(nodeId);
+            }
+        }
+    }
+
+    /**
+     * Update the index to the pending batches that were selected from the
+     * table.
+     * 
+     * @param pendingBatches
+     *            all the outgoing batches that had a pending status
+     * @param refreshTime
+     *            the time the batches were selected
+     * @param cutoffTime
+     *            batches that were indexed before this time and are not in
+     *            the list are removed
+     */
+    public synchronized void refresh(List<OutgoingBatch> pendingBatches, long refreshTime,
+            long cutoffTime) {
+        Set<String> pendingKeys = new HashSet<String>(pendingBatches.size());
+        for (OutgoingBatch batch : pendingBatches) {
+            pendingKeys.add(batch.getNodeBatchId());
+            Map<Long, Entry> batches = batchesByNode.get(batch.getNodeId());
+            if (batches == null || !batches.containsKey(batch.getBatchId())) {
+                put(batch.getNodeId(), batch.getBatchId(), batch.getChannelId());
+            }
+        }
+
+        Iterator<Map.Entry<String, Map<Long, Entry>>> nodes = batchesByNode.entrySet().iterator();
+        while (nodes.hasNext()) {
+            Map.Entry<String, Map<Long, Entry>> node = nodes.next();
+            Iterator<Map.Entry<Long, Entry>> batches = node.getValue().entrySet().iterator();
+            while (batches.hasNext()) {
+                Map.Entry<Long, Entry> batch = batches.next();
+                if (batch.getValue().indexTime < cutoffTime
+                        && !pendingKeys.contains(node.getKey() + "-" + batch.getKey())) {
+                    batches.remove();
+                }
+            }
+            if (node.getValue().isEmpty()) {
+                nodes.remove();
+            }
+        }
+        lastRefreshTime = refreshTime;
+    }
+
+    /**
+     * Make the next check refresh the index from the table.
+     */
+    public synchronized void invalidate() {
+        lastRefreshTime = -1;
+    }
+
+    public synchronized void clear() {
+        batchesByNode.clear();
+        lastRefreshTime = -1;
+    }
+
+    /**
+     * @return the time of the last refresh or -1 if the index has to be
+     *         refreshed before it can be used
+     */
+    public synchronized long getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    /**
+     * @param channelIds
+     *            the channels to look for or null for any channel
+     */
+    public synchronized boolean hasPendingBatches(String nodeId, Collection<String> channelIds) {
+        Map<Long, Entry> batches = batchesByNode.get(nodeId);
+        if (batches == null) {
+            return false;
+        } else if (channelIds == null) {
+            return true;
+        } else {
+            for (Entry entry : batches.values()) {
+                if (channelIds.contains(entry.channelId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static class Entry {
+
+        String channelId;
+
+        long indexTime;
+
+        Entry(String channelId, long indexTime) {
+            this.channelId = channelId;
+            this.indexTime = indexTime;
+        }
+    }
+
+}
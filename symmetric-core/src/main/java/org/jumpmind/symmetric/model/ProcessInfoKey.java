@@ -27,7 +27,7 @@ public class ProcessInfoKey implements Serializable {
     private static final long serialVersionUID = 1L;
 
     public enum ProcessType {
-        ANY, PUSH_JOB, PULL_JOB, PUSH_HANDLER, PULL_HANDLER, REST_PULL_HANLDER, OFFLINE_PUSH, OFFLINE_PULL, ROUTER_JOB, INSERT_LOAD_EVENTS, GAP_DETECT, ROUTER_READER, MANUAL_LOAD, FILE_SYNC_PULL_JOB, FILE_SYNC_PUSH_JOB, FILE_SYNC_PULL_HANDLER, FILE_SYNC_PUSH_HANDLER, FILE_SYNC_TRACKER, INITIAL_LOAD_EXTRACT_JOB;
+        ANY, PUSH_JOB, PULL_JOB, PUSH_HANDLER, PULL_HANDLER, REST_PULL_HANLDER, OFFLINE_PUSH, OFFLINE_PULL, ROUTER_JOB, INSERT_LOAD_EVENTS, GAP_DETECT, ROUTER_READER, MANUAL_LOAD, FILE_SYNC_PULL_JOB, FILE_SYNC_PUSH_JOB, FILE_SYNC_PULL_HANDLER, FILE_SYNC_PUSH_HANDLER, FILE_SYNC_TRACKER, INITIAL_LOAD_EXTRACT_JOB, PURGE, EXTRACT_LOOKAHEAD;
 
         public String toString() {
             switch (this) {
@@ -69,6 +69,10 @@ public class ProcessInfoKey implements Serializable {
                     return "Inserting Load Events";
                 case INITIAL_LOAD_EXTRACT_JOB:
                     return "Initial Load Extractor";
+                case PURGE:
+                    return "Purge";
+                case EXTRACT_LOOKAHEAD:
+                    return "Extract Lookahead";
                 default:
                     return name();
             }
@@ -81,10 +85,34 @@ public class ProcessInfoKey implements Serializable {
 
     private ProcessType processType;
 
+    private String channelId;
+
+    private String instanceId;
+
     public ProcessInfoKey(String sourceNodeId, String targetNodeId, ProcessType processType) {
+        this(sourceNodeId, targetNodeId, processType, null);
+    }
+
+    /**
+     * Use this constructor when more than one process of the same type runs
+     * at the same time, one per channel.
+     */
+    public ProcessInfoKey(String sourceNodeId, String targetNodeId, ProcessType processType,
+            String channelId) {
+        this(sourceNodeId, targetNodeId, processType, channelId, null);
+    }
+
+    /**
+     * Use this constructor when more than one process of the same type runs
+     * at the same time for the same channel. The instance id tells them apart.
+     */
+    public ProcessInfoKey(String sourceNodeId, String targetNodeId, ProcessType processType,
+            String channelId, String instanceId) {
         this.sourceNodeId = sourceNodeId;
         this.targetNodeId = targetNodeId;
         this.processType = processType;
+        this.channelId = channelId;
+        this.instanceId = instanceId;
     }
 
     public String getSourceNodeId() {
@@ -99,10 +127,20 @@ public class ProcessInfoKey implements Serializable {
         return processType;
     }
 
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
+        result = prime * result + ((channelId == null) ? 0 : channelId.hashCode());
+        result = prime * result + ((instanceId == null) ? 0 : instanceId.hashCode());
         result = prime * result + ((processType == null) ? 0 : processType.hashCode());
         result = prime * result + ((sourceNodeId == null) ? 0 : sourceNodeId.hashCode());
         result = prime * result + ((targetNodeId == null) ? 0 : targetNodeId.hashCode());
@@ -120,6 +158,16 @@ public class ProcessInfoKey implements Serializable {
         ProcessInfoKey other = (ProcessInfoKey) obj;
         if (processType != other.processType)
             return false;
+        if (channelId == null) {
+            if (other.channelId != null)
+                return false;
+        } else if (!channelId.equals(other.channelId))
+            return false;
+        if (instanceId == null) {
+            if (other.instanceId != null)
+                return false;
+        } else if (!instanceId.equals(other.instanceId))
+            return false;
         if (sourceNodeId == null) {
             if (other.sourceNodeId != null)
                 return false;
@@ -135,8 +183,17 @@ public class ProcessInfoKey implements Serializable {
 
     @Override
     public String toString() {
-        return String.format("processType=%s,sourceNodeId=%s,targetNodeId=%s",
-                processType.toString(), sourceNodeId, targetNodeId);
+        if (instanceId != null) {
+            return String.format(
+                    "processType=%s,sourceNodeId=%s,targetNodeId=%s,channelId=%s,instanceId=%s",
+                    processType.toString(), sourceNodeId, targetNodeId, channelId, instanceId);
+        } else if (channelId != null) {
+            return String.format("processType=%s,sourceNodeId=%s,targetNodeId=%s,channelId=%s",
+                    processType.toString(), sourceNodeId, targetNodeId, channelId);
+        } else {
+            return String.format("processType=%s,sourceNodeId=%s,targetNodeId=%s",
+                    processType.toString(), sourceNodeId, targetNodeId);
+        }
     }
 
 }
@@ -34,8 +34,9 @@ import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.SqlException;
 import org.jumpmind.symmetric.SymmetricException;
 import org.jumpmind.symmetric.model.Data;
-import org.jumpmind.symmetric.model.DataEvent;
+import org.jumpmind.symmetric.model.DataEventBuffer;
 import org.jumpmind.symmetric.model.DataGap;
+import org.jumpmind.symmetric.model.DataIdBitmap;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.NodeChannel;
 import org.jumpmind.symmetric.model.OutgoingBatch;
@@ -58,13 +59,18 @@ public class ChannelRouterContext extends SimpleRouterContext {
     private Map<String, OutgoingBatch> batchesByNodes = new HashMap<String, OutgoingBatch>();
     private Map<TriggerRouter, Set<Node>> availableNodes = new HashMap<TriggerRouter, Set<Node>>();
     private Set<IDataRouter> usedDataRouters = new HashSet<IDataRouter>();
+
+    private IBatchAlgorithm batchAlgorithm;
     private ISqlTransaction sqlTransaction;
     private boolean needsCommitted = false;
     private long createdTimeInMs = System.currentTimeMillis();
     private Data lastDataProcessed;
-    private List<DataEvent> dataEventsToSend = new ArrayList<DataEvent>();
+    private DataEventBuffer dataEventsToSend = new DataEventBuffer();
+    private DataIdBitmap dataIdsRouted = new DataIdBitmap();
+    private DataIdBitmap committedDataIds;
     private boolean produceCommonBatches = false;
     private boolean onlyDefaultRoutersAssigned = false;
+    private boolean routedInParallel = false;
     private long lastLoadId = -1;
     private long startDataId;   
     private long endDataId;
@@ -81,7 +87,7 @@ public class ChannelRouterContext extends SimpleRouterContext {
         this.sqlTransaction.setInBatchMode(true);
     }
 
-    public List<DataEvent> getDataEventList() {
+    public DataEventBuffer getDataEventBuffer() {
         return dataEventsToSend;
     }
 
@@ -90,7 +96,24 @@ public class ChannelRouterContext extends SimpleRouterContext {
     }
 
     public void addDataEvent(long dataId, long batchId, String routerId) {
-        dataEventsToSend.add(new DataEvent(dataId, batchId, routerId));
+        dataEventsToSend.add(dataId, batchId, routerId);
+        dataIdsRouted.add(dataId);
+    }
+
+    /**
+     * @param committedDataIds
+     *            the ids of the data that was routed are added to this bitmap
+     *            when the transaction commits
+     */
+    public void setCommittedDataIds(DataIdBitmap committedDataIds) {
+        this.committedDataIds = committedDataIds;
+    }
+
+    protected void publishCommittedDataIds() {
+        if (committedDataIds != null) {
+            committedDataIds.addAll(dataIdsRouted);
+        }
+        dataIdsRouted.clear();
     }
 
     public Map<String, OutgoingBatch> getBatchesByNodes() {
@@ -104,6 +127,7 @@ public class ChannelRouterContext extends SimpleRouterContext {
     public void commit() {
         try {
             sqlTransaction.commit();
+            publishCommittedDataIds();
         } finally {
             clearState();
         }
@@ -116,6 +140,7 @@ public class ChannelRouterContext extends SimpleRouterContext {
         this.batchesByNodes.clear();
         this.availableNodes.clear();
         this.dataEventsToSend.clear();
+        this.dataIdsRouted.clear();
     }
 
     public void rollback() {
@@ -131,6 +156,7 @@ public class ChannelRouterContext extends SimpleRouterContext {
     public void cleanup() {
         try {
             this.sqlTransaction.commit();
+            publishCommittedDataIds();
         } catch (RuntimeException ex) {
             throw ex;
         } catch (Exception ex) {
@@ -166,6 +192,14 @@ public class ChannelRouterContext extends SimpleRouterContext {
         this.usedDataRouters.add(dataRouter);
     }
 
+    public void setBatchAlgorithm(IBatchAlgorithm batchAlgorithm) {
+        this.batchAlgorithm = batchAlgorithm;
+    }
+
+    public IBatchAlgorithm getBatchAlgorithm() {
+        return batchAlgorithm;
+    }
+
     public void resetForNextData() {
         this.needsCommitted = false;
     }
@@ -268,4 +302,12 @@ public class ChannelRouterContext extends SimpleRouterContext {
         return onlyDefaultRoutersAssigned;
     }
 
+    public void setRoutedInParallel(boolean routedInParallel) {
+        this.routedInParallel = routedInParallel;
+    }
+
+    public boolean isRoutedInParallel() {
+        return routedInParallel;
+    }
+
 }
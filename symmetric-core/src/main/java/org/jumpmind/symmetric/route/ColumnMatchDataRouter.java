@@ -22,6 +22,7 @@ package org.jumpmind.symmetric.route;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -76,7 +77,7 @@ import org.jumpmind.symmetric.service.IConfigurationService;
  * table and the router_expression for trigger entry for the 'price' table would
  * be 'store_id=:REDIRECT_NODE' and the router_type would be 'column'.
  */
-public class ColumnMatchDataRouter extends AbstractDataRouter implements IDataRouter, IBuiltInExtensionPoint {
+public class ColumnMatchDataRouter extends AbstractDataRouter implements IBulkDataRouter, IBuiltInExtensionPoint {
 
     private static final String NULL_VALUE = "NULL";
 
@@ -95,6 +96,17 @@ public class ColumnMatchDataRouter extends AbstractDataRouter implements IDataRo
         this.symmetricDialect = symmetricDialect;
     }
 
+    public List<Set<String>> routeToNodes(SimpleRouterContext context,
+            List<DataMetaData> dataMetaDatas, Set<Node> nodes, TriggerRouter triggerRouter) {
+        List<Set<String>> routed = new ArrayList<Set<String>>(dataMetaDatas.size());
+        for (DataMetaData dataMetaData : dataMetaDatas) {
+            Set<String> nodeIds = routeToNodes(context, dataMetaData, nodes, false, false,
+                    triggerRouter);
+            routed.add(nodeIds != null ? nodeIds : new HashSet<String>(0));
+        }
+        return routed;
+    }
+
     public Set<String> routeToNodes(SimpleRouterContext routingContext,
             DataMetaData dataMetaData, Set<Node> nodes, boolean initialLoad, boolean initialLoadSelectUsed, TriggerRouter triggerRouter) {
         Set<String> nodeIds = null;
@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.route;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -32,6 +33,7 @@ import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.DataGap;
+import org.jumpmind.symmetric.model.DataIdBitmap;
 import org.jumpmind.symmetric.model.ProcessInfo;
 import org.jumpmind.symmetric.model.ProcessInfo.Status;
 import org.jumpmind.symmetric.model.ProcessInfoKey;
@@ -64,6 +66,12 @@ public class DataGapDetector {
     
     protected INodeService nodeService;
 
+    protected boolean detectionDeferred = false;
+
+    protected boolean detectionRequested = false;
+
+    protected boolean dataEventIdsVerified = false;
+
     public DataGapDetector() {
     }
 
@@ -77,9 +85,53 @@ public class DataGapDetector {
         this.nodeService = nodeService;
     }
     
+    /**
+     * When channels are routed in parallel, gap detection that is requested by
+     * a channel is held until {@link #afterRouting()} so that it never runs
+     * while another channel still has uncommitted data events.
+     */
+    public synchronized void setDetectionDeferred(boolean detectionDeferred) {
+        this.detectionDeferred = detectionDeferred;
+    }
+
+    /**
+     * Called by the router when a channel asks for sym_data_gap to be
+     * refreshed after it has committed.
+     */
+    public void requestDetection() {
+        synchronized (this) {
+            if (detectionDeferred) {
+                detectionRequested = true;
+                return;
+            }
+        }
+        beforeRouting();
+    }
+
+    /**
+     * Run any gap detection that was deferred while channels were being
+     * routed.
+     */
+    public void afterRouting() {
+        boolean detect = false;
+        synchronized (this) {
+            detect = detectionRequested;
+            detectionRequested = false;
+        }
+        if (detect) {
+            beforeRouting();
+        }
+    }
+
     /**
      * Always make sure sym_data_gap is up to date to make sure that we don't
      * dual route data.
+     * <p>
+     * The data ids that got data events are read from the bitmap that the
+     * router and data service record them in. The first detection after
+     * startup, and every detection when the cluster lock is enabled, queries
+     * sym_data_event for each gap instead because data may have been routed
+     * by another process. All gap changes are applied in one transaction.
      */
     public void beforeRouting() {
         long printStats = System.currentTimeMillis();
@@ -89,6 +141,11 @@ public class DataGapDetector {
             long ts = System.currentTimeMillis();
             processInfo.setStatus(Status.QUERYING);
             final List<DataGap> gaps = dataService.findDataGaps();
+            DataIdBitmap dataEventIds = dataService.getDataEventIds();
+            DataIdBitmap routedDataIds = null;
+            if (dataEventIds != null && isBitmapDetectionAllowed()) {
+                routedDataIds = dataEventIds.copy();
+            }
             long lastDataId = -1;
             final int dataIdIncrementBy = parameterService
                     .getInt(ParameterConstants.DATA_ID_INCREMENT_BY);
@@ -101,7 +158,10 @@ public class DataGapDetector {
             int newGapsInserted = 0;
             int rangeChecked = 0;
             int gapsDeleted = 0;
+            long maxGapEndId = -1;
             Set<DataGap> gapCheck = new HashSet<DataGap>(gaps);
+            List<DataGap> gapsToInsert = new ArrayList<DataGap>();
+            List<DataGap> gapsToDelete = new ArrayList<DataGap>();
             
             boolean supportsTransactionViews = symmetricDialect.supportsTransactionViews();
             long earliestTransactionTime = 0;
@@ -115,132 +175,126 @@ public class DataGapDetector {
 
             for (final DataGap dataGap : gaps) {
                 final boolean lastGap = dataGap.equals(gaps.get(gaps.size() - 1));
-                String sql = routerService.getSql("selectDistinctDataIdFromDataEventUsingGapsSql");
-                ISqlTemplate sqlTemplate = symmetricDialect.getPlatform().getSqlTemplate();
-                Object[] params = new Object[] { dataGap.getStartId(), dataGap.getEndId() };
+                maxGapEndId = Math.max(maxGapEndId, dataGap.getEndId());
                 lastDataId = -1;
                 processInfo.setStatus(Status.QUERYING);
-                long queryForIdsTs = System.currentTimeMillis();
-                List<Number> ids = sqlTemplate.query(sql, new NumberMapper(), params);
-                if (System.currentTimeMillis()-queryForIdsTs > Constants.LONG_OPERATION_THRESHOLD) {
-                    log.info("It took longer than {}ms to run the following sql for gap from {} to {}.  {}", 
-                            new Object[] {Constants.LONG_OPERATION_THRESHOLD, dataGap.getStartId(), dataGap.getEndId(), sql});
-                }
+                List<? extends Number> ids = findDataIdsInGap(dataGap, routedDataIds);
                 processInfo.setStatus(Status.PROCESSING);
                 
                 idsFilled += ids.size();
                 rangeChecked += dataGap.getEndId() - dataGap.getStartId();
                 
-                ISqlTransaction transaction = null;
-                try {
-                    transaction = sqlTemplate.startSqlTransaction();
-                    for (Number number : ids) {
-                        long dataId = number.longValue();
-                        processInfo.incrementCurrentDataCount();
-                        if (lastDataId == -1 && dataGap.getStartId() + dataIdIncrementBy <= dataId) {
-                            // there was a new gap at the start
-                            DataGap newGap = new DataGap(dataGap.getStartId(), dataId - 1);
-                            if (!gapCheck.contains(newGap)) {
-                                dataService.insertDataGap(transaction, newGap);
-                                gapCheck.add(newGap);
-                            }
-                            newGapsInserted++;
-                        } else if (lastDataId != -1 && lastDataId + dataIdIncrementBy != dataId && lastDataId != dataId) {
-                            // found a gap somewhere in the existing gap
-                            DataGap newGap = new DataGap(lastDataId + 1, dataId - 1);
-                            if (!gapCheck.contains(newGap)) {
-                                dataService.insertDataGap(transaction, newGap);
-                                gapCheck.add(newGap);
-                            }
-                            newGapsInserted++;
+                for (Number number : ids) {
+                    long dataId = number.longValue();
+                    processInfo.incrementCurrentDataCount();
+                    if (lastDataId == -1 && dataGap.getStartId() + dataIdIncrementBy <= dataId) {
+                        // there was a new gap at the start
+                        DataGap newGap = new DataGap(dataGap.getStartId(), dataId - 1);
+                        if (!gapCheck.contains(newGap)) {
+                            gapsToInsert.add(newGap);
+                            gapCheck.add(newGap);
+                        }
+                        newGapsInserted++;
+                    } else if (lastDataId != -1 && lastDataId + dataIdIncrementBy != dataId && lastDataId != dataId) {
+                        // found a gap somewhere in the existing gap
+                        DataGap newGap = new DataGap(lastDataId + 1, dataId - 1);
+                        if (!gapCheck.contains(newGap)) {
+                            gapsToInsert.add(newGap);
+                            gapCheck.add(newGap);
                         }
-                        lastDataId = dataId;
+                        newGapsInserted++;
                     }
+                    lastDataId = dataId;
+                }
 
-                    // if we found data in the gap
-                    if (lastDataId != -1) {
-                        if (!lastGap && lastDataId + dataIdIncrementBy <= dataGap.getEndId()) {
-                            DataGap newGap = new DataGap(lastDataId + dataIdIncrementBy, dataGap.getEndId());
-                            if (!gapCheck.contains(newGap)) {
-                                dataService.insertDataGap(transaction, newGap);
-                                gapCheck.add(newGap);
-                            }
-                            newGapsInserted++;
+                // if we found data in the gap
+                if (lastDataId != -1) {
+                    if (!lastGap && lastDataId + dataIdIncrementBy <= dataGap.getEndId()) {
+                        DataGap newGap = new DataGap(lastDataId + dataIdIncrementBy, dataGap.getEndId());
+                        if (!gapCheck.contains(newGap)) {
+                            gapsToInsert.add(newGap);
+                            gapCheck.add(newGap);
                         }
+                        newGapsInserted++;
+                    }
 
-                        dataService.deleteDataGap(transaction, dataGap);
-                        gapsDeleted++;
-
-                        // if we did not find data in the gap and it was not the
-                        // last gap
-                    } else if (!lastGap) {
-                        Date createTime = dataGap.getCreateTime();
-                        if (supportsTransactionViews) {
-                            if (createTime != null && (createTime.getTime() < earliestTransactionTime || earliestTransactionTime == 0)) {
-                                if (dataService.countDataInRange(dataGap.getStartId() - 1, dataGap.getEndId() + 1) == 0) {
-                                    if (dataGap.getStartId() == dataGap.getEndId()) {
-                                        log.info(
-                                                "Found a gap in data_id at {}.  Skipping it because there are no pending transactions in the database",
-                                                dataGap.getStartId());
-                                    } else {
-                                        log.info(
-                                                "Found a gap in data_id from {} to {}.  Skipping it because there are no pending transactions in the database",
-                                                dataGap.getStartId(), dataGap.getEndId());
-                                    }
-
-                                    dataService.deleteDataGap(transaction, dataGap);
-                                    gapsDeleted++;
-                                }
-                            }
-                        } else if (createTime != null && databaseTime - createTime.getTime() > gapTimoutInMs) {
+                    gapsToDelete.add(dataGap);
+                    gapsDeleted++;
+
+                    // if we did not find data in the gap and it was not the
+                    // last gap
+                } else if (!lastGap) {
+                    Date createTime = dataGap.getCreateTime();
+                    if (supportsTransactionViews) {
+                        if (createTime != null && (createTime.getTime() < earliestTransactionTime || earliestTransactionTime == 0)) {
                             if (dataService.countDataInRange(dataGap.getStartId() - 1, dataGap.getEndId() + 1) == 0) {
                                 if (dataGap.getStartId() == dataGap.getEndId()) {
-                                    log.info("Found a gap in data_id at {}.  Skipping it because the gap expired", dataGap.getStartId());
+                                    log.info(
+                                            "Found a gap in data_id at {}.  Skipping it because there are no pending transactions in the database",
+                                            dataGap.getStartId());
                                 } else {
-                                    log.info("Found a gap in data_id from {} to {}.  Skipping it because the gap expired",
+                                    log.info(
+                                            "Found a gap in data_id from {} to {}.  Skipping it because there are no pending transactions in the database",
                                             dataGap.getStartId(), dataGap.getEndId());
                                 }
-                                dataService.deleteDataGap(transaction, dataGap);
+
+                                gapsToDelete.add(dataGap);
                                 gapsDeleted++;
                             }
                         }
+                    } else if (createTime != null && databaseTime - createTime.getTime() > gapTimoutInMs) {
+                        if (dataService.countDataInRange(dataGap.getStartId() - 1, dataGap.getEndId() + 1) == 0) {
+                            if (dataGap.getStartId() == dataGap.getEndId()) {
+                                log.info("Found a gap in data_id at {}.  Skipping it because the gap expired", dataGap.getStartId());
+                            } else {
+                                log.info("Found a gap in data_id from {} to {}.  Skipping it because the gap expired",
+                                        dataGap.getStartId(), dataGap.getEndId());
+                            }
+                            gapsToDelete.add(dataGap);
+                            gapsDeleted++;
+                        }
                     }
+                }
 
-                    if (System.currentTimeMillis() - printStats > 30000) {
-                        log.info(
-                                "The data gap detection process has been running for {}ms, detected {} rows that have been previously routed over a total gap range of {}, "
-                                        + "inserted {} new gaps, and deleted {} gaps", new Object[] { System.currentTimeMillis() - ts,
-                                        idsFilled, rangeChecked, newGapsInserted, gapsDeleted });
-                        printStats = System.currentTimeMillis();
-                    }
-
-                    transaction.commit();
-                } catch (Error ex) {
-                    if (transaction != null) {
-                        transaction.rollback();
-                    }
-                    throw ex;
-                } catch (RuntimeException ex) {
-                    if (transaction != null) {
-                        transaction.rollback();
-                    }
-                    throw ex;
-                } finally {
-                    if (transaction != null) {
-                        transaction.close();
-                    }
+                if (System.currentTimeMillis() - printStats > 30000) {
+                    log.info(
+                            "The data gap detection process has been running for {}ms, detected {} rows that have been previously routed over a total gap range of {}, "
+                                    + "inserted {} new gaps, and deleted {} gaps", new Object[] { System.currentTimeMillis() - ts,
+                                    idsFilled, rangeChecked, newGapsInserted, gapsDeleted });
+                    printStats = System.currentTimeMillis();
                 }
             }
 
             if (lastDataId != -1) {
                 DataGap newGap = new DataGap(lastDataId + 1, lastDataId + maxDataToSelect);
                 if (!gapCheck.contains(newGap)) {
-                    dataService.insertDataGap(newGap);
+                    gapsToInsert.add(newGap);
                     gapCheck.add(newGap);
                 }
 
             }
 
+            processInfo.setStatus(Status.PROCESSING);
+            updateDataGaps(gapsToInsert, gapsToDelete);
+
+            if (routedDataIds != null) {
+                /*
+                 * Ids past the last gap have not been looked at yet. They are
+                 * kept until a gap covers them.
+                 */
+                routedDataIds.remove(maxGapEndId + 1, Long.MAX_VALUE);
+                dataEventIds.removeAll(routedDataIds);
+            } else if (dataEventIds != null) {
+                if (gaps.size() > 0) {
+                    /*
+                     * Gaps are never created below the first one, so older ids
+                     * are not needed
+                     */
+                    dataEventIds.remove(Long.MIN_VALUE, gaps.get(0).getStartId() - 1);
+                }
+                dataEventIdsVerified = true;
+            }
+
             long updateTimeInMs = System.currentTimeMillis() - ts;
             if (updateTimeInMs > 10000) {
                 log.info("Detecting gaps took {} ms", updateTimeInMs);
@@ -253,4 +307,60 @@ public class DataGapDetector {
 
     }
 
+    /**
+     * The bitmap only holds the data events inserted by this engine, so it can
+     * only be used once sym_data_event has been checked since startup and when
+     * no other node in a cluster could have routed.
+     */
+    protected boolean isBitmapDetectionAllowed() {
+        return dataEventIdsVerified
+                && parameterService.is(ParameterConstants.ROUTING_DATA_GAP_BITMAP_ENABLED, true)
+                && !parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED);
+    }
+
+    protected List<? extends Number> findDataIdsInGap(DataGap dataGap, DataIdBitmap routedDataIds) {
+        if (routedDataIds != null) {
+            return routedDataIds.getDataIds(dataGap.getStartId(), dataGap.getEndId());
+        } else {
+            String sql = routerService.getSql("selectDistinctDataIdFromDataEventUsingGapsSql");
+            ISqlTemplate sqlTemplate = symmetricDialect.getPlatform().getSqlTemplate();
+            long queryForIdsTs = System.currentTimeMillis();
+            List<Number> ids = sqlTemplate.query(sql, new NumberMapper(), dataGap.getStartId(),
+                    dataGap.getEndId());
+            if (System.currentTimeMillis() - queryForIdsTs > Constants.LONG_OPERATION_THRESHOLD) {
+                log.info("It took longer than {}ms to run the following sql for gap from {} to {}.  {}",
+                        new Object[] { Constants.LONG_OPERATION_THRESHOLD, dataGap.getStartId(),
+                                dataGap.getEndId(), sql });
+            }
+            return ids;
+        }
+    }
+
+    protected void updateDataGaps(List<DataGap> gapsToInsert, List<DataGap> gapsToDelete) {
+        if (gapsToInsert.size() > 0 || gapsToDelete.size() > 0) {
+            ISqlTransaction transaction = null;
+            try {
+                transaction = symmetricDialect.getPlatform().getSqlTemplate().startSqlTransaction();
+                transaction.setInBatchMode(true);
+                dataService.deleteDataGaps(transaction, gapsToDelete);
+                dataService.insertDataGaps(transaction, gapsToInsert);
+                transaction.commit();
+            } catch (Error ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw ex;
+            } catch (RuntimeException ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw ex;
+            } finally {
+                if (transaction != null) {
+                    transaction.close();
+                }
+            }
+        }
+    }
+
 }
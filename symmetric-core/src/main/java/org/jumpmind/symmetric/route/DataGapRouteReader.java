@@ -25,13 +25,11 @@ import static org.apache.commons.lang.StringUtils.isNotBlank;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.sql.ISqlReadCursor;
@@ -50,15 +48,15 @@ import org.jumpmind.symmetric.model.ProcessInfo.Status;
 import org.jumpmind.symmetric.model.ProcessInfoKey;
 import org.jumpmind.symmetric.model.ProcessInfoKey.ProcessType;
 import org.jumpmind.symmetric.service.IParameterService;
-import org.jumpmind.util.AppUtils;
 import org.jumpmind.util.FormatUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This class is responsible for reading data for the purpose of routing. It
- * reads ahead and tries to keep a blocking queue populated for another thread
- * to process.
+ * reads ahead and tries to keep a {@link DataRingBuffer} populated for another
+ * thread to process. The ring buffer is bounded by the peek ahead window and
+ * by the share of the heap configured for peek ahead.
  */
 public class DataGapRouteReader implements IDataToRouteReader {
 
@@ -68,7 +66,7 @@ public class DataGapRouteReader implements IDataToRouteReader {
 
     protected DataGap currentGap;
 
-    protected BlockingQueue<Data> dataQueue;
+    protected DataRingBuffer dataQueue;
 
     protected ChannelRouterContext context;
 
@@ -90,7 +88,7 @@ public class DataGapRouteReader implements IDataToRouteReader {
     
     protected String lastTransactionId = null;
     
-    protected static Map<String, Boolean> lastSelectUsedGreaterThanQueryByEngineName = new HashMap<String, Boolean>(); 
+    protected static Map<String, Boolean> lastSelectUsedGreaterThanQueryByEngineName = new ConcurrentHashMap<String, Boolean>(); 
 
     public DataGapRouteReader(ChannelRouterContext context, ISymmetricEngine engine) {
         this.engine = engine;
@@ -99,12 +97,13 @@ public class DataGapRouteReader implements IDataToRouteReader {
         this.percentOfHeapToUse = (double)parameterService.getInt(ParameterConstants.ROUTING_PEEK_AHEAD_MEMORY_THRESHOLD)/(double)100;
         this.takeTimeout = engine.getParameterService().getInt(
                 ParameterConstants.ROUTING_WAIT_FOR_DATA_TIMEOUT_SECONDS, 330);
-        if (parameterService.is(ParameterConstants.SYNCHRONIZE_ALL_JOBS)) {
-            /* there will not be a separate thread to read a blocked queue so make sure the queue is big enough that it can be filled */
-            this.dataQueue = new LinkedBlockingQueue<Data>();
-        } else {
-            this.dataQueue = new LinkedBlockingQueue<Data>(peekAheadCount);
-        }
+        long maxQueueSizeInBytes = (long) (Runtime.getRuntime().maxMemory() * percentOfHeapToUse);
+        /*
+         * when all jobs are synchronized there will not be a separate thread to
+         * read the queue so make sure the queue can grow until it is filled
+         */
+        this.dataQueue = new DataRingBuffer(peekAheadCount, maxQueueSizeInBytes,
+                parameterService.is(ParameterConstants.SYNCHRONIZE_ALL_JOBS));
         this.context = context;
         
         String engineName = parameterService.getEngineName();
@@ -127,7 +126,8 @@ public class DataGapRouteReader implements IDataToRouteReader {
         ISqlReadCursor<Data> cursor = null;
         processInfo = engine.getStatisticManager().newProcessInfo(
                 new ProcessInfoKey(engine.getNodeService().findIdentityNodeId(), null,
-                        ProcessType.ROUTER_READER));
+                        ProcessType.ROUTER_READER, context.isRoutedInParallel() ? context
+                                .getChannel().getChannelId() : null));
         processInfo.setCurrentChannelId(context.getChannel().getChannelId());
         try {
             int lastPeekAheadIndex = 0;
@@ -149,9 +149,10 @@ public class DataGapRouteReader implements IDataToRouteReader {
 
                 int dataWithSameTransactionIdCount = 0;
                 
-                while (peekAheadQueue.size() > 0 && lastTransactionId == null &&
+                int taken = 0;
+                while (taken < peekAheadQueue.size() && lastTransactionId == null &&
                         dataCount < maxDataToRoute) {
-                    Data data = peekAheadQueue.remove(0);
+                    Data data = peekAheadQueue.get(taken++);
                     copyToQueue(data);
                     dataCount++;
                     processInfo.incrementCurrentDataCount();
@@ -160,25 +161,38 @@ public class DataGapRouteReader implements IDataToRouteReader {
                     context.addTransaction(lastTransactionId);
                     dataWithSameTransactionIdCount++;
                 }
+                if (taken > 0) {
+                    peekAheadQueue.subList(0, taken).clear();
+                }
 
                 if (lastTransactionId != null && peekAheadQueue.size() > 0) {
-                    Iterator<Data> datas = peekAheadQueue.iterator();
+                    /*
+                     * compact the data that is left behind in place instead of
+                     * removing each data that is taken
+                     */
+                    int size = peekAheadQueue.size();
+                    int kept = 0;
                     int index = 0;
-                    while (datas.hasNext() && (dataCount < maxDataToRoute || transactional)) {
-                        Data data = datas.next();                        
-                        if (lastTransactionId.equals(data.getTransactionId())) {
+                    for (int i = 0; i < size; i++) {
+                        Data data = peekAheadQueue.get(i);
+                        if ((dataCount < maxDataToRoute || transactional)
+                                && lastTransactionId.equals(data.getTransactionId())) {
                             dataWithSameTransactionIdCount++;
-                            datas.remove();
                             copyToQueue(data);
                             dataCount++;
                             processInfo.incrementCurrentDataCount();
                             processInfo.setCurrentTableName(data.getTableName());
                             lastPeekAheadIndex = index;
                         } else {
-                            context.addTransaction(data.getTransactionId());
-                            index++;
+                            if (dataCount < maxDataToRoute || transactional) {
+                                context.addTransaction(data.getTransactionId());
+                                index++;
+                            }
+                            peekAheadQueue.set(kept++, data);
                         }
-                        
+                    }
+                    if (kept < size) {
+                        peekAheadQueue.subList(kept, size).clear();
                     }
 
                     if (dataWithSameTransactionIdCount == 0 || peekAheadQueue.size()-lastPeekAheadIndex > peekAheadCount) {
@@ -244,21 +258,36 @@ public class DataGapRouteReader implements IDataToRouteReader {
 
     public Data take() throws InterruptedException {
         Data data = null;
-        do {
-            data = dataQueue.poll(takeTimeout, TimeUnit.SECONDS);
-
-            if (data == null && !reading) {
+        long timeoutAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(takeTimeout);
+        int idleCount = 0;
+        while ((data = dataQueue.poll()) == null) {
+            if (!reading && System.nanoTime() - timeoutAt > 0) {
                 throw new SymmetricException("The read of the data to route queue has timed out");
-            } else if (data instanceof EOD) {
-                data = null;
-                break;
-            } 
-            
-        } while (data == null && reading);
-        
+            } else if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            idle(++idleCount);
+        }
+
+        if (data instanceof EOD) {
+            data = null;
+        }
+
         return data;
     }
 
+    /**
+     * Spin for a short time before parking so that the producer and consumer
+     * of the ring buffer do not have to hand off through a lock.
+     */
+    protected void idle(int idleCount) {
+        if (idleCount < 100) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(idleCount < 1000 ? 10000 : 1000000);
+        }
+    }
+
     protected ISqlReadCursor<Data> prepareCursor() {
         IParameterService parameterService = engine.getParameterService();
         int numberOfGapsToQualify = parameterService.getInt(
@@ -422,8 +451,9 @@ public class DataGapRouteReader implements IDataToRouteReader {
     protected void copyToQueue(Data data) {
         long ts = System.currentTimeMillis();
         peekAheadSizeInBytes -= data.getSizeInBytes();
+        int idleCount = 0;
         while (!dataQueue.offer(data) && reading) {
-            AppUtils.sleep(50);
+            idle(++idleCount);
         }
         context.incrementStat(System.currentTimeMillis() - ts,
                 ChannelRouterContext.STAT_ENQUEUE_DATA_MS);
@@ -440,7 +470,7 @@ public class DataGapRouteReader implements IDataToRouteReader {
         }
     }
 
-    public BlockingQueue<Data> getDataQueue() {
+    public DataRingBuffer getDataQueue() {
         return dataQueue;
     }
 
@@ -0,0 +1,149 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jumpmind.symmetric.model.Data;
+
+/**
+ * A bounded, lock-free ring buffer that hands {@link Data} from the thread
+ * that reads data to route to the thread that routes it. It supports exactly
+ * one producer and one consumer. The buffer is bounded by a number of slots
+ * and by an estimate of the bytes it holds, whichever is reached first. At
+ * least one {@link Data} is always accepted so that a single large row cannot
+ * stall routing.
+ * <p>
+ * When the producer and the consumer run on the same thread the buffer can be
+ * made growable, in which case it is never full.
+ */
+public class DataRingBuffer {
+
+    private Data[] buffer;
+
+    private long[] sizes;
+
+    private int mask;
+
+    private final long maxSizeInBytes;
+
+    private final boolean growable;
+
+    /* next slot to read. only written by the consumer */
+    private final AtomicLong head = new AtomicLong();
+
+    /* next slot to write. only written by the producer */
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong sizeInBytes = new AtomicLong();
+
+    public DataRingBuffer(int capacity, long maxSizeInBytes, boolean growable) {
+        int slots = 2;
+        while (slots < capacity && slots < (1 << 30)) {
+            slots <<= 1;
+        }
+        this.buffer = new Data[slots];
+        this.sizes = new long[slots];
+        this.mask = slots - 1;
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.growable = growable;
+    }
+
+    /**
+     * Called by the producer.
+     * 
+     * @return false if the buffer is full
+     */
+    public boolean offer(Data data) {
+        long currentTail = tail.get();
+        long currentHead = head.get();
+        long size = data.getSizeInBytes();
+        if (currentTail - currentHead >= buffer.length) {
+            if (growable) {
+                grow(currentHead, currentTail);
+            } else {
+                return false;
+            }
+        } else if (!growable && currentTail != currentHead
+                && sizeInBytes.get() + size > maxSizeInBytes) {
+            return false;
+        }
+        int index = (int) (currentTail & mask);
+        buffer[index] = data;
+        sizes[index] = size;
+        sizeInBytes.addAndGet(size);
+        tail.lazySet(currentTail + 1);
+        return true;
+    }
+
+    /**
+     * Called by the consumer.
+     * 
+     * @return the next {@link Data} or null if the buffer is empty
+     */
+    public Data poll() {
+        long currentHead = head.get();
+        if (currentHead >= tail.get()) {
+            return null;
+        }
+        int index = (int) (currentHead & mask);
+        Data data = buffer[index];
+        buffer[index] = null;
+        sizeInBytes.addAndGet(-sizes[index]);
+        head.lazySet(currentHead + 1);
+        return data;
+    }
+
+    protected void grow(long currentHead, long currentTail) {
+        int slots = buffer.length << 1;
+        Data[] newBuffer = new Data[slots];
+        long[] newSizes = new long[slots];
+        int newMask = slots - 1;
+        for (long i = currentHead; i < currentTail; i++) {
+            newBuffer[(int) (i & newMask)] = buffer[(int) (i & mask)];
+            newSizes[(int) (i & newMask)] = sizes[(int) (i & mask)];
+        }
+        buffer = newBuffer;
+        sizes = newSizes;
+        mask = newMask;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes.get();
+    }
+
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+}
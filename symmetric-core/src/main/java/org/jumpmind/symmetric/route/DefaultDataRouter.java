@@ -20,6 +20,9 @@
  */
 package org.jumpmind.symmetric.route;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.jumpmind.extension.IBuiltInExtensionPoint;
@@ -31,13 +34,23 @@ import org.jumpmind.symmetric.model.TriggerRouter;
 /**
  * This data router will route data to all of the nodes that are passed to it.
  */
-public class DefaultDataRouter extends AbstractDataRouter implements IBuiltInExtensionPoint {
+public class DefaultDataRouter extends AbstractDataRouter implements IBulkDataRouter, IBuiltInExtensionPoint {
 
     public Set<String> routeToNodes(SimpleRouterContext routingContext, DataMetaData dataMetaData, Set<Node> nodes,
             boolean initialLoad, boolean initialLoadSelectUsed, TriggerRouter triggerRouter) {
         return toNodeIds(nodes, null);
     }
 
+    public List<Set<String>> routeToNodes(SimpleRouterContext context,
+            List<DataMetaData> dataMetaDatas, Set<Node> nodes, TriggerRouter triggerRouter) {
+        Set<String> nodeIds = toNodeIds(nodes, null);
+        List<Set<String>> routed = new ArrayList<Set<String>>(dataMetaDatas.size());
+        for (int i = 0; i < dataMetaDatas.size(); i++) {
+            routed.add(new HashSet<String>(nodeIds));
+        }
+        return routed;
+    }
+
     public void completeBatch(SimpleRouterContext context, OutgoingBatch batch) {
 
     }
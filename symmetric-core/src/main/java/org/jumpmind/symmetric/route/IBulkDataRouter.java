@@ -0,0 +1,45 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import java.util.List;
+import java.util.Set;
+
+import org.jumpmind.symmetric.model.DataMetaData;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.TriggerRouter;
+
+/**
+ * A data router that is able to route a chunk of data that share the same
+ * trigger router in one call. The router service uses this when
+ * routing.data.chunk.size is greater than one.
+ * <p>
+ * Implementations must not depend on batch boundaries because the chunk is
+ * routed before the data is assigned to batches. The returned list must be in
+ * the same order as the passed in list of {@link DataMetaData} and each entry
+ * must be a new set that the caller is free to modify.
+ */
+public interface IBulkDataRouter extends IDataRouter {
+
+    public List<Set<String>> routeToNodes(SimpleRouterContext context,
+            List<DataMetaData> dataMetaDatas, Set<Node> nodes, TriggerRouter triggerRouter);
+
+}
@@ -71,4 +71,6 @@ public interface IDataLoaderService {
     
     public void updateIncomingError(IncomingError incomingError);
 
-}
\ No newline at end of file
+    public void stop();
+
+}
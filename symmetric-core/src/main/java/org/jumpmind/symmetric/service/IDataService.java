@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -30,7 +31,9 @@ import org.jumpmind.symmetric.ext.IHeartbeatListener;
 import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.model.Data;
 import org.jumpmind.symmetric.model.DataEvent;
+import org.jumpmind.symmetric.model.DataEventBuffer;
 import org.jumpmind.symmetric.model.DataGap;
+import org.jumpmind.symmetric.model.DataIdBitmap;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.OutgoingBatch.Status;
 import org.jumpmind.symmetric.model.TableReloadRequest;
@@ -87,6 +90,8 @@ public interface IDataService {
     public long insertData(Data data);
     
     public void insertDataEvents(ISqlTransaction transaction, List<DataEvent> events);
+
+    public void insertDataEvents(ISqlTransaction transaction, DataEventBuffer events);
     
     public void insertDataAndDataEventAndOutgoingBatch(Data data, String channelId, List<Node> nodes, String routerId, boolean isLoad, long loadId, String createBy);
     
@@ -142,6 +147,22 @@ public interface IDataService {
     public void deleteDataGap(ISqlTransaction transaction, DataGap gap);
     
     public void deleteDataGap(DataGap gap);
+
+    /**
+     * Insert the gaps as one batch in the transaction
+     */
+    public void insertDataGaps(ISqlTransaction transaction, Collection<DataGap> gaps);
+
+    /**
+     * Delete the gaps as one batch in the transaction
+     */
+    public void deleteDataGaps(ISqlTransaction transaction, Collection<DataGap> gaps);
+
+    /**
+     * @return the data ids that data events have been inserted for by this
+     *         engine and that gap detection has not accounted for yet
+     */
+    public DataIdBitmap getDataEventIds();
     
     public void deleteCapturedConfigChannelData();
     
@@ -21,6 +21,7 @@
 
 package org.jumpmind.symmetric.service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -63,6 +64,14 @@ public interface IOutgoingBatchService {
 
     public boolean isUnsentDataOnChannelForNode(String channelId, String nodeId);
 
+    /**
+     * @param channelIds
+     *            the channels to look for or null for any channel
+     * @return false if it is known that there are no batches waiting to be
+     *         sent to the node without selecting from the database
+     */
+    public boolean hasPendingBatches(String nodeId, Collection<String> channelIds);
+
     public void updateOutgoingBatch(OutgoingBatch batch);
     
     public void updateOutgoingBatch(ISqlTransaction transaction, OutgoingBatch outgoingBatch);
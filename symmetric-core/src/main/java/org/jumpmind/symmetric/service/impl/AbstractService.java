@@ -31,6 +31,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
@@ -81,6 +83,30 @@ abstract public class AbstractService implements IService {
         this.sqlTemplate = symmetricDialect.getPlatform().getSqlTemplate();
     }
     
+    /**
+     * Names the threads of a thread pool after the engine and the pool, so
+     * they can be told apart in a thread dump.
+     */
+    protected ThreadFactory newNamedThreadFactory(String name) {
+        final String namePrefix = parameterService.getEngineName().toLowerCase() + "-" + name
+                + "-";
+        return new ThreadFactory() {
+            final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName(namePrefix + threadNumber.getAndIncrement());
+                if (t.isDaemon()) {
+                    t.setDaemon(false);
+                }
+                if (t.getPriority() != Thread.NORM_PRIORITY) {
+                    t.setPriority(Thread.NORM_PRIORITY);
+                }
+                return t;
+            }
+        };
+    }
+
     protected Date maxDate(Date... dates) {
         Date date = null;
         if (dates != null) {
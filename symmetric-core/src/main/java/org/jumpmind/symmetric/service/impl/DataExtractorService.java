@@ -22,6 +22,7 @@ package org.jumpmind.symmetric.service.impl;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
@@ -34,7 +35,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.io.DatabaseXmlUtil;
@@ -123,6 +131,8 @@ import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGr
 import org.jumpmind.symmetric.statistic.IStatisticManager;
 import org.jumpmind.symmetric.transport.IOutgoingTransport;
 import org.jumpmind.symmetric.transport.TransportUtils;
+import org.jumpmind.symmetric.util.SymmetricUtils;
+import org.jumpmind.util.FormatUtils;
 import org.jumpmind.util.Statistics;
 
 /**
@@ -161,6 +171,12 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
     private Map<String, Semaphore> locks = new HashMap<String, Semaphore>();
 
+    private ThreadPoolExecutor lookaheadExtractThreads = null;
+
+    private ThreadPoolExecutor initialLoadExtractThreads = null;
+
+    private final Object lookaheadExtractThreadsLock = new Object();
+
     public DataExtractorService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
         this.outgoingBatchService = engine.getOutgoingBatchService();
@@ -491,6 +507,27 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         return extracted;
     }
 
+    public void stop() {
+        synchronized (lookaheadExtractThreadsLock) {
+            if (lookaheadExtractThreads != null) {
+                try {
+                    lookaheadExtractThreads.shutdown();
+                    lookaheadExtractThreads = null;
+                } catch (Exception ex) {
+                    log.error("", ex);
+                }
+            }
+            if (initialLoadExtractThreads != null) {
+                try {
+                    initialLoadExtractThreads.shutdown();
+                    initialLoadExtractThreads = null;
+                } catch (Exception ex) {
+                    log.error("", ex);
+                }
+            }
+        }
+    }
+
     protected List<OutgoingBatch> extract(ProcessInfo processInfo, Node targetNode,
             List<OutgoingBatch> activeBatches, IDataWriter dataWriter, ExtractMode mode) {
         boolean streamToFileEnabled = parameterService
@@ -500,6 +537,14 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             Set<String> channelsProcessed = new HashSet<String>();
             long batchesSelectedAtMs = System.currentTimeMillis();
             OutgoingBatch currentBatch = null;
+            /*
+             * batches that are extracted to staging by the lookahead threads
+             * while the batches before them are being sent
+             */
+            int lookaheadBatches = streamToFileEnabled && mode != ExtractMode.EXTRACT_ONLY ? parameterService
+                    .getInt(ParameterConstants.EXTRACT_LOOKAHEAD_BATCHES, 0) : 0;
+            Map<Integer, Future<OutgoingBatch>> lookaheadExtracts = new HashMap<Integer, Future<OutgoingBatch>>();
+            int lookaheadIndex = 0;
             try {
 
                 long bytesSentCount = 0;
@@ -515,9 +560,32 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                     processInfo.setCurrentBatchId(currentBatch.getBatchId());
                     processInfo.setCurrentLoadId(currentBatch.getLoadId());
 
-                    currentBatch = requeryIfEnoughTimeHasPassed(batchesSelectedAtMs, currentBatch);
+                    if (lookaheadBatches > 0) {
+                        lookaheadIndex = Math.max(lookaheadIndex, i + 1);
+                        while (lookaheadIndex < activeBatches.size()
+                                && lookaheadIndex <= i + lookaheadBatches) {
+                            OutgoingBatch lookaheadBatch = activeBatches.get(lookaheadIndex);
+                            if (!lookaheadBatch.isExtractJobFlag()
+                                    && lookaheadBatch.getStatus() != Status.IG
+                                    && lookaheadBatch.getStatus() != Status.OK) {
+                                lookaheadExtracts.put(lookaheadIndex,
+                                        extractInBackground(targetNode, lookaheadBatch, mode));
+                            }
+                            lookaheadIndex++;
+                        }
+                    }
+
+                    Future<OutgoingBatch> lookaheadExtract = lookaheadExtracts.remove(i);
+                    if (lookaheadExtract != null) {
+                        processInfo.setStatus(ProcessInfo.Status.EXTRACTING);
+                        currentBatch = waitForExtract(lookaheadExtract);
+                    } else {
+                        currentBatch = requeryIfEnoughTimeHasPassed(batchesSelectedAtMs, currentBatch);
+                    }
 
-                    if (currentBatch.isExtractJobFlag() && currentBatch.getStatus() != Status.IG) {
+                    if (lookaheadExtract != null) {
+                        // already extracted by a lookahead thread
+                    } else if (currentBatch.isExtractJobFlag() && currentBatch.getStatus() != Status.IG) {
                         if (parameterService.is(ParameterConstants.INITIAL_LOAD_USE_EXTRACT_JOB)) {
                             if (currentBatch.getStatus() != Status.RQ && currentBatch.getStatus() != Status.IG
                                     && !isPreviouslyExtracted(currentBatch)) {
@@ -613,6 +681,14 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                     log.error("Could not log the outgoing batch status because the batch was null",
                             e);
                 }
+            } finally {
+                /*
+                 * batches that were extracted ahead but not sent stay in
+                 * staging and will be sent on a subsequent sync
+                 */
+                for (Future<OutgoingBatch> future : lookaheadExtracts.values()) {
+                    future.cancel(false);
+                }
             }
 
             // Next, we update the node channel controls to the
@@ -634,6 +710,99 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         }
     }
 
+    protected Future<OutgoingBatch> extractInBackground(final Node targetNode,
+            final OutgoingBatch batch, final ExtractMode mode) {
+        return getLookaheadExtractThreads().submit(new Callable<OutgoingBatch>() {
+            public OutgoingBatch call() throws Exception {
+                /*
+                 * the extract is tracked with its own process info so it does
+                 * not report over the batch that is being sent. The lookahead
+                 * thread is the instance id, so extracts for the same node and
+                 * channel that run at the same time do not replace each other
+                 */
+                ProcessInfo processInfo = statisticManager.newProcessInfo(new ProcessInfoKey(
+                        nodeService.findIdentityNodeId(), targetNode.getNodeId(),
+                        ProcessInfoKey.ProcessType.EXTRACT_LOOKAHEAD, batch.getChannelId(),
+                        Thread.currentThread().getName()));
+                try {
+                    OutgoingBatch extractedBatch = extractOutgoingBatch(processInfo, targetNode,
+                            null, batch, true, true, mode);
+                    processInfo.setStatus(ProcessInfo.Status.OK);
+                    return extractedBatch;
+                } catch (RuntimeException ex) {
+                    processInfo.setStatus(ProcessInfo.Status.ERROR);
+                    throw ex;
+                }
+            }
+        });
+    }
+
+    protected <T> T waitForExtract(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new org.jumpmind.exception.InterruptedException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new SymmetricException(cause);
+            }
+        }
+    }
+
+    protected ExecutorService getLookaheadExtractThreads() {
+        int threadCount = parameterService.getInt(
+                ParameterConstants.EXTRACT_LOOKAHEAD_THREAD_COUNT, 4);
+        synchronized (lookaheadExtractThreadsLock) {
+            if (lookaheadExtractThreads != null
+                    && lookaheadExtractThreads.getCorePoolSize() != threadCount) {
+                log.info("{} has changed from {} to {}.  Restarting thread pool", new Object[] {
+                        ParameterConstants.EXTRACT_LOOKAHEAD_THREAD_COUNT,
+                        lookaheadExtractThreads.getCorePoolSize(), threadCount });
+                lookaheadExtractThreads.shutdown();
+                lookaheadExtractThreads = null;
+            }
+
+            if (lookaheadExtractThreads == null) {
+                lookaheadExtractThreads = newExtractThreadPool(threadCount, "extract-lookahead");
+            }
+            return lookaheadExtractThreads;
+        }
+    }
+
+    /**
+     * The chunks of initial loads for all nodes share one pool so the number
+     * of connections used for initial load extraction is bounded.
+     */
+    protected ExecutorService getInitialLoadExtractThreads() {
+        int threadCount = parameterService.getInt(
+                ParameterConstants.INITIAL_LOAD_EXTRACT_CHUNK_THREAD_COUNT, 1);
+        synchronized (lookaheadExtractThreadsLock) {
+            if (initialLoadExtractThreads != null
+                    && initialLoadExtractThreads.getCorePoolSize() != threadCount) {
+                log.info("{} has changed from {} to {}.  Restarting thread pool", new Object[] {
+                        ParameterConstants.INITIAL_LOAD_EXTRACT_CHUNK_THREAD_COUNT,
+                        initialLoadExtractThreads.getCorePoolSize(), threadCount });
+                initialLoadExtractThreads.shutdown();
+                initialLoadExtractThreads = null;
+            }
+
+            if (initialLoadExtractThreads == null) {
+                initialLoadExtractThreads = newExtractThreadPool(threadCount, "initial-load-extract");
+            }
+            return initialLoadExtractThreads;
+        }
+    }
+
+    protected ThreadPoolExecutor newExtractThreadPool(int threadCount, String name) {
+        return (ThreadPoolExecutor) Executors.newFixedThreadPool(threadCount,
+                newNamedThreadFactory(name));
+    }
+
     final protected boolean changeBatchStatus(Status status, OutgoingBatch currentBatch, ExtractMode mode) {
         if (currentBatch.getStatus() != Status.IG) {
             currentBatch.setStatus(status);
@@ -1056,6 +1225,190 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                         Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR });
     }
 
+    /**
+     * Split requests that span more than
+     * {@link ParameterConstants#INITIAL_LOAD_EXTRACT_CHUNK_BATCH_COUNT} batches
+     * into requests for chunks of that many batches. The boundaries between
+     * chunks are read from the primary key in order, so each chunk selects
+     * the rows of its batches even when the keys are skewed or sparse. The
+     * request itself becomes the
+     * first chunk. The range is saved as the initial load select of the reload
+     * event of the first batch of the chunk, so a restarted extract selects the
+     * same rows.
+     * 
+     * @return the requests to extract
+     */
+    protected List<ExtractRequest> splitExtractRequests(String nodeId, List<ExtractRequest> requests) {
+        int batchesPerChunk = parameterService.getInt(
+                ParameterConstants.INITIAL_LOAD_EXTRACT_CHUNK_BATCH_COUNT, 10);
+        boolean split = false;
+        for (ExtractRequest request : requests) {
+            if (request.getEndBatchId() - request.getStartBatchId() + 1 > batchesPerChunk
+                    && request.getTriggerRouter() != null) {
+                split |= splitExtractRequest(request, batchesPerChunk);
+            }
+        }
+        return split ? getExtractRequestsForNode(nodeId) : requests;
+    }
+
+    protected boolean splitExtractRequest(ExtractRequest request, int batchesPerChunk) {
+        List<OutgoingBatch> batches = outgoingBatchService.getOutgoingBatchRange(
+                request.getStartBatchId(), request.getEndBatchId()).getBatches();
+        if (batches.size() <= batchesPerChunk) {
+            return false;
+        }
+
+        Row reloadEvent = sqlTemplate.queryForRow(getSql("selectReloadEventForBatchSql"),
+                batches.get(0).getBatchId());
+        TriggerHistory triggerHistory = reloadEvent == null ? null : triggerRouterService
+                .getTriggerHistory(reloadEvent.getInt("trigger_hist_id"));
+        if (triggerHistory == null) {
+            return false;
+        }
+
+        Table table = platform.getTableFromCache(triggerHistory.getSourceCatalogName(),
+                triggerHistory.getSourceSchemaName(), triggerHistory.getSourceTableName(), false);
+        Column pkColumn = getChunkColumn(table);
+        if (pkColumn == null) {
+            log.debug("Not splitting the extract of {} because it does not have a single numeric primary key column",
+                    triggerHistory.getSourceTableName());
+            return false;
+        }
+
+        Node targetNode = nodeService.findNode(request.getNodeId());
+        String condition = reloadEvent.getString("row_data");
+        if (StringUtils.isBlank(condition)) {
+            condition = StringUtils.isBlank(request.getTriggerRouter().getInitialLoadSelect()) ? Constants.ALWAYS_TRUE_CONDITION
+                    : request.getTriggerRouter().getInitialLoadSelect();
+        }
+        /*
+         * some dialects return the alias with the dot that separates it from
+         * the column
+         */
+        String alias = StringUtils.removeEnd(symmetricDialect.getInitialLoadTableAlias(), ".");
+        String column = alias + "." + SymmetricUtils.quote(symmetricDialect, pkColumn.getName());
+        String from = String.format(" from %s %s where %s",
+                table.getQualifiedTableName(platform.getDatabaseInfo().getDelimiterToken(),
+                        platform.getDatabaseInfo().getCatalogSeparator(),
+                        platform.getDatabaseInfo().getSchemaSeparator()), alias, condition);
+        from = FormatUtils.replace("groupId", targetNode.getNodeGroupId(), from);
+        from = FormatUtils.replace("externalId", targetNode.getExternalId(), from);
+        from = FormatUtils.replace("nodeId", targetNode.getNodeId(), from);
+
+        int chunkCount = (batches.size() + batchesPerChunk - 1) / batchesPerChunk;
+        long rowCount = sqlTemplate.queryForLong(String.format("select count(*)%s", from));
+        long rowsPerChunk = (rowCount * batchesPerChunk + batches.size() - 1) / batches.size();
+        List<String> boundaries = null;
+        ISqlReadCursor<String> keys = null;
+        try {
+            keys = sqlTemplate.queryForCursor(
+                    String.format("select %s%s order by %s", column, from, column),
+                    new ISqlRowMapper<String>() {
+                        public String mapRow(Row row) {
+                            return row.stringValue();
+                        }
+                    });
+            boundaries = getChunkBoundaries(keys, rowsPerChunk, chunkCount);
+        } finally {
+            if (keys != null) {
+                keys.close();
+            }
+        }
+        if (boundaries.size() == 0) {
+            return false;
+        }
+
+        log.info("Splitting the extract of {} for request {} into {} chunks", new Object[] {
+                triggerHistory.getSourceTableName(), request.getRequestId(),
+                boundaries.size() + 1 });
+        ISqlTransaction transaction = null;
+        try {
+            transaction = sqlTemplate.startSqlTransaction();
+            for (int chunk = 0; chunk <= boundaries.size(); chunk++) {
+                List<OutgoingBatch> chunkBatches = batches.subList(chunk * batchesPerChunk,
+                        chunk == boundaries.size() ? batches.size() : (chunk + 1) * batchesPerChunk);
+                StringBuilder chunkCondition = new StringBuilder("(").append(condition).append(")");
+                if (chunk > 0) {
+                    chunkCondition.append(" and ").append(column).append(" >= ")
+                            .append(boundaries.get(chunk - 1));
+                }
+                if (chunk < boundaries.size()) {
+                    chunkCondition.append(" and ").append(column).append(" < ")
+                            .append(boundaries.get(chunk));
+                }
+                long startBatchId = chunkBatches.get(0).getBatchId();
+                long endBatchId = chunkBatches.get(chunkBatches.size() - 1).getBatchId();
+                transaction.prepareAndExecute(getSql("updateReloadEventSelectSql"),
+                        chunkCondition.toString(), startBatchId);
+                /*
+                 * The request becomes the first chunk so requests never overlap
+                 * when a batch has to be extracted again
+                 */
+                if (chunk == 0) {
+                    transaction.prepareAndExecute(getSql("updateExtractRequestEndBatchSql"),
+                            endBatchId, request.getRequestId());
+                } else {
+                    requestExtractRequest(transaction, request.getNodeId(),
+                            request.getTriggerRouter(), startBatchId, endBatchId);
+                }
+            }
+            transaction.commit();
+        } catch (Error ex) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw ex;
+        } finally {
+            close(transaction);
+        }
+        return true;
+    }
+
+    /**
+     * @return the primary key column to split the extract of a table by, or
+     *         null when the table does not have a single numeric primary key
+     *         column
+     */
+    protected static Column getChunkColumn(Table table) {
+        Column[] pkColumns = table == null ? null : table.getPrimaryKeyColumns();
+        if (pkColumns == null || pkColumns.length != 1 || !pkColumns[0].isOfNumericType()) {
+            return null;
+        }
+        return pkColumns[0];
+    }
+
+    /**
+     * Reads the keys in order and starts a new chunk after every rowsPerChunk
+     * rows. Reading stops once the last chunk has started, and a table with
+     * fewer rows than expected gets fewer chunks.
+     *
+     * @return the keys each chunk after the first one starts at
+     */
+    protected static List<String> getChunkBoundaries(ISqlReadCursor<String> keys,
+            long rowsPerChunk, int chunkCount) {
+        List<String> boundaries = new ArrayList<String>();
+        if (rowsPerChunk > 0) {
+            long rowNumber = 0;
+            String key = null;
+            while (boundaries.size() < chunkCount - 1 && (key = keys.next()) != null) {
+                if (rowNumber > 0 && rowNumber % rowsPerChunk == 0) {
+                    boundaries.add(toBigDecimal(key).toPlainString());
+                }
+                rowNumber++;
+            }
+        }
+        return boundaries;
+    }
+
+    private static BigDecimal toBigDecimal(String value) {
+        return StringUtils.isBlank(value) ? null : new BigDecimal(value.trim());
+    }
+
     protected void updateExtractRequestStatus(ISqlTransaction transaction, long extractId,
             ExtractStatus status) {
         transaction.prepareAndExecute(getSql("updateExtractRequestStatus"), status.name(),
@@ -1068,123 +1421,178 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
      */
     public void execute(NodeCommunication nodeCommunication, RemoteNodeStatus status) {
         List<ExtractRequest> requests = getExtractRequestsForNode(nodeCommunication.getNodeId());
+        int threadCount = parameterService.getInt(
+                ParameterConstants.INITIAL_LOAD_EXTRACT_CHUNK_THREAD_COUNT, 1);
+        if (threadCount > 1) {
+            requests = splitExtractRequests(nodeCommunication.getNodeId(), requests);
+        }
         long ts = System.currentTimeMillis();
         /*
          * Process extract requests until it has taken longer than 30 seconds, and then
          * allow the process to return so progress status can be seen.
          */
-        for (int i = 0; i < requests.size()
-                && (System.currentTimeMillis() - ts) <= Constants.LONG_OPERATION_THRESHOLD; i++) {
-            ExtractRequest request = requests.get(i);
-            Node identity = nodeService.findIdentity();
-            Node targetNode = nodeService.findNode(nodeCommunication.getNodeId());
-            log.info(
-                    "Extracting batches for request {}. Starting at batch {}.  Ending at batch {}",
-                    new Object[] { request.getRequestId(), request.getStartBatchId(),
-                            request.getEndBatchId() });
-            List<OutgoingBatch> batches = outgoingBatchService.getOutgoingBatchRange(
-                    request.getStartBatchId(), request.getEndBatchId()).getBatches();
-
-            ProcessInfo processInfo = statisticManager.newProcessInfo(new ProcessInfoKey(identity
-                    .getNodeId(), nodeCommunication.getNodeId(),
-                    ProcessInfoKey.ProcessType.INITIAL_LOAD_EXTRACT_JOB));
-            try {
-                boolean areBatchesOk = true;
+        if (threadCount > 1 && requests.size() > 1) {
+            extractRequestsInParallel(nodeCommunication, requests, threadCount, ts);
+        } else {
+            for (int i = 0; i < requests.size()
+                    && (System.currentTimeMillis() - ts) <= Constants.LONG_OPERATION_THRESHOLD; i++) {
+                extractRequest(nodeCommunication, requests.get(i));
+            }
+        }
+    }
 
-                /*
-                 * check to see if batches have been OK'd by another reload
-                 * request 
-                 */
-                for (OutgoingBatch outgoingBatch : batches) {
-                    if (outgoingBatch.getStatus() != Status.OK) {
-                        areBatchesOk = false;
+    protected void extractRequestsInParallel(final NodeCommunication nodeCommunication,
+            List<ExtractRequest> requests, int threadCount, long ts) {
+        ExecutorCompletionService<Object> completionService = new ExecutorCompletionService<Object>(
+                getInitialLoadExtractThreads());
+        RuntimeException error = null;
+        int submitted = 0;
+        int running = 0;
+        while (running > 0 || (error == null && submitted < requests.size()
+                && (System.currentTimeMillis() - ts) <= Constants.LONG_OPERATION_THRESHOLD)) {
+            if (error == null && running < threadCount && submitted < requests.size()
+                    && (System.currentTimeMillis() - ts) <= Constants.LONG_OPERATION_THRESHOLD) {
+                final ExtractRequest request = requests.get(submitted++);
+                completionService.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        extractRequest(nodeCommunication, request);
+                        return null;
                     }
+                });
+                running++;
+            } else {
+                try {
+                    waitForExtract(completionService.take());
+                } catch (InterruptedException e) {
+                    throw new org.jumpmind.exception.InterruptedException(e);
+                } catch (RuntimeException e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                } finally {
+                    running--;
                 }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
 
-                if (!areBatchesOk) {
+    protected void extractRequest(NodeCommunication nodeCommunication, ExtractRequest request) {
+        Node identity = nodeService.findIdentity();
+        Node targetNode = nodeService.findNode(nodeCommunication.getNodeId());
+        log.info(
+                "Extracting batches for request {}. Starting at batch {}.  Ending at batch {}",
+                new Object[] { request.getRequestId(), request.getStartBatchId(),
+                        request.getEndBatchId() });
+        List<OutgoingBatch> batches = outgoingBatchService.getOutgoingBatchRange(
+                request.getStartBatchId(), request.getEndBatchId()).getBatches();
 
-                    Channel channel = configurationService
-                            .getChannel(batches.get(0).getChannelId());
-                    /*
-                     * "Trick" the extractor to extract one reload batch, but we
-                     * will split it across the N batches when writing it
-                     */
-                    extractOutgoingBatch(processInfo, targetNode,
-                            new MultiBatchStagingWriter(identity.getNodeId(), stagingManager,
-                                    batches, channel.getMaxBatchSize()), batches.get(0), false,
-                            false, ExtractMode.FOR_SYM_CLIENT);
+        /*
+         * Chunks of the same load can be extracted at the same time, so each
+         * request is tracked under its own key
+         */
+        ProcessInfo processInfo = statisticManager.newProcessInfo(new ProcessInfoKey(identity
+                .getNodeId(), nodeCommunication.getNodeId(),
+                ProcessInfoKey.ProcessType.INITIAL_LOAD_EXTRACT_JOB, null, Long.toString(request
+                        .getRequestId())));
+        try {
+            boolean areBatchesOk = true;
 
-                } else {
-                    log.info("Batches already had an OK status for request {}, batches {} to {}.  Not extracting", new Object[] { request.getRequestId(), request.getStartBatchId(),
-                            request.getEndBatchId() });
+            /*
+             * check to see if batches have been OK'd by another reload
+             * request 
+             */
+            for (OutgoingBatch outgoingBatch : batches) {
+                if (outgoingBatch.getStatus() != Status.OK) {
+                    areBatchesOk = false;
                 }
+            }
+
+            if (!areBatchesOk) {
 
+                Channel channel = configurationService
+                        .getChannel(batches.get(0).getChannelId());
                 /*
-                 * re-query the batches to see if they have been OK'd while
-                 * extracting
+                 * "Trick" the extractor to extract one reload batch, but we
+                 * will split it across the N batches when writing it
                  */
-                List<OutgoingBatch> checkBatches = outgoingBatchService.getOutgoingBatchRange(
-                        request.getStartBatchId(), request.getEndBatchId()).getBatches();
+                extractOutgoingBatch(processInfo, targetNode,
+                        new MultiBatchStagingWriter(identity.getNodeId(), stagingManager,
+                                batches, channel.getMaxBatchSize()), batches.get(0), false,
+                        false, ExtractMode.FOR_SYM_CLIENT);
 
-                areBatchesOk = true;
+            } else {
+                log.info("Batches already had an OK status for request {}, batches {} to {}.  Not extracting", new Object[] { request.getRequestId(), request.getStartBatchId(),
+                        request.getEndBatchId() });
+            }
 
-                /*
-                 * check to see if batches have been OK'd by another reload
-                 * request while extracting
-                 */
-                for (OutgoingBatch outgoingBatch : checkBatches) {
-                    if (outgoingBatch.getStatus() != Status.OK) {
-                        areBatchesOk = false;
-                    }
+            /*
+             * re-query the batches to see if they have been OK'd while
+             * extracting
+             */
+            List<OutgoingBatch> checkBatches = outgoingBatchService.getOutgoingBatchRange(
+                    request.getStartBatchId(), request.getEndBatchId()).getBatches();
+
+            areBatchesOk = true;
+
+            /*
+             * check to see if batches have been OK'd by another reload
+             * request while extracting
+             */
+            for (OutgoingBatch outgoingBatch : checkBatches) {
+                if (outgoingBatch.getStatus() != Status.OK) {
+                    areBatchesOk = false;
                 }
+            }
 
-                ISqlTransaction transaction = null;
-                try {
-                    transaction = sqlTemplate.startSqlTransaction();
-                    updateExtractRequestStatus(transaction, request.getRequestId(),
-                            ExtractStatus.OK);
-
-                    if (!areBatchesOk) {
-                        for (OutgoingBatch outgoingBatch : batches) {
-                            if (parameterService.is(ParameterConstants.INITIAL_LOAD_EXTRACT_AND_SEND_WHEN_STAGED, false)) {
-                            	if (outgoingBatch.getStatus() == Status.RQ) {
-                            		outgoingBatch.setStatus(Status.NE);
-                                	outgoingBatchService.updateOutgoingBatch(transaction, outgoingBatch);
-                            	}
-                            } else {
-                            	outgoingBatch.setStatus(Status.NE);
+            ISqlTransaction transaction = null;
+            try {
+                transaction = sqlTemplate.startSqlTransaction();
+                updateExtractRequestStatus(transaction, request.getRequestId(),
+                        ExtractStatus.OK);
+
+                if (!areBatchesOk) {
+                    for (OutgoingBatch outgoingBatch : batches) {
+                        if (parameterService.is(ParameterConstants.INITIAL_LOAD_EXTRACT_AND_SEND_WHEN_STAGED, false)) {
+                        	if (outgoingBatch.getStatus() == Status.RQ) {
+                        		outgoingBatch.setStatus(Status.NE);
                             	outgoingBatchService.updateOutgoingBatch(transaction, outgoingBatch);
-                            }
+                        	}
+                        } else {
+                        	outgoingBatch.setStatus(Status.NE);
+                        	outgoingBatchService.updateOutgoingBatch(transaction, outgoingBatch);
                         }
-                    } else {
-                        log.info("Batches already had an OK status for request {}, batches {} to {}.  Not updating the status to NE", new Object[] { request.getRequestId(), request.getStartBatchId(),
-                                request.getEndBatchId() });
-                    }
-                    transaction.commit();
-
-                } catch (Error ex) {
-                    if (transaction != null) {
-                        transaction.rollback();
-                    }
-                    throw ex;
-                } catch (RuntimeException ex) {
-                    if (transaction != null) {
-                        transaction.rollback();
                     }
-                    throw ex;
-                } finally {
-                    close(transaction);
+                } else {
+                    log.info("Batches already had an OK status for request {}, batches {} to {}.  Not updating the status to NE", new Object[] { request.getRequestId(), request.getStartBatchId(),
+                            request.getEndBatchId() });
                 }
-                processInfo.setStatus(org.jumpmind.symmetric.model.ProcessInfo.Status.OK);
+                transaction.commit();
 
+            } catch (Error ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw ex;
             } catch (RuntimeException ex) {
-                log.debug(
-                        "Failed to extract batches for request {}. Starting at batch {}.  Ending at batch {}",
-                        new Object[] { request.getRequestId(), request.getStartBatchId(),
-                                request.getEndBatchId() });
-                processInfo.setStatus(org.jumpmind.symmetric.model.ProcessInfo.Status.ERROR);
+                if (transaction != null) {
+                    transaction.rollback();
+                }
                 throw ex;
+            } finally {
+                close(transaction);
             }
+            processInfo.setStatus(org.jumpmind.symmetric.model.ProcessInfo.Status.OK);
+
+        } catch (RuntimeException ex) {
+            log.debug(
+                    "Failed to extract batches for request {}. Starting at batch {}.  Ending at batch {}",
+                    new Object[] { request.getRequestId(), request.getStartBatchId(),
+                            request.getEndBatchId() });
+            processInfo.setStatus(org.jumpmind.symmetric.model.ProcessInfo.Status.ERROR);
+            throw ex;
         }
     }
 
@@ -1325,6 +1733,33 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             this.inError = inError;
             if (this.currentDataWriter != null) {
                 this.currentDataWriter.end(this.batch, inError);
+                if (!inError) {
+                    stageEmptyBatches();
+                }
+            }
+        }
+
+        /*
+         * When the table has fewer rows than when the load was requested, the
+         * batches that were not needed are staged empty so they are not
+         * extracted again
+         */
+        protected void stageEmptyBatches() {
+            while (this.batches.size() > 0) {
+                this.currentDataWriter.close();
+                checkSend();
+                this.nextBatch();
+                long memoryThresholdInBytes = parameterService
+                        .getLong(ParameterConstants.STREAM_TO_FILE_THRESHOLD);
+                this.currentDataWriter = new StagingDataWriter(memoryThresholdInBytes, sourceNodeId,
+                        Constants.STAGING_CATEGORY_OUTGOING, stagingManager,
+                        (IProtocolDataWriterListener[]) null);
+                this.batch = new Batch(BatchType.EXTRACT, outgoingBatch.getBatchId(),
+                        outgoingBatch.getChannelId(), symmetricDialect.getBinaryEncoding(),
+                        sourceNodeId, outgoingBatch.getNodeId(), false);
+                this.currentDataWriter.open(context);
+                this.currentDataWriter.start(batch);
+                this.currentDataWriter.end(batch, false);
             }
         }
         
@@ -40,6 +40,12 @@ public class DataExtractorServiceSqlMap extends AbstractSqlMap {
         putSql("updateExtractRequestStatus", "update $(extract_request) set status=? where request_id=?");
         
         putSql("resetExtractRequestStatus", "update $(extract_request) set status=? where start_batch_id <= ? and end_batch_id >= ? and node_id=?");
+        
+        putSql("updateExtractRequestEndBatchSql", "update $(extract_request) set end_batch_id=? where request_id=?");
+        
+        putSql("selectReloadEventForBatchSql", "select d.data_id, d.row_data, d.trigger_hist_id from $(data) d inner join $(data_event) e on d.data_id=e.data_id where e.batch_id=? and d.event_type='R'");
+        
+        putSql("updateReloadEventSelectSql", "update $(data) set row_data=? where event_type='R' and data_id in (select data_id from $(data_event) where batch_id=?)");
     }
 
 }
@@ -35,9 +35,18 @@ import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
@@ -65,6 +74,7 @@ import org.jumpmind.symmetric.io.data.IDataWriter;
 import org.jumpmind.symmetric.io.data.reader.ProtocolDataReader;
 import org.jumpmind.symmetric.io.data.transform.TransformPoint;
 import org.jumpmind.symmetric.io.data.transform.TransformTable;
+import org.jumpmind.symmetric.io.data.writer.CoalescingDataWriter;
 import org.jumpmind.symmetric.io.data.writer.Conflict;
 import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
 import org.jumpmind.symmetric.io.data.writer.Conflict.PingBack;
@@ -157,6 +167,10 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
     private ISymmetricEngine engine = null;
 
     private Date lastUpdateTime;
+
+    private ExecutorService loadBehindTransferThreads;
+
+    private final Object loadBehindTransferThreadsLock = new Object();
     
     private final LogSuppressor logSuppressor = new LogSuppressor(log);
 
@@ -452,7 +466,28 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                     .getLong(ParameterConstants.STREAM_TO_FILE_THRESHOLD);
             long totalNetworkMillis = System.currentTimeMillis();
             String targetNodeId = nodeService.findIdentityNodeId();
-            if (parameterService.is(ParameterConstants.STREAM_TO_FILE_ENABLED)) {
+            boolean loadChannelsInParallel = parameterService
+                    .is(ParameterConstants.DATA_LOADER_LOAD_CHANNELS_IN_PARALLEL);
+            if (parameterService.is(ParameterConstants.STREAM_TO_FILE_ENABLED)
+                    && (loadChannelsInParallel || parameterService
+                            .is(ParameterConstants.DATA_LOADER_LOAD_BEHIND_TRANSFER))) {
+                processInfo.setStatus(ProcessInfo.Status.TRANSFERRING);
+                IDataReader dataReader = new ProtocolDataReader(BatchType.LOAD, targetNodeId,
+                        transport.openReader());
+                LoadBehindTransferListener loadBehindTransferListener = new LoadBehindTransferListener(
+                        processInfo, sourceNode.getNodeId(), listener, ctx,
+                        loadChannelsInParallel);
+                IDataWriter dataWriter = new StagingDataWriter(memoryThresholdInBytes,
+                        sourceNode.getNodeId(), Constants.STAGING_CATEGORY_INCOMING,
+                        stagingManager, loadBehindTransferListener);
+                try {
+                    new DataProcessor(dataReader, dataWriter, "transfer to stage").process(ctx);
+                } finally {
+                    loadBehindTransferListener.waitForLoad();
+                }
+                loadBehindTransferListener.checkForLoadError();
+                totalNetworkMillis = System.currentTimeMillis() - totalNetworkMillis;
+            } else if (parameterService.is(ParameterConstants.STREAM_TO_FILE_ENABLED)) {
                 processInfo.setStatus(ProcessInfo.Status.TRANSFERRING);
                 IDataReader dataReader = new ProtocolDataReader(BatchType.LOAD, targetNodeId,
                         transport.openReader());
@@ -488,6 +523,29 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         return listener.getBatchesProcessed();
     }
 
+    public void stop() {
+        synchronized (loadBehindTransferThreadsLock) {
+            if (loadBehindTransferThreads != null) {
+                try {
+                    loadBehindTransferThreads.shutdown();
+                    loadBehindTransferThreads = null;
+                } catch (Exception ex) {
+                    log.error("", ex);
+                }
+            }
+        }
+    }
+
+    protected ExecutorService getLoadBehindTransferThreads() {
+        synchronized (loadBehindTransferThreadsLock) {
+            if (loadBehindTransferThreads == null) {
+                loadBehindTransferThreads = Executors
+                        .newCachedThreadPool(newNamedThreadFactory("load-behind-transfer"));
+            }
+            return loadBehindTransferThreads;
+        }
+    }
+
     protected void logAndRethrow(Node remoteNode, Throwable ex) throws IOException {
         if (ex instanceof RegistrationRequiredException) {
             throw (RegistrationRequiredException) ex;
@@ -535,6 +593,7 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         List<IDatabaseWriterErrorHandler> errorHandlers = extensionService
                 .getExtensionPointList(IDatabaseWriterErrorHandler.class);
         List<IDatabaseWriterErrorHandler> dynamicErrorHandlers = errorHandlers;
+        boolean previouslyFailed = false;
 
         if (sourceNodeId != null) {
             Node sourceNode = nodeService.findNode(sourceNodeId);
@@ -565,6 +624,7 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                     .toArray(new TransformTable[transformsList.size()]) : null;
 
             List<IncomingError> incomingErrors = getIncomingErrors(batchId, sourceNodeId);
+            previouslyFailed = incomingErrors.size() > 0;
             for (IncomingError incomingError : incomingErrors) {
                 if (incomingError.isResolveIgnore()
                         || StringUtils.isNotBlank(incomingError.getResolveData())) {
@@ -582,7 +642,17 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 symmetricDialect, transformWriter, dynamicFilters, dynamicErrorHandlers,
                 getConflictSettingsNodeGroupLinks(link, false), resolvedDatas);
         transformWriter.setNestedWriter(new ProcessInfoDataWriter(targetWriter, processInfo));
-        return transformWriter;
+
+        /*
+         * Rows are written in their original order when a batch is retried so
+         * the failed row number and any resolved data still line up
+         */
+        int coalesceWindowSize = parameterService.getInt(ParameterConstants.DATA_LOADER_COALESCE_WINDOW_SIZE);
+        if (coalesceWindowSize > 1 && !previouslyFailed) {
+            return new CoalescingDataWriter(transformWriter, coalesceWindowSize);
+        } else {
+            return transformWriter;
+        }
     }
 
     protected IDataLoaderFactory getFactory(String channelId) {
@@ -819,7 +889,7 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
 
         private ManageIncomingBatchListener listener;
 
-        private long batchStartsToArriveTimeInMs;
+        protected long batchStartsToArriveTimeInMs;
 
         private String sourceNodeId;
 
@@ -838,9 +908,12 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         }
 
         public void end(DataContext ctx, Batch batch, IStagedResource resource) {
-
             long networkMillis = System.currentTimeMillis() - batchStartsToArriveTimeInMs;
+            load(ctx, batch, resource, networkMillis, listener);
+        }
 
+        protected void load(DataContext ctx, Batch batch, IStagedResource resource,
+                long networkMillis, ManageIncomingBatchListener listener) {
             try {
                 processInfo.setStatus(ProcessInfo.Status.LOADING);
                 DataProcessor processor = new DataProcessor(new ProtocolDataReader(BatchType.LOAD,
@@ -865,6 +938,243 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         }
     }
 
+    /**
+     * Loads batches into the database on a separate thread while the transport
+     * thread keeps receiving the batches that follow into staging. Staged
+     * batches are handed to a loader through a bounded queue and are loaded
+     * one at a time in the order they arrived.
+     * <p>
+     * By default one loader is used for all batches. After a batch fails to
+     * load, the batches behind it are not loaded and the transfer is stopped,
+     * which is the same as when batches are loaded on arrival.
+     * <p>
+     * When channels are loaded in parallel, each channel has its own loader
+     * and batches from different channels are loaded at the same time on
+     * separate connections. Order and error handling are kept within a
+     * channel: after a batch fails, the batches behind it on the same channel
+     * are not loaded, but the other channels keep loading. Configuration
+     * batches are only loaded after all other loaders are idle, and nothing
+     * else loads until they are done.
+     */
+    class LoadBehindTransferListener extends LoadIntoDatabaseOnArrivalListener {
+
+        private ManageIncomingBatchListener listener;
+
+        private DataContext ctx;
+
+        private boolean loadChannelsInParallel;
+
+        private int queueSize;
+
+        private Map<String, ChannelLoader> loaders = new LinkedHashMap<String, ChannelLoader>();
+
+        private List<Long> batchIdsInArrivalOrder = new ArrayList<Long>();
+
+        public LoadBehindTransferListener(ProcessInfo processInfo, String sourceNodeId,
+                ManageIncomingBatchListener listener, DataContext ctx,
+                boolean loadChannelsInParallel) {
+            super(processInfo, sourceNodeId, listener);
+            this.listener = listener;
+            this.ctx = ctx;
+            this.loadChannelsInParallel = loadChannelsInParallel;
+            this.queueSize = Math.max(1, parameterService.getInt(
+                    ParameterConstants.DATA_LOADER_LOAD_BEHIND_TRANSFER_QUEUE_SIZE, 10));
+        }
+
+        @Override
+        public void end(DataContext ctx, Batch batch, IStagedResource resource) {
+            long networkMillis = System.currentTimeMillis() - batchStartsToArriveTimeInMs;
+            StagedBatch stagedBatch = new StagedBatch(batch, resource, networkMillis);
+            batchIdsInArrivalOrder.add(batch.getBatchId());
+            if (loadChannelsInParallel) {
+                ChannelLoader loader = getLoader(batch.getChannelId());
+                if (Constants.CHANNEL_CONFIG.equals(batch.getChannelId())) {
+                    for (ChannelLoader otherLoader : loaders.values()) {
+                        otherLoader.waitForIdle();
+                    }
+                    loader.offer(stagedBatch);
+                    loader.waitForIdle();
+                } else {
+                    loader.offer(stagedBatch);
+                }
+            } else {
+                checkForLoadError();
+                getLoader(null).offer(stagedBatch);
+            }
+        }
+
+        protected ChannelLoader getLoader(String channelId) {
+            String key = channelId == null ? "" : channelId;
+            ChannelLoader loader = loaders.get(key);
+            if (loader == null) {
+                /*
+                 * a single loader records batches with the listener of the
+                 * transfer. loaders for each channel need their own because
+                 * the listener tracks the batch that is being loaded
+                 */
+                loader = new ChannelLoader(loadChannelsInParallel ? new ManageIncomingBatchListener()
+                        : listener);
+                loaders.put(key, loader);
+            }
+            return loader;
+        }
+
+        /**
+         * Wait for the batches that have already been staged to finish
+         * loading
+         */
+        public void waitForLoad() {
+            for (ChannelLoader loader : loaders.values()) {
+                loader.finish();
+            }
+
+            if (loadChannelsInParallel) {
+                Map<Long, IncomingBatch> batchesProcessed = new HashMap<Long, IncomingBatch>();
+                for (ChannelLoader loader : loaders.values()) {
+                    for (IncomingBatch incomingBatch : loader.listener.getBatchesProcessed()) {
+                        batchesProcessed.put(incomingBatch.getBatchId(), incomingBatch);
+                    }
+                }
+                for (Long batchId : batchIdsInArrivalOrder) {
+                    IncomingBatch incomingBatch = batchesProcessed.remove(batchId);
+                    if (incomingBatch != null) {
+                        listener.getBatchesProcessed().add(incomingBatch);
+                    }
+                }
+            }
+        }
+
+        public void checkForLoadError() {
+            for (ChannelLoader loader : loaders.values()) {
+                Throwable error = loader.loadError;
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                } else if (error instanceof Error) {
+                    throw (Error) error;
+                } else if (error != null) {
+                    throw new SymmetricException(error);
+                }
+            }
+        }
+
+        class ChannelLoader implements Callable<Object> {
+
+            private final StagedBatch endOfTransfer = new StagedBatch(null, null, 0);
+
+            private BlockingQueue<StagedBatch> stagedBatches = new ArrayBlockingQueue<StagedBatch>(
+                    queueSize);
+
+            private ManageIncomingBatchListener listener;
+
+            private DataContext loadContext;
+
+            private Future<Object> future;
+
+            private int pendingCount;
+
+            private volatile Throwable loadError;
+
+            public ChannelLoader(ManageIncomingBatchListener listener) {
+                this.listener = listener;
+                /*
+                 * the transfer keeps using its context while batches load so
+                 * each loader gets its own copy
+                 */
+                this.loadContext = new DataContext();
+                this.loadContext.getContext().putAll(ctx.getContext());
+                this.future = getLoadBehindTransferThreads().submit(this);
+            }
+
+            public Object call() throws Exception {
+                StagedBatch stagedBatch = null;
+                while ((stagedBatch = stagedBatches.take()) != endOfTransfer) {
+                    try {
+                        if (loadError == null) {
+                            try {
+                                load(loadContext, stagedBatch.batch, stagedBatch.resource,
+                                        stagedBatch.networkMillis, listener);
+                            } catch (Throwable ex) {
+                                loadError = ex;
+                            }
+                        } else {
+                            /*
+                             * the batch was never loaded so it will be sent
+                             * again
+                             */
+                            stagedBatch.resource.delete();
+                        }
+                    } finally {
+                        synchronized (this) {
+                            pendingCount--;
+                            notifyAll();
+                        }
+                    }
+                }
+                return null;
+            }
+
+            protected void offer(StagedBatch stagedBatch) {
+                synchronized (this) {
+                    pendingCount++;
+                }
+                try {
+                    while (!stagedBatches.offer(stagedBatch, 1, TimeUnit.SECONDS)) {
+                        if (future.isDone()) {
+                            checkForLoadError();
+                            throw new IllegalStateException(
+                                    "The thread that loads batches behind the transfer has stopped");
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    future.cancel(true);
+                    throw new org.jumpmind.exception.InterruptedException(e);
+                }
+            }
+
+            protected synchronized void waitForIdle() {
+                try {
+                    while (pendingCount > 0 && !future.isDone()) {
+                        wait(1000);
+                    }
+                } catch (InterruptedException e) {
+                    future.cancel(true);
+                    throw new org.jumpmind.exception.InterruptedException(e);
+                }
+            }
+
+            protected void finish() {
+                try {
+                    if (!future.isDone()) {
+                        stagedBatches.put(endOfTransfer);
+                    }
+                    future.get();
+                } catch (InterruptedException e) {
+                    future.cancel(true);
+                    throw new org.jumpmind.exception.InterruptedException(e);
+                } catch (ExecutionException e) {
+                    if (loadError == null) {
+                        loadError = e.getCause();
+                    }
+                }
+            }
+        }
+    }
+
+    static class StagedBatch {
+
+        Batch batch;
+
+        IStagedResource resource;
+
+        long networkMillis;
+
+        public StagedBatch(Batch batch, IStagedResource resource, long networkMillis) {
+            this.batch = batch;
+            this.resource = resource;
+            this.networkMillis = networkMillis;
+        }
+    }
+
     class ManageIncomingBatchListener implements IDataProcessorListener {
 
         protected List<IncomingBatch> batchesProcessed = new ArrayList<IncomingBatch>();
@@ -25,6 +25,7 @@ import static org.apache.commons.lang.StringUtils.isNotBlank;
 import java.sql.DataTruncation;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -60,7 +61,9 @@ import org.jumpmind.symmetric.load.IReloadListener;
 import org.jumpmind.symmetric.model.Channel;
 import org.jumpmind.symmetric.model.Data;
 import org.jumpmind.symmetric.model.DataEvent;
+import org.jumpmind.symmetric.model.DataEventBuffer;
 import org.jumpmind.symmetric.model.DataGap;
+import org.jumpmind.symmetric.model.DataIdBitmap;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.NodeGroupLink;
 import org.jumpmind.symmetric.model.NodeGroupLinkAction;
@@ -106,6 +109,8 @@ public class DataService extends AbstractService implements IDataService {
 
     protected Map<IHeartbeatListener, Long> lastHeartbeatTimestamps = new HashMap<IHeartbeatListener, Long>();
 
+    protected DataIdBitmap dataEventIds = new DataIdBitmap();
+
     public boolean insertReloadEvent(TableReloadRequest request, boolean deleteAtClient) {
         boolean successful = false;
         if (request != null && request.isReloadEnabled()) {
@@ -945,6 +950,12 @@ public class DataService extends AbstractService implements IDataService {
     protected void insertDataEvent(ISqlTransaction transaction, long dataId, long batchId,
             String routerId) {
         try {
+            /*
+             * The data row is inserted in the same transaction, so the id can
+             * be recorded before the commit. If the transaction rolls back,
+             * the id is never used.
+             */
+            dataEventIds.add(dataId);
             transaction
                     .prepareAndExecute(getSql("insertIntoDataEventSql"),
                             new Object[] {
@@ -979,6 +990,26 @@ public class DataService extends AbstractService implements IDataService {
         }
     }
 
+    public void insertDataEvents(ISqlTransaction transaction, final DataEventBuffer events) {
+        int size = events.size();
+        if (size > 0) {
+            transaction.prepare(getSql("insertIntoDataEventSql"));
+            /*
+             * The values are bound to the statement as each row is added so
+             * the same arrays can be reused for every event
+             */
+            Object[] args = new Object[3];
+            int[] types = new int[] { Types.NUMERIC, Types.NUMERIC, Types.VARCHAR };
+            for (int i = 0; i < size; i++) {
+                args[0] = events.getDataId(i);
+                args[1] = events.getBatchId(i);
+                args[2] = events.getRouterId(i);
+                transaction.addRow(events, args, types);
+            }
+            transaction.flush();
+        }
+    }
+
     public void insertDataAndDataEventAndOutgoingBatch(Data data, String channelId,
             List<Node> nodes, String routerId, boolean isLoad, long loadId, String createBy) {
         ISqlTransaction transaction = null;
@@ -1496,6 +1527,35 @@ public class DataService extends AbstractService implements IDataService {
                         symmetricDialect.getSqlTypeForIds() });
     }
 
+    public void insertDataGaps(ISqlTransaction transaction, Collection<DataGap> gaps) {
+        if (gaps.size() > 0) {
+            transaction.prepare(getSql("insertDataGapSql"));
+            int[] types = new int[] { Types.VARCHAR, Types.VARCHAR, Types.NUMERIC, Types.NUMERIC };
+            String hostName = AppUtils.getHostName();
+            for (DataGap gap : gaps) {
+                transaction.addRow(gap, new Object[] { DataGap.Status.GP.name(), hostName,
+                        gap.getStartId(), gap.getEndId() }, types);
+            }
+            transaction.flush();
+        }
+    }
+
+    public void deleteDataGaps(ISqlTransaction transaction, Collection<DataGap> gaps) {
+        if (gaps.size() > 0) {
+            transaction.prepare(getSql("deleteDataGapSql"));
+            int[] types = new int[] { symmetricDialect.getSqlTypeForIds(),
+                    symmetricDialect.getSqlTypeForIds() };
+            for (DataGap gap : gaps) {
+                transaction.addRow(gap, new Object[] { gap.getStartId(), gap.getEndId() }, types);
+            }
+            transaction.flush();
+        }
+    }
+
+    public DataIdBitmap getDataEventIds() {
+        return dataEventIds;
+    }
+
     public Date findCreateTimeOfEvent(long dataId) {
         return sqlTemplate.queryForObject(getSql("findDataEventCreateTimeSql"), Date.class, dataId);
     }
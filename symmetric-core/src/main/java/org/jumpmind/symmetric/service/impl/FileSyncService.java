@@ -27,14 +27,16 @@ import java.io.OutputStream;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.filefilter.DirectoryFileFilter;
 import org.apache.commons.io.monitor.FileAlterationObserver;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
@@ -50,10 +52,12 @@ import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.file.DirectorySnapshot;
 import org.jumpmind.symmetric.file.FileConflictException;
+import org.jumpmind.symmetric.file.FileSyncSignatureStore;
 import org.jumpmind.symmetric.file.FileSyncZipDataWriter;
 import org.jumpmind.symmetric.file.FileTriggerFileModifiedListener;
 import org.jumpmind.symmetric.file.FileTriggerFileModifiedListener.FileModifiedCallback;
 import org.jumpmind.symmetric.file.FileTriggerTracker;
+import org.jumpmind.symmetric.file.FileTriggerWatcher;
 import org.jumpmind.symmetric.io.data.CsvData;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.stage.IStagedResource;
@@ -98,8 +102,12 @@ import bsh.TargetError;
 public class FileSyncService extends AbstractOfflineDetectorService implements IFileSyncService,
         INodeCommunicationExecutor {
 
+    private static final int SIGNATURE_VERSIONS_TO_KEEP = 3;
+
     private ISymmetricEngine engine;
 
+    private Map<String, FileTriggerWatcher> watchers = new HashMap<String, FileTriggerWatcher>();
+
     // TODO cache trigger routers
 
     public FileSyncService(ISymmetricEngine engine) {
@@ -127,8 +135,12 @@ public class FileSyncService extends AbstractOfflineDetectorService implements I
                         boolean useCrc = engine.getParameterService().is(ParameterConstants.FILE_SYNC_USE_CRC);
 
                         if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_FAST_SCAN)) {
+                            closeWatchers();
                             trackChangesFastScan(processInfo, useCrc);
+                        } else if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_WATCH)) {
+                            trackChangesWithWatchers(processInfo, useCrc);
                         } else {
+                            closeWatchers();
                             trackChanges(processInfo, useCrc);
                         }
                         if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_PREVENT_PING_BACK)) {
@@ -171,6 +183,68 @@ public class FileSyncService extends AbstractOfflineDetectorService implements I
         }
     }
 
+    synchronized protected void trackChangesWithWatchers(ProcessInfo processInfo, boolean useCrc) {
+        Map<String, FileTriggerWatcher> activeWatchers = new HashMap<String, FileTriggerWatcher>();
+        List<FileTriggerRouter> fileTriggerRouters = getFileTriggerRoutersForCurrentNode();
+        for (FileTriggerRouter fileTriggerRouter : fileTriggerRouters) {
+            if (fileTriggerRouter.isEnabled()) {
+                String key = fileTriggerRouter.getTriggerId() + "::" + fileTriggerRouter.getRouterId();
+                FileTriggerWatcher watcher = watchers.remove(key);
+                try {
+                    DirectorySnapshot dirSnapshot = null;
+                    if (watcher != null && watcher.isWatching(fileTriggerRouter)) {
+                        dirSnapshot = watcher.takeChanges(processInfo);
+                    } else {
+                        if (watcher != null) {
+                            watcher.close();
+                        }
+                        /*
+                         * Start watching before the scan so changes made
+                         * while scanning are picked up on the next run
+                         */
+                        watcher = newFileTriggerWatcher(fileTriggerRouter, useCrc);
+                    }
+
+                    if (dirSnapshot == null) {
+                        FileTriggerTracker tracker = new FileTriggerTracker(fileTriggerRouter,
+                                getDirectorySnapshot(fileTriggerRouter), processInfo, useCrc);
+                        dirSnapshot = tracker.trackChanges();
+                    }
+                    saveDirectorySnapshot(fileTriggerRouter, dirSnapshot);
+                    if (watcher != null) {
+                        activeWatchers.put(key, watcher);
+                    }
+                } catch (Exception ex) {
+                    if (watcher != null) {
+                        watcher.close();
+                    }
+                    log.error("Failed to track changes for file trigger router: "
+                            + fileTriggerRouter.getFileTrigger().getTriggerId()
+                            + "::" + fileTriggerRouter.getRouter().getRouterId(), ex);
+                }
+            }
+        }
+        closeWatchers();
+        watchers = activeWatchers;
+    }
+
+    protected FileTriggerWatcher newFileTriggerWatcher(FileTriggerRouter fileTriggerRouter, boolean useCrc) {
+        try {
+            return new FileTriggerWatcher(fileTriggerRouter, useCrc);
+        } catch (Exception ex) {
+            log.warn("Failed to watch the directory of file trigger router {}::{}.  It will be scanned instead.  {}",
+                    new Object[] { fileTriggerRouter.getTriggerId(), fileTriggerRouter.getRouterId(), ex.getMessage() });
+            return null;
+        }
+    }
+
+    synchronized protected void closeWatchers() {
+        for (FileTriggerWatcher watcher : watchers.values()) {
+            watcher.close();
+        }
+        watchers.clear();
+    }
+
     protected void trackChangesFastScan(ProcessInfo processInfo, boolean useCrc) {
         boolean isLocked = engine.getClusterService().lock(ClusterConstants.FILE_SYNC_SCAN);
         Lock lock = engine.getClusterService().findLocks().get(ClusterConstants.FILE_SYNC_SCAN);
@@ -450,10 +524,17 @@ public class FileSyncService extends AbstractOfflineDetectorService implements I
         List<OutgoingBatch> processedBatches = new ArrayList<OutgoingBatch>();
         List<OutgoingBatch> batchesToProcess = new ArrayList<OutgoingBatch>();
         List<Channel> fileSyncChannels = engine.getConfigurationService().getFileSyncChannels();
+        Set<String> fileSyncChannelIds = new HashSet<String>();
         for (Channel channel : fileSyncChannels) {
-            OutgoingBatches batches = engine.getOutgoingBatchService().getOutgoingBatches(
-                    targetNode.getNodeId(), false);
-            batchesToProcess.addAll(batches.filterBatchesForChannel(channel));
+            fileSyncChannelIds.add(channel.getChannelId());
+        }
+        if (engine.getOutgoingBatchService().hasPendingBatches(targetNode.getNodeId(),
+                fileSyncChannelIds)) {
+            for (Channel channel : fileSyncChannels) {
+                OutgoingBatches batches = engine.getOutgoingBatchService().getOutgoingBatches(
+                        targetNode.getNodeId(), false);
+                batchesToProcess.addAll(batches.filterBatchesForChannel(channel));
+            }
         }
 
         OutgoingBatch currentBatch = null;
@@ -472,11 +553,16 @@ public class FileSyncService extends AbstractOfflineDetectorService implements I
 
             FileSyncZipDataWriter dataWriter = new FileSyncZipDataWriter(maxBytesToSync, this,
                     engine.getNodeService(), stagedResource);
+            if (parameterService.is(ParameterConstants.FILE_SYNC_DELTA_ENABLED)) {
+                dataWriter.setSignatureStore(getSignatureStore(),
+                        parameterService.getLong(ParameterConstants.FILE_SYNC_DELTA_MIN_FILE_SIZE));
+            }
             try {
                 for (int i = 0; i < batchesToProcess.size(); i++) {
                     currentBatch = batchesToProcess.get(i);
                     processInfo.incrementBatchCount();
                     processInfo.setCurrentBatchId(currentBatch.getBatchId());
+                    dataWriter.setDeltaEnabled(!currentBatch.isErrorFlag());
 
                     ((DataExtractorService) engine.getDataExtractorService()).extractOutgoingBatch(
                             processInfo, targetNode, dataWriter, currentBatch, false, true,
@@ -557,6 +643,12 @@ public class FileSyncService extends AbstractOfflineDetectorService implements I
         return processedBatches;
     }
 
+    protected FileSyncSignatureStore getSignatureStore() {
+        return new FileSyncSignatureStore(new File(parameterService.getTempDirectory(),
+                String.format("filesync_signatures/%s", engine.getNodeService().findIdentityNodeId())),
+                SIGNATURE_VERSIONS_TO_KEEP);
+    }
+
     public void acknowledgeFiles(OutgoingBatch outgoingBatch) {
         log.debug("Acknowledging file_sync outgoing batch-{}", outgoingBatch.getBatchId());
         List<File> filesToDelete = new ArrayList<File>();
@@ -701,6 +793,12 @@ public class FileSyncService extends AbstractOfflineDetectorService implements I
         }
     }
 
+    /**
+     * Reads the batches of a zip as they arrive. The entries of a batch are
+     * written to its own directory, and the batch is loaded as soon as the
+     * entries of the next batch start, so only one batch is on disk at a time.
+     * After a batch fails, the rest of the zip is read but not loaded.
+     */
     protected List<IncomingBatch> processZip(InputStream is, String sourceNodeId,
             ProcessInfo processInfo) throws IOException {
         File unzipDir = new File(parameterService.getTempDirectory(), String.format(
@@ -709,135 +807,164 @@ public class FileSyncService extends AbstractOfflineDetectorService implements I
         FileUtils.deleteDirectory(unzipDir);
         unzipDir.mkdirs();
 
-        AppUtils.unzip(is, unzipDir);
+        List<IncomingBatch> batchesProcessed = new ArrayList<IncomingBatch>();
 
-        Set<Long> batchIds = new TreeSet<Long>();
-        String[] files = unzipDir.list(DirectoryFileFilter.INSTANCE);
-        
-        if (files != null) {
-            for (int i = 0; i < files.length; i++) {
-                try {
-                    batchIds.add(Long.parseLong(files[i]));
-                } catch (NumberFormatException e) {
-                    log.error(
-                            "Unexpected directory name.  Expected a number representing a batch id.  Instead the directory was named '{}'",
-                            files[i]);
+        processInfo.setStatus(ProcessInfo.Status.LOADING);
+        ZipInputStream zis = new ZipInputStream(is);
+        String currentBatchDirName = null;
+        long byteCount = 0;
+        boolean inError = false;
+        ZipEntry entry = null;
+        while ((entry = zis.getNextEntry()) != null) {
+            String batchDirName = entry.getName();
+            int index = batchDirName.indexOf("/");
+            if (index > 0) {
+                batchDirName = batchDirName.substring(0, index);
+            }
+
+            if (currentBatchDirName != null && !currentBatchDirName.equals(batchDirName)) {
+                inError = !processBatchDir(new File(unzipDir, currentBatchDirName), byteCount,
+                        sourceNodeId, processInfo, batchesProcessed);
+                currentBatchDirName = null;
+            }
+
+            if (!inError) {
+                if (currentBatchDirName == null) {
+                    currentBatchDirName = batchDirName;
+                    byteCount = 0;
                 }
+                byteCount += AppUtils.unzipEntry(zis, entry, unzipDir);
             }
         }
 
-        List<IncomingBatch> batchesProcessed = new ArrayList<IncomingBatch>();
+        if (currentBatchDirName != null && !inError) {
+            processBatchDir(new File(unzipDir, currentBatchDirName), byteCount, sourceNodeId,
+                    processInfo, batchesProcessed);
+        }
+
+        return batchesProcessed;
+    }
+
+    /**
+     * @return false if the batch failed to load
+     */
+    protected boolean processBatchDir(File batchDir, long byteCount, String sourceNodeId,
+            ProcessInfo processInfo, List<IncomingBatch> batchesProcessed) throws IOException {
+        long batchId = 0;
+        try {
+            batchId = Long.parseLong(batchDir.getName());
+        } catch (NumberFormatException e) {
+            log.error(
+                    "Unexpected directory name.  Expected a number representing a batch id.  Instead the directory was named '{}'",
+                    batchDir.getName());
+            return true;
+        }
 
         IIncomingBatchService incomingBatchService = engine.getIncomingBatchService();
+        processInfo.setCurrentBatchId(batchId);
+        processInfo.incrementBatchCount();
 
-        processInfo.setStatus(ProcessInfo.Status.LOADING);
-        for (Long batchId : batchIds) {
-            processInfo.setCurrentBatchId(batchId);
-            processInfo.incrementBatchCount();
-            File batchDir = new File(unzipDir, Long.toString(batchId));
-
-            IncomingBatch incomingBatch = new IncomingBatch();
-            
-            File batchInfo = new File(batchDir, "batch-info.txt");
-            if (batchInfo.exists()) {
-               List<String> info = FileUtils.readLines(batchInfo);
-               if (info != null && info.size() > 0) {
-                   incomingBatch.setChannelId(info.get(0).trim());
-               } else {
-                   incomingBatch.setChannelId(Constants.CHANNEL_FILESYNC);
-               }
+        IncomingBatch incomingBatch = new IncomingBatch();
+        
+        File batchInfo = new File(batchDir, "batch-info.txt");
+        if (batchInfo.exists()) {
+            List<String> info = FileUtils.readLines(batchInfo);
+            if (info != null && info.size() > 0) {
+                incomingBatch.setChannelId(info.get(0).trim());
             } else {
                 incomingBatch.setChannelId(Constants.CHANNEL_FILESYNC);
             }
-            
-            incomingBatch.setBatchId(batchId);
-            incomingBatch.setStatus(IncomingBatch.Status.LD);
-            incomingBatch.setNodeId(sourceNodeId);
-            incomingBatch.setByteCount(FileUtils.sizeOfDirectory(batchDir));
-            batchesProcessed.add(incomingBatch);
-            if (incomingBatchService.acquireIncomingBatch(incomingBatch)) {
-                File syncScript = new File(batchDir, "sync.bsh");
-                if (syncScript.exists()) {
-                    String script = FileUtils.readFileToString(syncScript);
-                    Interpreter interpreter = new Interpreter();
-                    boolean isLocked = false;
-                    try {
-                        interpreter.set("log", log);
-                        interpreter.set("batchDir", batchDir.getAbsolutePath().replace('\\', '/'));
-                        interpreter.set("engine", engine);
-                        interpreter.set("sourceNodeId", sourceNodeId);
-
-                        long waitMillis = getParameterService().getLong(
-                                ParameterConstants.FILE_SYNC_LOCK_WAIT_MS);
-                        log.debug("The {} node is attempting to get shared lock for to update incoming status", sourceNodeId);
-                        isLocked = engine.getClusterService().lock(
-                                ClusterConstants.FILE_SYNC_SHARED, ClusterConstants.TYPE_SHARED,
-                                waitMillis);
-                        if (isLocked) {
-                            log.debug("The {} node got a shared file sync lock", sourceNodeId);
-                            @SuppressWarnings("unchecked")
-                            Map<String, String> filesToEventType = (Map<String, String>) interpreter
-                                    .eval(script);
-                            if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_PREVENT_PING_BACK)) {
-                                updateFileIncoming(sourceNodeId, filesToEventType);
-                            }
-                            incomingBatch
-                                    .setStatementCount(filesToEventType != null ? filesToEventType
-                                            .size() : 0);
-                        } else {
-                            throw new RuntimeException(
-                                    "Could not obtain file sync shared lock within " + waitMillis
-                                            + " millis");
-                        }
-                        incomingBatch.setStatus(IncomingBatch.Status.OK);
-                        if (incomingBatchService.isRecordOkBatchesEnabled()) {
-                            incomingBatchService.updateIncomingBatch(incomingBatch);
-                        } else if (incomingBatch.isRetry()) {
-                            incomingBatchService.deleteIncomingBatch(incomingBatch);
+        } else {
+            incomingBatch.setChannelId(Constants.CHANNEL_FILESYNC);
+        }
+        
+        incomingBatch.setBatchId(batchId);
+        incomingBatch.setStatus(IncomingBatch.Status.LD);
+        incomingBatch.setNodeId(sourceNodeId);
+        incomingBatch.setByteCount(byteCount);
+        batchesProcessed.add(incomingBatch);
+        if (incomingBatchService.acquireIncomingBatch(incomingBatch)) {
+            File syncScript = new File(batchDir, "sync.bsh");
+            if (syncScript.exists()) {
+                String script = FileUtils.readFileToString(syncScript);
+                Interpreter interpreter = new Interpreter();
+                boolean isLocked = false;
+                try {
+                    interpreter.set("log", log);
+                    interpreter.set("batchDir", batchDir.getAbsolutePath().replace('\\', '/'));
+                    interpreter.set("engine", engine);
+                    interpreter.set("sourceNodeId", sourceNodeId);
+                    interpreter.set("moveSourceFiles", Boolean.TRUE);
+
+                    long waitMillis = getParameterService().getLong(
+                            ParameterConstants.FILE_SYNC_LOCK_WAIT_MS);
+                    log.debug("The {} node is attempting to get shared lock for to update incoming status", sourceNodeId);
+                    isLocked = engine.getClusterService().lock(
+                            ClusterConstants.FILE_SYNC_SHARED, ClusterConstants.TYPE_SHARED,
+                            waitMillis);
+                    if (isLocked) {
+                        log.debug("The {} node got a shared file sync lock", sourceNodeId);
+                        @SuppressWarnings("unchecked")
+                        Map<String, String> filesToEventType = (Map<String, String>) interpreter
+                                .eval(script);
+                        if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_PREVENT_PING_BACK)) {
+                            updateFileIncoming(sourceNodeId, filesToEventType);
                         }
-                    } catch (Throwable ex) {
-                        if (ex instanceof TargetError) {
-                            Throwable target = ((TargetError) ex).getTarget();
-                            if (target != null) {
-                                ex = target;
-                            }
-                        } else if (ex instanceof EvalError) {
-                            log.error("Failed to evalulate the script:\n{}", script);
+                        incomingBatch
+                                .setStatementCount(filesToEventType != null ? filesToEventType
+                                        .size() : 0);
+                    } else {
+                        throw new RuntimeException(
+                                "Could not obtain file sync shared lock within " + waitMillis
+                                        + " millis");
+                    }
+                    incomingBatch.setStatus(IncomingBatch.Status.OK);
+                    if (incomingBatchService.isRecordOkBatchesEnabled()) {
+                        incomingBatchService.updateIncomingBatch(incomingBatch);
+                    } else if (incomingBatch.isRetry()) {
+                        incomingBatchService.deleteIncomingBatch(incomingBatch);
+                    }
+                } catch (Throwable ex) {
+                    if (ex instanceof TargetError) {
+                        Throwable target = ((TargetError) ex).getTarget();
+                        if (target != null) {
+                            ex = target;
                         }
+                    } else if (ex instanceof EvalError) {
+                        log.error("Failed to evalulate the script:\n{}", script);
+                    }
 
-                        if (ex instanceof FileConflictException) {
-                            log.error(ex.getMessage() + ".  Failed to process file sync batch "
-                                    + batchId);
-                        } else {
-                            log.error("Failed to process file sync batch " + batchId, ex);
-                        }
+                    if (ex instanceof FileConflictException) {
+                        log.error(ex.getMessage() + ".  Failed to process file sync batch "
+                                + batchId);
+                    } else {
+                        log.error("Failed to process file sync batch " + batchId, ex);
+                    }
 
-                        incomingBatch.setErrorFlag(true);
-                        incomingBatch.setStatus(IncomingBatch.Status.ER);
-                        incomingBatch.setSqlMessage(ex.getMessage());
-                        if (incomingBatchService.isRecordOkBatchesEnabled()
-                                || incomingBatch.isRetry()) {
-                            incomingBatchService.updateIncomingBatch(incomingBatch);
-                        } else {
-                            incomingBatchService.insertIncomingBatch(incomingBatch);
-                        }
-                        processInfo.setStatus(ProcessInfo.Status.ERROR);
-                        break;
-                    } finally {
-                        log.debug("The {} node is done processing file sync files", sourceNodeId);
-                        if (isLocked) {
-                            engine.getClusterService().unlock(ClusterConstants.FILE_SYNC_SHARED,
-                                    ClusterConstants.TYPE_SHARED);
-                        }
+                    incomingBatch.setErrorFlag(true);
+                    incomingBatch.setStatus(IncomingBatch.Status.ER);
+                    incomingBatch.setSqlMessage(ex.getMessage());
+                    if (incomingBatchService.isRecordOkBatchesEnabled()
+                            || incomingBatch.isRetry()) {
+                        incomingBatchService.updateIncomingBatch(incomingBatch);
+                    } else {
+                        incomingBatchService.insertIncomingBatch(incomingBatch);
+                    }
+                    processInfo.setStatus(ProcessInfo.Status.ERROR);
+                    return false;
+                } finally {
+                    log.debug("The {} node is done processing file sync files", sourceNodeId);
+                    if (isLocked) {
+                        engine.getClusterService().unlock(ClusterConstants.FILE_SYNC_SHARED,
+                                ClusterConstants.TYPE_SHARED);
                     }
-                } else {
-                    log.error("Could not find the sync.bsh script for batch {}", batchId);
                 }
+            } else {
+                log.error("Could not find the sync.bsh script for batch {}", batchId);
             }
-
         }
-
-        return batchesProcessed;
+        FileUtils.deleteQuietly(batchDir);
+        return true;
     }
 
     protected void updateFileIncoming(String nodeId, Map<String, String> filesToEventType) {
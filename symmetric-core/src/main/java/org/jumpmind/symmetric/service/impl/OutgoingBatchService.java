@@ -22,6 +22,7 @@ package org.jumpmind.symmetric.service.impl;
 
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -50,6 +51,7 @@ import org.jumpmind.symmetric.model.OutgoingBatch.Status;
 import org.jumpmind.symmetric.model.OutgoingBatchSummary;
 import org.jumpmind.symmetric.model.OutgoingBatches;
 import org.jumpmind.symmetric.model.OutgoingLoadSummary;
+import org.jumpmind.symmetric.model.PendingBatchIndex;
 import org.jumpmind.symmetric.service.IClusterService;
 import org.jumpmind.symmetric.service.IConfigurationService;
 import org.jumpmind.symmetric.service.IExtensionService;
@@ -75,6 +77,10 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
     
     private IExtensionService extensionService;
 
+    private PendingBatchIndex pendingBatchIndex = new PendingBatchIndex();
+
+    private Object pendingBatchIndexRefreshLock = new Object();
+
     public OutgoingBatchService(IParameterService parameterService,
             ISymmetricDialect symmetricDialect, INodeService nodeService,
             IConfigurationService configurationService, ISequenceService sequenceService,
@@ -146,6 +152,7 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
         log.info("Copying outgoing batches for channel '{}' from node '{}' to node '{}' starting at {}", new Object[] {channelId, fromNodeId, toNodeId, startBatchId});
         sqlTemplate.update(getSql("deleteOutgoingBatchesForNodeSql"), toNodeId, channelId, fromNodeId, channelId);
         int count = sqlTemplate.update(getSql("copyOutgoingBatchesSql"), toNodeId, fromNodeId, channelId, startBatchId);
+        pendingBatchIndex.invalidate();
         log.info("Copied {} outgoing batches for channel '{}' from node '{}' to node '{}'", new Object[] {count, channelId, fromNodeId, toNodeId});
     }
 
@@ -212,6 +219,7 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
                         Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.NUMERIC,
                         Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP, symmetricDialect.getSqlTypeForIds(),
                         Types.VARCHAR });
+        updatePendingBatchIndex(outgoingBatch);
     }
 
     public void insertOutgoingBatch(final OutgoingBatch outgoingBatch) {
@@ -249,6 +257,61 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
                         .getOtherEventCount(), outgoingBatch.getLastUpdatedHostName(),
                 outgoingBatch.getCreateBy());
         outgoingBatch.setBatchId(batchId);
+        updatePendingBatchIndex(outgoingBatch);
+    }
+
+    protected void updatePendingBatchIndex(OutgoingBatch outgoingBatch) {
+        if (PendingBatchIndex.isPending(outgoingBatch.getStatus())) {
+            pendingBatchIndex.put(outgoingBatch.getNodeId(), outgoingBatch.getBatchId(),
+                    outgoingBatch.getChannelId());
+        } else {
+            pendingBatchIndex.remove(outgoingBatch.getNodeId(), outgoingBatch.getBatchId());
+        }
+    }
+
+    public boolean hasPendingBatches(String nodeId, Collection<String> channelIds) {
+        if (!parameterService.is(ParameterConstants.OUTGOING_BATCH_PENDING_INDEX_ENABLED, true)
+                || parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED)) {
+            pendingBatchIndex.clear();
+            return true;
+        }
+
+        long refreshMs = parameterService.getLong(
+                ParameterConstants.OUTGOING_BATCH_PENDING_INDEX_REFRESH_MS, 60000);
+        long lastRefreshTime = pendingBatchIndex.getLastRefreshTime();
+        if (lastRefreshTime < 0 || System.currentTimeMillis() - lastRefreshTime > refreshMs) {
+            refreshPendingBatchIndex(refreshMs);
+        }
+        return pendingBatchIndex.hasPendingBatches(nodeId, channelIds);
+    }
+
+    /**
+     * The index is not locked during the select because the select can wait
+     * on batches that are being written by threads that update the index.
+     * Batches indexed within the last refresh period are kept even if the
+     * select does not see them because they might not be committed yet.
+     */
+    protected void refreshPendingBatchIndex(long refreshMs) {
+        synchronized (pendingBatchIndexRefreshLock) {
+            long lastRefreshTime = pendingBatchIndex.getLastRefreshTime();
+            long ts = System.currentTimeMillis();
+            if (lastRefreshTime < 0 || ts - lastRefreshTime > refreshMs) {
+                List<OutgoingBatch> pendingBatches = sqlTemplate.query(
+                        getSql("selectPendingOutgoingBatchesSql"),
+                        new ISqlRowMapper<OutgoingBatch>() {
+                            public OutgoingBatch mapRow(Row row) {
+                                OutgoingBatch batch = new OutgoingBatch(row.getString("node_id"),
+                                        row.getString("channel_id"), Status.NE);
+                                batch.setBatchId(row.getLong("batch_id"));
+                                return batch;
+                            }
+                        }, Status.RQ.name(), Status.NE.name(), Status.QY.name(),
+                        Status.SE.name(), Status.LD.name(), Status.ER.name(), Status.IG.name());
+                pendingBatchIndex.refresh(pendingBatches, ts, ts - refreshMs);
+                log.debug("Refreshed the index of {} pending outgoing batches in {} ms",
+                        pendingBatches.size(), System.currentTimeMillis() - ts);
+            }
+        }
     }
 
     public OutgoingBatch findOutgoingBatch(long batchId, String nodeId) {
@@ -350,6 +413,10 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
      * order.
      */
     public OutgoingBatches getOutgoingBatches(String nodeId, boolean includeDisabledChannels) {
+        if (!hasPendingBatches(nodeId, null)) {
+            return new OutgoingBatches();
+        }
+
         long ts = System.currentTimeMillis();
         final int maxNumberOfBatchesToSelect = parameterService.getInt(
                 ParameterConstants.OUTGOING_BATCH_MAX_BATCHES_TO_SELECT, 1000);
@@ -122,6 +122,9 @@ public class OutgoingBatchServiceSqlMap extends AbstractSqlMap {
               + "  from $(outgoing_batch) b where status != 'OK' and status != 'RT'          "
               + "  group by b.node_id, b.status, b.channel_id");
 
+        putSql("selectPendingOutgoingBatchesSql",
+                "select node_id, channel_id, batch_id from $(outgoing_batch) where status in (?, ?, ?, ?, ?, ?, ?)");
+
         putSql("deleteOutgoingBatchesForNodeSql", 
                 "delete from $(outgoing_batch) where node_id=? and channel_id=? and batch_id < "
                 + "(select max(batch_id) from $(outgoing_batch) where node_id=? and channel_id=?) ");
@@ -23,10 +23,17 @@ package org.jumpmind.symmetric.service.impl;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.time.DateUtils;
 import org.jumpmind.db.sql.ISqlRowMapper;
@@ -36,12 +43,17 @@ import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.ExtractRequest;
 import org.jumpmind.symmetric.model.IncomingBatch;
 import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfoKey;
+import org.jumpmind.symmetric.model.ProcessInfoKey.ProcessType;
 import org.jumpmind.symmetric.model.RegistrationRequest;
 import org.jumpmind.symmetric.service.ClusterConstants;
 import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.IPurgeService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.util.AppUtils;
 
 /**
  * @see IPurgeService
@@ -56,11 +68,15 @@ public class PurgeService extends AbstractService implements IPurgeService {
 
     private IStatisticManager statisticManager;
 
+    private INodeService nodeService;
+
     public PurgeService(IParameterService parameterService, ISymmetricDialect symmetricDialect,
-            IClusterService clusterService, IStatisticManager statisticManager) {
+            IClusterService clusterService, IStatisticManager statisticManager,
+            INodeService nodeService) {
         super(parameterService, symmetricDialect);
         this.clusterService = clusterService;
         this.statisticManager = statisticManager;
+        this.nodeService = nodeService;
         setSqlMap(new PurgeServiceSqlMap(symmetricDialect.getPlatform(),
                 createSqlReplacementTokens()));
     }
@@ -87,14 +103,21 @@ public class PurgeService extends AbstractService implements IPurgeService {
         long rowsPurged = 0;
         try {
             if (force || clusterService.lock(ClusterConstants.PURGE_OUTGOING)) {
+                ProcessInfo processInfo = statisticManager.newProcessInfo(new ProcessInfoKey(
+                        nodeService.findIdentityNodeId(), null, ProcessType.PURGE));
                 try {
                     log.info("The outgoing purge process is about to run for data older than {}",
                             SimpleDateFormat.getDateTimeInstance()
                                     .format(retentionCutoff.getTime()));
+                    processInfo.setStatus(ProcessInfo.Status.QUERYING);
                     rowsPurged += purgeStrandedBatches();
-                    rowsPurged += purgeDataRows(retentionCutoff);
-                    rowsPurged += purgeOutgoingBatch(retentionCutoff);
+                    rowsPurged += purgeDataRows(retentionCutoff, processInfo);
+                    rowsPurged += purgeOutgoingBatch(retentionCutoff, processInfo);
                     rowsPurged += purgeExtractRequests();
+                    processInfo.setStatus(ProcessInfo.Status.OK);
+                } catch (RuntimeException ex) {
+                    processInfo.setStatus(ProcessInfo.Status.ERROR);
+                    throw ex;
                 } finally {
                     if (!force) {
                         clusterService.unlock(ClusterConstants.PURGE_OUTGOING);
@@ -110,7 +133,7 @@ public class PurgeService extends AbstractService implements IPurgeService {
         return rowsPurged;
     }
 
-    private long purgeOutgoingBatch(final Calendar time) {
+    private long purgeOutgoingBatch(final Calendar time, ProcessInfo processInfo) {
         log.info("Getting range for outgoing batch");
         long[] minMax = queryForMinMax(getSql("selectOutgoingBatchRangeSql"),
                 new Object[] { time.getTime(), OutgoingBatch.Status.OK.name() });
@@ -119,10 +142,10 @@ public class PurgeService extends AbstractService implements IPurgeService {
         int maxNumOfDataEventsToPurgeInTx = parameterService
                 .getInt(ParameterConstants.PURGE_MAX_NUMBER_OF_EVENT_BATCH_IDS);
         int dataEventsPurgedCount = purgeByMinMax(minMax, MinMaxDeleteSql.DATA_EVENT,
-                time.getTime(), maxNumOfDataEventsToPurgeInTx);
+                time.getTime(), maxNumOfDataEventsToPurgeInTx, processInfo);
         statisticManager.incrementPurgedDataEventRows(dataEventsPurgedCount);
         int outgoingbatchPurgedCount = purgeByMinMax(minMax, MinMaxDeleteSql.OUTGOING_BATCH,
-                time.getTime(), maxNumOfBatchIdsToPurgeInTx);
+                time.getTime(), maxNumOfBatchIdsToPurgeInTx, processInfo);
         statisticManager.incrementPurgedBatchOutgoingRows(outgoingbatchPurgedCount);
         return dataEventsPurgedCount + outgoingbatchPurgedCount;
     }
@@ -139,16 +162,16 @@ public class PurgeService extends AbstractService implements IPurgeService {
         return updateStrandedBatchesCount;
     }
 
-    private long purgeDataRows(final Calendar time) {
+    private long purgeDataRows(final Calendar time, ProcessInfo processInfo) {
         log.info("Getting range for data");
         long[] minMax = queryForMinMax(getSql("selectDataRangeSql"), new Object[0]);
         int maxNumOfDataIdsToPurgeInTx = parameterService
                 .getInt(ParameterConstants.PURGE_MAX_NUMBER_OF_DATA_IDS);
         int dataDeletedCount = purgeByMinMax(minMax, MinMaxDeleteSql.DATA, time.getTime(),
-                maxNumOfDataIdsToPurgeInTx);
+                maxNumOfDataIdsToPurgeInTx, processInfo);
         statisticManager.incrementPurgedDataRows(dataDeletedCount);
         int strandedDeletedCount = purgeByMinMax(minMax, MinMaxDeleteSql.STRANDED_DATA,
-                time.getTime(), maxNumOfDataIdsToPurgeInTx);
+                time.getTime(), maxNumOfDataIdsToPurgeInTx, processInfo);
         statisticManager.incrementPurgedDataRows(strandedDeletedCount);
         return dataDeletedCount + strandedDeletedCount;
 
@@ -193,71 +216,239 @@ public class PurgeService extends AbstractService implements IPurgeService {
     }
 
     private int purgeByMinMax(long[] minMax, MinMaxDeleteSql identifier, Date retentionTime,
-            int maxNumtoPurgeinTx) {
-        long minId = minMax[0];
-        long purgeUpToId = minMax[1];
-        long ts = System.currentTimeMillis();
-        int totalCount = 0;
-        int totalDeleteStmts = 0;
-        int idSqlType = symmetricDialect.getSqlTypeForIds();
-        Timestamp cutoffTime = new Timestamp(retentionTime.getTime());
+            int maxNumtoPurgeinTx, ProcessInfo processInfo) {
         log.info("About to purge {}", identifier.toString().toLowerCase());
-        
-        while (minId <= purgeUpToId) {
-            totalDeleteStmts++;
-            long maxId = minId + maxNumtoPurgeinTx;
+        MinMaxPurge purge = new MinMaxPurge(minMax, identifier,
+                new Timestamp(retentionTime.getTime()), maxNumtoPurgeinTx, processInfo);
+        int threadCount = parameterService.getInt(ParameterConstants.PURGE_THREAD_COUNT, 1);
+        if (threadCount > 1 && minMax[1] - minMax[0] > maxNumtoPurgeinTx) {
+            ExecutorService executor = newPurgeThreadPool(threadCount);
+            try {
+                List<Future<?>> futures = new ArrayList<Future<?>>(threadCount);
+                for (int i = 0; i < threadCount; i++) {
+                    futures.add(executor.submit(purge));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException ex) {
+                        purge.stop();
+                        if (ex.getCause() instanceof RuntimeException) {
+                            throw (RuntimeException) ex.getCause();
+                        } else {
+                            throw new RuntimeException(ex.getCause());
+                        }
+                    } catch (InterruptedException ex) {
+                        purge.stop();
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            } finally {
+                executor.shutdown();
+            }
+        } else {
+            purge.run();
+        }
+        log.info("Done purging {} of {} rows", purge.getTotalCount(), identifier.toString()
+                .toLowerCase());
+        return purge.getTotalCount();
+    }
+
+    protected int deleteByMinMax(MinMaxDeleteSql identifier, long minId, long maxId,
+            Timestamp cutoffTime) {
+        int idSqlType = symmetricDialect.getSqlTypeForIds();
+        String deleteSql = null;
+        Object[] args = null;
+        int[] argTypes = null;
+
+        switch (identifier) {
+            case DATA:
+                deleteSql = getSql("deleteDataSql");
+                args = new Object[] { minId, maxId, cutoffTime, minId, maxId, minId, maxId,
+                        OutgoingBatch.Status.OK.name() };
+                argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP, 
+                        idSqlType, idSqlType, idSqlType, idSqlType, Types.VARCHAR};
+                break;
+            case DATA_EVENT:
+                deleteSql = getSql("deleteDataEventSql");
+                args = new Object[] { minId, maxId, OutgoingBatch.Status.OK.name(), minId,
+                        maxId };
+                argTypes = new int[] { idSqlType, idSqlType, Types.VARCHAR, idSqlType, idSqlType};
+
+                break;
+            case OUTGOING_BATCH:
+                deleteSql = getSql("deleteOutgoingBatchSql");
+                args = new Object[] { OutgoingBatch.Status.OK.name(), minId, maxId, minId,
+                        maxId };
+                argTypes = new int[] {Types.VARCHAR, idSqlType, idSqlType, idSqlType, idSqlType};
+
+                break;
+            case STRANDED_DATA:
+                deleteSql = getSql("deleteStrandedData");
+                args = new Object[] { minId, maxId, cutoffTime, minId, maxId };
+                argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP, idSqlType, idSqlType};
+                break;
+        }
+
+        log.debug("Running the following statement: {} with the following arguments: {}", deleteSql, Arrays.toString(args));
+        int count = sqlTemplate.update(deleteSql, args, argTypes);
+        log.debug("Deleted {} rows", count);
+        return count;
+    }
+
+    protected ExecutorService newPurgeThreadPool(int threadCount) {
+        return Executors.newFixedThreadPool(threadCount, newNamedThreadFactory("purge"));
+    }
+
+    /**
+     * Deletes an id range in chunks. Each thread that runs it takes the next
+     * chunk that no other thread has taken, so several threads can delete
+     * disjoint ranges at the same time on their own connections.
+     */
+    class MinMaxPurge implements Runnable {
+
+        final MinMaxDeleteSql identifier;
+
+        final Timestamp cutoffTime;
+
+        final long purgeUpToId;
+
+        final ChunkSize chunkSize;
+
+        final ProcessInfo processInfo;
+
+        final long pauseMs;
+
+        final AtomicInteger totalCount = new AtomicInteger();
+
+        final AtomicInteger totalDeleteStmts = new AtomicInteger();
+
+        final AtomicLong idsPurged = new AtomicLong();
+
+        long nextId;
+
+        long lastLogTime = System.currentTimeMillis();
+
+        volatile boolean stopped;
+
+        MinMaxPurge(long[] minMax, MinMaxDeleteSql identifier, Timestamp cutoffTime,
+                int maxNumtoPurgeinTx, ProcessInfo processInfo) {
+            this.identifier = identifier;
+            this.cutoffTime = cutoffTime;
+            this.nextId = minMax[0];
+            this.purgeUpToId = minMax[1];
+            this.chunkSize = new ChunkSize(maxNumtoPurgeinTx,
+                    parameterService.getLong(ParameterConstants.PURGE_TARGET_STATEMENT_TIME_MS, 0));
+            this.pauseMs = parameterService.getLong(
+                    ParameterConstants.PURGE_PAUSE_BETWEEN_DELETES_MS, 0);
+            this.processInfo = processInfo;
+            if (processInfo != null) {
+                processInfo.setStatus(ProcessInfo.Status.PROCESSING);
+                processInfo.setCurrentTableName(identifier.toString().toLowerCase());
+                processInfo.setDataCount(Math.max(0, purgeUpToId - nextId + 1));
+                processInfo.setCurrentDataCount(0);
+            }
+        }
+
+        public void run() {
+            long[] range = null;
+            while (!stopped && (range = nextRange()) != null) {
+                long ts = System.currentTimeMillis();
+                int count = deleteByMinMax(identifier, range[0], range[1], cutoffTime);
+                long size = range[1] - range[0] + 1;
+                chunkSize.record(size, count, System.currentTimeMillis() - ts);
+                totalCount.addAndGet(count);
+                totalDeleteStmts.incrementAndGet();
+                if (processInfo != null) {
+                    processInfo.setCurrentDataCount(idsPurged.addAndGet(size));
+                }
+                logProgress();
+                if (pauseMs > 0) {
+                    AppUtils.sleep(pauseMs);
+                }
+            }
+        }
+
+        synchronized long[] nextRange() {
+            if (nextId > purgeUpToId) {
+                return null;
+            }
+            long minId = nextId;
+            long maxId = minId + chunkSize.get();
             if (maxId > purgeUpToId) {
                 maxId = purgeUpToId;
             }
+            nextId = maxId + 1;
+            return new long[] { minId, maxId };
+        }
 
-            String deleteSql = null;
-            Object[] args = null;
-            int[] argTypes = null;
-
-            switch (identifier) {
-                case DATA:
-                    deleteSql = getSql("deleteDataSql");
-                    args = new Object[] { minId, maxId, cutoffTime, minId, maxId, minId, maxId,
-                            OutgoingBatch.Status.OK.name() };
-                    argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP, 
-                            idSqlType, idSqlType, idSqlType, idSqlType, Types.VARCHAR};
-                    break;
-                case DATA_EVENT:
-                    deleteSql = getSql("deleteDataEventSql");
-                    args = new Object[] { minId, maxId, OutgoingBatch.Status.OK.name(), minId,
-                            maxId };
-                    argTypes = new int[] { idSqlType, idSqlType, Types.VARCHAR, idSqlType, idSqlType};
-
-                    break;
-                case OUTGOING_BATCH:
-                    deleteSql = getSql("deleteOutgoingBatchSql");
-                    args = new Object[] { OutgoingBatch.Status.OK.name(), minId, maxId, minId,
-                            maxId };
-                    argTypes = new int[] {Types.VARCHAR, idSqlType, idSqlType, idSqlType, idSqlType};
-
-                    break;
-                case STRANDED_DATA:
-                    deleteSql = getSql("deleteStrandedData");
-                    args = new Object[] { minId, maxId, cutoffTime, minId, maxId };
-                    argTypes = new int[] { idSqlType, idSqlType, Types.TIMESTAMP, idSqlType, idSqlType};
-                    break;
+        synchronized void logProgress() {
+            if (totalCount.get() > 0
+                    && (System.currentTimeMillis() - lastLogTime > DateUtils.MILLIS_PER_MINUTE * 5)) {
+                log.info("Purged {} of {} rows so far using {} statements", new Object[] {
+                        totalCount.get(), identifier.toString().toLowerCase(),
+                        totalDeleteStmts.get() });
+                lastLogTime = System.currentTimeMillis();
             }
+        }
 
-            log.debug("Running the following statement: {} with the following arguments: {}", deleteSql, Arrays.toString(args));
-            int count = sqlTemplate.update(deleteSql, args, argTypes);
-            log.debug("Deleted {} rows", count);
-            totalCount += count;
+        void stop() {
+            stopped = true;
+        }
 
-            if (totalCount > 0
-                    && (System.currentTimeMillis() - ts > DateUtils.MILLIS_PER_MINUTE * 5)) {
-                log.info("Purged {} of {} rows so far using {} statements", new Object[] {
-                        totalCount, identifier.toString().toLowerCase(), totalDeleteStmts });
-                ts = System.currentTimeMillis();
+        int getTotalCount() {
+            return totalCount.get();
+        }
+    }
+
+    /**
+     * The number of ids to delete in one statement. When a target statement
+     * time is set, the size follows the time the last statement took. It grows
+     * when a statement is faster than the target or deleted nothing and
+     * shrinks when it is slower. It changes by at most a factor of two each
+     * time and stays within a hundredth and four times the configured size,
+     * so a run of fast statements cannot grow it into a delete that holds
+     * locks for much longer than the configured size would.
+     */
+    static class ChunkSize {
+
+        static final long MAX_GROWTH = 4;
+
+        final long minSize;
+
+        final long maxSize;
+
+        final long targetMs;
+
+        long size;
+
+        ChunkSize(long initialSize, long targetMs) {
+            this.size = Math.max(1, initialSize);
+            this.targetMs = targetMs;
+            if (targetMs > 0) {
+                this.minSize = Math.max(1, size / 100);
+                this.maxSize = size > Long.MAX_VALUE / MAX_GROWTH ? Long.MAX_VALUE
+                        : size * MAX_GROWTH;
+            } else {
+                this.minSize = size;
+                this.maxSize = size;
+            }
+        }
+
+        synchronized long get() {
+            return size;
+        }
+
+        synchronized void record(long chunkSize, int rowCount, long elapsedMs) {
+            if (targetMs > 0) {
+                long next = chunkSize * 2;
+                if (rowCount > 0 && elapsedMs > 0) {
+                    next = Math.max(chunkSize / 2, Math.min(next, chunkSize * targetMs / elapsedMs));
+                }
+                size = Math.max(minSize, Math.min(maxSize, next));
             }
-            minId = maxId + 1;
         }
-        log.info("Done purging {} of {} rows", totalCount, identifier.toString().toLowerCase());
-        return totalCount;
     }
 
     public long purgeIncoming(Calendar retentionCutoff, boolean force) {
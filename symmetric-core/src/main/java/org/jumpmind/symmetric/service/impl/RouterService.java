@@ -27,12 +27,18 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -40,6 +46,7 @@ import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.SymmetricException;
 import org.jumpmind.symmetric.SyntaxParsingException;
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
@@ -75,6 +82,7 @@ import org.jumpmind.symmetric.route.DefaultBatchAlgorithm;
 import org.jumpmind.symmetric.route.DefaultDataRouter;
 import org.jumpmind.symmetric.route.DelayRoutingException;
 import org.jumpmind.symmetric.route.FileSyncDataRouter;
+import org.jumpmind.symmetric.route.IBulkDataRouter;
 import org.jumpmind.symmetric.route.IBatchAlgorithm;
 import org.jumpmind.symmetric.route.IDataRouter;
 import org.jumpmind.symmetric.route.IDataToRouteReader;
@@ -95,13 +103,17 @@ import org.jumpmind.symmetric.statistic.StatisticConstants;
  */
 public class RouterService extends AbstractService implements IRouterService {
 
-    protected  Map<String, Boolean> commonBatchesLastKnownState = new HashMap<String, Boolean>();
+    protected  Map<String, Boolean> commonBatchesLastKnownState = new ConcurrentHashMap<String, Boolean>();
     
     
-    protected  Map<String, Boolean> defaultRouterOnlyLastKnownState = new HashMap<String, Boolean>();
+    protected  Map<String, Boolean> defaultRouterOnlyLastKnownState = new ConcurrentHashMap<String, Boolean>();
 
     protected transient ExecutorService readThread = null;
 
+    protected transient ThreadPoolExecutor routeThreads = null;
+
+    protected final Object threadPoolLock = new Object();
+
     protected ISymmetricEngine engine;
     
     protected IExtensionService extensionService;
@@ -110,6 +122,12 @@ public class RouterService extends AbstractService implements IRouterService {
     
     protected boolean firstTimeCheckForAbandonedBatches = true;
 
+    /*
+     * Kept across routing runs so it remembers whether gaps have been checked
+     * against sym_data_event since this engine started
+     */
+    protected DataGapDetector gapDetector;
+
     public RouterService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
 
@@ -149,13 +167,23 @@ public class RouterService extends AbstractService implements IRouterService {
     }
 
     public synchronized void stop() {
-        if (readThread != null) {
-            try {
-                log.info("RouterService is shutting down");
-                readThread.shutdown();
-                readThread = null;
-            } catch (Exception ex) {
-                log.error("", ex);
+        synchronized (threadPoolLock) {
+            if (readThread != null) {
+                try {
+                    log.info("RouterService is shutting down");
+                    readThread.shutdown();
+                    readThread = null;
+                } catch (Exception ex) {
+                    log.error("", ex);
+                }
+            }
+            if (routeThreads != null) {
+                try {
+                    routeThreads.shutdown();
+                    routeThreads = null;
+                } catch (Exception ex) {
+                    log.error("", ex);
+                }
             }
         }
     }
@@ -177,9 +205,11 @@ public class RouterService extends AbstractService implements IRouterService {
                     insertInitialLoadEvents();
                     
                     long ts = System.currentTimeMillis();
-                    DataGapDetector gapDetector = new DataGapDetector(
-                            engine.getDataService(), parameterService, symmetricDialect, 
-                            this, engine.getStatisticManager(), engine.getNodeService());
+                    if (gapDetector == null) {
+                        gapDetector = new DataGapDetector(engine.getDataService(),
+                                parameterService, symmetricDialect, this,
+                                engine.getStatisticManager(), engine.getNodeService());
+                    }
                     gapDetector.beforeRouting();
                     dataCount = routeDataForEachChannel(gapDetector);
                     ts = System.currentTimeMillis() - ts;
@@ -320,6 +350,9 @@ public class RouterService extends AbstractService implements IRouterService {
      * decide to multi-thread the routing it is a simple matter of inserting a
      * thread pool here and waiting for all channels to be processed. The other
      * reason is to reduce the number of connections we are required to have.
+     * <p>
+     * When {@link ParameterConstants#ROUTING_THREAD_COUNT} is greater than one,
+     * the channels are handed to a pool of routing threads instead.
      */
     protected int routeDataForEachChannel(DataGapDetector gapDetector) {
         int dataCount = 0;
@@ -330,13 +363,72 @@ public class RouterService extends AbstractService implements IRouterService {
         try {
             final List<NodeChannel> channels = engine.getConfigurationService().getNodeChannels(
                     false);
-            for (NodeChannel nodeChannel : channels) {
+            int threadCount = parameterService.getInt(ParameterConstants.ROUTING_THREAD_COUNT, 1);
+            if (threadCount > 1) {
+                dataCount = routeDataForEachChannelInParallel(threadCount, channels, sourceNode,
+                        gapDetector);
+            } else {
+                for (NodeChannel nodeChannel : channels) {
+                    if (nodeChannel.isEnabled()) {
+                        processInfo.setCurrentChannelId(nodeChannel.getChannelId());
+                        dataCount += routeDataForChannel(processInfo,
+                                nodeChannel,
+                                sourceNode
+                                , gapDetector);
+                    } else {
+                        if (log.isDebugEnabled()) {
+                            log.debug(
+                                    "Not routing the {} channel.  It is either disabled or suspended.",
+                                    nodeChannel.getChannelId());
+                        }
+                    }
+                }
+            }
+            processInfo.setStatus(ProcessInfo.Status.OK);
+        } catch (RuntimeException ex) {
+            processInfo.setStatus(ProcessInfo.Status.ERROR);
+            firstTimeCheckForAbandonedBatches = true;
+            throw ex;
+        }
+        return dataCount;
+    }
+
+    /**
+     * Route each enabled channel on its own routing thread, with its own
+     * {@link ProcessInfo}, and wait for all of them to finish. Each channel is
+     * submitted once, so a channel is never routed by more than one thread at
+     * a time. Gap detection that is requested while channels are being routed
+     * runs after all of them have committed.
+     */
+    protected int routeDataForEachChannelInParallel(int threadCount, List<NodeChannel> channels,
+            final Node sourceNode, final DataGapDetector gapDetector) {
+        int dataCount = 0;
+        ExecutorService service = getRouteThreads(threadCount);
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>(channels.size());
+        gapDetector.setDetectionDeferred(true);
+        try {
+            for (final NodeChannel nodeChannel : channels) {
                 if (nodeChannel.isEnabled()) {
-                    processInfo.setCurrentChannelId(nodeChannel.getChannelId());
-                    dataCount += routeDataForChannel(processInfo,
-                            nodeChannel,
-                            sourceNode
-                            , gapDetector);
+                    futures.add(service.submit(new Callable<Integer>() {
+                        public Integer call() throws Exception {
+                            ProcessInfo channelProcessInfo = engine.getStatisticManager()
+                                    .newProcessInfo(
+                                            new ProcessInfoKey(sourceNode.getNodeId(), null,
+                                                    ProcessType.ROUTER_JOB, nodeChannel
+                                                            .getChannelId()));
+                            channelProcessInfo.setCurrentChannelId(nodeChannel.getChannelId());
+                            channelProcessInfo.setStatus(ProcessInfo.Status.PROCESSING);
+                            try {
+                                int count = routeDataForChannel(channelProcessInfo, nodeChannel,
+                                        sourceNode, gapDetector, true);
+                                channelProcessInfo.setStatus(ProcessInfo.Status.OK);
+                                return count;
+                            } catch (RuntimeException ex) {
+                                channelProcessInfo.setStatus(ProcessInfo.Status.ERROR);
+                                throw ex;
+                            }
+                        }
+                    }));
                 } else {
                     if (log.isDebugEnabled()) {
                         log.debug(
@@ -345,15 +437,53 @@ public class RouterService extends AbstractService implements IRouterService {
                     }
                 }
             }
-            processInfo.setStatus(ProcessInfo.Status.OK);
-        } catch (RuntimeException ex) {
-            processInfo.setStatus(ProcessInfo.Status.ERROR);
-            firstTimeCheckForAbandonedBatches = true;
-            throw ex;
+
+            RuntimeException firstException = null;
+            for (Future<Integer> future : futures) {
+                try {
+                    dataCount += future.get();
+                } catch (InterruptedException ex) {
+                    log.warn("The routing process was interrupted while waiting for channels to finish routing");
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ex) {
+                    if (firstException == null) {
+                        Throwable cause = ex.getCause();
+                        firstException = cause instanceof RuntimeException ? (RuntimeException) cause
+                                : new SymmetricException(cause);
+                    }
+                }
+            }
+
+            if (firstException != null) {
+                throw firstException;
+            }
+        } finally {
+            gapDetector.setDetectionDeferred(false);
         }
+        gapDetector.afterRouting();
         return dataCount;
     }
 
+    protected ExecutorService getRouteThreads(final int threadCount) {
+        synchronized (threadPoolLock) {
+            if (routeThreads != null && routeThreads.getCorePoolSize() != threadCount) {
+                log.info("{} has changed from {} to {}.  Restarting thread pool", new Object[] {
+                        ParameterConstants.ROUTING_THREAD_COUNT, routeThreads.getCorePoolSize(),
+                        threadCount });
+                routeThreads.shutdown();
+                routeThreads = null;
+            }
+
+            if (routeThreads == null) {
+                log.info("Routing will use {} threads", threadCount);
+                routeThreads = (ThreadPoolExecutor) Executors.newFixedThreadPool(threadCount,
+                        newNamedThreadFactory("router"));
+            }
+            return routeThreads;
+        }
+    }
+
     protected boolean producesCommonBatches(Channel channel, String nodeGroupId, List<TriggerRouter> triggerRouters) {
         String channelId = channel.getChannelId();
         Boolean producesCommonBatches = !Constants.CHANNEL_CONFIG.equals(channelId)
@@ -459,6 +589,11 @@ public class RouterService extends AbstractService implements IRouterService {
 
     protected int routeDataForChannel(ProcessInfo processInfo, final NodeChannel nodeChannel, final Node sourceNode,
             DataGapDetector gapDetector) {
+        return routeDataForChannel(processInfo, nodeChannel, sourceNode, gapDetector, false);
+    }
+
+    protected int routeDataForChannel(ProcessInfo processInfo, final NodeChannel nodeChannel, final Node sourceNode,
+            DataGapDetector gapDetector, boolean routedInParallel) {
         ChannelRouterContext context = null;
         long ts = System.currentTimeMillis();
         int dataCount = -1;
@@ -473,6 +608,8 @@ public class RouterService extends AbstractService implements IRouterService {
                     symmetricDialect.getPlatform().getSqlTemplate().startSqlTransaction());
             context.setProduceCommonBatches(producesCommonBatches);
             context.setOnlyDefaultRoutersAssigned(onlyDefaultRoutersAssigned);
+            context.setRoutedInParallel(routedInParallel);
+            context.setCommittedDataIds(engine.getDataService().getDataEventIds());
             
             dataCount = selectDataAndRoute(processInfo, context);
             return dataCount;
@@ -510,7 +647,7 @@ public class RouterService extends AbstractService implements IRouterService {
                 if (dataCount > 0) {
                     long insertTs = System.currentTimeMillis();
                     engine.getDataService().insertDataEvents(context.getSqlTransaction(),
-                            context.getDataEventList());
+                            context.getDataEventBuffer());
                     context.clearDataEventsList();
                     completeBatchesAndCommit(context);
                     context.incrementStat(System.currentTimeMillis() - insertTs,
@@ -542,7 +679,7 @@ public class RouterService extends AbstractService implements IRouterService {
                 boolean detectGaps = context.isRequestGapDetection();
                 context.cleanup();
                 if (detectGaps) {
-                    gapDetector.beforeRouting();
+                    gapDetector.requestDetection();
                 }
             }
         }
@@ -608,26 +745,28 @@ public class RouterService extends AbstractService implements IRouterService {
 		if (parameterService.is(ParameterConstants.SYNCHRONIZE_ALL_JOBS)) {
 			reader.run();
 		} else {
-			if (readThread == null) {
-				readThread = Executors.newCachedThreadPool(new ThreadFactory() {
-					final AtomicInteger threadNumber = new AtomicInteger(1);
-					final String namePrefix = parameterService.getEngineName()
-							.toLowerCase() + "-router-reader-";
-
-					public Thread newThread(Runnable r) {
-						Thread t = new Thread(r);
-						t.setName(namePrefix + threadNumber.getAndIncrement());
-						if (t.isDaemon()) {
-							t.setDaemon(false);
-						}
-						if (t.getPriority() != Thread.NORM_PRIORITY) {
-							t.setPriority(Thread.NORM_PRIORITY);
+			synchronized (threadPoolLock) {
+				if (readThread == null) {
+					readThread = Executors.newCachedThreadPool(new ThreadFactory() {
+						final AtomicInteger threadNumber = new AtomicInteger(1);
+						final String namePrefix = parameterService.getEngineName()
+								.toLowerCase() + "-router-reader-";
+
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r);
+							t.setName(namePrefix + threadNumber.getAndIncrement());
+							if (t.isDaemon()) {
+								t.setDaemon(false);
+							}
+							if (t.getPriority() != Thread.NORM_PRIORITY) {
+								t.setPriority(Thread.NORM_PRIORITY);
+							}
+							return t;
 						}
-						return t;
-					}
-				});
+					});
+				}
+				readThread.execute(reader);
 			}
-			readThread.execute(reader);
 		}
 
 		return reader;
@@ -638,6 +777,12 @@ public class RouterService extends AbstractService implements IRouterService {
      * crossed a database transaction boundary. Then route each {@link Data}
      * while continuing to keep the queue filled until the result set is
      * entirely read.
+     * <p>
+     * When {@link ParameterConstants#ROUTING_DATA_CHUNK_SIZE} is greater than
+     * one, data is taken from the reader in chunks and data routers that
+     * implement {@link IBulkDataRouter} are called once per trigger router for
+     * the whole chunk. Data is still assigned to batches one at a time and in
+     * order.
      * 
      * @param conn
      *            The connection to use for selecting the data.
@@ -654,58 +799,72 @@ public class RouterService extends AbstractService implements IRouterService {
         int statsDataEventCount = 0;
         final int maxNumberOfEventsBeforeFlush = parameterService
                 .getInt(ParameterConstants.ROUTING_FLUSH_JDBC_BATCH_SIZE);
+        final int chunkSize = Math.max(1,
+                parameterService.getInt(ParameterConstants.ROUTING_DATA_CHUNK_SIZE, 1));
+        List<Data> chunk = new ArrayList<Data>(chunkSize);
+        Map<String, List<TriggerRouter>> triggerRoutersByTriggerId = new HashMap<String, List<TriggerRouter>>();
+        Map<Integer, Table> tablesByTriggerHistoryId = new HashMap<Integer, Table>();
         try {
             nextData = reader.take();
-            do {
-                if (nextData != null) {
-                    data = nextData;
+            while (nextData != null) {
+                chunk.clear();
+                do {
+                    chunk.add(nextData);
                     nextData = reader.take();
-                    if (data != null) {
-                        processInfo.setCurrentTableName(data.getTableName());
-                        processInfo.incrementCurrentDataCount();
-                        boolean atTransactionBoundary = false;
-                        if (nextData != null) {
-                            String nextTxId = nextData.getTransactionId();
-                            atTransactionBoundary = nextTxId == null
-                                    || !nextTxId.equals(data.getTransactionId());
+                } while (nextData != null && chunk.size() < chunkSize);
+
+                List<DataToRoute> chunkToRoute = null;
+                if (chunkSize > 1) {
+                    chunkToRoute = routeChunk(context, chunk, triggerRoutersByTriggerId,
+                            tablesByTriggerHistoryId);
+                }
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    data = chunk.get(i);
+                    Data followingData = i + 1 < chunk.size() ? chunk.get(i + 1) : nextData;
+                    processInfo.setCurrentTableName(data.getTableName());
+                    processInfo.incrementCurrentDataCount();
+                    boolean atTransactionBoundary = false;
+                    if (followingData != null) {
+                        String nextTxId = followingData.getTransactionId();
+                        atTransactionBoundary = nextTxId == null
+                                || !nextTxId.equals(data.getTransactionId());
+                    }
+                    context.setEncountedTransactionBoundary(atTransactionBoundary);
+                    statsDataCount++;
+                    totalDataCount++;
+                    int dataEventsInserted = chunkToRoute != null ? routeData(processInfo,
+                            chunkToRoute.get(i), context) : routeData(processInfo, data, context);
+                    statsDataEventCount += dataEventsInserted;
+                    totalDataEventCount += dataEventsInserted;
+                    long insertTs = System.currentTimeMillis();
+                    try {
+                        if (maxNumberOfEventsBeforeFlush <= context.getDataEventBuffer().size()
+                                || context.isNeedsCommitted()) {
+                            engine.getDataService().insertDataEvents(
+                                    context.getSqlTransaction(), context.getDataEventBuffer());
+                            context.clearDataEventsList();
                         }
-                        context.setEncountedTransactionBoundary(atTransactionBoundary);
-                        statsDataCount++;
-                        totalDataCount++;
-                        int dataEventsInserted = routeData(processInfo, data, context);
-                        statsDataEventCount += dataEventsInserted;
-                        totalDataEventCount += dataEventsInserted;
-                        long insertTs = System.currentTimeMillis();
-                        try {
-                            if (maxNumberOfEventsBeforeFlush <= context.getDataEventList().size()
-                                    || context.isNeedsCommitted()) {
-                                engine.getDataService().insertDataEvents(
-                                        context.getSqlTransaction(), context.getDataEventList());
-                                context.clearDataEventsList();
-                            }
-                            if (context.isNeedsCommitted()) {
-                                completeBatchesAndCommit(context);
-                            }
-                        } finally {
-                            context.incrementStat(System.currentTimeMillis() - insertTs,
-                                    ChannelRouterContext.STAT_INSERT_DATA_EVENTS_MS);
-
-                            if (statsDataCount > StatisticConstants.FLUSH_SIZE_ROUTER_DATA) {
-                                engine.getStatisticManager().incrementDataRouted(
-                                        context.getChannel().getChannelId(), statsDataCount);
-                                statsDataCount = 0;
-                                engine.getStatisticManager().incrementDataEventInserted(
-                                        context.getChannel().getChannelId(), statsDataEventCount);
-                                statsDataEventCount = 0;
-                            }
+                        if (context.isNeedsCommitted()) {
+                            completeBatchesAndCommit(context);
+                        }
+                    } finally {
+                        context.incrementStat(System.currentTimeMillis() - insertTs,
+                                ChannelRouterContext.STAT_INSERT_DATA_EVENTS_MS);
+
+                        if (statsDataCount > StatisticConstants.FLUSH_SIZE_ROUTER_DATA) {
+                            engine.getStatisticManager().incrementDataRouted(
+                                    context.getChannel().getChannelId(), statsDataCount);
+                            statsDataCount = 0;
+                            engine.getStatisticManager().incrementDataEventInserted(
+                                    context.getChannel().getChannelId(), statsDataEventCount);
+                            statsDataEventCount = 0;
                         }
-
-                        context.setLastDataProcessed(data);
                     }
-                } else {
-                    data = null;
+
+                    context.setLastDataProcessed(data);
                 }
-            } while (data != null);
+            }
 
         } finally {
             reader.setReading(false);
@@ -723,18 +882,110 @@ public class RouterService extends AbstractService implements IRouterService {
 
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Resolve the trigger routers and table for each {@link Data} in the chunk
+     * and route the data that uses an {@link IBulkDataRouter} with one call per
+     * trigger router.
+     */
+    protected List<DataToRoute> routeChunk(ChannelRouterContext context, List<Data> chunk,
+            Map<String, List<TriggerRouter>> triggerRoutersByTriggerId,
+            Map<Integer, Table> tablesByTriggerHistoryId) {
+        List<DataToRoute> chunkToRoute = new ArrayList<DataToRoute>(chunk.size());
+        Map<TriggerRouter, IDataRouter> dataRouters = new HashMap<TriggerRouter, IDataRouter>();
+        Map<TriggerRouter, List<DataToRoute>> dataToRouteByTriggerRouter = new LinkedHashMap<TriggerRouter, List<DataToRoute>>();
+        Map<TriggerRouter, List<DataMetaData>> dataMetaDataByTriggerRouter = new HashMap<TriggerRouter, List<DataMetaData>>();
+        boolean ignoreEnabled = context.getChannel().isIgnoreEnabled();
+        for (Data data : chunk) {
+            DataToRoute dataToRoute = new DataToRoute(data, getTriggerRoutersForData(data,
+                    triggerRoutersByTriggerId), getTableForData(data, tablesByTriggerHistoryId));
+            List<TriggerRouter> triggerRouters = dataToRoute.getTriggerRouters();
+            if (triggerRouters != null && triggerRouters.size() > 0 && !ignoreEnabled
+                    && StringUtils.isBlank(data.getNodeList())) {
+                dataToRoute.initRoutedNodeIds();
+                for (TriggerRouter triggerRouter : triggerRouters) {
+                    DataMetaData dataMetaData = new DataMetaData(data, dataToRoute.getTable(),
+                            triggerRouter.getRouter(), context.getChannel());
+                    dataToRoute.getDataMetaDatas().add(dataMetaData);
+                    dataToRoute.getDataRouters().add(null);
+                    dataToRoute.getRoutedNodeIds().add(null);
+                    if (triggerRouter.isRouted(data.getDataEventType())) {
+                        IDataRouter dataRouter = dataRouters.get(triggerRouter);
+                        if (dataRouter == null) {
+                            dataRouter = getDataRouter(triggerRouter.getRouter());
+                            dataRouters.put(triggerRouter, dataRouter);
+                        }
+                        if (dataRouter instanceof IBulkDataRouter) {
+                            List<DataToRoute> group = dataToRouteByTriggerRouter.get(triggerRouter);
+                            if (group == null) {
+                                group = new ArrayList<DataToRoute>();
+                                dataToRouteByTriggerRouter.put(triggerRouter, group);
+                                dataMetaDataByTriggerRouter.put(triggerRouter,
+                                        new ArrayList<DataMetaData>());
+                            }
+                            group.add(dataToRoute);
+                            dataMetaDataByTriggerRouter.get(triggerRouter).add(dataMetaData);
+                        }
+                    }
+                }
+            }
+            chunkToRoute.add(dataToRoute);
+        }
+
+        for (Map.Entry<TriggerRouter, List<DataToRoute>> entry : dataToRouteByTriggerRouter
+                .entrySet()) {
+            TriggerRouter triggerRouter = entry.getKey();
+            List<DataToRoute> group = entry.getValue();
+            List<DataMetaData> dataMetaDatas = dataMetaDataByTriggerRouter.get(triggerRouter);
+            IBulkDataRouter dataRouter = (IBulkDataRouter) dataRouters.get(triggerRouter);
+            context.addUsedDataRouter(dataRouter);
+            long ts = System.currentTimeMillis();
+            List<Set<String>> routedNodeIds = null;
+            try {
+                routedNodeIds = dataRouter.routeToNodes(context, dataMetaDatas,
+                        findAvailableNodes(triggerRouter, context), triggerRouter);
+            } catch (DelayRoutingException ex) {
+                throw ex;
+            } catch (RuntimeException ex) {
+                log.error(
+                        "Failed to route a chunk of {} data starting with data id {} using the {} router",
+                        new Object[] { dataMetaDatas.size(),
+                                dataMetaDatas.get(0).getData().getDataId(),
+                                triggerRouter.getRouter().getRouterId() });
+                throw ex;
+            }
+            context.incrementStat(System.currentTimeMillis() - ts,
+                    ChannelRouterContext.STAT_DATA_ROUTER_MS);
+
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).setRoutedNodeIds(triggerRouter, dataRouter, routedNodeIds.get(i));
+            }
+        }
+        return chunkToRoute;
+    }
+
     protected int routeData(ProcessInfo processInfo, Data data, ChannelRouterContext context) {
-        int numberOfDataEventsInserted = 0;
         List<TriggerRouter> triggerRouters = getTriggerRoutersForData(data);
         Table table = symmetricDialect.getTable(data.getTriggerHistory(), true);
         if (table == null) {
         	table = buildTableFromTriggerHistory(data.getTriggerHistory());
         }
+        return routeData(processInfo, new DataToRoute(data, triggerRouters, table), context);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected int routeData(ProcessInfo processInfo, DataToRoute dataToRoute, ChannelRouterContext context) {
+        int numberOfDataEventsInserted = 0;
+        Data data = dataToRoute.getData();
+        List<TriggerRouter> triggerRouters = dataToRoute.getTriggerRouters();
+        Table table = dataToRoute.getTable();
         if (triggerRouters != null && triggerRouters.size() > 0) {
-            for (TriggerRouter triggerRouter : triggerRouters) {
-                DataMetaData dataMetaData = new DataMetaData(data, table, triggerRouter.getRouter(),
-                        context.getChannel());
+            for (int i = 0; i < triggerRouters.size(); i++) {
+                TriggerRouter triggerRouter = triggerRouters.get(i);
+                DataMetaData dataMetaData = dataToRoute.getDataMetaData(i);
+                if (dataMetaData == null) {
+                    dataMetaData = new DataMetaData(data, table, triggerRouter.getRouter(),
+                            context.getChannel());
+                }
                 Collection<String> nodeIds = null;
                 if (!context.getChannel().isIgnoreEnabled()
                         && triggerRouter.isRouted(data.getDataEventType())) {
@@ -749,6 +1000,14 @@ public class RouterService extends AbstractService implements IRouterService {
                                     "None of the target nodes specified in the data.node_list field ({}) were qualified nodes.  {} will not be routed using the {} router",
                                     new Object[] {targetNodeIds, data.getDataId(), triggerRouter.getRouter().getRouterId() });
                         }
+                    } else if (dataToRoute.getRoutedNodeIds(i) != null) {
+                        /*
+                         * Already routed as part of a chunk. Make sure the
+                         * router is told about the batches in case the
+                         * context was committed since the chunk was routed
+                         */
+                        context.addUsedDataRouter(dataToRoute.getDataRouter(i));
+                        nodeIds = dataToRoute.getRoutedNodeIds(i);
                     } else {
                         try {
                             IDataRouter dataRouter = getDataRouter(triggerRouter.getRouter());
@@ -816,6 +1075,12 @@ public class RouterService extends AbstractService implements IRouterService {
         long ts = System.currentTimeMillis();
         long batchIdToReuse = -1;
         boolean dataEventAdded = false;
+        IBatchAlgorithm batchAlgorithm = context.getBatchAlgorithm();
+        if (batchAlgorithm == null) {
+            Map<String, IBatchAlgorithm> batchAlgorithms = extensionService.getExtensionPointMap(IBatchAlgorithm.class);
+            batchAlgorithm = batchAlgorithms.get(context.getChannel().getBatchAlgorithm());
+            context.setBatchAlgorithm(batchAlgorithm);
+        }
         for (String nodeId : nodeIds) {
             if (nodeId != null) {
                 Map<String, OutgoingBatch> batches = context.getBatchesByNodes();
@@ -863,9 +1128,7 @@ public class RouterService extends AbstractService implements IRouterService {
                     numberOfDataEventsInserted++;
                     dataEventAdded = true;
                 }
-                Map<String, IBatchAlgorithm> batchAlgorithms = extensionService.getExtensionPointMap(IBatchAlgorithm.class);
-                if (batchAlgorithms.get(context.getChannel().getBatchAlgorithm()).isBatchComplete(
-                        batch, dataMetaData, context)) {
+                if (batchAlgorithm.isBatchComplete(batch, dataMetaData, context)) {
                     context.setNeedsCommitted(true);
                 }
             }
@@ -922,6 +1185,42 @@ public class RouterService extends AbstractService implements IRouterService {
         return triggerRouters;
     }
 
+    protected List<TriggerRouter> getTriggerRoutersForData(Data data,
+            Map<String, List<TriggerRouter>> triggerRoutersByTriggerId) {
+        TriggerHistory triggerHistory = data.getTriggerHistory();
+        if (triggerHistory != null
+                && !AbstractFileParsingRouter.TRIGGER_ID_FILE_PARSER.equals(triggerHistory
+                        .getTriggerId())) {
+            List<TriggerRouter> triggerRouters = triggerRoutersByTriggerId.get(triggerHistory
+                    .getTriggerId());
+            if (triggerRouters == null) {
+                triggerRouters = getTriggerRoutersForData(data);
+                if (triggerRouters != null) {
+                    triggerRoutersByTriggerId.put(triggerHistory.getTriggerId(), triggerRouters);
+                }
+            }
+            return triggerRouters;
+        } else {
+            return getTriggerRoutersForData(data);
+        }
+    }
+
+    protected Table getTableForData(Data data, Map<Integer, Table> tablesByTriggerHistoryId) {
+        TriggerHistory triggerHistory = data.getTriggerHistory();
+        Table table = triggerHistory != null ? tablesByTriggerHistoryId.get(triggerHistory
+                .getTriggerHistoryId()) : null;
+        if (table == null) {
+            table = symmetricDialect.getTable(triggerHistory, true);
+            if (table == null) {
+                table = buildTableFromTriggerHistory(triggerHistory);
+            }
+            if (triggerHistory != null) {
+                tablesByTriggerHistoryId.put(triggerHistory.getTriggerHistoryId(), table);
+            }
+        }
+        return table;
+    }
+
     public long getUnroutedDataCount() {
         long maxDataIdAlreadyRouted = sqlTemplate
                 .queryForLong(getSql("selectLastDataIdRoutedUsingDataGapSql"));
@@ -954,4 +1253,82 @@ public class RouterService extends AbstractService implements IRouterService {
     	}
     	return table;
     }
+
+    /**
+     * A {@link Data} that is about to be routed along with the trigger routers
+     * and table that were resolved for it. When the data was routed as part of
+     * a chunk, the node ids from each {@link IBulkDataRouter} are held here
+     * in the same order as the trigger routers.
+     */
+    protected static class DataToRoute {
+
+        private Data data;
+
+        private List<TriggerRouter> triggerRouters;
+
+        private Table table;
+
+        private List<DataMetaData> dataMetaDatas;
+
+        private List<IDataRouter> dataRouters;
+
+        private List<Set<String>> routedNodeIds;
+
+        public DataToRoute(Data data, List<TriggerRouter> triggerRouters, Table table) {
+            this.data = data;
+            this.triggerRouters = triggerRouters;
+            this.table = table;
+        }
+
+        protected void initRoutedNodeIds() {
+            int size = triggerRouters.size();
+            this.dataMetaDatas = new ArrayList<DataMetaData>(size);
+            this.dataRouters = new ArrayList<IDataRouter>(size);
+            this.routedNodeIds = new ArrayList<Set<String>>(size);
+        }
+
+        protected void setRoutedNodeIds(TriggerRouter triggerRouter, IDataRouter dataRouter,
+                Set<String> nodeIds) {
+            int index = triggerRouters.indexOf(triggerRouter);
+            dataRouters.set(index, dataRouter);
+            routedNodeIds.set(index, nodeIds);
+        }
+
+        public Data getData() {
+            return data;
+        }
+
+        public List<TriggerRouter> getTriggerRouters() {
+            return triggerRouters;
+        }
+
+        public Table getTable() {
+            return table;
+        }
+
+        public List<DataMetaData> getDataMetaDatas() {
+            return dataMetaDatas;
+        }
+
+        public List<IDataRouter> getDataRouters() {
+            return dataRouters;
+        }
+
+        public List<Set<String>> getRoutedNodeIds() {
+            return routedNodeIds;
+        }
+
+        public DataMetaData getDataMetaData(int index) {
+            return dataMetaDatas != null ? dataMetaDatas.get(index) : null;
+        }
+
+        public IDataRouter getDataRouter(int index) {
+            return dataRouters != null ? dataRouters.get(index) : null;
+        }
+
+        public Set<String> getRoutedNodeIds(int index) {
+            return routedNodeIds != null ? routedNodeIds.get(index) : null;
+        }
+
+    }
 }
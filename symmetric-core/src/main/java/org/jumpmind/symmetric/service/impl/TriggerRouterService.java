@@ -34,6 +34,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Column;
@@ -126,7 +131,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
      * Cache the history for performance. History never changes and does not
      * grow big so this should be OK.
      */
-    private HashMap<Integer, TriggerHistory> historyMap = new HashMap<Integer, TriggerHistory>();
+    private Map<Integer, TriggerHistory> historyMap = new ConcurrentHashMap<Integer, TriggerHistory>();
 
     public TriggerRouterService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
@@ -369,7 +374,9 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         if (history == null && histId >= 0) {
             history = (TriggerHistory) sqlTemplate.queryForObject(getSql("triggerHistSql"),
                     new TriggerHistoryMapper(), histId);
-            historyMap.put(histId, history);
+            if (history != null) {
+                historyMap.put(histId, history);
+            }
         }
         return history;
     }
@@ -389,20 +396,37 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
             String schemaName, String tableName) {
         List<TriggerHistory> triggerHistories = sqlTemplate.query(getSql("latestTriggerHistSql"),
                 new TriggerHistoryMapper(), triggerId, tableName);
-        for (TriggerHistory triggerHistory : triggerHistories) {
-            if ((StringUtils.isBlank(catalogName) && StringUtils.isBlank(triggerHistory
-                    .getSourceCatalogName()))
-                    || (StringUtils.isNotBlank(catalogName) && catalogName.equals(triggerHistory
-                            .getSourceCatalogName()))) {
-                if ((StringUtils.isBlank(schemaName) && StringUtils.isBlank(triggerHistory
-                        .getSourceSchemaName()))
-                        || (StringUtils.isNotBlank(schemaName) && schemaName.equals(triggerHistory
-                                .getSourceSchemaName()))) {
-                    return triggerHistory;
+        return getNewestTriggerHistoryForTrigger(triggerHistories, triggerId, catalogName,
+                schemaName, tableName);
+    }
+
+    /**
+     * Finds the newest history for a trigger and table in a list of active
+     * histories that was already read, so no query is needed.
+     */
+    protected TriggerHistory getNewestTriggerHistoryForTrigger(
+            List<TriggerHistory> activeTriggerHistories, String triggerId, String catalogName,
+            String schemaName, String tableName) {
+        TriggerHistory newest = null;
+        for (TriggerHistory triggerHistory : activeTriggerHistories) {
+            if (triggerHistory.getTriggerId().equals(triggerId)
+                    && StringUtils.equals(triggerHistory.getSourceTableName(), tableName)
+                    && (newest == null || triggerHistory.getTriggerHistoryId() > newest
+                            .getTriggerHistoryId())) {
+                if ((StringUtils.isBlank(catalogName) && StringUtils.isBlank(triggerHistory
+                        .getSourceCatalogName()))
+                        || (StringUtils.isNotBlank(catalogName) && catalogName.equals(triggerHistory
+                                .getSourceCatalogName()))) {
+                    if ((StringUtils.isBlank(schemaName) && StringUtils.isBlank(triggerHistory
+                            .getSourceSchemaName()))
+                            || (StringUtils.isNotBlank(schemaName) && schemaName.equals(triggerHistory
+                                    .getSourceSchemaName()))) {
+                        newest = triggerHistory;
+                    }
                 }
             }
         }
-        return null;
+        return newest;
     }
     
     @SuppressWarnings("unchecked")
@@ -1176,10 +1200,16 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                             triggersForCurrentNode.clear();
                         }
 
+                        /*
+                         * Tables of wildcard triggers are read once for each
+                         * catalog and schema for the whole run
+                         */
+                        Map<String, Database> databasesBySchema = new HashMap<String, Database>();
                         List<TriggerHistory> activeTriggerHistories = getActiveTriggerHistories();
-                        inactivateTriggers(triggersForCurrentNode, sqlBuffer, activeTriggerHistories);
+                        inactivateTriggers(triggersForCurrentNode, sqlBuffer, activeTriggerHistories,
+                                true, databasesBySchema);
                         updateOrCreateDatabaseTriggers(triggersForCurrentNode, sqlBuffer, force,
-                                true, activeTriggerHistories, true);
+                                true, activeTriggerHistories, true, databasesBySchema);
                         resetTriggerRouterCacheByNodeGroupId();
                     } finally {
                         clusterService.unlock(ClusterConstants.SYNCTRIGGERS);
@@ -1228,6 +1258,13 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
     protected void inactivateTriggers(List<Trigger> triggersThatShouldBeActive,
             StringBuilder sqlBuffer, List<TriggerHistory> activeTriggerHistories) {
+        inactivateTriggers(triggersThatShouldBeActive, sqlBuffer, activeTriggerHistories, false,
+                null);
+    }
+
+    protected void inactivateTriggers(List<Trigger> triggersThatShouldBeActive,
+            StringBuilder sqlBuffer, List<TriggerHistory> activeTriggerHistories,
+            boolean useTableCache, Map<String, Database> databasesBySchema) {
         boolean ignoreCase = this.parameterService.is(ParameterConstants.DB_METADATA_IGNORE_CASE);
         Map<String, Set<Table>> tablesByTriggerId = new HashMap<String, Set<Table>>();
         for (TriggerHistory history : activeTriggerHistories) {
@@ -1235,7 +1272,8 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
             Set<Table> tables = tablesByTriggerId.get(history.getTriggerId());
             Trigger trigger = getTriggerFromList(history.getTriggerId(), triggersThatShouldBeActive);
             if (tables == null && trigger != null) {
-                tables = getTablesForTrigger(trigger, triggersThatShouldBeActive, false);
+                tables = getTablesForTrigger(trigger, triggersThatShouldBeActive, useTableCache,
+                        databasesBySchema);
                 tablesByTriggerId.put(trigger.getTriggerId(), tables);
             }
 
@@ -1345,6 +1383,16 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
     }
 
     protected Set<Table> getTablesForTrigger(Trigger trigger, List<Trigger> triggers, boolean useTableCache) {
+        return getTablesForTrigger(trigger, triggers, useTableCache, null);
+    }
+
+    /**
+     * @param databasesBySchema
+     *            if not null, the tables read for a catalog and schema are
+     *            kept here and used again for other wildcard triggers
+     */
+    protected Set<Table> getTablesForTrigger(Trigger trigger, List<Trigger> triggers,
+            boolean useTableCache, Map<String, Database> databasesBySchema) {
         Set<Table> tables = new HashSet<Table>();
         try {
             boolean ignoreCase = this.parameterService
@@ -1391,9 +1439,17 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
                 for (String schemaName : schemaNames) {
                     if (trigger.isSourceTableNameWildCarded()) {
-                        Database database = symmetricDialect.getPlatform().readDatabase(
-                                catalogName, schemaName,
-                                new String[] { "TABLE" });
+                        String schemaKey = Table.getFullyQualifiedTablePrefix(catalogName,
+                                schemaName);
+                        Database database = databasesBySchema != null ? databasesBySchema
+                                .get(schemaKey) : null;
+                        if (database == null) {
+                            database = symmetricDialect.getPlatform().readDatabase(catalogName,
+                                    schemaName, new String[] { "TABLE" });
+                            if (databasesBySchema != null) {
+                                databasesBySchema.put(schemaKey, database);
+                            }
+                        }
                         Table[] tableArray = database.getTables();
 
                         for (Table table : tableArray) {
@@ -1444,7 +1500,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         boolean ignoreCase = this.parameterService.is(ParameterConstants.DB_METADATA_IGNORE_CASE);
 
         /* Re-lookup just in case the table was just altered */
-        platform.resetCachedTableModel();
+        platform.resetCachedTableModel(table.getName());
         table = platform.getTableFromCache(table.getCatalog(), table.getSchema(), table.getName(),
                 true);
         List<Trigger> triggersForCurrentNode = getTriggersForCurrentNode();
@@ -1461,8 +1517,213 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
     protected void updateOrCreateDatabaseTriggers(List<Trigger> triggers, StringBuilder sqlBuffer,
             boolean force, boolean verifyInDatabase, List<TriggerHistory> activeTriggerHistories, boolean useTableCache) {
+        updateOrCreateDatabaseTriggers(triggers, sqlBuffer, force, verifyInDatabase,
+                activeTriggerHistories, useTableCache, null);
+    }
+
+    /**
+     * Reads the tables for all triggers first and skips the tables whose
+     * table, trigger and template hashes still match their active history and
+     * whose triggers are all still in the database. The triggers of the other tables are created on
+     * {@link ParameterConstants#SYNC_TRIGGERS_THREAD_COUNT_PER_SERVER} threads.
+     * Triggers are always created one at a time when the sql is being
+     * captured in a buffer.
+     */
+    protected void updateOrCreateDatabaseTriggers(List<Trigger> triggers,
+            final StringBuilder sqlBuffer, final boolean force, final boolean verifyInDatabase,
+            final List<TriggerHistory> activeTriggerHistories, boolean useTableCache,
+            Map<String, Database> databasesBySchema) {
+        boolean skipUnchanged = !force
+                && parameterService.is(ParameterConstants.SYNC_TRIGGERS_SKIP_UNCHANGED_TABLES);
+        List<TriggerHistory> historiesBeforeSync = new ArrayList<TriggerHistory>(
+                activeTriggerHistories);
+        List<Trigger> triggersToUpdate = new ArrayList<Trigger>();
+        List<Table> tablesToUpdate = new ArrayList<Table>();
+        Map<String, Set<String>> triggerNamesBySchema = new HashMap<String, Set<String>>();
+        int unchangedCount = 0;
         for (Trigger trigger : triggers) {
-            updateOrCreateDatabaseTrigger(trigger, triggers, sqlBuffer, force, verifyInDatabase, activeTriggerHistories, useTableCache);
+            Set<Table> tables = getTablesForTrigger(trigger, triggers, useTableCache,
+                    databasesBySchema);
+            if (tables != null && tables.size() > 0) {
+                for (Table table : tables) {
+                    TriggerHistory unchangedHistory = skipUnchanged ? getUnchangedTriggerHistory(
+                            trigger, table, historiesBeforeSync) : null;
+                    if (unchangedHistory != null
+                            && !isTriggerMissing(trigger, unchangedHistory, triggerNamesBySchema)) {
+                        unchangedCount++;
+                    } else {
+                        triggersToUpdate.add(trigger);
+                        tablesToUpdate.add(table);
+                    }
+                }
+            } else {
+                log.warn(
+                        "Could not find any database tables matching '{}' in the datasource that is configured",
+                        trigger.qualifiedSourceTableName());
+
+                for (ITriggerCreationListener l : extensionService.getExtensionPointList(ITriggerCreationListener.class)) {
+                    l.tableDoesNotExist(trigger);
+                }
+            }
+        }
+
+        if (unchangedCount > 0) {
+            log.info("Skipped {} tables whose triggers have not changed", unchangedCount);
+        }
+
+        int threadCount = parameterService.getInt(
+                ParameterConstants.SYNC_TRIGGERS_THREAD_COUNT_PER_SERVER, 1);
+        if (threadCount <= 1 || sqlBuffer != null || tablesToUpdate.size() <= 1) {
+            for (int i = 0; i < tablesToUpdate.size(); i++) {
+                updateOrCreateDatabaseTriggers(triggersToUpdate.get(i), tablesToUpdate.get(i),
+                        sqlBuffer, force, verifyInDatabase, activeTriggerHistories);
+            }
+        } else {
+            log.info("Updating the triggers of {} tables on {} threads", tablesToUpdate.size(),
+                    threadCount);
+            ExecutorService executor = newSyncTriggersThreadPool(Math.min(threadCount,
+                    tablesToUpdate.size()));
+            try {
+                List<Future<?>> futures = new ArrayList<Future<?>>(tablesToUpdate.size());
+                for (int i = 0; i < tablesToUpdate.size(); i++) {
+                    final Trigger trigger = triggersToUpdate.get(i);
+                    final Table table = tablesToUpdate.get(i);
+                    futures.add(executor.submit(new Runnable() {
+                        public void run() {
+                            updateOrCreateDatabaseTriggers(trigger, table, null, force,
+                                    verifyInDatabase, activeTriggerHistories);
+                        }
+                    }));
+                }
+
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException ex) {
+                        log.error("Failed to update triggers", ex.getCause());
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    protected ExecutorService newSyncTriggersThreadPool(int threadCount) {
+        return Executors.newFixedThreadPool(threadCount, newNamedThreadFactory("sync-triggers"));
+    }
+
+    /**
+     * @return the newest active history of the table if the table, the trigger
+     *         and the trigger template have not changed since it was built,
+     *         otherwise null
+     */
+    protected TriggerHistory getUnchangedTriggerHistory(Trigger trigger, Table table,
+            List<TriggerHistory> activeTriggerHistories) {
+        Table tableToHash = getTableWithPrimaryKey(trigger, table);
+        TriggerHistory history = getNewestTriggerHistoryForTrigger(activeTriggerHistories,
+                trigger.getTriggerId(),
+                trigger.isSourceCatalogNameWildCarded() ? table.getCatalog() : trigger.getSourceCatalogName(),
+                trigger.isSourceSchemaNameWildCarded() ? table.getSchema() : trigger.getSourceSchemaName(),
+                trigger.isSourceTableNameWildCarded() ? table.getName() : trigger
+                        .getSourceTableName());
+        return history != null && getTriggerRebuildReason(trigger, tableToHash, history) == null ? history
+                : null;
+    }
+
+    /**
+     * Checks that the database still has the triggers of an unchanged table.
+     * The trigger names of each catalog and schema are read once and kept in
+     * triggerNamesBySchema. Each trigger is checked on its own if the dialect
+     * cannot list the triggers of a schema.
+     *
+     * @return true if one of the triggers the history names has been dropped
+     */
+    protected boolean isTriggerMissing(Trigger trigger, TriggerHistory history,
+            Map<String, Set<String>> triggerNamesBySchema) {
+        if (!symmetricDialect.getPlatform().getDatabaseInfo().isTriggersSupported()) {
+            return false;
+        }
+
+        String catalogName = history.getSourceCatalogName();
+        String schemaName = history.getSourceSchemaName();
+        String schemaKey = Table.getFullyQualifiedTablePrefix(catalogName, schemaName);
+        Set<String> triggerNames = null;
+        if (triggerNamesBySchema.containsKey(schemaKey)) {
+            triggerNames = triggerNamesBySchema.get(schemaKey);
+        } else {
+            try {
+                Set<String> names = symmetricDialect.getTriggerNames(catalogName, schemaName);
+                if (names != null) {
+                    triggerNames = new HashSet<String>();
+                    for (String name : names) {
+                        triggerNames.add(name.toUpperCase());
+                    }
+                }
+            } catch (Exception ex) {
+                log.warn("Could not read the triggers of {}.  Checking each trigger instead",
+                        StringUtils.isBlank(schemaKey) ? "the default schema" : schemaKey, ex);
+            }
+            triggerNamesBySchema.put(schemaKey, triggerNames);
+        }
+
+        for (DataEventType dmlType : new DataEventType[] { DataEventType.INSERT,
+                DataEventType.UPDATE, DataEventType.DELETE }) {
+            String triggerName = history.getTriggerNameForDmlType(dmlType);
+            boolean triggerIsActive = (dmlType == DataEventType.INSERT && trigger.isSyncOnInsert())
+                    || (dmlType == DataEventType.UPDATE && trigger.isSyncOnUpdate())
+                    || (dmlType == DataEventType.DELETE && trigger.isSyncOnDelete());
+            if (triggerIsActive && StringUtils.isNotBlank(triggerName)) {
+                boolean triggerExists = triggerNames != null ? triggerNames.contains(triggerName
+                        .toUpperCase()) : symmetricDialect.doesTriggerExist(catalogName,
+                        schemaName, history.getSourceTableName(), triggerName);
+                if (!triggerExists) {
+                    log.info("The {} trigger of {} is missing and will be created again",
+                            triggerName, history.getSourceTableName());
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the table as triggers are built for it, with all columns as
+     *         primary key columns when none of the synchronized columns is one
+     */
+    protected Table getTableWithPrimaryKey(Trigger trigger, Table table) {
+        boolean foundPk = false;
+        Column[] columns = trigger.filterExcludedColumns(table.getColumns());
+        for (Column column : columns) {
+            foundPk |= column.isPrimaryKey();
+        }
+        if (!foundPk) {
+            table = platform.makeAllColumnsPrimaryKeys(table);
+        }
+        return table;
+    }
+
+    /**
+     * @return the reason the triggers need to be rebuilt or null if the
+     *         history still matches the table, the trigger and the template
+     */
+    protected TriggerReBuildReason getTriggerRebuildReason(Trigger trigger, Table table,
+            TriggerHistory latestHistory) {
+        if (latestHistory == null) {
+            return TriggerReBuildReason.NEW_TRIGGERS;
+        } else if (table.calculateTableHashcode() != latestHistory.getTableHash()) {
+            return TriggerReBuildReason.TABLE_SCHEMA_CHANGED;
+        } else if (trigger.hasChangedSinceLastTriggerBuild(latestHistory.getCreateTime())
+                || trigger.toHashedValue() != latestHistory.getTriggerRowHash()) {
+            return TriggerReBuildReason.TABLE_SYNC_CONFIGURATION_CHANGED;
+        } else if (symmetricDialect.getTriggerTemplate().toHashedValue() != latestHistory
+                .getTriggerTemplateHash()) {
+            return TriggerReBuildReason.TRIGGER_TEMPLATE_CHANGED;
+        } else {
+            return null;
         }
     }
 
@@ -1548,14 +1809,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
         try {
 
-            boolean foundPk = false;
-            Column[] columns = trigger.filterExcludedColumns(table.getColumns());
-            for (Column column : columns) {
-                foundPk |= column.isPrimaryKey();
-            }
-            if (!foundPk) {
-                table = platform.makeAllColumnsPrimaryKeys(table);
-            }
+            table = getTableWithPrimaryKey(trigger, table);
 
             TriggerHistory latestHistoryBeforeRebuild = getNewestTriggerHistoryForTrigger(
                     trigger.getTriggerId(),
@@ -1565,22 +1819,10 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                             .getSourceTableName());
 
             boolean forceRebuildOfTriggers = false;
-            if (latestHistoryBeforeRebuild == null) {
-                reason = TriggerReBuildReason.NEW_TRIGGERS;
-                forceRebuildOfTriggers = true;
-
-            } else if (table.calculateTableHashcode() != latestHistoryBeforeRebuild.getTableHash()) {
-                reason = TriggerReBuildReason.TABLE_SCHEMA_CHANGED;
-                forceRebuildOfTriggers = true;
-
-            } else if (trigger.hasChangedSinceLastTriggerBuild(latestHistoryBeforeRebuild
-                    .getCreateTime())
-                    || trigger.toHashedValue() != latestHistoryBeforeRebuild.getTriggerRowHash()) {
-                reason = TriggerReBuildReason.TABLE_SYNC_CONFIGURATION_CHANGED;
-                forceRebuildOfTriggers = true;
-            } else if (symmetricDialect.getTriggerTemplate().toHashedValue() !=
-                    latestHistoryBeforeRebuild.getTriggerTemplateHash()) {
-                reason = TriggerReBuildReason.TRIGGER_TEMPLATE_CHANGED;
+            TriggerReBuildReason rebuildReason = getTriggerRebuildReason(trigger, table,
+                    latestHistoryBeforeRebuild);
+            if (rebuildReason != null) {
+                reason = rebuildReason;
                 forceRebuildOfTriggers = true;
             } else if (force) {
                 reason = TriggerReBuildReason.FORCED;
@@ -1607,7 +1849,6 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
             }
 
             if (newestHistory != null) {
-                activeTriggerHistories.add(newestHistory);
                 newestHistory.setErrorMessage(errorMessage);
                 if (parameterService.is(ParameterConstants.AUTO_SYNC_TRIGGERS)) {
                     for (ITriggerCreationListener l : extensionService.getExtensionPointList(ITriggerCreationListener.class)) {
@@ -1650,21 +1891,9 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         boolean triggerRemoved = false;
 
         TriggerHistory newTriggerHist = new TriggerHistory(table, trigger, symmetricDialect.getTriggerTemplate(), reason);
-        int maxTriggerNameLength = symmetricDialect.getMaxTriggerNameLength();
-
-        if (trigger.isSyncOnInsert()) {
-            newTriggerHist.setNameForInsertTrigger(getTriggerName(DataEventType.INSERT,
-                    maxTriggerNameLength, trigger, table, activeTriggerHistories).toUpperCase());
-        }
-
-        if (trigger.isSyncOnUpdate()) {
-            newTriggerHist.setNameForUpdateTrigger(getTriggerName(DataEventType.UPDATE,
-                    maxTriggerNameLength, trigger, table, activeTriggerHistories).toUpperCase());
-        }
 
-        if (trigger.isSyncOnDelete()) {
-            newTriggerHist.setNameForDeleteTrigger(getTriggerName(DataEventType.DELETE,
-                    maxTriggerNameLength, trigger, table, activeTriggerHistories).toUpperCase());
+        synchronized (activeTriggerHistories) {
+            setTriggerNames(newTriggerHist, trigger, table, activeTriggerHistories);
         }
 
         String oldTriggerName = null;
@@ -1705,7 +1934,16 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
         if (hist == null
                 && (oldhist == null || (!triggerExists && triggerIsActive) || (isDeadTrigger && forceRebuild))) {
-            insert(newTriggerHist);
+            /*
+             * Triggers of other tables can be built at the same time, so the
+             * names are picked again and reserved in the active histories in
+             * the same step as the history is inserted
+             */
+            synchronized (activeTriggerHistories) {
+                setTriggerNames(newTriggerHist, trigger, table, activeTriggerHistories);
+                insert(newTriggerHist);
+                activeTriggerHistories.add(newTriggerHist);
+            }
             hist = getNewestTriggerHistoryForTrigger(
                     trigger.getTriggerId(),
                     trigger.isSourceCatalogNameWildCarded() ? table.getCatalog() : trigger.getSourceCatalogName(),
@@ -1743,6 +1981,26 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         return hist;
     }
 
+    protected void setTriggerNames(TriggerHistory triggerHist, Trigger trigger, Table table,
+            List<TriggerHistory> activeTriggerHistories) {
+        int maxTriggerNameLength = symmetricDialect.getMaxTriggerNameLength();
+
+        if (trigger.isSyncOnInsert()) {
+            triggerHist.setNameForInsertTrigger(getTriggerName(DataEventType.INSERT,
+                    maxTriggerNameLength, trigger, table, activeTriggerHistories).toUpperCase());
+        }
+
+        if (trigger.isSyncOnUpdate()) {
+            triggerHist.setNameForUpdateTrigger(getTriggerName(DataEventType.UPDATE,
+                    maxTriggerNameLength, trigger, table, activeTriggerHistories).toUpperCase());
+        }
+
+        if (trigger.isSyncOnDelete()) {
+            triggerHist.setNameForDeleteTrigger(getTriggerName(DataEventType.DELETE,
+                    maxTriggerNameLength, trigger, table, activeTriggerHistories).toUpperCase());
+        }
+    }
+
     protected static String replaceCharsToShortenName(String triggerName) {
         return triggerName.replaceAll("[^a-zA-Z0-9_]|[a|e|i|o|u|A|E|I|O|U]", "");
     }
@@ -31,7 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
@@ -59,13 +59,49 @@ public class StatisticManager implements IStatisticManager {
 
     private static final String UNKNOWN = "Unknown";
 
-    private static final int NUMBER_OF_PERMITS = 1000;
-
-    private Map<String, ChannelStats> channelStats = new ConcurrentHashMap<String, ChannelStats>();
-
-    private List<JobStats> jobStats = new ArrayList<JobStats>();
-
-    private HostStats hostStats;
+    private static final int DATA_ROUTED = 0;
+    private static final int DATA_UN_ROUTED = 1;
+    private static final int DATA_EXTRACTED = 2;
+    private static final int DATA_BYTES_EXTRACTED = 3;
+    private static final int DATA_EXTRACTED_ERRORS = 4;
+    private static final int DATA_EVENT_INSERTED = 5;
+    private static final int DATA_SENT = 6;
+    private static final int DATA_BYTES_SENT = 7;
+    private static final int DATA_SENT_ERRORS = 8;
+    private static final int DATA_LOADED = 9;
+    private static final int DATA_BYTES_LOADED = 10;
+    private static final int DATA_LOADED_ERRORS = 11;
+    private static final int CHANNEL_COUNTER_COUNT = 12;
+
+    private static final int RESTARTED = 0;
+    private static final int NODES_PULLED = 1;
+    private static final int TOTAL_NODES_PULL_TIME = 2;
+    private static final int NODES_PUSHED = 3;
+    private static final int TOTAL_NODES_PUSH_TIME = 4;
+    private static final int NODES_REJECTED = 5;
+    private static final int NODES_REGISTERED = 6;
+    private static final int NODES_LOADED = 7;
+    private static final int NODES_DISABLED = 8;
+    private static final int PURGED_DATA_ROWS = 9;
+    private static final int PURGED_DATA_EVENT_ROWS = 10;
+    private static final int PURGED_BATCH_OUTGOING_ROWS = 11;
+    private static final int PURGED_BATCH_INCOMING_ROWS = 12;
+    private static final int TRIGGERS_CREATED_COUNT = 13;
+    private static final int TRIGGERS_REBUILT_COUNT = 14;
+    private static final int TRIGGERS_REMOVED_COUNT = 15;
+    private static final int HOST_COUNTER_COUNT = 16;
+
+    private ConcurrentHashMap<String, StripedCounters> channelCounters = new ConcurrentHashMap<String, StripedCounters>();
+
+    private volatile boolean channelCountersInitialized;
+
+    private volatile long channelStatsStartTime = System.currentTimeMillis();
+
+    private StripedCounters hostCounters = new StripedCounters(HOST_COUNTER_COUNT);
+
+    private volatile long hostStatsStartTime = System.currentTimeMillis();
+
+    private ConcurrentLinkedQueue<JobStats> jobStats = new ConcurrentLinkedQueue<JobStats>();
 
     private ConcurrentHashMap<Long, RouterStats> routerStatsByBatch = new ConcurrentHashMap<Long, RouterStats>();
 
@@ -79,12 +115,6 @@ public class StatisticManager implements IStatisticManager {
 
     protected IClusterService clusterService;
 
-    protected Semaphore channelStatsLock = new Semaphore(NUMBER_OF_PERMITS, true);
-
-    protected Semaphore hostStatsLock = new Semaphore(NUMBER_OF_PERMITS, true);
-
-    protected Semaphore jobStatsLock = new Semaphore(NUMBER_OF_PERMITS, true);
-
     protected Map<ProcessInfoKey, ProcessInfo> processInfos = new ConcurrentHashMap<ProcessInfoKey, ProcessInfo>();
 
     protected Map<ProcessInfoKey, ProcessInfo> processInfosThatHaveDoneWork = new ConcurrentHashMap<ProcessInfoKey, ProcessInfo>();
@@ -165,13 +195,7 @@ public class StatisticManager implements IStatisticManager {
     }
 
     public void addJobStats(String jobName, long startTime, long endTime, long processedCount) {
-        jobStatsLock.acquireUninterruptibly();
-        try {
-            JobStats stats = new JobStats(jobName, startTime, endTime, processedCount);
-            jobStats.add(stats);
-        } finally {
-            jobStatsLock.release();
-        }
+        jobStats.add(new JobStats(jobName, startTime, endTime, processedCount));
     }
 
     public RouterStats getRouterStatsByBatch(Long batchId) {
@@ -195,387 +219,269 @@ public class StatisticManager implements IStatisticManager {
     }
 
     public void incrementDataRouted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataRouted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_ROUTED, count);
     }
 
     public void setDataUnRouted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).setDataUnRouted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).set(DATA_UN_ROUTED, count);
     }
 
     public void incrementDataExtracted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataExtracted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_EXTRACTED, count);
     }
 
     public void incrementDataBytesExtracted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesExtracted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_BYTES_EXTRACTED, count);
     }
 
     public void incrementDataExtractedErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataExtractedErrors(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_EXTRACTED_ERRORS, count);
     }
 
     public void incrementDataEventInserted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataEventInserted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_EVENT_INSERTED, count);
     }
 
     public void incrementDataSent(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataSent(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_SENT, count);
     }
 
     public void incrementDataBytesSent(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesSent(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_BYTES_SENT, count);
     }
 
     public void incrementDataSentErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataSentErrors(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_SENT_ERRORS, count);
     }
 
     public void incrementDataLoaded(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataLoaded(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_LOADED, count);
     }
 
     public void incrementDataBytesLoaded(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesLoaded(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_BYTES_LOADED, count);
     }
 
     public void incrementDataLoadedErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataLoadedErrors(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(DATA_LOADED_ERRORS, count);
     }
 
     public void incrementRestart() {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementRestarted(1);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(RESTARTED, 1);
     }
 
     public void incrementNodesPulled(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesPulled(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(NODES_PULLED, count);
     }
 
     public void incrementNodesPushed(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesPushed(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(NODES_PUSHED, count);
     }
 
     public void incrementTotalNodesPulledTime(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTotalNodesPullTime(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(TOTAL_NODES_PULL_TIME, count);
     }
 
     public void incrementTotalNodesPushedTime(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTotalNodesPushTime(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(TOTAL_NODES_PUSH_TIME, count);
     }
 
     public void incrementNodesRejected(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesRejected(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(NODES_REJECTED, count);
     }
 
     public void incrementNodesRegistered(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesRegistered(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(NODES_REGISTERED, count);
     }
 
     public void incrementNodesLoaded(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesLoaded(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(NODES_LOADED, count);
     }
 
     public void incrementNodesDisabled(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesDisabled(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(NODES_DISABLED, count);
     }
 
     public void incrementPurgedBatchIncomingRows(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementPurgedBatchIncomingRows(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(PURGED_BATCH_INCOMING_ROWS, count);
     }
 
     public void incrementPurgedBatchOutgoingRows(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementPurgedBatchOutgoingRows(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(PURGED_BATCH_OUTGOING_ROWS, count);
     }
 
     public void incrementPurgedDataRows(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementPurgedDataRows(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(PURGED_DATA_ROWS, count);
     }
 
     public void incrementPurgedDataEventRows(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementPurgedDataEventRows(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(PURGED_DATA_EVENT_ROWS, count);
     }
 
     public void incrementTriggersRemovedCount(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTriggersRemovedCount(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(TRIGGERS_REMOVED_COUNT, count);
     }
 
     public void incrementTriggersRebuiltCount(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTriggersRebuiltCount(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(TRIGGERS_REBUILT_COUNT, count);
     }
 
     public void incrementTriggersCreatedCount(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTriggersCreatedCount(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(TRIGGERS_CREATED_COUNT, count);
     }
 
+    /**
+     * Takes the counts since the last flush and resets the counters without
+     * locking, so threads that are counting are never blocked by a flush. A
+     * count that is added while the flush runs is saved by this flush or the
+     * next one.
+     */
     public void flush() {
-
         boolean recordStatistics = parameterService.is(ParameterConstants.STATISTIC_RECORD_ENABLE,
                 false);
-        if (channelStats != null) {
-            channelStatsLock.acquireUninterruptibly(NUMBER_OF_PERMITS);
-            try {
-                if (recordStatistics) {
-                    Date endTime = new Date();
-                    for (ChannelStats stats : channelStats.values()) {
-                        if (stats.getNodeId().equals(UNKNOWN)) {
-                            Node node = nodeService.getCachedIdentity();
-                            if (node != null) {
-                                stats.setNodeId(node.getNodeId());
-                            }
-                        }
-                        stats.setEndTime(endTime);
-                        statisticService.save(stats);
-                    }
-                }
-                resetChannelStats(true);
-            } finally {
-                channelStatsLock.release(NUMBER_OF_PERMITS);
+        Date endTime = new Date();
+
+        Date channelStartTime = new Date(channelStatsStartTime);
+        channelStatsStartTime = endTime.getTime();
+        channelCountersInitialized = false;
+        Set<String> channelIds = new HashSet<String>();
+        for (NodeChannel nodeChannel : configurationService.getNodeChannels(false)) {
+            channelIds.add(nodeChannel.getChannelId());
+        }
+        for (Map.Entry<String, StripedCounters> entry : channelCounters.entrySet()) {
+            /*
+             * a channel that was removed from the configuration is dropped
+             * once nothing was counted for it since the last flush
+             */
+            if (!channelIds.contains(entry.getKey()) && entry.getValue().isZero()) {
+                channelCounters.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            ChannelStats stats = toChannelStats(entry.getKey(), entry.getValue(), channelStartTime,
+                    true);
+            if (recordStatistics) {
+                stats.setEndTime(endTime);
+                statisticService.save(stats);
             }
         }
 
-        if (hostStats != null) {
-            hostStatsLock.acquireUninterruptibly(NUMBER_OF_PERMITS);
-            try {
-                if (recordStatistics) {
-                    if (hostStats.getNodeId().equals(UNKNOWN)) {
-                        Node node = nodeService.getCachedIdentity();
-                        if (node != null) {
-                            hostStats.setNodeId(node.getNodeId());
-                        }
-                    }
-                    hostStats.setEndTime(new Date());
-                    statisticService.save(hostStats);
-                }
-                hostStats = null;
-            } finally {
-                hostStatsLock.release(NUMBER_OF_PERMITS);
-            }
+        Date hostStartTime = new Date(hostStatsStartTime);
+        hostStatsStartTime = endTime.getTime();
+        boolean hostCounted = !hostCounters.isZero();
+        HostStats hostStats = toHostStats(hostStartTime, true);
+        if (recordStatistics && hostCounted) {
+            hostStats.setEndTime(endTime);
+            statisticService.save(hostStats);
         }
 
-        if (jobStats != null) {
-            List<JobStats> toFlush = null;
-            jobStatsLock.acquireUninterruptibly(NUMBER_OF_PERMITS);
-            try {
-                toFlush = jobStats;
-                jobStats = new ArrayList<JobStats>();
-            } finally {
-                jobStatsLock.release(NUMBER_OF_PERMITS);
-            }
+        List<JobStats> toFlush = new ArrayList<JobStats>();
+        JobStats stats = null;
+        while ((stats = jobStats.poll()) != null) {
+            toFlush.add(stats);
+        }
 
-            if (toFlush != null && recordStatistics) {
-                Node node = nodeService.getCachedIdentity();
-                if (node != null) {
-                    String nodeId = node.getNodeId();
-                    String serverId = clusterService.getServerId();
-                    for (JobStats stats : toFlush) {
-                        stats.setNodeId(nodeId);
-                        stats.setHostName(serverId);
-                        statisticService.save(stats);
-                    }
+        if (toFlush.size() > 0 && recordStatistics) {
+            Node node = nodeService.getCachedIdentity();
+            if (node != null) {
+                String nodeId = node.getNodeId();
+                String serverId = clusterService.getServerId();
+                for (JobStats jobStats : toFlush) {
+                    jobStats.setNodeId(nodeId);
+                    jobStats.setHostName(serverId);
+                    statisticService.save(jobStats);
                 }
             }
         }
     }
 
     public Map<String, ChannelStats> getWorkingChannelStats() {
-        if (channelStats != null) {
-            return new HashMap<String, ChannelStats>(channelStats);
-        } else {
-            return new HashMap<String, ChannelStats>();
+        Map<String, ChannelStats> stats = new HashMap<String, ChannelStats>();
+        if (getNodeId() != null) {
+            Date startTime = new Date(channelStatsStartTime);
+            for (Map.Entry<String, StripedCounters> entry : channelCounters.entrySet()) {
+                stats.put(entry.getKey(),
+                        toChannelStats(entry.getKey(), entry.getValue(), startTime, false));
+            }
         }
+        return stats;
     }
 
     public HostStats getWorkingHostStats() {
-        if (this.hostStats != null) {
-            return new HostStats(this.hostStats);
-        } else {
-            return new HostStats();
-        }
+        return toHostStats(new Date(hostStatsStartTime), false);
     }
 
-    protected void resetChannelStats(boolean force) {
-        if (force) {
-            channelStats = null;
-        }
-
-        if (channelStats == null) {
+    protected StripedCounters getChannelCounters(String channelId) {
+        if (!channelCountersInitialized) {
+            channelCountersInitialized = true;
             List<NodeChannel> channels = configurationService.getNodeChannels(false);
-            channelStats = new HashMap<String, ChannelStats>(channels.size());
             for (NodeChannel nodeChannel : channels) {
-                getChannelStats(nodeChannel.getChannelId());
+                channelCounters.putIfAbsent(nodeChannel.getChannelId(), new StripedCounters(
+                        CHANNEL_COUNTER_COUNT));
             }
         }
-    }
 
-    protected ChannelStats getChannelStats(String channelId) {
-        resetChannelStats(false);
-        ChannelStats stats = channelStats.get(channelId);
-        if (stats == null) {
-            Node node = nodeService.getCachedIdentity();
-            if (node != null) {
-                stats = new ChannelStats(node.getNodeId(), clusterService.getServerId(),
-                        new Date(), null, channelId);
-                channelStats.put(channelId, stats);
-            } else {
-                stats = new ChannelStats(UNKNOWN, clusterService.getServerId(), new Date(), null,
-                        channelId);
+        StripedCounters counters = channelCounters.get(channelId);
+        if (counters == null) {
+            counters = new StripedCounters(CHANNEL_COUNTER_COUNT);
+            StripedCounters existing = channelCounters.putIfAbsent(channelId, counters);
+            if (existing != null) {
+                counters = existing;
             }
-
         }
+        return counters;
+    }
+
+    protected ChannelStats toChannelStats(String channelId, StripedCounters counters,
+            Date startTime, boolean reset) {
+        String nodeId = getNodeId();
+        ChannelStats stats = new ChannelStats(nodeId != null ? nodeId : UNKNOWN,
+                clusterService.getServerId(), startTime, null, channelId);
+        stats.setDataRouted(get(counters, DATA_ROUTED, reset));
+        stats.setDataUnRouted(counters.get(DATA_UN_ROUTED));
+        stats.setDataExtracted(get(counters, DATA_EXTRACTED, reset));
+        stats.setDataBytesExtracted(get(counters, DATA_BYTES_EXTRACTED, reset));
+        stats.setDataExtractedErrors(get(counters, DATA_EXTRACTED_ERRORS, reset));
+        stats.setDataEventInserted(get(counters, DATA_EVENT_INSERTED, reset));
+        stats.setDataSent(get(counters, DATA_SENT, reset));
+        stats.setDataBytesSent(get(counters, DATA_BYTES_SENT, reset));
+        stats.setDataSentErrors(get(counters, DATA_SENT_ERRORS, reset));
+        stats.setDataLoaded(get(counters, DATA_LOADED, reset));
+        stats.setDataBytesLoaded(get(counters, DATA_BYTES_LOADED, reset));
+        stats.setDataLoadedErrors(get(counters, DATA_LOADED_ERRORS, reset));
         return stats;
     }
 
-    protected HostStats getHostStats() {
-        if (hostStats == null) {
-            Node node = nodeService.getCachedIdentity();
-            if (node != null) {
-                hostStats = new HostStats(node.getNodeId(), clusterService.getServerId(),
-                        new Date(), null);
-            } else {
-                hostStats = new HostStats(UNKNOWN, clusterService.getServerId(), new Date(), null);
-            }
+    protected HostStats toHostStats(Date startTime, boolean reset) {
+        String nodeId = getNodeId();
+        StripedCounters counters = hostCounters;
+        HostStats stats = new HostStats(nodeId != null ? nodeId : UNKNOWN,
+                clusterService.getServerId(), startTime, null);
+        stats.setRestarted(get(counters, RESTARTED, reset));
+        stats.setNodesPulled(get(counters, NODES_PULLED, reset));
+        stats.setTotalNodesPullTime(get(counters, TOTAL_NODES_PULL_TIME, reset));
+        stats.setNodesPushed(get(counters, NODES_PUSHED, reset));
+        stats.setTotalNodesPushTime(get(counters, TOTAL_NODES_PUSH_TIME, reset));
+        stats.setNodesRejected(get(counters, NODES_REJECTED, reset));
+        stats.setNodesRegistered(get(counters, NODES_REGISTERED, reset));
+        stats.setNodesLoaded(get(counters, NODES_LOADED, reset));
+        stats.setNodesDisabled(get(counters, NODES_DISABLED, reset));
+        stats.setPurgedDataRows(get(counters, PURGED_DATA_ROWS, reset));
+        stats.setPurgedDataEventRows(get(counters, PURGED_DATA_EVENT_ROWS, reset));
+        stats.setPurgedBatchOutgoingRows(get(counters, PURGED_BATCH_OUTGOING_ROWS, reset));
+        stats.setPurgedBatchIncomingRows(get(counters, PURGED_BATCH_INCOMING_ROWS, reset));
+        stats.setTriggersCreatedCount(get(counters, TRIGGERS_CREATED_COUNT, reset));
+        stats.setTriggersRebuiltCount(get(counters, TRIGGERS_REBUILT_COUNT, reset));
+        stats.setTriggersRemovedCount(get(counters, TRIGGERS_REMOVED_COUNT, reset));
+        return stats;
+    }
 
-        }
-        return hostStats;
+    protected long get(StripedCounters counters, int counter, boolean reset) {
+        return reset ? counters.getAndReset(counter) : counters.get(counter);
+    }
+
+    protected String getNodeId() {
+        Node node = nodeService.getCachedIdentity();
+        return node != null ? node.getNodeId() : null;
     }
 
-}
\ No newline at end of file
+}
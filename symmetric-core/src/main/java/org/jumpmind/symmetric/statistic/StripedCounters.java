@@ -0,0 +1,118 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed set of counters that many threads can add to without locking and
+ * without contending on the same memory. Each counter is split into stripes
+ * and a thread always adds to the stripe picked by its id. The stripes are
+ * spaced a cache line apart so threads on different cores do not invalidate
+ * each other's lines. The value of a counter is the sum of its stripes.
+ * <p>
+ * {@link #getAndReset(int)} swaps each stripe with zero, so an add that
+ * happens while a counter is reset is counted either in the value that is
+ * returned or in the next one, but never lost.
+ */
+public class StripedCounters {
+
+    private static final int LONGS_PER_CACHE_LINE = 8;
+
+    private final int counterCount;
+
+    private final int stride;
+
+    private final int stripes;
+
+    private final AtomicLongArray values;
+
+    public StripedCounters(int counterCount) {
+        this(counterCount, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StripedCounters(int counterCount, int stripes) {
+        this.counterCount = counterCount;
+        this.stripes = Math.max(1, Math.min(stripes, 64));
+        this.stride = ((counterCount + LONGS_PER_CACHE_LINE - 1) / LONGS_PER_CACHE_LINE)
+                * LONGS_PER_CACHE_LINE;
+        /*
+         * An extra line on each end keeps the first and last stripes off the
+         * lines of other objects
+         */
+        this.values = new AtomicLongArray(stride * this.stripes + LONGS_PER_CACHE_LINE * 2);
+    }
+
+    public int getCounterCount() {
+        return counterCount;
+    }
+
+    public void add(int counter, long delta) {
+        if (delta != 0) {
+            int stripe = (int) (Thread.currentThread().getId() % stripes);
+            values.addAndGet(index(stripe, counter), delta);
+        }
+    }
+
+    public long get(int counter) {
+        long sum = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            sum += values.get(index(stripe, counter));
+        }
+        return sum;
+    }
+
+    public long getAndReset(int counter) {
+        long sum = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            sum += values.getAndSet(index(stripe, counter), 0);
+        }
+        return sum;
+    }
+
+    public boolean isZero() {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            for (int counter = 0; counter < counterCount; counter++) {
+                if (values.get(index(stripe, counter)) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replace the value of a counter. Adds from other threads while the
+     * value is replaced may be lost, so this is meant for counters that hold
+     * a measurement instead of a count.
+     */
+    public void set(int counter, long value) {
+        for (int stripe = 1; stripe < stripes; stripe++) {
+            values.set(index(stripe, counter), 0);
+        }
+        values.set(index(0, counter), value);
+    }
+
+    protected int index(int stripe, int counter) {
+        return LONGS_PER_CACHE_LINE + stripe * stride + counter;
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The compression codecs that this node can read and write, by name.
+ * <p>
+ * The node that sends data picks the codec. A client lists the codecs it
+ * wants in the order it prefers them in the Accept-Encoding header of a pull,
+ * and the server compresses with the first one it knows. The server lists the
+ * codecs it knows in the Accept-Encoding header of its response to the
+ * reservation for a push, and the client compresses with the first of its
+ * codecs that is in that list. Nodes that only know gzip keep using gzip.
+ */
+public final class CompressionCodecs {
+
+    private static final Map<String, ICompressionCodec> codecs = new ConcurrentHashMap<String, ICompressionCodec>();
+
+    private static final String[] NAMES_IN_ORDER = { GzipCompressionCodec.NAME,
+            SnappyCompressionCodec.NAME };
+
+    static {
+        register(new GzipCompressionCodec());
+        register(new SnappyCompressionCodec());
+    }
+
+    private CompressionCodecs() {
+    }
+
+    public static void register(ICompressionCodec codec) {
+        codecs.put(codec.getName().toLowerCase(), codec);
+    }
+
+    /**
+     * @return the codec with the name or null if the name is blank or not
+     *         known
+     */
+    public static ICompressionCodec get(String name) {
+        name = StringUtils.trimToNull(name);
+        return name == null ? null : codecs.get(name.toLowerCase());
+    }
+
+    public static ICompressionCodec getDefault() {
+        return codecs.get(GzipCompressionCodec.NAME);
+    }
+
+    /**
+     * @return the names of the known codecs as a list for an Accept-Encoding
+     *         header
+     */
+    public static String getNames() {
+        StringBuilder names = new StringBuilder();
+        for (String name : NAMES_IN_ORDER) {
+            names.append(name).append(", ");
+        }
+        for (String name : codecs.keySet()) {
+            if (!ArrayUtils.contains(NAMES_IN_ORDER, name)) {
+                names.append(name).append(", ");
+            }
+        }
+        return names.substring(0, names.length() - 2);
+    }
+
+    /**
+     * Pick the first codec from a list of codec names that is known and, if
+     * a list of accepted names is given, that is in it.
+     * 
+     * @param preferred
+     *            a comma separated list of codec names, like an
+     *            Accept-Encoding header
+     * @param accepted
+     *            a comma separated list of codec names or null if all known
+     *            codecs are accepted
+     * @return the codec or null if there isn't one that both sides know
+     */
+    public static ICompressionCodec negotiate(String preferred, String accepted) {
+        String[] acceptedNames = accepted == null ? null : toNames(accepted);
+        for (String name : toNames(preferred)) {
+            ICompressionCodec codec = get(name);
+            if (codec != null
+                    && (acceptedNames == null || ArrayUtils.contains(acceptedNames, name))) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Split a list of names, dropping any quality values.
+     */
+    protected static String[] toNames(String list) {
+        String[] names = StringUtils.split(StringUtils.defaultString(list), ',');
+        for (int i = 0; i < names.length; i++) {
+            names[i] = StringUtils.substringBefore(names[i], ";").trim().toLowerCase();
+        }
+        return names;
+    }
+
+}
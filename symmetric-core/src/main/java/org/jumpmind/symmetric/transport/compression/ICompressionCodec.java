@@ -0,0 +1,49 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compression format for the sync protocol. The name is what is sent in
+ * the Accept-Encoding, Content-Encoding and Content-Type headers.
+ * 
+ * @see CompressionCodecs
+ */
+public interface ICompressionCodec {
+
+    public String getName();
+
+    /**
+     * @param level
+     *            the {@link java.util.zip.Deflater} level, for codecs that
+     *            have one
+     * @param strategy
+     *            the {@link java.util.zip.Deflater} strategy, for codecs that
+     *            have one
+     */
+    public OutputStream compress(OutputStream out, int level, int strategy) throws IOException;
+
+    public InputStream decompress(InputStream in) throws IOException;
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.http;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts the http requests made to each remote host and how the connections
+ * were finished. A connection that is released after its response was read
+ * goes back to the keep-alive cache of the JVM, so the next request to the
+ * same host does not have to connect and do a TLS handshake again.
+ */
+public class HttpConnectionStatistics {
+
+    private Map<String, HostConnectionStatistics> statisticsByHost = new TreeMap<String, HostConnectionStatistics>();
+
+    public void requested(URL url) {
+        HostConnectionStatistics stats = get(url);
+        synchronized (stats) {
+            stats.requestCount++;
+            stats.lastRequestTimeMs = System.currentTimeMillis();
+        }
+    }
+
+    public void released(URL url) {
+        HostConnectionStatistics stats = get(url);
+        synchronized (stats) {
+            stats.releasedCount++;
+        }
+    }
+
+    public void disconnected(URL url) {
+        HostConnectionStatistics stats = get(url);
+        synchronized (stats) {
+            stats.disconnectedCount++;
+        }
+    }
+
+    protected synchronized HostConnectionStatistics get(URL url) {
+        String host = getHost(url);
+        HostConnectionStatistics stats = statisticsByHost.get(host);
+        if (stats == null) {
+            stats = new HostConnectionStatistics();
+            statisticsByHost.put(host, stats);
+        }
+        return stats;
+    }
+
+    public synchronized Map<String, HostConnectionStatistics> getStatisticsByHost() {
+        return new TreeMap<String, HostConnectionStatistics>(statisticsByHost);
+    }
+
+    protected static String getHost(URL url) {
+        int port = url.getPort() < 0 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol() + "://" + url.getHost() + ":" + port;
+    }
+
+    public static class HostConnectionStatistics {
+
+        long requestCount;
+        long releasedCount;
+        long disconnectedCount;
+        long lastRequestTimeMs;
+
+        public synchronized long getRequestCount() {
+            return requestCount;
+        }
+
+        public synchronized long getReleasedCount() {
+            return releasedCount;
+        }
+
+        public synchronized long getDisconnectedCount() {
+            return disconnectedCount;
+        }
+
+        public synchronized long getLastRequestTimeMs() {
+            return lastRequestTimeMs;
+        }
+    }
+
+}
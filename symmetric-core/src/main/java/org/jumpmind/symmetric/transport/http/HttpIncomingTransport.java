@@ -53,18 +53,38 @@ public class HttpIncomingTransport implements IIncomingTransport {
     private int httpTimeout;
     
     private String redirectionUrl;
+
+    private HttpConnectionStatistics statistics;
+
+    private boolean keepAlive;
+
+    private boolean requested;
     
     public HttpIncomingTransport(HttpURLConnection connection, IParameterService parameterService) {
+        this(connection, parameterService, null);
+    }
+
+    public HttpIncomingTransport(HttpURLConnection connection, IParameterService parameterService,
+            HttpConnectionStatistics statistics) {
         this.connection = connection;
         this.parameterService = parameterService;
         this.httpTimeout = parameterService.getInt(ParameterConstants.TRANSPORT_HTTP_TIMEOUT);
+        this.statistics = statistics;
+        this.keepAlive = parameterService.is(ParameterConstants.TRANSPORT_HTTP_KEEP_ALIVE_ENABLED,
+                true);
     }
     
     public String getUrl() {
         return this.connection.getURL().toExternalForm();
     }
 
+    /**
+     * Like {@link HttpOutgoingTransport#close()}, the connection is only left
+     * open for the next request when keep-alive is enabled and the response
+     * was read.
+     */
     public void close() {
+        boolean responseRead = reader != null || is != null;
         if (reader != null) {
             IOUtils.closeQuietly(reader);
             reader = null;
@@ -73,6 +93,20 @@ public class HttpIncomingTransport implements IIncomingTransport {
         if (is != null) {
             IOUtils.closeQuietly(is);
             is = null;
+        }
+
+        if (requested) {
+            if (keepAlive && responseRead) {
+                if (statistics != null) {
+                    statistics.released(connection.getURL());
+                }
+            } else {
+                connection.disconnect();
+                if (statistics != null) {
+                    statistics.disconnected(connection.getURL());
+                }
+            }
+            requested = false;
         }
     }
 
@@ -85,6 +119,10 @@ public class HttpIncomingTransport implements IIncomingTransport {
     }
     
     public InputStream openStream() throws IOException {
+        requested = true;
+        if (statistics != null) {
+            statistics.requested(connection.getURL());
+        }
         
         boolean manualRedirects = parameterService.is(ParameterConstants.TRANSPORT_HTTP_MANUAL_REDIRECTS_ENABLED, true);
         if (manualRedirects) {
@@ -28,7 +28,6 @@ import java.io.OutputStreamWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.jumpmind.exception.IoException;
@@ -42,6 +41,9 @@ import org.jumpmind.symmetric.transport.ConnectionRejectedException;
 import org.jumpmind.symmetric.transport.IOutgoingWithResponseTransport;
 import org.jumpmind.symmetric.transport.ServiceUnavailableException;
 import org.jumpmind.symmetric.transport.SyncDisabledException;
+import org.jumpmind.symmetric.transport.compression.CompressionCodecs;
+import org.jumpmind.symmetric.transport.compression.GzipCompressionCodec;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.jumpmind.symmetric.web.WebConstants;
 
 public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
@@ -78,10 +80,38 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
 
     private boolean fileUpload = false;
 
+    private boolean keepAlive = false;
+
+    private HttpConnectionStatistics statistics;
+
+    private String compressionCodecs = GzipCompressionCodec.NAME;
+
+    private String acceptedCompressionCodecs;
+
     public HttpOutgoingTransport(URL url, int httpTimeout, boolean useCompression,
             int compressionStrategy, int compressionLevel, String basicAuthUsername,
             String basicAuthPassword, boolean streamOutputEnabled, int streamOutputSize,
             boolean fileUpload) {
+        this(url, httpTimeout, useCompression, compressionStrategy, compressionLevel,
+                basicAuthUsername, basicAuthPassword, streamOutputEnabled, streamOutputSize,
+                fileUpload, false, null, GzipCompressionCodec.NAME);
+    }
+
+    /**
+     * @param keepAlive
+     *            leave the connection open for the next request to the same
+     *            host when the response has been read
+     * @param statistics
+     *            where the requests are counted or null
+     * @param compressionCodecs
+     *            the names of the compression codecs to use in the order they
+     *            are preferred
+     */
+    public HttpOutgoingTransport(URL url, int httpTimeout, boolean useCompression,
+            int compressionStrategy, int compressionLevel, String basicAuthUsername,
+            String basicAuthPassword, boolean streamOutputEnabled, int streamOutputSize,
+            boolean fileUpload, boolean keepAlive, HttpConnectionStatistics statistics,
+            String compressionCodecs) {
         this.url = url;
         this.httpTimeout = httpTimeout;
         this.useCompression = useCompression;
@@ -92,14 +122,37 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
         this.streamOutputChunkSize = streamOutputSize;
         this.streamOutputEnabled = streamOutputEnabled;
         this.fileUpload = fileUpload;
+        this.keepAlive = keepAlive;
+        this.statistics = statistics;
+        this.compressionCodecs = compressionCodecs;
     }
 
+    /**
+     * The connection is only left open when the response was read, because
+     * a connection with a request that was not finished cannot be used
+     * again. Closing the reader reads what is left of the response so the
+     * JVM can put the connection in its keep-alive cache.
+     */
     public void close() {
+        boolean responseRead = reader != null;
         closeWriter(true);
         closeOutputStream(true);
         closeReader();
+        closeConnection(responseRead);
+    }
+
+    private void closeConnection(boolean responseRead) {
         if (connection != null) {
-            connection.disconnect();
+            if (keepAlive && responseRead) {
+                if (statistics != null) {
+                    statistics.released(url);
+                }
+            } else {
+                connection.disconnect();
+                if (statistics != null) {
+                    statistics.disconnected(url);
+                }
+            }
             connection = null;
         }
     }
@@ -171,6 +224,9 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
      */
     private HttpURLConnection requestReservation() {
         try {
+            if (statistics != null) {
+                statistics.requested(url);
+            }
             connection = HttpTransportManager.openConnection(url, basicAuthUsername,
                     basicAuthPassword);
             connection.setUseCaches(false);
@@ -179,6 +235,7 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
             connection.setRequestMethod("HEAD");
 
             analyzeResponseCode(connection.getResponseCode());
+            acceptedCompressionCodecs = connection.getHeaderField(WebConstants.HEADER_ACCEPT_ENCODING);
         } catch (IOException ex) {
             throw new IoException(ex);
         }
@@ -186,7 +243,15 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
     }
 
     public OutputStream openStream() {
+        /*
+         * the response to the reservation has no body, so its connection can
+         * be left open for this request
+         */
+        closeConnection(true);
         try {
+            if (statistics != null) {
+                statistics.requested(url);
+            }
             connection = HttpTransportManager.openConnection(url, basicAuthUsername,
                     basicAuthPassword);
             if (streamOutputEnabled) {
@@ -199,11 +264,13 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
             connection.setReadTimeout(httpTimeout);
 
             boundary = Long.toHexString(System.currentTimeMillis());
+            ICompressionCodec codec = null;
             if (!fileUpload) {
                 connection.setRequestMethod("PUT");
-                connection.setRequestProperty("Accept-Encoding", "gzip");
+                connection.setRequestProperty(WebConstants.HEADER_ACCEPT_ENCODING, compressionCodecs);
                 if (useCompression) {
-                    connection.addRequestProperty("Content-Type", "gzip"); // application/x-gzip?
+                    codec = getCompressionCodec();
+                    connection.addRequestProperty("Content-Type", codec.getName());
                 }
             } else {
                 connection.setRequestProperty("Content-Type", "multipart/form-data; boundary="
@@ -212,13 +279,8 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
 
             os = connection.getOutputStream();
 
-            if (!fileUpload && useCompression) {
-                os = new GZIPOutputStream(os) {
-                    {
-                        this.def.setLevel(compressionLevel);
-                        this.def.setStrategy(compressionStrategy);
-                    }
-                };
+            if (codec != null) {
+                os = codec.compress(os, compressionLevel, compressionStrategy);
             }
 
             if (fileUpload) {
@@ -238,6 +300,17 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
         }
     }
 
+    /**
+     * Servers that did not list the codecs they accept in the reservation
+     * only know gzip.
+     */
+    protected ICompressionCodec getCompressionCodec() {
+        ICompressionCodec codec = CompressionCodecs.negotiate(compressionCodecs,
+                acceptedCompressionCodecs != null ? acceptedCompressionCodecs
+                        : GzipCompressionCodec.NAME);
+        return codec != null ? codec : CompressionCodecs.getDefault();
+    }
+
     public BufferedWriter openWriter() {
         try {
             OutputStreamWriter wout = new OutputStreamWriter(openStream(), IoConstants.ENCODING);
@@ -32,7 +32,6 @@ import java.net.URL;
 import java.net.URLEncoder;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
@@ -50,6 +49,9 @@ import org.jumpmind.symmetric.transport.IIncomingTransport;
 import org.jumpmind.symmetric.transport.IOutgoingWithResponseTransport;
 import org.jumpmind.symmetric.transport.ITransportManager;
 import org.jumpmind.symmetric.transport.TransportUtils;
+import org.jumpmind.symmetric.transport.compression.CompressionCodecs;
+import org.jumpmind.symmetric.transport.compression.GzipCompressionCodec;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.jumpmind.symmetric.web.WebConstants;
 import org.jumpmind.util.AppUtils;
 
@@ -61,12 +63,42 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
 
     private ISymmetricEngine engine;
 
+    private HttpConnectionStatistics connectionStatistics = new HttpConnectionStatistics();
+
     public HttpTransportManager() {
     }
 
     public HttpTransportManager(ISymmetricEngine engine) {
         super(engine.getExtensionService());
         this.engine = engine;
+        configureKeepAlive();
+    }
+
+    /**
+     * The JVM keeps idle http connections in a cache by host. Its size is
+     * the http.maxConnections system property, which is shared by every
+     * engine in the JVM and only read when the cache is first used. It is
+     * set here unless it is already set, so the first engine to start wins
+     * and a different value from another engine is logged and ignored.
+     */
+    protected void configureKeepAlive() {
+        int maxConnections = engine.getParameterService().getInt(
+                ParameterConstants.TRANSPORT_HTTP_KEEP_ALIVE_MAX_CONNECTIONS, 0);
+        if (isKeepAlive() && maxConnections > 0) {
+            String current = System.getProperty("http.maxConnections");
+            if (current == null) {
+                System.setProperty("http.maxConnections", Integer.toString(maxConnections));
+            } else if (!current.equals(Integer.toString(maxConnections))) {
+                log.info(
+                        "The {} parameter of {} is ignored because the http.maxConnections system property is already set to {}.  It applies to the whole JVM and is best passed as a JVM option",
+                        new Object[] { ParameterConstants.TRANSPORT_HTTP_KEEP_ALIVE_MAX_CONNECTIONS,
+                                maxConnections, current });
+            }
+        }
+    }
+
+    public HttpConnectionStatistics getConnectionStatistics() {
+        return connectionStatistics;
     }
 
     public int sendCopyRequest(Node local) throws IOException {
@@ -110,6 +142,7 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
     }
 
     protected int sendMessage(URL url, String data) throws IOException {
+        connectionStatistics.requested(url);
         HttpURLConnection conn = openConnection(url, getBasicAuthUsername(), getBasicAuthPassword());
         conn.setRequestMethod("POST");
         conn.setAllowUserInteraction(false);
@@ -119,12 +152,42 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         OutputStream os = conn.getOutputStream();
         try {
             writeMessage(os, data);
-            return conn.getResponseCode();
+            int code = conn.getResponseCode();
+            releaseConnection(conn, code);
+            return code;
         } finally {
             IOUtils.closeQuietly(os);
         }
     }
 
+    /**
+     * Read the rest of the response so the connection can go back to the
+     * keep-alive cache, or disconnect if keep-alive is off.
+     */
+    protected void releaseConnection(HttpURLConnection conn, int code) {
+        if (isKeepAlive()) {
+            InputStream in = null;
+            try {
+                in = code < HttpURLConnection.HTTP_BAD_REQUEST ? conn.getInputStream() : conn
+                        .getErrorStream();
+                if (in != null) {
+                    byte[] buffer = new byte[1024];
+                    while (in.read(buffer) >= 0) {
+                    }
+                }
+                connectionStatistics.released(conn.getURL());
+            } catch (IOException ex) {
+                conn.disconnect();
+                connectionStatistics.disconnected(conn.getURL());
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        } else {
+            conn.disconnect();
+            connectionStatistics.disconnected(conn.getURL());
+        }
+    }
+
     public static HttpURLConnection openConnection(URL url, String username, String password)
             throws IOException {
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
@@ -149,6 +212,10 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         return engine.getParameterService().is(ParameterConstants.TRANSPORT_HTTP_PUSH_STREAM_ENABLED);
     }
 
+    public boolean isKeepAlive() {
+        return engine.getParameterService().is(ParameterConstants.TRANSPORT_HTTP_KEEP_ALIVE_ENABLED, true);
+    }
+
     public int getHttpTimeOutInMs() {
         return engine.getParameterService().getInt(ParameterConstants.TRANSPORT_HTTP_TIMEOUT);
     }
@@ -165,6 +232,11 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         return engine.getParameterService().getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_STRATEGY);
     }
 
+    public String getCompressionCodecs() {
+        return engine.getParameterService().getString(
+                ParameterConstants.TRANSPORT_HTTP_COMPRESSION_CODECS, GzipCompressionCodec.NAME);
+    }
+
     public String getBasicAuthUsername() {
         return engine.getParameterService().getString(ParameterConstants.TRANSPORT_HTTP_BASIC_AUTH_USERNAME);
     }
@@ -188,7 +260,7 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
                 conn.addRequestProperty(key, requestProperties.get(key));
             }
         }
-        return new HttpIncomingTransport(conn, engine.getParameterService());
+        return new HttpIncomingTransport(conn, engine.getParameterService(), connectionStatistics);
     }
 
     public IIncomingTransport getPullTransport(Node remote, Node local, String securityToken,
@@ -200,7 +272,7 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
                 conn.addRequestProperty(key, requestProperties.get(key));
             }
         }
-        return new HttpIncomingTransport(conn, engine.getParameterService());
+        return new HttpIncomingTransport(conn, engine.getParameterService(), connectionStatistics);
     }
 
     public IOutgoingWithResponseTransport getPushTransport(Node remote, Node local,
@@ -208,7 +280,8 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         URL url = new URL(buildURL("push", remote, local, securityToken, registrationUrl));
         return new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(),
                 getCompressionStrategy(), getCompressionLevel(), getBasicAuthUsername(),
-                getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), false);
+                getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), false,
+                isKeepAlive(), connectionStatistics, getCompressionCodecs());
     }
     
     public IOutgoingWithResponseTransport getFilePushTransport(Node remote, Node local,
@@ -216,13 +289,14 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         URL url = new URL(buildURL("filesync/push", remote, local, securityToken, registrationUrl));
         return new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(),
                 getCompressionStrategy(), getCompressionLevel(), getBasicAuthUsername(),
-                getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), true);
+                getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), true,
+                isKeepAlive(), connectionStatistics, getCompressionCodecs());
     }    
 
     public IIncomingTransport getRegisterTransport(Node node, String registrationUrl)
             throws IOException {
         return new HttpIncomingTransport(createGetConnectionFor(new URL(buildRegistrationUrl(
-                registrationUrl, node))), engine.getParameterService());
+                registrationUrl, node))), engine.getParameterService(), connectionStatistics);
     }
 
     public static String buildRegistrationUrl(String baseUrl, Node node) throws IOException {
@@ -246,32 +320,27 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
     protected HttpURLConnection createGetConnectionFor(URL url) throws IOException {
         HttpURLConnection conn = HttpTransportManager.openConnection(url, getBasicAuthUsername(),
                 getBasicAuthPassword());
-        conn.setRequestProperty("accept-encoding", "gzip");
+        conn.setRequestProperty(WebConstants.HEADER_ACCEPT_ENCODING, getCompressionCodecs());
         conn.setConnectTimeout(getHttpTimeOutInMs());
         conn.setReadTimeout(getHttpTimeOutInMs());
         conn.setRequestMethod("GET");
         return conn;
     }
     
+    /**
+     * If the content is compressed, then uncompress.
+     */
     protected static InputStream getInputStreamFrom(HttpURLConnection connection) throws IOException {
-        String type = connection.getContentEncoding();
         InputStream in = connection.getInputStream();
-        if (!StringUtils.isBlank(type) && type.equals("gzip")) {
-            in = new GZIPInputStream(in);
+        ICompressionCodec codec = CompressionCodecs.get(connection.getContentEncoding());
+        if (codec != null) {
+            in = codec.decompress(in);
         }
         return in;
     }
 
-    /**
-     * If the content is gzip'd, then uncompress.
-     */
     protected static BufferedReader getReaderFrom(HttpURLConnection connection) throws IOException {
-        String type = connection.getContentEncoding();
-        InputStream in = connection.getInputStream();
-        if (!StringUtils.isBlank(type) && type.equals("gzip")) {
-            in = new GZIPInputStream(in);
-        }
-        return TransportUtils.toReader(in);
+        return TransportUtils.toReader(getInputStreamFrom(connection));
     }
 
     /**
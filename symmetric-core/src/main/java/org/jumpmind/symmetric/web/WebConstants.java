@@ -26,6 +26,8 @@ package org.jumpmind.symmetric.web;
 public class WebConstants {
 
     public static final String HEADER_ACCEPT_CHARSET = "Accept-Charset";
+
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
     
     public static final String METHOD_GET = "GET";
     
@@ -0,0 +1,163 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.symmetric.SymmetricException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSyncDeltaTest {
+
+    File directory = new File("target/delta");
+    File deltaFile = new File(directory, "delta");
+    File targetFile = new File(directory, "target.log");
+
+    byte[] base;
+
+    @Before
+    public void setupTest() throws Exception {
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        base = new byte[1024 * 1024 + 123];
+        new Random(1).nextBytes(base);
+        FileUtils.writeByteArrayToFile(targetFile, base);
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        byte[] newContent = concat(base, random(5000, 2));
+        long deltaLength = writeDelta(base, newContent);
+        assertTrue("The delta was " + deltaLength + " bytes", deltaLength < 20000);
+        FileSyncDelta.apply(deltaFile, targetFile);
+        assertArrayEquals(newContent, FileUtils.readFileToByteArray(targetFile));
+    }
+
+    @Test
+    public void testInsertAndChangeInTheMiddle() throws Exception {
+        byte[] newContent = concat(concat(subarray(base, 0, 300000), random(777, 3)),
+                subarray(base, 300000, base.length));
+        newContent[700000] ^= 1;
+        long deltaLength = writeDelta(base, newContent);
+        assertTrue("The delta was " + deltaLength + " bytes", deltaLength < 20000);
+        FileSyncDelta.apply(deltaFile, targetFile);
+        assertArrayEquals(newContent, FileUtils.readFileToByteArray(targetFile));
+    }
+
+    @Test
+    public void testSmallerThanABlock() throws Exception {
+        base = random(100, 4);
+        FileUtils.writeByteArrayToFile(targetFile, base);
+        byte[] newContent = random(200, 5);
+        writeDelta(base, newContent);
+        FileSyncDelta.apply(deltaFile, targetFile);
+        assertArrayEquals(newContent, FileUtils.readFileToByteArray(targetFile));
+    }
+
+    @Test
+    public void testTargetIsNotTheBase() throws Exception {
+        byte[] newContent = concat(base, random(5000, 2));
+        writeDelta(base, newContent);
+        byte[] changed = base.clone();
+        changed[1000] ^= 1;
+        FileUtils.writeByteArrayToFile(targetFile, changed);
+        try {
+            FileSyncDelta.apply(deltaFile, targetFile);
+            fail("Expected the delta to be rejected");
+        } catch (SymmetricException ex) {
+        }
+        assertArrayEquals(changed, FileUtils.readFileToByteArray(targetFile));
+    }
+
+    @Test
+    public void testTargetIsAlreadyTheNewVersion() throws Exception {
+        byte[] newContent = concat(base, random(5000, 2));
+        writeDelta(base, newContent);
+        FileUtils.writeByteArrayToFile(targetFile, newContent);
+        FileSyncDelta.apply(deltaFile, targetFile);
+        assertArrayEquals(newContent, FileUtils.readFileToByteArray(targetFile));
+    }
+
+    @Test
+    public void testNewSignature() throws Exception {
+        byte[] newContent = concat(base, random(5000, 2));
+        FileSyncSignature.Builder builder = new FileSyncSignature.Builder(
+                FileSyncSignature.getBlockSize(newContent.length));
+        FileSyncDelta.write(signature(base), new ByteArrayInputStream(newContent), 0,
+                new ByteArrayOutputStream(), builder);
+        FileSyncSignature expected = signature(newContent);
+        FileSyncSignature actual = builder.build();
+        assertEquals(expected.getLength(), actual.getLength());
+        assertEquals(expected.getCrc32Checksum(), actual.getCrc32Checksum());
+        assertEquals(expected.getBlockCount(), actual.getBlockCount());
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        actual.write(os);
+        FileSyncSignature read = FileSyncSignature.read(new ByteArrayInputStream(os.toByteArray()));
+        assertEquals(actual.getBlockCount(), read.getBlockCount());
+        assertArrayEquals(actual.getStrongChecksum(3), read.getStrongChecksum(3));
+    }
+
+    protected long writeDelta(byte[] oldContent, byte[] newContent) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        FileSyncDelta.write(signature(oldContent), new ByteArrayInputStream(newContent),
+                System.currentTimeMillis(), os, null);
+        FileUtils.writeByteArrayToFile(deltaFile, os.toByteArray());
+        return os.size();
+    }
+
+    protected FileSyncSignature signature(byte[] content) {
+        FileSyncSignature.Builder builder = new FileSyncSignature.Builder(
+                FileSyncSignature.getBlockSize(content.length));
+        builder.update(content, 0, content.length);
+        return builder.build();
+    }
+
+    protected byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    protected byte[] subarray(byte[] bytes, int start, int end) {
+        byte[] sub = new byte[end - start];
+        System.arraycopy(bytes, start, sub, 0, sub.length);
+        return sub;
+    }
+
+    protected byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = new byte[first.length + second.length];
+        System.arraycopy(first, 0, bytes, 0, first.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+}
@@ -21,6 +21,10 @@
 package org.jumpmind.symmetric.file;
 
 import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 public class FileSyncUtilsTest {
@@ -82,4 +86,21 @@ public class FileSyncUtilsTest {
             // expected exception
         }
     }
+
+    @Test
+    public void testReplaceFile() throws Exception {
+        File directory = new File("target/replace");
+        FileUtils.deleteQuietly(directory);
+        File source = new File(directory, "incoming/1.txt");
+        File target = new File(directory, "target/a/1.txt");
+        FileUtils.write(source, "new");
+        FileSyncUtils.replaceFile(source, target);
+        assertEquals("new", FileUtils.readFileToString(target));
+        assertFalse(source.exists());
+
+        FileUtils.write(source, "newer");
+        FileSyncUtils.replaceFile(source, target);
+        assertEquals("newer", FileUtils.readFileToString(target));
+        assertFalse(source.exists());
+    }
 }
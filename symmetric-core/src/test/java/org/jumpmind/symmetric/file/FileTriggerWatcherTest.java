@@ -0,0 +1,195 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
+import org.jumpmind.symmetric.model.FileTrigger;
+import org.jumpmind.symmetric.model.FileTriggerRouter;
+import org.jumpmind.symmetric.model.Router;
+import org.jumpmind.util.AppUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileTriggerWatcherTest {
+
+    File directory = new File("target/watch");
+    File subdirectory = new File(directory, "a");
+    File fileInDirectory1 = new File(directory, "1.txt");
+    File fileInDirectory2 = new File(directory, "2.csv");
+    File fileInSubDirectory = new File(subdirectory, "3.doc");
+
+    FileTriggerWatcher watcher;
+
+    @Before
+    public void setupTest() throws Exception {
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        subdirectory.mkdirs();
+        FileUtils.write(fileInDirectory1, "abc");
+        FileUtils.write(fileInSubDirectory, "abc");
+    }
+
+    @After
+    public void cleanupTest() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testWatchRecursive() throws Exception {
+        watcher = newWatcher(true, null);
+        FileUtils.write(fileInDirectory2, "1,2,3");
+        FileUtils.write(fileInSubDirectory, "def");
+        FileUtils.deleteQuietly(fileInDirectory1);
+        Map<String, LastEventType> changes = waitForChanges(3);
+        assertEquals(3, changes.size());
+        assertEquals(LastEventType.CREATE, changes.get("2.csv"));
+        assertEquals(LastEventType.MODIFY, changes.get("a/3.doc"));
+        assertEquals(LastEventType.DELETE, changes.get("1.txt"));
+    }
+
+    @Test
+    public void testWatchNonRecursive() throws Exception {
+        watcher = newWatcher(false, null);
+        FileUtils.write(fileInSubDirectory, "def");
+        FileUtils.write(fileInDirectory2, "1,2,3");
+        Map<String, LastEventType> changes = waitForChanges(1);
+        assertEquals(1, changes.size());
+        assertEquals(LastEventType.CREATE, changes.get("2.csv"));
+    }
+
+    @Test
+    public void testWatchIncludes() throws Exception {
+        watcher = newWatcher(true, "*.txt");
+        FileUtils.write(fileInDirectory2, "1,2,3");
+        FileUtils.write(fileInDirectory1, "def");
+        Map<String, LastEventType> changes = waitForChanges(1);
+        assertEquals(1, changes.size());
+        assertEquals(LastEventType.MODIFY, changes.get("1.txt"));
+    }
+
+    @Test
+    public void testWatchCoalescesChanges() throws Exception {
+        watcher = newWatcher(true, null);
+        FileUtils.write(fileInDirectory2, "1,2,3");
+        FileUtils.write(fileInDirectory2, "4,5,6");
+        FileUtils.write(fileInDirectory1, "def");
+        FileUtils.deleteQuietly(fileInDirectory1);
+        Map<String, LastEventType> changes = waitForChanges(2);
+        assertEquals(2, changes.size());
+        assertEquals(LastEventType.CREATE, changes.get("2.csv"));
+        assertEquals(LastEventType.DELETE, changes.get("1.txt"));
+    }
+
+    @Test
+    public void testWatchNewDirectory() throws Exception {
+        watcher = newWatcher(true, null);
+        File newDirectory = new File(directory, "b");
+        newDirectory.mkdirs();
+        FileUtils.write(new File(newDirectory, "4.txt"), "abc");
+        Map<String, LastEventType> changes = waitForChanges(2);
+        assertEquals(LastEventType.CREATE, changes.get("b"));
+        assertEquals(LastEventType.CREATE, changes.get("b/4.txt"));
+    }
+
+    @Test
+    public void testWatchDirectoryRemovedNeedsFullScan() throws Exception {
+        watcher = newWatcher(true, null);
+        FileUtils.moveDirectory(subdirectory, new File("target/watch-moved"));
+        try {
+            assertNull(waitForFullScan());
+        } finally {
+            FileUtils.deleteQuietly(new File("target/watch-moved"));
+        }
+    }
+
+    @Test
+    public void testWatchDirectoryReplaced() throws Exception {
+        watcher = newWatcher(true, null);
+        File moved = new File("target/watch-moved");
+        FileUtils.moveDirectory(subdirectory, moved);
+        subdirectory.mkdirs();
+        try {
+            assertNull(waitForFullScan());
+
+            /*
+             * the key of the directory that was moved away becomes invalid
+             * after the new directory was registered under the same name
+             */
+            FileUtils.deleteDirectory(moved);
+            waitForChanges(1);
+
+            FileUtils.moveDirectory(subdirectory, moved);
+            assertNull(waitForFullScan());
+        } finally {
+            FileUtils.deleteQuietly(moved);
+        }
+    }
+
+    protected FileTriggerWatcher newWatcher(boolean recurse, String includes) {
+        FileTrigger fileTrigger = new FileTrigger(directory.getPath(), recurse, includes, null);
+        FileTriggerRouter fileTriggerRouter = new FileTriggerRouter(fileTrigger, new Router());
+        return new FileTriggerWatcher(fileTriggerRouter, false);
+    }
+
+    protected Map<String, LastEventType> waitForChanges(int expectedCount) {
+        Map<String, LastEventType> changes = new HashMap<String, LastEventType>();
+        for (int i = 0; i < 100 && changes.size() < expectedCount; i++) {
+            AppUtils.sleep(100);
+            addChanges(changes, watcher.takeChanges(null));
+        }
+        /*
+         * Let late events arrive so extra changes are detected
+         */
+        AppUtils.sleep(200);
+        addChanges(changes, watcher.takeChanges(null));
+        return changes;
+    }
+
+    protected DirectorySnapshot waitForFullScan() {
+        DirectorySnapshot snapshot = new DirectorySnapshot(watcher.getFileTriggerRouter());
+        for (int i = 0; i < 100 && snapshot != null; i++) {
+            AppUtils.sleep(100);
+            snapshot = watcher.takeChanges(null);
+        }
+        return snapshot;
+    }
+
+    protected void addChanges(Map<String, LastEventType> changes, DirectorySnapshot snapshot) {
+        for (FileSnapshot fileSnapshot : snapshot) {
+            String relativeDir = fileSnapshot.getRelativeDir();
+            changes.put(relativeDir.equals(".") ? fileSnapshot.getFileName() : relativeDir + "/"
+                    + fileSnapshot.getFileName(), fileSnapshot.getLastEventType());
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jumpmind.symmetric.common.Constants;
+import org.junit.Test;
+
+public class DataEventBufferTest {
+
+    @Test
+    public void testAddAndGrow() {
+        DataEventBuffer buffer = new DataEventBuffer(2);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(i, 100 + i, i % 2 == 0 ? "router1" : "router2");
+        }
+        assertEquals(10, buffer.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, buffer.getDataId(i));
+            assertEquals(100 + i, buffer.getBatchId(i));
+            assertEquals(i % 2 == 0 ? "router1" : "router2", buffer.getRouterId(i));
+        }
+    }
+
+    @Test
+    public void testClearReusesBuffer() {
+        DataEventBuffer buffer = new DataEventBuffer(4);
+        buffer.add(1, 1, "router1");
+        buffer.add(2, 1, "router1");
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        buffer.add(3, 2, "router2");
+        assertEquals(1, buffer.size());
+        assertEquals(3, buffer.getDataId(0));
+        assertEquals(2, buffer.getBatchId(0));
+        assertEquals("router2", buffer.getRouterId(0));
+    }
+
+    @Test
+    public void testBlankRouterId() {
+        DataEventBuffer buffer = new DataEventBuffer();
+        buffer.add(1, 1, null);
+        buffer.add(2, 1, " ");
+        assertEquals(Constants.UNKNOWN_ROUTER_ID, buffer.getRouterId(0));
+        assertEquals(Constants.UNKNOWN_ROUTER_ID, buffer.getRouterId(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexPastSize() {
+        DataEventBuffer buffer = new DataEventBuffer();
+        buffer.add(1, 1, "router1");
+        buffer.clear();
+        buffer.getDataId(0);
+    }
+
+}
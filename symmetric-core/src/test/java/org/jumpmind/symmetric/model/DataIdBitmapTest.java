@@ -0,0 +1,124 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class DataIdBitmapTest {
+
+    @Test
+    public void testSequentialIdsShareARange() {
+        DataIdBitmap bitmap = new DataIdBitmap(1);
+        for (long i = 100; i < 10000; i++) {
+            bitmap.add(i);
+        }
+        assertEquals(1, bitmap.getRangeCount());
+        assertEquals(9900, bitmap.getCardinality());
+        assertTrue(bitmap.contains(100));
+        assertTrue(bitmap.contains(9999));
+        assertFalse(bitmap.contains(99));
+        assertFalse(bitmap.contains(10000));
+    }
+
+    @Test
+    public void testRangesMerge() {
+        DataIdBitmap bitmap = new DataIdBitmap(1);
+        bitmap.add(10, 12);
+        bitmap.add(20, 22);
+        bitmap.add(1);
+        assertEquals("[1,10-12,20-22]", bitmap.toString());
+        bitmap.add(13, 19);
+        assertEquals("[1,10-22]", bitmap.toString());
+        bitmap.add(2, 9);
+        assertEquals("[1-22]", bitmap.toString());
+    }
+
+    @Test
+    public void testRemove() {
+        DataIdBitmap bitmap = new DataIdBitmap();
+        bitmap.add(1, 10);
+        bitmap.add(20, 30);
+        bitmap.remove(5, 6);
+        assertEquals("[1-4,7-10,20-30]", bitmap.toString());
+        bitmap.remove(9, 25);
+        assertEquals("[1-4,7-8,26-30]", bitmap.toString());
+        bitmap.remove(30, Long.MAX_VALUE);
+        assertEquals("[1-4,7-8,26-29]", bitmap.toString());
+        bitmap.remove(Long.MIN_VALUE, 7);
+        assertEquals("[8,26-29]", bitmap.toString());
+
+        DataIdBitmap other = new DataIdBitmap();
+        other.add(8);
+        other.add(27, 28);
+        bitmap.removeAll(other);
+        assertEquals("[26,29]", bitmap.toString());
+    }
+
+    @Test
+    public void testGetDataIds() {
+        DataIdBitmap bitmap = new DataIdBitmap();
+        bitmap.add(1, 3);
+        bitmap.add(7);
+        bitmap.add(9, 12);
+        assertEquals(Arrays.asList(2l, 3l, 7l, 9l, 10l), bitmap.getDataIds(2, 10));
+        assertEquals(0, bitmap.getDataIds(4, 6).size());
+    }
+
+    @Test
+    public void testMatchesSet() {
+        Random random = new Random(42);
+        DataIdBitmap bitmap = new DataIdBitmap(1);
+        TreeSet<Long> expected = new TreeSet<Long>();
+        for (int i = 0; i < 5000; i++) {
+            long start = random.nextInt(1000);
+            long end = start + random.nextInt(10);
+            if (random.nextInt(3) == 0) {
+                bitmap.remove(start, end);
+                expected.subSet(start, true, end, true).clear();
+            } else {
+                bitmap.add(start, end);
+                for (long id = start; id <= end; id++) {
+                    expected.add(id);
+                }
+            }
+        }
+        assertEquals(expected.size(), bitmap.getCardinality());
+        assertEquals(expected.size(), bitmap.getDataIds(0, 2000).size());
+        for (long id = 0; id < 1010; id++) {
+            assertEquals(expected.contains(id), bitmap.contains(id));
+        }
+
+        DataIdBitmap copy = bitmap.copy();
+        copy.addAll(bitmap);
+        assertEquals(bitmap.toString(), copy.toString());
+        copy.removeAll(bitmap);
+        assertTrue(copy.isEmpty());
+    }
+
+}
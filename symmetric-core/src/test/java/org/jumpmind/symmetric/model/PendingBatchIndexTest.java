@@ -0,0 +1,91 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jumpmind.symmetric.model.OutgoingBatch.Status;
+import org.junit.Test;
+
+public class PendingBatchIndexTest {
+
+    @Test
+    public void testPutAndRemove() {
+        PendingBatchIndex index = new PendingBatchIndex();
+        assertFalse(index.hasPendingBatches("00001", null));
+        index.put("00001", 1, "default");
+        index.put("00001", 2, "reload");
+        assertTrue(index.hasPendingBatches("00001", null));
+        assertFalse(index.hasPendingBatches("00002", null));
+        assertTrue(index.hasPendingBatches("00001", Arrays.asList("reload")));
+        index.remove("00001", 2);
+        assertFalse(index.hasPendingBatches("00001", Arrays.asList("reload")));
+        index.remove("00001", 1);
+        assertFalse(index.hasPendingBatches("00001", null));
+    }
+
+    @Test
+    public void testRefreshKeepsRecentlyIndexedBatches() {
+        PendingBatchIndex index = new PendingBatchIndex();
+        assertEquals(-1, index.getLastRefreshTime());
+        index.put("00001", 1, "default");
+        index.put("00002", 2, "default");
+
+        long now = System.currentTimeMillis();
+        List<OutgoingBatch> pending = new ArrayList<OutgoingBatch>();
+        pending.add(newBatch("00003", 3));
+        index.refresh(pending, now, now - 60000);
+        assertEquals(now, index.getLastRefreshTime());
+        assertTrue(index.hasPendingBatches("00001", null));
+        assertTrue(index.hasPendingBatches("00002", null));
+        assertTrue(index.hasPendingBatches("00003", null));
+
+        pending.add(newBatch("00001", 1));
+        index.refresh(pending, now, Long.MAX_VALUE);
+        assertTrue(index.hasPendingBatches("00001", null));
+        assertFalse(index.hasPendingBatches("00002", null));
+        assertTrue(index.hasPendingBatches("00003", null));
+
+        index.invalidate();
+        assertEquals(-1, index.getLastRefreshTime());
+    }
+
+    @Test
+    public void testIsPending() {
+        assertTrue(PendingBatchIndex.isPending(Status.NE));
+        assertTrue(PendingBatchIndex.isPending(Status.ER));
+        assertFalse(PendingBatchIndex.isPending(Status.OK));
+        assertFalse(PendingBatchIndex.isPending(Status.RT));
+    }
+
+    protected OutgoingBatch newBatch(String nodeId, long batchId) {
+        OutgoingBatch batch = new OutgoingBatch(nodeId, "default", Status.NE);
+        batch.setBatchId(batchId);
+        return batch;
+    }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.mapper.NumberMapper;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.model.DataGap;
+import org.jumpmind.symmetric.model.DataIdBitmap;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfoKey;
+import org.jumpmind.symmetric.service.IDataService;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.IRouterService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class DataGapDetectorTest {
+
+    final static String DATA_EVENT_SQL = "select distinct data_id from sym_data_event";
+
+    final static long MAX_GAP_SIZE = 50000000;
+
+    IDataService dataService;
+
+    IParameterService parameterService;
+
+    ISqlTemplate sqlTemplate;
+
+    DataIdBitmap dataEventIds;
+
+    List<DataGap> insertedGaps;
+
+    List<DataGap> deletedGaps;
+
+    DataGapDetector detector;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        dataEventIds = new DataIdBitmap();
+        insertedGaps = new ArrayList<DataGap>();
+        deletedGaps = new ArrayList<DataGap>();
+
+        dataService = mock(IDataService.class);
+        when(dataService.findDataGaps()).thenReturn(
+                Arrays.asList(new DataGap(1, 10), new DataGap(11, 10 + MAX_GAP_SIZE)));
+        when(dataService.getDataEventIds()).thenReturn(dataEventIds);
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                insertedGaps.addAll((Collection<DataGap>) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(dataService).insertDataGaps(any(ISqlTransaction.class),
+                anyCollectionOf(DataGap.class));
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                deletedGaps.addAll((Collection<DataGap>) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(dataService).deleteDataGaps(any(ISqlTransaction.class),
+                anyCollectionOf(DataGap.class));
+
+        parameterService = mock(IParameterService.class);
+        when(parameterService.getInt(ParameterConstants.DATA_ID_INCREMENT_BY)).thenReturn(1);
+        when(parameterService.getLong(ParameterConstants.ROUTING_LARGEST_GAP_SIZE)).thenReturn(
+                MAX_GAP_SIZE);
+        when(parameterService.getLong(ParameterConstants.ROUTING_STALE_DATA_ID_GAP_TIME))
+                .thenReturn(Long.MAX_VALUE);
+        when(parameterService.is(ParameterConstants.ROUTING_DATA_GAP_BITMAP_ENABLED, true))
+                .thenReturn(true);
+
+        sqlTemplate = mock(ISqlTemplate.class);
+        when(sqlTemplate.startSqlTransaction()).thenReturn(mock(ISqlTransaction.class));
+
+        IDatabasePlatform platform = mock(IDatabasePlatform.class);
+        when(platform.getSqlTemplate()).thenReturn(sqlTemplate);
+
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        when(symmetricDialect.getPlatform()).thenReturn(platform);
+        when(symmetricDialect.getDatabaseTime()).thenReturn(System.currentTimeMillis());
+
+        IRouterService routerService = mock(IRouterService.class);
+        when(routerService.getSql("selectDistinctDataIdFromDataEventUsingGapsSql")).thenReturn(
+                DATA_EVENT_SQL);
+
+        IStatisticManager statisticManager = mock(IStatisticManager.class);
+        when(statisticManager.newProcessInfo((ProcessInfoKey) any())).thenReturn(
+                new ProcessInfo());
+
+        INodeService nodeService = mock(INodeService.class);
+        when(nodeService.findIdentityNodeId()).thenReturn("00000");
+
+        detector = new DataGapDetector(dataService, parameterService, symmetricDialect,
+                routerService, statisticManager, nodeService);
+    }
+
+    @Test
+    public void testFirstDetectionQueriesDataEvents() {
+        dataEventIds.add(3);
+        dataEventIdsInSql(7);
+
+        detector.beforeRouting();
+
+        assertGaps(insertedGaps, new DataGap(1, 6), new DataGap(8, 10));
+        assertGaps(deletedGaps, new DataGap(1, 10));
+        verifyDataEventsQueried(1);
+        assertTrue("The recorded ids should be kept", dataEventIds.contains(3));
+    }
+
+    @Test
+    public void testGapsClosedFromRecordedIds() {
+        detector.beforeRouting();
+        verifyDataEventsQueried(1);
+        assertTrue(insertedGaps.isEmpty());
+
+        dataEventIds.add(3, 5);
+        detector.beforeRouting();
+
+        assertGaps(insertedGaps, new DataGap(1, 2), new DataGap(6, 10));
+        assertGaps(deletedGaps, new DataGap(1, 10));
+        verifyDataEventsQueried(1);
+        assertTrue("The ids in the gaps should have been used up", dataEventIds.isEmpty());
+    }
+
+    @Test
+    public void testClusterLockingQueriesDataEvents() {
+        when(parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED)).thenReturn(true);
+        dataEventIds.add(3);
+        dataEventIdsInSql(7);
+
+        detector.beforeRouting();
+        insertedGaps.clear();
+        deletedGaps.clear();
+        detector.beforeRouting();
+
+        assertGaps(insertedGaps, new DataGap(1, 6), new DataGap(8, 10));
+        assertGaps(deletedGaps, new DataGap(1, 10));
+        verifyDataEventsQueried(2);
+        assertFalse(dataEventIds.isEmpty());
+    }
+
+    @Test
+    public void testBitmapDisabledQueriesDataEvents() {
+        when(parameterService.is(ParameterConstants.ROUTING_DATA_GAP_BITMAP_ENABLED, true))
+                .thenReturn(false);
+        dataEventIds.add(3);
+        dataEventIdsInSql(7);
+
+        detector.beforeRouting();
+        insertedGaps.clear();
+        deletedGaps.clear();
+        detector.beforeRouting();
+
+        assertGaps(insertedGaps, new DataGap(1, 6), new DataGap(8, 10));
+        verifyDataEventsQueried(2);
+    }
+
+    protected void dataEventIdsInSql(Number... ids) {
+        List<Number> list = Arrays.asList(ids);
+        when(sqlTemplate.query(eq(DATA_EVENT_SQL), any(NumberMapper.class), eq(1l), eq(10l)))
+                .thenReturn(list);
+    }
+
+    protected void verifyDataEventsQueried(int times) {
+        verify(sqlTemplate, times(times)).query(eq(DATA_EVENT_SQL), any(NumberMapper.class),
+                eq(1l), eq(10l));
+    }
+
+    protected void assertGaps(List<DataGap> actual, DataGap... expected) {
+        assertEquals(actual.toString(), expected.length, actual.size());
+        assertEquals(new HashSet<DataGap>(Arrays.asList(expected)), new HashSet<DataGap>(actual));
+    }
+
+}
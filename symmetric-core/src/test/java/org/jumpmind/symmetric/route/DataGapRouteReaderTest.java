@@ -28,7 +28,6 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 
 import org.jumpmind.db.platform.DatabaseInfo;
 import org.jumpmind.db.platform.IDatabasePlatform;
@@ -171,13 +170,12 @@ public class DataGapRouteReaderTest {
 
         dataGapRouteReader.execute();
 
-        BlockingQueue<Data> queue = dataGapRouteReader.getDataQueue();
+        DataRingBuffer queue = dataGapRouteReader.getDataQueue();
         assertEquals(6, queue.size());
-        Iterator<Data> iter = queue.iterator();
+        Data d = null;
         int index = 0;
         long ids[] = { 1, 2, 4, 3, 5, -1 };
-        while (iter.hasNext()) {
-            Data d = iter.next();
+        while ((d = queue.poll()) != null) {
             assertEquals(ids[index], d.getDataId());
             index++;
         }
@@ -212,13 +210,12 @@ public class DataGapRouteReaderTest {
 
         dataGapRouteReader.execute();
 
-        BlockingQueue<Data> queue = dataGapRouteReader.getDataQueue();
+        DataRingBuffer queue = dataGapRouteReader.getDataQueue();
         assertEquals(5, queue.size());
-        Iterator<Data> iter = queue.iterator();
+        Data d = null;
         int index = 0;
         long ids[] = { 1, 2, 5, 6, -1 };
-        while (iter.hasNext()) {
-            Data d = iter.next();
+        while ((d = queue.poll()) != null) {
             assertEquals(ids[index], d.getDataId());
             index++;
         }
@@ -253,13 +250,12 @@ public class DataGapRouteReaderTest {
 
         dataGapRouteReader.execute();
 
-        BlockingQueue<Data> queue = dataGapRouteReader.getDataQueue();
+        DataRingBuffer queue = dataGapRouteReader.getDataQueue();
         assertEquals(7, queue.size());
-        Iterator<Data> iter = queue.iterator();
+        Data d = null;
         int index = 0;
         long ids[] = { 1, 2, 5, 6, 3, 4, -1 };
-        while (iter.hasNext()) {
-            Data d = iter.next();
+        while ((d = queue.poll()) != null) {
             assertEquals(ids[index], d.getDataId());
             index++;
         }
@@ -297,13 +293,12 @@ public class DataGapRouteReaderTest {
 
         dataGapRouteReader.execute();
 
-        BlockingQueue<Data> queue = dataGapRouteReader.getDataQueue();
+        DataRingBuffer queue = dataGapRouteReader.getDataQueue();
         assertEquals(5, queue.size());
-        Iterator<Data> iter = queue.iterator();
+        Data d = null;
         int index = 0;
         long ids[] = { 1, 2, 4, 6, -1 };
-        while (iter.hasNext()) {
-            Data d = iter.next();
+        while ((d = queue.poll()) != null) {
             assertEquals(ids[index], d.getDataId());
             index++;
         }
@@ -343,12 +338,11 @@ public class DataGapRouteReaderTest {
         assertEquals(10,dataGapRouteReader.context.getMaxPeekAheadQueueSize());
         assertEquals(21,dataGapRouteReader.context.getPeekAheadFillCount());
 
-        BlockingQueue<Data> queue = dataGapRouteReader.getDataQueue();
+        DataRingBuffer queue = dataGapRouteReader.getDataQueue();
         assertEquals(101, queue.size());
-        Iterator<Data> iter = queue.iterator();
+        Data d = null;
         int index = 0;
-        while (iter.hasNext()) {
-            Data d = iter.next();
+        while ((d = queue.poll()) != null) {
             assertEquals(index < 100 ? index : -1, d.getDataId());
             index++;
         }
@@ -382,13 +376,12 @@ public class DataGapRouteReaderTest {
 
         dataGapRouteReader.execute();
 
-        BlockingQueue<Data> queue = dataGapRouteReader.getDataQueue();
+        DataRingBuffer queue = dataGapRouteReader.getDataQueue();
         assertEquals(4, queue.size());
-        Iterator<Data> iter = queue.iterator();
+        Data d = null;
         int index = 0;
         long ids[] = { 1, 2, 4, -1 };
-        while (iter.hasNext()) {
-            Data d = iter.next();
+        while ((d = queue.poll()) != null) {
             assertEquals(ids[index], d.getDataId());
             index++;
         }
@@ -0,0 +1,107 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jumpmind.symmetric.model.Data;
+import org.junit.Test;
+
+public class DataRingBufferTest {
+
+    @Test
+    public void testOfferAndPollWrapAround() {
+        DataRingBuffer buffer = new DataRingBuffer(4, Long.MAX_VALUE, false);
+        assertEquals(4, buffer.getCapacity());
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(newData(round * 4 + i, null)));
+            }
+            assertFalse(buffer.offer(newData(99, null)));
+            assertEquals(4, buffer.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(round * 4 + i, buffer.poll().getDataId());
+            }
+            assertNull(buffer.poll());
+        }
+    }
+
+    @Test
+    public void testBoundedBySizeInBytes() {
+        DataRingBuffer buffer = new DataRingBuffer(100, 10, false);
+        assertTrue(buffer.offer(newData(1, "123456")));
+        assertFalse(buffer.offer(newData(2, "123456")));
+        assertEquals(6, buffer.getSizeInBytes());
+        assertEquals(1, buffer.poll().getDataId());
+        assertEquals(0, buffer.getSizeInBytes());
+        /* one data is always accepted even if it is over the budget */
+        assertTrue(buffer.offer(newData(3, "123456789012")));
+        assertFalse(buffer.offer(newData(4, "1")));
+    }
+
+    @Test
+    public void testGrowable() {
+        DataRingBuffer buffer = new DataRingBuffer(2, 1, true);
+        buffer.offer(newData(1, null));
+        buffer.poll();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(newData(i, "12345")));
+        }
+        assertEquals(10, buffer.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, buffer.poll().getDataId());
+        }
+    }
+
+    @Test
+    public void testProducerAndConsumerThreads() throws Exception {
+        final DataRingBuffer buffer = new DataRingBuffer(8, Long.MAX_VALUE, false);
+        final int count = 100000;
+        Thread producer = new Thread() {
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    Data data = newData(i, null);
+                    while (!buffer.offer(data)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        producer.start();
+        for (int i = 0; i < count; i++) {
+            Data data = null;
+            while ((data = buffer.poll()) == null) {
+                Thread.yield();
+            }
+            assertEquals(i, data.getDataId());
+        }
+        producer.join();
+        assertTrue(buffer.isEmpty());
+    }
+
+    protected static Data newData(long dataId, String rowData) {
+        return new Data(dataId, null, rowData, null, "table1", null, null, null, "1", null);
+    }
+
+}
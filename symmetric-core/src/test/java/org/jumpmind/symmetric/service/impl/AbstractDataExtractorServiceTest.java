@@ -20,16 +20,26 @@
  */
 package org.jumpmind.symmetric.service.impl;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.symmetric.TestConstants;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.io.stage.IStagedResource;
+import org.jumpmind.symmetric.model.NodeCommunication;
 import org.jumpmind.symmetric.model.OutgoingBatch;
 import org.jumpmind.symmetric.model.ProcessInfo;
 import org.jumpmind.symmetric.model.Router;
@@ -113,6 +123,206 @@ public abstract class AbstractDataExtractorServiceTest extends AbstractServiceTe
 
     }
 
+    @Test
+    public void testExtractMultipleBatchesWithLookahead() {
+        for (int i = 0; i < 120; i++) {
+            save(new TestExtract(id++, "abc 123", "abcdefghijklmnopqrstuvwxyz", new Timestamp(
+                    System.currentTimeMillis()), new Date(System.currentTimeMillis()), true,
+                    Integer.MAX_VALUE, new BigDecimal(Double.toString(Math.PI))));
+        }
+        routeAndCreateGaps();
+        List<OutgoingBatch> batchesToExtract = getOutgoingBatchService().getOutgoingBatches(
+                TestConstants.TEST_CLIENT_NODE.getNodeId(), false).getBatches();
+        assertTrue(batchesToExtract.size() > 1);
+
+        getParameterService().saveParameter(ParameterConstants.EXTRACT_LOOKAHEAD_BATCHES, 2,
+                "test");
+        try {
+            ExtractResults results = extract();
+            String csv = results.getCsv();
+            assertNumberOfLinesThatStartWith(120, "insert,", csv, false, true);
+            for (OutgoingBatch batch : batchesToExtract) {
+                assertNumberOfLinesThatStartWith(1, "batch," + batch.getBatchId(), csv);
+            }
+            int lastIndex = -1;
+            for (OutgoingBatch batch : results.getBatches()) {
+                assertNumberOfLinesThatStartWith(1, "batch," + batch.getBatchId(), csv);
+                assertNumberOfLinesThatStartWith(1, "commit," + batch.getBatchId(), csv);
+                int index = csv.indexOf("batch," + batch.getBatchId());
+                assertTrue(index > lastIndex);
+                lastIndex = index;
+            }
+        } finally {
+            getParameterService().saveParameter(ParameterConstants.EXTRACT_LOOKAHEAD_BATCHES, 0,
+                    "test");
+        }
+    }
+
+    @Test
+    public void testSplitExtractRequestRestart() throws Exception {
+        DataExtractorService service = (DataExtractorService) getDataExtractorService();
+        String nodeId = TestConstants.TEST_CLIENT_NODE.getNodeId();
+        NodeCommunication nodeCommunication = new NodeCommunication();
+        nodeCommunication.setNodeId(nodeId);
+        saveRows(40);
+        List<OutgoingBatch> batches = requestExtract(4);
+
+        getParameterService().saveParameter(
+                ParameterConstants.INITIAL_LOAD_EXTRACT_CHUNK_BATCH_COUNT, 2, "test");
+        getParameterService().saveParameter(
+                ParameterConstants.INITIAL_LOAD_EXTRACT_CHUNK_THREAD_COUNT, 2, "test");
+        try {
+            service.execute(nodeCommunication, null);
+            assertEquals(0, service.getExtractRequestsForNode(nodeId).size());
+            assertEquals(2, countExtractRequests(batches));
+            assertRowsExtractedOnce(batches.subList(0, 2), 0, 20);
+            assertRowsExtractedOnce(batches, 0, 40);
+
+            /*
+             * the staging of the second chunk is lost, so its request has to
+             * be extracted again
+             */
+            List<OutgoingBatch> secondChunk = batches.subList(2, 4);
+            for (OutgoingBatch batch : secondChunk) {
+                getStagedResource(batch).delete();
+            }
+            getSqlTemplate().update(
+                    "update sym_extract_request set status='NE' where start_batch_id=?",
+                    secondChunk.get(0).getBatchId());
+
+            service.execute(nodeCommunication, null);
+            assertEquals(0, service.getExtractRequestsForNode(nodeId).size());
+            assertEquals(2, countExtractRequests(batches));
+            assertRowsExtractedOnce(secondChunk, 20, 40);
+            assertRowsExtractedOnce(batches, 0, 40);
+        } finally {
+            getParameterService().saveParameter(
+                    ParameterConstants.INITIAL_LOAD_EXTRACT_CHUNK_BATCH_COUNT, 10, "test");
+            getParameterService().saveParameter(
+                    ParameterConstants.INITIAL_LOAD_EXTRACT_CHUNK_THREAD_COUNT, 1, "test");
+        }
+    }
+
+    @Test
+    public void testEmptyBatchesAreStagedWithoutChunks() throws Exception {
+        DataExtractorService service = (DataExtractorService) getDataExtractorService();
+        NodeCommunication nodeCommunication = new NodeCommunication();
+        nodeCommunication.setNodeId(TestConstants.TEST_CLIENT_NODE.getNodeId());
+        saveRows(5);
+        TriggerRouter triggerRouter = getTriggerRouterService().findTriggerRouterById(TEST_TABLE,
+                TestConstants.ROUTER_ID_ROOT_2_TEST);
+        long maxBatchSize = getConfigurationService().getChannel(
+                triggerRouter.getTrigger().getReloadChannelId()).getMaxBatchSize();
+        int batchesNeeded = (int) ((5 + maxBatchSize - 1) / maxBatchSize);
+        List<OutgoingBatch> batches = requestExtract(batchesNeeded + 2);
+
+        service.execute(nodeCommunication, null);
+
+        assertRowsExtractedOnce(batches, 0, 5);
+        for (OutgoingBatch batch : batches.subList(batchesNeeded, batches.size())) {
+            IStagedResource resource = getStagedResource(batch);
+            assertNotNull(resource, "Batch " + batch.getBatchId() + " was not staged");
+            String csv = readStaged(resource);
+            assertNumberOfLinesThatStartWith(1, "batch," + batch.getBatchId(), csv);
+            assertNumberOfLinesThatStartWith(1, "commit," + batch.getBatchId(), csv);
+            assertNumberOfLinesThatStartWith(0, "insert,", csv);
+        }
+        for (OutgoingBatch batch : getOutgoingBatchService().getOutgoingBatchRange(
+                batches.get(0).getBatchId(), batches.get(batches.size() - 1).getBatchId())
+                .getBatches()) {
+            assertEquals(OutgoingBatch.Status.NE, batch.getStatus());
+        }
+    }
+
+    /**
+     * Replaces the rows of the test table with rows that have the ids 0 to
+     * count - 1, and marks the changes they captured as sent
+     */
+    protected void saveRows(int count) {
+        getDbDialect().truncateTable(TEST_TABLE);
+        for (int i = 0; i < count; i++) {
+            save(new TestExtract(i, "abc 123", "abcdefghijklmnopqrstuvwxyz", new Timestamp(
+                    System.currentTimeMillis()), new Date(System.currentTimeMillis()), true,
+                    Integer.MAX_VALUE, new BigDecimal(Double.toString(Math.PI))));
+        }
+        resetBatches();
+        id = Math.max(id, count);
+    }
+
+    /**
+     * Inserts reload batches for the test table and an extract request for
+     * them, the way an initial load that uses the extract job does
+     */
+    protected List<OutgoingBatch> requestExtract(int batchCount) {
+        TriggerRouter triggerRouter = getTriggerRouterService().findTriggerRouterById(TEST_TABLE,
+                TestConstants.ROUTER_ID_ROOT_2_TEST);
+        ISqlTransaction transaction = getSqlTemplate().startSqlTransaction();
+        try {
+            long startBatchId = -1;
+            long endBatchId = -1;
+            for (int i = 0; i < batchCount; i++) {
+                endBatchId = getDataService().insertReloadEvent(transaction,
+                        TestConstants.TEST_CLIENT_NODE, triggerRouter, null, null, true, 1,
+                        "test", OutgoingBatch.Status.RQ);
+                if (startBatchId == -1) {
+                    startBatchId = endBatchId;
+                }
+            }
+            getDataExtractorService().requestExtractRequest(transaction,
+                    TestConstants.TEST_CLIENT_NODE.getNodeId(), triggerRouter, startBatchId,
+                    endBatchId);
+            transaction.commit();
+            return getOutgoingBatchService().getOutgoingBatchRange(startBatchId, endBatchId)
+                    .getBatches();
+        } finally {
+            transaction.close();
+        }
+    }
+
+    protected int countExtractRequests(List<OutgoingBatch> batches) {
+        return getSqlTemplate().queryForInt(
+                "select count(*) from sym_extract_request where start_batch_id >= ? and end_batch_id <= ?",
+                batches.get(0).getBatchId(), batches.get(batches.size() - 1).getBatchId());
+    }
+
+    protected IStagedResource getStagedResource(OutgoingBatch batch) {
+        return getStagingManager().find(Constants.STAGING_CATEGORY_OUTGOING,
+                batch.getStagedLocation(), batch.getBatchId());
+    }
+
+    protected String readStaged(IStagedResource resource) throws IOException {
+        BufferedReader reader = resource.getReader();
+        try {
+            return IOUtils.toString(reader);
+        } finally {
+            resource.close();
+        }
+    }
+
+    /**
+     * Checks that the staged batches hold an insert for each id from start to
+     * end - 1 and for no other id
+     */
+    protected void assertRowsExtractedOnce(List<OutgoingBatch> batches, int start, int end)
+            throws IOException {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (OutgoingBatch batch : batches) {
+            IStagedResource resource = getStagedResource(batch);
+            assertNotNull(resource, "Batch " + batch.getBatchId() + " was not staged");
+            for (String line : readStaged(resource).split("\n")) {
+                if (line.startsWith("insert,\"")) {
+                    ids.add(Integer.parseInt(line.substring(8, line.indexOf('"', 8))));
+                }
+            }
+        }
+        Collections.sort(ids);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = start; i < end; i++) {
+            expected.add(i);
+        }
+        assertEquals(ids, expected);
+    }
+
     protected ExtractResults extract() {
         IDataExtractorService service = getDataExtractorService();
         StringWriter writer = new StringWriter();
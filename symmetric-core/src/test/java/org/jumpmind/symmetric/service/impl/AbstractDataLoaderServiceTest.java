@@ -530,6 +530,74 @@ abstract public class AbstractDataLoaderServiceTest extends AbstractServiceTest
         setLoggingLevelForTest(old);
     }
 
+    @Test
+    public void test11MultipleBatchLoadBehindTransfer() throws Exception {
+        Level old = setLoggingLevelForTest(Level.OFF);
+        getParameterService().saveParameter(ParameterConstants.DATA_LOADER_LOAD_BEHIND_TRANSFER,
+                true, "test");
+        try {
+            String[] values = { getNextId(), "string", "string not null2", "char2",
+                    "char not null2", "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0",
+                    "47", "67.89", "0.474" };
+            String[] values2 = { getNextId(),
+                    "This string is too large and will cause the statement to fail",
+                    "string not null2", "char2", "char not null2", "Not a date",
+                    "2007-02-03 04:05:06.000", "0", "47", "123456789.00", "0.474" };
+            String[] values3 = { getNextId(), "string", "string not null3", "char3",
+                    "char not null3", "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0",
+                    "47", "67.89", "0.474" };
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CsvWriter writer = getWriter(out);
+            writer.writeRecord(new String[] { CsvConstants.NODEID,
+                    TestConstants.TEST_CLIENT_EXTERNAL_ID });
+            writer.writeRecord(new String[] { CsvConstants.CHANNEL,
+                    TestConstants.TEST_CHANNEL_ID });
+            String nextBatchId = getNextBatchId();
+            writer.writeRecord(new String[] { CsvConstants.BATCH, nextBatchId });
+            writeTable(writer, TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+            writer.write(CsvConstants.INSERT);
+            writer.writeRecord(values, true);
+            writer.writeRecord(new String[] { CsvConstants.COMMIT, nextBatchId });
+
+            String nextBatchId2 = getNextBatchId();
+            writer.writeRecord(new String[] { CsvConstants.BATCH, nextBatchId2 });
+            writeTable(writer, TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+            writer.write(CsvConstants.INSERT);
+            writer.writeRecord(values2, true);
+            writer.writeRecord(new String[] { CsvConstants.COMMIT, nextBatchId2 });
+
+            String nextBatchId3 = getNextBatchId();
+            writer.writeRecord(new String[] { CsvConstants.BATCH, nextBatchId3 });
+            writeTable(writer, TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+            writer.write(CsvConstants.INSERT);
+            writer.writeRecord(values3, true);
+            writer.writeRecord(new String[] { CsvConstants.COMMIT, nextBatchId3 });
+
+            writer.close();
+            load(out);
+            assertTestTableEquals(values[0], values);
+            assertTestTableEquals(values2[0], null);
+            // batches after a batch in error are not loaded
+            assertTestTableEquals(values3[0], null);
+
+            assertEquals(
+                    findIncomingBatchStatus(Integer.parseInt(nextBatchId),
+                            TestConstants.TEST_CLIENT_EXTERNAL_ID), IncomingBatch.Status.OK,
+                    "Wrong status. " + printDatabase());
+            assertEquals(
+                    findIncomingBatchStatus(Integer.parseInt(nextBatchId2),
+                            TestConstants.TEST_CLIENT_EXTERNAL_ID), IncomingBatch.Status.ER,
+                    "Wrong status. " + printDatabase());
+            assertNull(findIncomingBatchStatus(Integer.parseInt(nextBatchId3),
+                    TestConstants.TEST_CLIENT_EXTERNAL_ID), "Batch should not have been loaded");
+        } finally {
+            getParameterService().saveParameter(
+                    ParameterConstants.DATA_LOADER_LOAD_BEHIND_TRANSFER, false, "test");
+            setLoggingLevelForTest(old);
+        }
+    }
+
     protected void testSimple(String dmlType, String[] values, String[] expectedValues)
             throws Exception {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -575,6 +643,75 @@ abstract public class AbstractDataLoaderServiceTest extends AbstractServiceTest
         assertTrue(registeredNodeGroupFilter.getNumberOfTimesCalled() > 0);
     }
 
+    @Test
+    public void test13MultipleChannelLoadInParallel() throws Exception {
+        Level old = setLoggingLevelForTest(Level.OFF);
+        getParameterService().saveParameter(
+                ParameterConstants.DATA_LOADER_LOAD_CHANNELS_IN_PARALLEL, true, "test");
+        try {
+            String[] values = { getNextId(), "string", "string not null2", "char2",
+                    "char not null2", "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0",
+                    "47", "67.89", "0.474" };
+            String[] values2 = { getNextId(),
+                    "This string is too large and will cause the statement to fail",
+                    "string not null2", "char2", "char not null2", "Not a date",
+                    "2007-02-03 04:05:06.000", "0", "47", "123456789.00", "0.474" };
+            String[] values3 = { getNextId(), "string", "string not null3", "char3",
+                    "char not null3", "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0",
+                    "47", "67.89", "0.474" };
+            String[] values4 = { getNextId(), "string", "string not null4", "char4",
+                    "char not null4", "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0",
+                    "47", "67.89", "0.474" };
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CsvWriter writer = getWriter(out);
+            writer.writeRecord(new String[] { CsvConstants.NODEID,
+                    TestConstants.TEST_CLIENT_EXTERNAL_ID });
+            String nextBatchId = writeBatch(writer, TestConstants.TEST_CHANNEL_ID, values);
+            String nextBatchId2 = writeBatch(writer, TestConstants.TEST_CHANNEL_ID, values2);
+            String nextBatchId3 = writeBatch(writer, TestConstants.TEST_CHANNEL_ID_OTHER, values3);
+            String nextBatchId4 = writeBatch(writer, TestConstants.TEST_CHANNEL_ID, values4);
+            writer.close();
+            load(out);
+            assertTestTableEquals(values[0], values);
+            assertTestTableEquals(values2[0], null);
+            // a batch in error only stops the batches on its own channel
+            assertTestTableEquals(values3[0], values3);
+            assertTestTableEquals(values4[0], null);
+
+            assertEquals(
+                    findIncomingBatchStatus(Integer.parseInt(nextBatchId),
+                            TestConstants.TEST_CLIENT_EXTERNAL_ID), IncomingBatch.Status.OK,
+                    "Wrong status. " + printDatabase());
+            assertEquals(
+                    findIncomingBatchStatus(Integer.parseInt(nextBatchId2),
+                            TestConstants.TEST_CLIENT_EXTERNAL_ID), IncomingBatch.Status.ER,
+                    "Wrong status. " + printDatabase());
+            assertEquals(
+                    findIncomingBatchStatus(Integer.parseInt(nextBatchId3),
+                            TestConstants.TEST_CLIENT_EXTERNAL_ID), IncomingBatch.Status.OK,
+                    "Wrong status. " + printDatabase());
+            assertNull(findIncomingBatchStatus(Integer.parseInt(nextBatchId4),
+                    TestConstants.TEST_CLIENT_EXTERNAL_ID), "Batch should not have been loaded");
+        } finally {
+            getParameterService().saveParameter(
+                    ParameterConstants.DATA_LOADER_LOAD_CHANNELS_IN_PARALLEL, false, "test");
+            setLoggingLevelForTest(old);
+        }
+    }
+
+    protected String writeBatch(CsvWriter writer, String channelId, String[] values)
+            throws IOException {
+        writer.writeRecord(new String[] { CsvConstants.CHANNEL, channelId });
+        String batchId = getNextBatchId();
+        writer.writeRecord(new String[] { CsvConstants.BATCH, batchId });
+        writeTable(writer, TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+        writer.write(CsvConstants.INSERT);
+        writer.writeRecord(values, true);
+        writer.writeRecord(new String[] { CsvConstants.COMMIT, batchId });
+        return batchId;
+    }
+
     protected CsvWriter getWriter(OutputStream out) {
         CsvWriter writer = new CsvWriter(new OutputStreamWriter(out), ',');
         writer.setEscapeMode(CsvWriter.ESCAPE_MODE_BACKSLASH);
@@ -63,8 +63,10 @@ abstract public class AbstractRouterServiceTest extends AbstractServiceTest {
     @Test
     public void testRoutingScenarios() throws Exception {
         testMultiChannelRoutingToEveryone();
+        testMultiChannelRoutingInParallel();
         testLookupTableRouting();
         testColumnMatchTransactionalOnlyRoutingToNode1();
+        testColumnMatchTransactionalOnlyRoutingInChunks();
         testSubSelectNonTransactionalRoutingToNode1();
         testSyncIncomingBatch();
         // testLargeNumberOfEventsToManyNodes();
@@ -160,6 +162,37 @@ abstract public class AbstractRouterServiceTest extends AbstractServiceTest {
                 countBatchesForChannel(batches, otherChannel));
     }
 
+    public void testMultiChannelRoutingInParallel() {
+        resetBatches();
+
+        NodeChannel testChannel = getConfigurationService().getNodeChannel(
+                TestConstants.TEST_CHANNEL_ID, false);
+
+        NodeChannel otherChannel = getConfigurationService().getNodeChannel(
+                TestConstants.TEST_CHANNEL_ID_OTHER, false);
+
+        getParameterService().saveParameter(ParameterConstants.ROUTING_THREAD_COUNT, 2, "test");
+        try {
+            insert(TEST_TABLE_1, 5, false);
+            insert(TEST_TABLE_2, 15, false);
+            insert(TEST_TABLE_1, 50, true);
+
+            getRouterService().routeData(true);
+
+            final int EXPECTED_BATCHES = getDbDialect().supportsTransactionId() ? 16 : 17;
+
+            OutgoingBatches batches = getOutgoingBatchService().getOutgoingBatches(
+                    NODE_GROUP_NODE_1.getNodeId(), false);
+            filterForChannels(batches, testChannel, otherChannel);
+            Assert.assertEquals(EXPECTED_BATCHES, batches.getBatches().size());
+            Assert.assertEquals(getDbDialect().supportsTransactionId() ? 1 : 2,
+                    countBatchesForChannel(batches, testChannel));
+            Assert.assertEquals(15, countBatchesForChannel(batches, otherChannel));
+        } finally {
+            getParameterService().saveParameter(ParameterConstants.ROUTING_THREAD_COUNT, 1, "test");
+        }
+    }
+
     public void testLookupTableRouting() {
 
         getDbDialect().truncateTable("test_lookup_table");
@@ -339,6 +372,46 @@ abstract public class AbstractRouterServiceTest extends AbstractServiceTest {
 
     }
 
+    public void testColumnMatchTransactionalOnlyRoutingInChunks() {
+        resetBatches();
+
+        TriggerRouter trigger1 = getTestRoutingTableTrigger(TEST_TABLE_1);
+        trigger1.getRouter().setRouterType("column");
+        trigger1.getRouter().setRouterExpression("ROUTING_VARCHAR=:NODE_ID");
+        getTriggerRouterService().saveTriggerRouter(trigger1);
+        getTriggerRouterService().syncTriggers();
+        NodeChannel testChannel = getConfigurationService().getNodeChannel(
+                TestConstants.TEST_CHANNEL_ID, false);
+        testChannel.setMaxBatchToSend(10000);
+        testChannel.setBatchAlgorithm("transactional");
+        getConfigurationService().saveChannel(testChannel, true);
+
+        getParameterService().saveParameter(ParameterConstants.ROUTING_DATA_CHUNK_SIZE, 100, "test");
+        try {
+            // chunks span transactions so batches are committed in the middle of a chunk
+            insert(TEST_TABLE_1, 500, true);
+            insert(TEST_TABLE_1, 50, false);
+            getRouterService().routeData(true);
+
+            final int EXPECTED_BATCHES = getDbDialect().supportsTransactionId() ? 51 : 550;
+
+            OutgoingBatches batches = getOutgoingBatchService().getOutgoingBatches(
+                    NODE_GROUP_NODE_1.getNodeId(), false);
+            filterForChannels(batches, testChannel);
+            Assert.assertEquals(EXPECTED_BATCHES, batches.getBatches().size());
+            Assert.assertEquals(EXPECTED_BATCHES, countBatchesForChannel(batches, testChannel));
+
+            batches = getOutgoingBatchService().getOutgoingBatches(NODE_GROUP_NODE_3.getNodeId(),
+                    false);
+            filterForChannels(batches, testChannel);
+            Assert.assertEquals(0, batches.getBatches().size());
+        } finally {
+            getParameterService().saveParameter(ParameterConstants.ROUTING_DATA_CHUNK_SIZE, 1, "test");
+        }
+
+        resetBatches();
+    }
+
     public void testSubSelectNonTransactionalRoutingToNode1() {
         resetBatches();
 
@@ -37,6 +37,8 @@ import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.Router;
 import org.jumpmind.symmetric.model.Trigger;
+import org.jumpmind.symmetric.model.TriggerHistory;
+import org.jumpmind.symmetric.model.TriggerReBuildReason;
 import org.jumpmind.symmetric.model.TriggerRouter;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
@@ -386,6 +388,131 @@ abstract public class AbstractTriggerRouterServiceTest extends AbstractServiceTe
         }
     }
 
+    @Test
+    public void test14SyncTriggersSkipsUnchangedTable() {
+        TriggerRouterService service = (TriggerRouterService) getTriggerRouterService();
+        Trigger trigger = createTriggerForNewTable("test_sync_unchanged");
+        service.syncTriggers();
+        TriggerHistory history = getNewestTriggerHistory(trigger);
+        Assert.assertNotNull(history);
+
+        Table table = getPlatform().getTableFromCache(null, null, trigger.getSourceTableName(),
+                true);
+        TriggerHistory unchangedHistory = service.getUnchangedTriggerHistory(
+                service.getTriggerById(trigger.getTriggerId()), table,
+                service.getActiveTriggerHistories());
+        Assert.assertNotNull("The table should have been found unchanged", unchangedHistory);
+        Assert.assertEquals(history.getTriggerHistoryId(), unchangedHistory.getTriggerHistoryId());
+
+        service.syncTriggers();
+        Assert.assertEquals(history.getTriggerHistoryId(), getNewestTriggerHistory(trigger)
+                .getTriggerHistoryId());
+    }
+
+    @Test
+    public void test15SyncTriggersRebuildsChangedTable() {
+        TriggerRouterService service = (TriggerRouterService) getTriggerRouterService();
+        Trigger trigger = createTriggerForNewTable("test_sync_changed");
+        service.syncTriggers();
+        TriggerHistory history = getNewestTriggerHistory(trigger);
+
+        getSqlTemplate().update("alter table test_sync_changed add description varchar(50)");
+        Table table = getPlatform().getTableFromCache(null, null, trigger.getSourceTableName(),
+                true);
+        Assert.assertNull("The table should have been found changed",
+                service.getUnchangedTriggerHistory(service.getTriggerById(trigger.getTriggerId()),
+                        table, service.getActiveTriggerHistories()));
+
+        service.syncTriggers();
+        TriggerHistory rebuiltHistory = getNewestTriggerHistory(trigger);
+        Assert.assertTrue(rebuiltHistory.getTriggerHistoryId() > history.getTriggerHistoryId());
+        Assert.assertEquals(TriggerReBuildReason.TABLE_SCHEMA_CHANGED,
+                rebuiltHistory.getLastTriggerBuildReason());
+        Assert.assertTrue(getDbDialect().doesTriggerExist(null, null,
+                trigger.getSourceTableName(), rebuiltHistory.getNameForInsertTrigger()));
+    }
+
+    @Test
+    public void test16SyncTriggersRecreatesDroppedTriggerOfUnchangedTable() {
+        ITriggerRouterService service = getTriggerRouterService();
+        Trigger trigger = createTriggerForNewTable("test_sync_dropped");
+        service.syncTriggers();
+        TriggerHistory history = getNewestTriggerHistory(trigger);
+
+        ISymmetricDialect dialect = getDbDialect();
+        dialect.removeTrigger(null, null, null, history.getNameForInsertTrigger(),
+                trigger.getSourceTableName());
+        Assert.assertFalse(dialect.doesTriggerExist(null, null, trigger.getSourceTableName(),
+                history.getNameForInsertTrigger()));
+
+        service.syncTriggers();
+        TriggerHistory rebuiltHistory = getNewestTriggerHistory(trigger);
+        Assert.assertTrue(rebuiltHistory.getTriggerHistoryId() > history.getTriggerHistoryId());
+        Assert.assertTrue(dialect.doesTriggerExist(null, null, trigger.getSourceTableName(),
+                rebuiltHistory.getNameForInsertTrigger()));
+    }
+
+    @Test
+    public void test17SyncTriggersOnThreadsPicksDistinctNames() {
+        ITriggerRouterService service = getTriggerRouterService();
+        Trigger trigger1 = createTriggerForNewTable("test_sync_thread_one", "sync_thread");
+        Trigger trigger2 = createTriggerForNewTable("test_sync_thread_two", "sync_thread");
+
+        getParameterService().saveParameter(
+                ParameterConstants.SYNC_TRIGGERS_THREAD_COUNT_PER_SERVER, 2, "test");
+        try {
+            service.syncTriggers();
+        } finally {
+            getParameterService().saveParameter(
+                    ParameterConstants.SYNC_TRIGGERS_THREAD_COUNT_PER_SERVER, 1, "test");
+        }
+
+        TriggerHistory history1 = getNewestTriggerHistory(trigger1);
+        TriggerHistory history2 = getNewestTriggerHistory(trigger2);
+        Assert.assertNotNull(history1);
+        Assert.assertNotNull(history2);
+        Assert.assertFalse(history1.getNameForInsertTrigger().equals(
+                history2.getNameForInsertTrigger()));
+        Assert.assertFalse(history1.getNameForUpdateTrigger().equals(
+                history2.getNameForUpdateTrigger()));
+        Assert.assertFalse(history1.getNameForDeleteTrigger().equals(
+                history2.getNameForDeleteTrigger()));
+        Assert.assertTrue(getDbDialect().doesTriggerExist(null, null,
+                trigger1.getSourceTableName(), history1.getNameForInsertTrigger()));
+        Assert.assertTrue(getDbDialect().doesTriggerExist(null, null,
+                trigger2.getSourceTableName(), history2.getNameForInsertTrigger()));
+    }
+
+    protected Trigger createTriggerForNewTable(String tableName) {
+        return createTriggerForNewTable(tableName, null);
+    }
+
+    /**
+     * @param triggerNamePrefix
+     *            if not null, the triggers are given this name with an _ins,
+     *            _upd or _del suffix
+     */
+    protected Trigger createTriggerForNewTable(String tableName, String triggerNamePrefix) {
+        getSqlTemplate().update(
+                String.format("create table %s (id integer not null, name varchar(50), primary key(id))",
+                        tableName));
+        Trigger trigger = new Trigger(tableName, TestConstants.TEST_CHANNEL_ID);
+        if (triggerNamePrefix != null) {
+            trigger.setNameForInsertTrigger(triggerNamePrefix + "_ins");
+            trigger.setNameForUpdateTrigger(triggerNamePrefix + "_upd");
+            trigger.setNameForDeleteTrigger(triggerNamePrefix + "_del");
+        }
+        ITriggerRouterService service = getTriggerRouterService();
+        service.saveTriggerRouter(new TriggerRouter(trigger, service
+                .getRouterById(TestConstants.ROUTER_ID_ROOT_2_TEST)));
+        return trigger;
+    }
+
+    protected TriggerHistory getNewestTriggerHistory(Trigger trigger) {
+        return getTriggerRouterService().getNewestTriggerHistoryForTrigger(trigger.getTriggerId(),
+                null, null, trigger.getSourceTableName());
+    }
+
     protected static int[] filterTypes(int[] types, ISymmetricDialect dbDialect) {
         boolean isBooleanSupported = isBooleanSupported(dbDialect);
         int[] filteredTypes = new int[types.length];
@@ -0,0 +1,123 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.sql.ISqlReadCursor;
+import org.junit.Test;
+
+public class DataExtractorServiceTest {
+
+    @Test
+    public void testChunkColumnIsSingleNumericPrimaryKey() {
+        Column id = new Column("id", true, Types.INTEGER, 0, 0);
+        Table table = new Table("test", id, new Column("name", false, Types.VARCHAR, 50, 0));
+        assertEquals(id, DataExtractorService.getChunkColumn(table));
+    }
+
+    @Test
+    public void testNoChunkColumnForNonNumericPrimaryKey() {
+        Table table = new Table("test", new Column("code", true, Types.VARCHAR, 50, 0));
+        assertNull(DataExtractorService.getChunkColumn(table));
+    }
+
+    @Test
+    public void testNoChunkColumnForCompositePrimaryKey() {
+        Table table = new Table("test", new Column("id", true, Types.INTEGER, 0, 0),
+                new Column("line", true, Types.INTEGER, 0, 0));
+        assertNull(DataExtractorService.getChunkColumn(table));
+    }
+
+    @Test
+    public void testNoChunkColumnWithoutPrimaryKey() {
+        assertNull(DataExtractorService.getChunkColumn(new Table("test", new Column("id",
+                false, Types.INTEGER, 0, 0))));
+        assertNull(DataExtractorService.getChunkColumn(null));
+    }
+
+    @Test
+    public void testChunkBoundariesFollowTheRows() {
+        assertEquals(Arrays.asList("26", "51", "76"), DataExtractorService.getChunkBoundaries(
+                keys(range(1, 100)), 25, 4));
+        assertEquals(Arrays.asList("0.50"), DataExtractorService.getChunkBoundaries(
+                keys(Arrays.asList("0.00", "0.25", "0.50", "0.75")), 2, 2));
+    }
+
+    @Test
+    public void testChunkBoundariesOfSkewedKeys() {
+        /* 90 rows at the low end of the range and 10 spread out to a million */
+        List<String> keys = range(1, 90);
+        for (int i = 1; i <= 10; i++) {
+            keys.add(Integer.toString(i * 100000));
+        }
+        assertEquals(Arrays.asList("26", "51", "76"), DataExtractorService.getChunkBoundaries(
+                keys(keys), 25, 4));
+    }
+
+    @Test
+    public void testFewerRowsGetFewerChunks() {
+        assertEquals(Arrays.asList("11"), DataExtractorService.getChunkBoundaries(
+                keys(range(1, 15)), 10, 4));
+        assertEquals(Collections.emptyList(), DataExtractorService.getChunkBoundaries(
+                keys(range(1, 10)), 10, 4));
+        assertEquals(Collections.emptyList(), DataExtractorService.getChunkBoundaries(
+                keys(new ArrayList<String>()), 10, 4));
+    }
+
+    @Test
+    public void testChunkBoundariesStopReadingAfterTheLastChunkStarts() {
+        ISqlReadCursor<String> keys = keys(range(1, 100));
+        assertEquals(Arrays.asList("11"), DataExtractorService.getChunkBoundaries(keys, 10, 2));
+        assertEquals("12", keys.next());
+    }
+
+    protected List<String> range(int first, int last) {
+        List<String> keys = new ArrayList<String>();
+        for (int i = first; i <= last; i++) {
+            keys.add(Integer.toString(i));
+        }
+        return keys;
+    }
+
+    protected ISqlReadCursor<String> keys(final List<String> keys) {
+        final Iterator<String> iterator = keys.iterator();
+        return new ISqlReadCursor<String>() {
+            public String next() {
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+
+            public void close() {
+            }
+        };
+    }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.model.IncomingBatch;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfoKey;
+import org.jumpmind.symmetric.model.ProcessInfoKey.ProcessType;
+import org.jumpmind.symmetric.service.IIncomingBatchService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSyncServiceTest {
+
+    private static final String OK_SCRIPT = "new java.util.HashMap();";
+
+    private static final String FAIL_SCRIPT = "throw new java.io.IOException(\"failed\");";
+
+    private File tempDir;
+
+    private File unzipDir;
+
+    private IIncomingBatchService incomingBatchService;
+
+    private List<String> loadedBatches = new ArrayList<String>();
+
+    private FileSyncService service;
+
+    @Before
+    public void setup() throws Exception {
+        tempDir = new File("target/filesyncservicetest");
+        FileUtils.deleteDirectory(tempDir);
+        tempDir.mkdirs();
+        unzipDir = new File(tempDir, "filesync_incoming/00001/00000");
+
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.getTablePrefix()).thenReturn("sym");
+        when(parameterService.getTempDirectory()).thenReturn(tempDir.getAbsolutePath());
+
+        incomingBatchService = mock(IIncomingBatchService.class);
+        when(incomingBatchService.acquireIncomingBatch(any(IncomingBatch.class))).thenReturn(true);
+
+        ISymmetricEngine engine = mock(ISymmetricEngine.class, RETURNS_DEEP_STUBS);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getIncomingBatchService()).thenReturn(incomingBatchService);
+        when(engine.getNodeService().findIdentityNodeId()).thenReturn("00001");
+        when(engine.getClusterService().lock(anyString(), anyString(), anyLong())).thenReturn(true);
+
+        service = new FileSyncService(engine) {
+            @Override
+            protected boolean processBatchDir(File batchDir, long byteCount,
+                    String sourceNodeId, ProcessInfo processInfo,
+                    List<IncomingBatch> batchesProcessed) throws IOException {
+                String batchId = batchDir.getName();
+                assertTrue("batch " + batchId + " was not unzipped before it was loaded",
+                        new File(batchDir, "sync.bsh").exists());
+                for (String loaded : loadedBatches) {
+                    assertFalse("batch " + loaded + " was not deleted after it was loaded",
+                            new File(unzipDir, loaded).exists());
+                }
+                loadedBatches.add(batchId);
+                boolean ok = super.processBatchDir(batchDir, byteCount, sourceNodeId,
+                        processInfo, batchesProcessed);
+                String[] unzipped = unzipDir.list();
+                assertEquals("the next batch was read before batch " + batchId + " was loaded",
+                        ok ? 0 : 1, unzipped != null ? unzipped.length : 0);
+                return ok;
+            }
+        };
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testBatchesAreLoadedAsTheyStreamIn() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(bytes);
+        addBatch(zip, "1", OK_SCRIPT, 10);
+        addBatch(zip, "2", OK_SCRIPT, 10000);
+        zip.close();
+
+        List<IncomingBatch> batches = service.processZip(
+                new ByteArrayInputStream(bytes.toByteArray()), "00000", newProcessInfo());
+
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(0).getBatchId());
+        assertEquals(IncomingBatch.Status.OK, batches.get(0).getStatus());
+        assertEquals(2, batches.get(1).getBatchId());
+        assertEquals(IncomingBatch.Status.OK, batches.get(1).getStatus());
+        assertEquals(2, loadedBatches.size());
+        assertFalse(new File(unzipDir, "1").exists());
+        assertFalse(new File(unzipDir, "2").exists());
+    }
+
+    @Test
+    public void testBatchesAfterAFailureAreDrainedButNotLoaded() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(bytes);
+        addBatch(zip, "1", OK_SCRIPT, 10);
+        addBatch(zip, "2", FAIL_SCRIPT, 10);
+        addBatch(zip, "3", OK_SCRIPT, 10000);
+        zip.flush();
+        int endOfBatches = bytes.size();
+        zip.close();
+
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(
+                bytes.toByteArray()));
+        List<IncomingBatch> batches = service.processZip(in, "00000", newProcessInfo());
+
+        assertEquals(2, batches.size());
+        assertEquals(IncomingBatch.Status.OK, batches.get(0).getStatus());
+        assertEquals(2, batches.get(1).getBatchId());
+        assertEquals(IncomingBatch.Status.ER, batches.get(1).getStatus());
+        assertEquals(2, loadedBatches.size());
+        assertFalse(new File(unzipDir, "3").exists());
+        assertTrue("the batches after the failed one were not read",
+                in.getByteCount() >= endOfBatches);
+        verify(incomingBatchService, times(2)).acquireIncomingBatch(any(IncomingBatch.class));
+    }
+
+    protected ProcessInfo newProcessInfo() {
+        return new ProcessInfo(new ProcessInfoKey("00000", "00001", ProcessType.FILE_SYNC_PULL_HANDLER));
+    }
+
+    protected void addBatch(ZipOutputStream zip, String batchId, String script, int fileSize)
+            throws IOException {
+        zip.putNextEntry(new ZipEntry(batchId + "/"));
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry(batchId + "/sync.bsh"));
+        zip.write(script.getBytes("UTF-8"));
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry(batchId + "/batch-info.txt"));
+        zip.write("filesync".getBytes("UTF-8"));
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry(batchId + "/files/data.txt"));
+        zip.write(new byte[fileSize]);
+        zip.closeEntry();
+    }
+
+}
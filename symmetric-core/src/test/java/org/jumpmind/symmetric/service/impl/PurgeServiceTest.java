@@ -0,0 +1,72 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jumpmind.symmetric.service.impl.PurgeService.ChunkSize;
+import org.junit.Test;
+
+public class PurgeServiceTest {
+
+    @Test
+    public void testChunkSizeIsFixedWithoutTargetTime() {
+        ChunkSize chunkSize = new ChunkSize(5000, 0);
+        chunkSize.record(5000, 100, 10);
+        assertEquals(5000, chunkSize.get());
+        chunkSize.record(5000, 100, 100000);
+        assertEquals(5000, chunkSize.get());
+    }
+
+    @Test
+    public void testChunkSizeFollowsStatementTime() {
+        ChunkSize chunkSize = new ChunkSize(5000, 1000);
+        chunkSize.record(5000, 100, 800);
+        assertEquals(6250, chunkSize.get());
+        chunkSize.record(6250, 100, 1250);
+        assertEquals(5000, chunkSize.get());
+    }
+
+    @Test
+    public void testChunkSizeChangesByAtMostTwice() {
+        ChunkSize chunkSize = new ChunkSize(5000, 1000);
+        chunkSize.record(5000, 100, 1);
+        assertEquals(10000, chunkSize.get());
+        chunkSize.record(10000, 100, 100000);
+        assertEquals(5000, chunkSize.get());
+        chunkSize.record(5000, 0, 10);
+        assertEquals(10000, chunkSize.get());
+    }
+
+    @Test
+    public void testChunkSizeStaysWithinBounds() {
+        ChunkSize chunkSize = new ChunkSize(1000, 1000);
+        for (int i = 0; i < 20; i++) {
+            chunkSize.record(chunkSize.get(), 0, 0);
+        }
+        assertEquals(4000, chunkSize.get());
+        for (int i = 0; i < 20; i++) {
+            chunkSize.record(chunkSize.get(), 100, 100000);
+        }
+        assertEquals(10, chunkSize.get());
+    }
+
+}
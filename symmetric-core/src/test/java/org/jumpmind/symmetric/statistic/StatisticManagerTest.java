@@ -0,0 +1,96 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.NodeChannel;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.IStatisticService;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class StatisticManagerTest {
+
+    @Test
+    public void testRemovedChannelIsNoLongerSaved() {
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.is(ParameterConstants.STATISTIC_RECORD_ENABLE, false)).thenReturn(
+                true);
+        INodeService nodeService = mock(INodeService.class);
+        when(nodeService.getCachedIdentity()).thenReturn(new Node("00000", "corp"));
+        IConfigurationService configurationService = mock(IConfigurationService.class);
+        when(configurationService.getNodeChannels(false)).thenReturn(
+                Arrays.asList(new NodeChannel("default"), new NodeChannel("removed")),
+                Arrays.asList(new NodeChannel("default")));
+        IStatisticService statisticService = mock(IStatisticService.class);
+        StatisticManager statisticManager = new StatisticManager(parameterService, nodeService,
+                configurationService, statisticService, mock(IClusterService.class));
+
+        statisticManager.incrementDataRouted("default", 1);
+        statisticManager.incrementDataRouted("removed", 1);
+        statisticManager.flush();
+        assertEquals(channelIds("default", "removed"), getSavedChannelIds(statisticService, 0, 2));
+
+        /* the channel was removed, but a batch that was already routed is still sent */
+        statisticManager.incrementDataSent("removed", 1);
+        statisticManager.flush();
+        assertEquals(channelIds("default", "removed"), getSavedChannelIds(statisticService, 2, 4));
+
+        statisticManager.flush();
+        assertEquals(channelIds("default"), getSavedChannelIds(statisticService, 4, 5));
+        assertNull(statisticManager.getWorkingChannelStats().get("removed"));
+    }
+
+    protected Set<String> channelIds(String... channelIds) {
+        return new TreeSet<String>(Arrays.asList(channelIds));
+    }
+
+    /**
+     * @return the channels of the stats that were saved from the first to the
+     *         last save
+     */
+    protected Set<String> getSavedChannelIds(IStatisticService statisticService, int first,
+            int last) {
+        ArgumentCaptor<ChannelStats> captor = ArgumentCaptor.forClass(ChannelStats.class);
+        verify(statisticService, times(last)).save(captor.capture());
+        Set<String> channelIds = new TreeSet<String>();
+        for (ChannelStats stats : captor.getAllValues().subList(first, last)) {
+            channelIds.add(stats.getChannelId());
+        }
+        return channelIds;
+    }
+
+}
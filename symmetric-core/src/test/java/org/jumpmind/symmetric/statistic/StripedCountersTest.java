@@ -0,0 +1,74 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StripedCountersTest {
+
+    @Test
+    public void testAddAndReset() {
+        StripedCounters counters = new StripedCounters(3, 4);
+        assertTrue(counters.isZero());
+        counters.add(0, 5);
+        counters.add(2, 7);
+        counters.add(2, 3);
+        assertFalse(counters.isZero());
+        assertEquals(5, counters.get(0));
+        assertEquals(0, counters.get(1));
+        assertEquals(10, counters.getAndReset(2));
+        assertEquals(0, counters.get(2));
+        counters.set(0, 1);
+        assertEquals(1, counters.get(0));
+    }
+
+    @Test
+    public void testConcurrentAddsAreNotLost() throws Exception {
+        final StripedCounters counters = new StripedCounters(1, 4);
+        final int addsPerThread = 10000;
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < addsPerThread; j++) {
+                        counters.add(0, 1);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        long total = 0;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                total += counters.getAndReset(0);
+            }
+            thread.join();
+        }
+        total += counters.getAndReset(0);
+        assertEquals(threads.length * addsPerThread, total);
+    }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class CompressionCodecsTest {
+
+    @Test
+    public void testNegotiate() {
+        assertEquals(GzipCompressionCodec.NAME, CompressionCodecs.negotiate("gzip", null).getName());
+        assertEquals(SnappyCompressionCodec.NAME,
+                CompressionCodecs.negotiate("x-snappy-framed, gzip", null).getName());
+        assertEquals(GzipCompressionCodec.NAME,
+                CompressionCodecs.negotiate("x-snappy-framed, gzip", "gzip").getName());
+        assertEquals(GzipCompressionCodec.NAME,
+                CompressionCodecs.negotiate("br;q=1.0, gzip;q=0.8", null).getName());
+        assertNull(CompressionCodecs.negotiate("deflate", null));
+        assertNull(CompressionCodecs.negotiate(null, null));
+        assertNull(CompressionCodecs.negotiate("x-snappy-framed", "gzip"));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            builder.append("insert,\"").append(i).append("\",\"name ").append(i).append("\"\n");
+        }
+        byte[] data = builder.toString().getBytes("UTF-8");
+        for (String name : new String[] { GzipCompressionCodec.NAME, SnappyCompressionCodec.NAME }) {
+            ICompressionCodec codec = CompressionCodecs.get(name);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            OutputStream out = codec.compress(bytes, Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY);
+            out.write(data);
+            out.close();
+            byte[] read = IOUtils.toByteArray(codec.decompress(new ByteArrayInputStream(bytes
+                    .toByteArray())));
+            assertArrayEquals(name, data, read);
+        }
+    }
+
+}
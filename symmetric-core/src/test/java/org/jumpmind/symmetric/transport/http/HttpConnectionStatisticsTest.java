@@ -0,0 +1,79 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.net.URL;
+import java.util.Map;
+
+import org.jumpmind.symmetric.transport.http.HttpConnectionStatistics.HostConnectionStatistics;
+import org.junit.Test;
+
+public class HttpConnectionStatisticsTest {
+
+    @Test
+    public void testCountsByHost() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        statistics.requested(new URL("http://server:31415/sync/corp-000/push"));
+        statistics.released(new URL("http://server:31415/sync/corp-000/push"));
+        statistics.requested(new URL("http://server:31415/sync/corp-000/ack"));
+        statistics.disconnected(new URL("http://server:31415/sync/corp-000/ack"));
+        statistics.requested(new URL("https://other/sync/corp-000/push"));
+
+        Map<String, HostConnectionStatistics> byHost = statistics.getStatisticsByHost();
+        assertEquals(2, byHost.size());
+
+        HostConnectionStatistics server = byHost.get("http://server:31415");
+        assertNotNull(server);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, server.getReleasedCount());
+        assertEquals(1, server.getDisconnectedCount());
+
+        HostConnectionStatistics other = byHost.get("https://other:443");
+        assertNotNull(other);
+        assertEquals(1, other.getRequestCount());
+        assertEquals(0, other.getReleasedCount());
+        assertEquals(0, other.getDisconnectedCount());
+    }
+
+    @Test
+    public void testDefaultPortIsSameHost() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        statistics.requested(new URL("http://server/sync"));
+        statistics.requested(new URL("http://server:80/sync"));
+        Map<String, HostConnectionStatistics> byHost = statistics.getStatisticsByHost();
+        assertEquals(1, byHost.size());
+        assertEquals(2, byHost.get("http://server:80").getRequestCount());
+    }
+
+    @Test
+    public void testStatisticsByHostIsACopy() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        Map<String, HostConnectionStatistics> byHost = statistics.getStatisticsByHost();
+        statistics.requested(new URL("http://server/sync"));
+        assertNull(byHost.get("http://server:80"));
+        assertEquals(1, statistics.getStatisticsByHost().size());
+    }
+
+}
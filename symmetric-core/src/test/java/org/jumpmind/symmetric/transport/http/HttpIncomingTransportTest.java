@@ -0,0 +1,114 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.transport.http.HttpConnectionStatistics.HostConnectionStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpIncomingTransportTest {
+
+    private HttpServer server;
+
+    private URL url;
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/sync", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] response = "ok".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/sync/pull");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testReleaseWithKeepAlive() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        pull(true, statistics);
+
+        HostConnectionStatistics stats = statistics.getStatisticsByHost().get(
+                HttpConnectionStatistics.getHost(url));
+        assertEquals(1, stats.getRequestCount());
+        assertEquals(1, stats.getReleasedCount());
+        assertEquals(0, stats.getDisconnectedCount());
+    }
+
+    @Test
+    public void testDisconnectWithoutKeepAlive() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        pull(false, statistics);
+
+        HostConnectionStatistics stats = statistics.getStatisticsByHost().get(
+                HttpConnectionStatistics.getHost(url));
+        assertEquals(1, stats.getRequestCount());
+        assertEquals(0, stats.getReleasedCount());
+        assertEquals(1, stats.getDisconnectedCount());
+    }
+
+    protected void pull(boolean keepAlive, HttpConnectionStatistics statistics)
+            throws Exception {
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.getInt(ParameterConstants.TRANSPORT_HTTP_TIMEOUT)).thenReturn(10000);
+        when(parameterService.is(ParameterConstants.TRANSPORT_HTTP_KEEP_ALIVE_ENABLED, true))
+                .thenReturn(keepAlive);
+        HttpIncomingTransport transport = new HttpIncomingTransport(
+                (HttpURLConnection) url.openConnection(), parameterService, statistics);
+        try {
+            BufferedReader reader = transport.openReader();
+            assertEquals("ok", reader.readLine());
+        } finally {
+            transport.close();
+        }
+        /* closing again does not count the connection twice */
+        transport.close();
+    }
+
+}
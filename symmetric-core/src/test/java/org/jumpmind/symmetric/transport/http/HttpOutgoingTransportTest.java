@@ -0,0 +1,194 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.symmetric.model.ChannelMap;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.transport.http.HttpConnectionStatistics.HostConnectionStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpOutgoingTransportTest {
+
+    private HttpServer server;
+
+    private URL url;
+
+    private List<Integer> clientPorts = new ArrayList<Integer>();
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/sync", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                synchronized (clientPorts) {
+                    clientPorts.add(exchange.getRemoteAddress().getPort());
+                }
+                if (exchange.getRequestMethod().equals("HEAD")) {
+                    exchange.sendResponseHeaders(200, -1);
+                    exchange.close();
+                    return;
+                }
+                InputStream in = exchange.getRequestBody();
+                IOUtils.toByteArray(in);
+                in.close();
+                byte[] response = "ok".getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Keep-Alive", "timeout=60");
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/sync/push");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testKeepAliveReusesConnection() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        push(true, statistics);
+        push(true, statistics);
+
+        assertEquals(2, clientPorts.size());
+        assertEquals(clientPorts.get(0), clientPorts.get(1));
+
+        HostConnectionStatistics stats = statistics.getStatisticsByHost().get(
+                HttpConnectionStatistics.getHost(url));
+        assertEquals(2, stats.getRequestCount());
+        assertEquals(2, stats.getReleasedCount());
+        assertEquals(0, stats.getDisconnectedCount());
+    }
+
+    @Test
+    public void testDisconnectWithoutKeepAlive() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        push(false, statistics);
+        push(false, statistics);
+
+        HostConnectionStatistics stats = statistics.getStatisticsByHost().get(
+                HttpConnectionStatistics.getHost(url));
+        assertEquals(2, stats.getRequestCount());
+        assertEquals(0, stats.getReleasedCount());
+        assertEquals(2, stats.getDisconnectedCount());
+    }
+
+    @Test
+    public void testDisconnectWhenResponseNotRead() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        HttpOutgoingTransport transport = newTransport(true, statistics);
+        transport.openStream();
+        transport.close();
+
+        HostConnectionStatistics stats = statistics.getStatisticsByHost().get(
+                HttpConnectionStatistics.getHost(url));
+        assertEquals(1, stats.getRequestCount());
+        assertEquals(0, stats.getReleasedCount());
+        assertEquals(1, stats.getDisconnectedCount());
+    }
+
+    @Test
+    public void testReservationConnectionIsReleased() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        reserveAndPush(true, statistics);
+
+        HostConnectionStatistics stats = statistics.getStatisticsByHost().get(
+                HttpConnectionStatistics.getHost(url));
+        assertEquals(2, stats.getRequestCount());
+        assertEquals(2, stats.getReleasedCount());
+        assertEquals(0, stats.getDisconnectedCount());
+    }
+
+    @Test
+    public void testReservationConnectionIsDisconnectedWithoutKeepAlive() throws Exception {
+        HttpConnectionStatistics statistics = new HttpConnectionStatistics();
+        reserveAndPush(false, statistics);
+
+        HostConnectionStatistics stats = statistics.getStatisticsByHost().get(
+                HttpConnectionStatistics.getHost(url));
+        assertEquals(2, stats.getRequestCount());
+        assertEquals(0, stats.getReleasedCount());
+        assertEquals(2, stats.getDisconnectedCount());
+    }
+
+    protected void reserveAndPush(boolean keepAlive, HttpConnectionStatistics statistics)
+            throws Exception {
+        Node node = new Node("00001", "client");
+        IConfigurationService configurationService = mock(IConfigurationService.class);
+        when(configurationService.getSuspendIgnoreChannelLists(node.getNodeId())).thenReturn(
+                new ChannelMap());
+        HttpOutgoingTransport transport = newTransport(keepAlive, statistics);
+        try {
+            transport.getSuspendIgnoreChannelLists(configurationService, node);
+            OutputStream out = transport.openStream();
+            out.write("batch".getBytes("UTF-8"));
+            BufferedReader reader = transport.readResponse();
+            assertEquals("ok", reader.readLine());
+        } finally {
+            transport.close();
+        }
+    }
+
+    protected void push(boolean keepAlive, HttpConnectionStatistics statistics)
+            throws Exception {
+        HttpOutgoingTransport transport = newTransport(keepAlive, statistics);
+        try {
+            OutputStream out = transport.openStream();
+            out.write("batch".getBytes("UTF-8"));
+            BufferedReader reader = transport.readResponse();
+            assertEquals("ok", reader.readLine());
+        } finally {
+            transport.close();
+        }
+    }
+
+    protected HttpOutgoingTransport newTransport(boolean keepAlive,
+            HttpConnectionStatistics statistics) {
+        return new HttpOutgoingTransport(url, 10000, false, 0, 0, null, null, false, 0, false,
+                keepAlive, statistics, "gzip");
+    }
+
+}
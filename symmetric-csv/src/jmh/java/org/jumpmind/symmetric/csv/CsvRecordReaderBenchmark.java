@@ -0,0 +1,100 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.csv;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link CsvReader} with {@link CsvRecordReader} while tokenizing a
+ * batch that looks like what the protocol data writer produces. Run with
+ * <code>gradle :symmetric-csv:jmh</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CsvRecordReaderBenchmark {
+
+    private static final String[] KEYWORDS = { "insert", "update", "delete", "old", "batch",
+            "commit", "table", "keys", "columns" };
+
+    private String csv;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("nodeid,00000\nbinary,BASE64\nchannel,default\nbatch,1\n");
+        builder.append("table,test_table\nkeys,id\ncolumns,id,name,description,amount,created\n");
+        for (int i = 0; i < 10000; i++) {
+            builder.append("insert,\"").append(i).append("\",\"name ").append(i)
+                    .append("\",\"a \\\"quoted\\\" description\\nwith a newline\",\"")
+                    .append(i * 3.14).append("\",\"2016-01-01 12:00:00.000\"\n");
+            if (i % 10 == 0) {
+                builder.append("old,\"").append(i).append("\",,,,\n");
+                builder.append("update,\"").append(i).append("\",\"changed\",,\"1.00\",,\"")
+                        .append(i).append("\"\n");
+            }
+        }
+        builder.append("commit,1\n");
+        csv = builder.toString();
+    }
+
+    @Benchmark
+    public void csvReader(Blackhole blackhole) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        reader.setEscapeMode(CsvReader.ESCAPE_MODE_BACKSLASH);
+        reader.setSafetySwitch(false);
+        reader.setCaptureRawRecord(false);
+        while (reader.readRecord()) {
+            String[] values = reader.getValues();
+            blackhole.consume(values[0].equals("insert"));
+            blackhole.consume(values);
+        }
+        reader.close();
+    }
+
+    @Benchmark
+    public void csvRecordReader(Blackhole blackhole) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(csv), KEYWORDS);
+        while (reader.readRecord()) {
+            blackhole.consume(reader.getKeyword());
+            blackhole.consume(reader.getValues(1, reader.getColumnCount()));
+        }
+        reader.close();
+    }
+
+}
@@ -0,0 +1,470 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A fast reader for comma delimited records that are written by
+ * {@link CsvWriter} with backslash escaping, which is the format of the
+ * SymmetricDS protocol. Values are parsed straight out of a reusable character
+ * buffer into a reusable values array, and the length of the values is counted
+ * while scanning.
+ * <p>
+ * The first value of a record can be matched against a list of keywords. A
+ * matched keyword is returned as the keyword instance instead of a new string
+ * and its index is available from {@link #getKeyword()} so the caller can
+ * switch on it.
+ * <p>
+ * Values are parsed the same way as a {@link CsvReader} that uses backslash
+ * escaping with whitespace trimming: an unquoted empty value is null, unquoted
+ * values are trimmed, and quoted values may contain escapes, delimiters and
+ * line breaks. Blank lines are skipped.
+ */
+public class CsvRecordReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private Reader reader;
+
+    private char[] buffer = new char[BUFFER_SIZE];
+
+    private int position;
+
+    private int count;
+
+    private boolean endOfData;
+
+    /* holds a value that has escapes or spans more than one buffer */
+    private char[] columnBuffer = new char[128];
+
+    private int columnLength;
+
+    private String[] values = new String[16];
+
+    private int columnCount;
+
+    private long recordLength;
+
+    private long recordCount;
+
+    private String[] keywords;
+
+    private int keyword = -1;
+
+    public CsvRecordReader(Reader reader, String... keywords) {
+        this.reader = reader;
+        this.keywords = keywords;
+    }
+
+    /**
+     * @return true if a record was read or false if the end of the data was
+     *         reached
+     */
+    public boolean readRecord() throws IOException {
+        columnCount = 0;
+        recordLength = 0;
+        keyword = -1;
+
+        while (true) {
+            if (position == count && !fill()) {
+                return false;
+            }
+            char c = buffer[position];
+            if (c == Letters.CR || c == Letters.LF) {
+                position++;
+            } else {
+                break;
+            }
+        }
+
+        while (!readColumn()) {
+        }
+        recordCount++;
+        return true;
+    }
+
+    /**
+     * @return true if the column ended the record
+     */
+    protected boolean readColumn() throws IOException {
+        columnLength = 0;
+        while (true) {
+            if (position == count && !fill()) {
+                addValue(null);
+                return true;
+            }
+            char c = buffer[position];
+            switch (c) {
+                case Letters.SPACE:
+                case Letters.TAB:
+                    position++;
+                    break;
+                case Letters.QUOTE:
+                    position++;
+                    return readQualifiedColumn();
+                case Letters.COMMA:
+                    position++;
+                    addValue(null);
+                    return false;
+                case Letters.CR:
+                case Letters.LF:
+                    position++;
+                    addValue(null);
+                    return true;
+                default:
+                    return readUnqualifiedColumn(position);
+            }
+        }
+    }
+
+    protected boolean readUnqualifiedColumn(int start) throws IOException {
+        while (true) {
+            if (position == count) {
+                appendRun(start, position);
+                if (!fill()) {
+                    addValue(endValue(0, 0, false));
+                    return true;
+                }
+                start = position;
+            }
+            char c = buffer[position];
+            if (c == Letters.COMMA || c == Letters.CR || c == Letters.LF) {
+                addValue(endValue(start, position, false));
+                position++;
+                return c != Letters.COMMA;
+            }
+            position++;
+        }
+    }
+
+    protected boolean readQualifiedColumn() throws IOException {
+        int start = position;
+        while (true) {
+            if (position == count) {
+                appendRun(start, position);
+                if (!fill()) {
+                    addValue(endValue(0, 0, true));
+                    return true;
+                }
+                start = position;
+            }
+            char c = buffer[position];
+            if (c == Letters.QUOTE) {
+                String value = endValue(start, position, true);
+                position++;
+                addValue(value);
+                return skipToEndOfColumn();
+            } else if (c == Letters.BACKSLASH) {
+                appendRun(start, position);
+                position++;
+                int escaped = nextChar();
+                if (escaped < 0) {
+                    addValue(endValue(0, 0, true));
+                    return true;
+                }
+                readEscape((char) escaped);
+                start = position;
+            } else {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Ignore anything between the closing quote and the end of the column
+     */
+    protected boolean skipToEndOfColumn() throws IOException {
+        while (true) {
+            if (position == count && !fill()) {
+                return true;
+            }
+            char c = buffer[position++];
+            if (c == Letters.COMMA) {
+                return false;
+            } else if (c == Letters.CR || c == Letters.LF) {
+                return true;
+            }
+        }
+    }
+
+    protected void readEscape(char c) throws IOException {
+        switch (c) {
+            case 'n':
+                appendChar(Letters.LF);
+                break;
+            case 'r':
+                appendChar(Letters.CR);
+                break;
+            case 't':
+                appendChar(Letters.TAB);
+                break;
+            case 'b':
+                appendChar(Letters.BACKSPACE);
+                break;
+            case 'f':
+                appendChar(Letters.FORM_FEED);
+                break;
+            case 'e':
+                appendChar(Letters.ESCAPE);
+                break;
+            case 'v':
+                appendChar(Letters.VERTICAL_TAB);
+                break;
+            case 'a':
+                appendChar(Letters.ALERT);
+                break;
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+                appendChar(readNumber(8, 2, c - '0'));
+                break;
+            case 'u':
+            case 'U':
+                appendChar(readNumber(16, 4, 0));
+                break;
+            case 'x':
+            case 'X':
+                appendChar(readNumber(16, 2, 0));
+                break;
+            case 'o':
+            case 'O':
+                appendChar(readNumber(8, 3, 0));
+                break;
+            case 'd':
+            case 'D':
+                appendChar(readNumber(10, 3, 0));
+                break;
+            default:
+                appendChar(c);
+                break;
+        }
+    }
+
+    protected char readNumber(int radix, int digits, int value) throws IOException {
+        for (int i = 0; i < digits; i++) {
+            int c = nextChar();
+            if (c < 0) {
+                break;
+            } else if (c >= 'a') {
+                c = c - 'a' + 10;
+            } else if (c >= 'A') {
+                c = c - 'A' + 10;
+            } else {
+                c = c - '0';
+            }
+            value = value * radix + c;
+        }
+        return (char) value;
+    }
+
+    protected int nextChar() throws IOException {
+        if (position == count && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    protected boolean fill() throws IOException {
+        if (!endOfData) {
+            int read = 0;
+            while (read == 0) {
+                read = reader.read(buffer, 0, buffer.length);
+            }
+            if (read > 0) {
+                position = 0;
+                count = read;
+                return true;
+            }
+            endOfData = true;
+        }
+        position = 0;
+        count = 0;
+        return false;
+    }
+
+    protected void appendRun(int start, int end) {
+        int length = end - start;
+        if (length > 0) {
+            ensureColumnCapacity(length);
+            System.arraycopy(buffer, start, columnBuffer, columnLength, length);
+            columnLength += length;
+        }
+    }
+
+    protected void appendChar(char c) {
+        ensureColumnCapacity(1);
+        columnBuffer[columnLength++] = c;
+    }
+
+    protected void ensureColumnCapacity(int length) {
+        if (columnLength + length > columnBuffer.length) {
+            columnBuffer = Arrays.copyOf(columnBuffer,
+                    Math.max(columnLength + length, columnBuffer.length * 2));
+        }
+    }
+
+    /**
+     * Build the value of the current column from the column buffer if
+     * anything has been added to it, otherwise straight from the read buffer.
+     */
+    protected String endValue(int start, int end, boolean qualified) {
+        char[] chars = buffer;
+        int offset = start;
+        int length = end - start;
+        if (columnLength > 0) {
+            appendRun(start, end);
+            chars = columnBuffer;
+            offset = 0;
+            length = columnLength;
+        }
+        columnLength = 0;
+
+        if (!qualified) {
+            while (length > 0
+                    && (chars[offset + length - 1] == Letters.SPACE || chars[offset + length - 1] == Letters.TAB)) {
+                length--;
+            }
+            if (length == 0) {
+                return null;
+            }
+        }
+
+        if (columnCount == 0 && keywords != null) {
+            for (int i = 0; i < keywords.length; i++) {
+                if (matches(keywords[i], chars, offset, length)) {
+                    keyword = i;
+                    return keywords[i];
+                }
+            }
+        }
+        return new String(chars, offset, length);
+    }
+
+    protected boolean matches(String keyword, char[] chars, int offset, int length) {
+        if (keyword.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyword.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void addValue(String value) {
+        if (columnCount == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[columnCount++] = value;
+        if (value != null) {
+            recordLength += value.length();
+        }
+    }
+
+    /**
+     * @return the index of the keyword the current record starts with or -1
+     *         if it did not start with a keyword
+     */
+    public int getKeyword() {
+        return keyword;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public String get(int index) {
+        return index < columnCount ? values[index] : null;
+    }
+
+    /**
+     * @return a copy of the values of the current record
+     */
+    public String[] getValues() {
+        return getValues(0, columnCount);
+    }
+
+    /**
+     * @return a copy of a range of the values of the current record
+     */
+    public String[] getValues(int from, int to) {
+        String[] copy = new String[to - from];
+        System.arraycopy(values, from, copy, 0, copy.length);
+        return copy;
+    }
+
+    /**
+     * @return the number of characters in the values of the current record
+     */
+    public long getRecordLength() {
+        return recordLength;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+        }
+        values = null;
+        columnBuffer = null;
+        buffer = null;
+    }
+
+    private static class Letters {
+        public static final char LF = '\n';
+
+        public static final char CR = '\r';
+
+        public static final char QUOTE = '"';
+
+        public static final char COMMA = ',';
+
+        public static final char SPACE = ' ';
+
+        public static final char TAB = '\t';
+
+        public static final char BACKSLASH = '\\';
+
+        public static final char BACKSPACE = '\b';
+
+        public static final char FORM_FEED = '\f';
+
+        public static final char ESCAPE = '\u001B';
+
+        public static final char VERTICAL_TAB = '\u000B';
+
+        public static final char ALERT = '\u0007';
+    }
+
+}
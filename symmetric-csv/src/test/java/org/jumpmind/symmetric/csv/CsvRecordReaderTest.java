@@ -0,0 +1,117 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.csv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CsvRecordReaderTest {
+
+    @Test
+    public void testSameTokensAsCsvReader() throws Exception {
+        assertSameTokens("insert,\"1\",\"two\",,\"\"\n");
+        assertSameTokens("insert,\"a \\\"quoted\\\" value\",\"back\\\\slash\"\n");
+        assertSameTokens("insert,\"line\\none\\r\\ttab\",\"embedded\nnewline\"\r\n");
+        assertSameTokens("insert,\"comma, in value\",\"trailing\" ,  spaced  \n");
+        assertSameTokens("\n\r\nbatch,1\n\ncommit,1\n");
+        assertSameTokens("keys,id\ncolumns,id,name\ninsert,\"1\",\"\\u00e9t\\u00e9\"\n");
+        assertSameTokens("insert,\"1\",\"no newline at end\"");
+        assertSameTokens("insert,\"1\",\n");
+        assertSameTokens("insert,\"\\101\\x41\"\n");
+    }
+
+    @Test
+    public void testValuesLargerThanBuffer() throws Exception {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            value.append((char) ('a' + i % 26));
+            if (i % 1000 == 0) {
+                value.append("\\\"");
+            }
+        }
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            csv.append("insert,\"").append(i).append("\",\"").append(value).append("\",x").append("\n");
+        }
+        assertSameTokens(csv.toString());
+    }
+
+    @Test
+    public void testKeywords() throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(
+                "insert,\"1\"\nupdate,\"1\",\"1\"\nunknown,1\n,1\n"), "insert", "update");
+        assertTrue(reader.readRecord());
+        assertEquals(0, reader.getKeyword());
+        assertArrayEquals(new String[] { "1" }, reader.getValues(1, reader.getColumnCount()));
+        assertTrue(reader.readRecord());
+        assertEquals(1, reader.getKeyword());
+        assertEquals(3, reader.getColumnCount());
+        assertTrue(reader.readRecord());
+        assertEquals(-1, reader.getKeyword());
+        assertEquals("unknown", reader.get(0));
+        assertTrue(reader.readRecord());
+        assertEquals(-1, reader.getKeyword());
+        assertFalse(reader.readRecord());
+        assertEquals(4, reader.getRecordCount());
+    }
+
+    @Test
+    public void testRecordLength() throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("insert,\"123\",,\"45\"\n"));
+        assertTrue(reader.readRecord());
+        assertEquals("insert".length() + 5, reader.getRecordLength());
+    }
+
+    protected void assertSameTokens(String csv) throws Exception {
+        List<String[]> expected = new ArrayList<String[]>();
+        CsvReader csvReader = new CsvReader(new StringReader(csv));
+        csvReader.setEscapeMode(CsvReader.ESCAPE_MODE_BACKSLASH);
+        csvReader.setSafetySwitch(false);
+        csvReader.setCaptureRawRecord(false);
+        while (csvReader.readRecord()) {
+            expected.add(csvReader.getValues());
+        }
+        csvReader.close();
+
+        List<String[]> actual = new ArrayList<String[]>();
+        CsvRecordReader recordReader = new CsvRecordReader(new StringReader(csv));
+        while (recordReader.readRecord()) {
+            actual.add(recordReader.getValues());
+        }
+        recordReader.close();
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals("Record " + i + " was " + Arrays.toString(actual.get(i)),
+                    expected.get(i), actual.get(i));
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.platform;
+
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.platform.h2.H2DdlBuilder;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares converting rows of mixed column types with
+ * {@link IDatabasePlatform#getObjectValues(BinaryEncoding, String[], Column[], boolean, boolean)}
+ * against the converters from
+ * {@link IDatabasePlatform#createValueConverters(BinaryEncoding, Column[], boolean, boolean)}.
+ * Run with <code>gradle :symmetric-db:jmh</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValueConverterBenchmark {
+
+    @Param({ "text", "numeric", "mixed" })
+    public String table;
+
+    private AbstractDatabasePlatform platform;
+
+    private Column[] columns;
+
+    private String[] row;
+
+    private IValueConverter[] converters;
+
+    @Setup
+    public void setup() {
+        platform = new AbstractDatabasePlatform() {
+            IDdlBuilder ddlBuilder = new H2DdlBuilder();
+
+            public String getName() {
+                return "benchmark";
+            }
+
+            public String getDefaultSchema() {
+                return null;
+            }
+
+            public String getDefaultCatalog() {
+                return null;
+            }
+
+            public <T> T getDataSource() {
+                return null;
+            }
+
+            public ISqlTemplate getSqlTemplate() {
+                return null;
+            }
+
+            public IDdlBuilder getDdlBuilder() {
+                return ddlBuilder;
+            }
+        };
+
+        if (table.equals("text")) {
+            columns = new Column[] { new Column("ID", true, Types.VARCHAR, 50, 0),
+                    new Column("CODE", false, Types.CHAR, 10, 0),
+                    new Column("NAME", false, Types.VARCHAR, 100, 0),
+                    new Column("NOTES", false, Types.LONGVARCHAR, 0, 0) };
+            row = new String[] { "A0001", "CODE", "a name", "some notes about the row" };
+        } else if (table.equals("numeric")) {
+            columns = new Column[] { new Column("ID", true, Types.INTEGER, 10, 0),
+                    new Column("TOTAL", false, Types.BIGINT, 19, 0),
+                    new Column("AMOUNT", false, Types.DECIMAL, 12, 2),
+                    new Column("RATE", false, Types.DOUBLE, 0, 0) };
+            row = new String[] { "1", "1234567890123", "1234.56", "0.125" };
+        } else {
+            columns = new Column[] { new Column("ID", true, Types.INTEGER, 10, 0),
+                    new Column("NAME", false, Types.VARCHAR, 100, 0),
+                    new Column("AMOUNT", false, Types.DECIMAL, 12, 2),
+                    new Column("ACTIVE", false, Types.BOOLEAN, 1, 0),
+                    new Column("CREATED", false, Types.TIMESTAMP, 0, 0),
+                    new Column("PHOTO", false, Types.BLOB, 0, 0),
+                    new Column("CODE", false, Types.CHAR, 10, 0) };
+            row = new String[] { "1", "a name", "1234.56", "1", "2016-01-01 12:00:00.000",
+                    "AQIDBAUGBwgJ", null };
+        }
+
+        converters = platform.createValueConverters(BinaryEncoding.BASE64, columns, false, false);
+    }
+
+    @Benchmark
+    public Object[] getObjectValues() {
+        return platform.getObjectValues(BinaryEncoding.BASE64, row, columns, false, false);
+    }
+
+    @Benchmark
+    public Object[] valueConverters() {
+        return platform.getObjectValues(row, columns, converters);
+    }
+
+}
@@ -32,6 +32,7 @@ import java.sql.Array;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -86,11 +87,7 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
 
     protected IDdlBuilder ddlBuilder;
 
-    protected Map<String, Table> tableCache = new HashMap<String, Table>();
-
-    private long lastTimeCachedModelClearedInMs = System.currentTimeMillis();
-
-    protected long clearCacheModelTimeoutInMs = DateUtils.MILLIS_PER_HOUR;
+    protected TableCache tableCache = new TableCache(this, DateUtils.MILLIS_PER_HOUR);
 
     protected String defaultSchema;
 
@@ -133,11 +130,11 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
     }
 
     public void setClearCacheModelTimeoutInMs(long clearCacheModelTimeoutInMs) {
-        this.clearCacheModelTimeoutInMs = clearCacheModelTimeoutInMs;
+        tableCache.setTimeoutInMs(clearCacheModelTimeoutInMs);
     }
 
     public long getClearCacheModelTimeoutInMs() {
-        return clearCacheModelTimeoutInMs;
+        return tableCache.getTimeoutInMs();
     }
     
     public void dropTables(boolean continueOnError, Table...tables) {
@@ -150,7 +147,11 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
 
     public void dropDatabase(Database database, boolean continueOnError) {
         String sql = ddlBuilder.dropTables(database);
-        new SqlScript(sql, getSqlTemplate(), !continueOnError, null).execute(getDatabaseInfo().isRequiresAutoCommitForDdl());
+        try {
+            new SqlScript(sql, getSqlTemplate(), !continueOnError, null).execute(getDatabaseInfo().isRequiresAutoCommitForDdl());
+        } finally {
+            resetCachedTableModel(database);
+        }
     }
 
     public void createTables(boolean dropTablesFirst, boolean continueOnError, Table... tables) {
@@ -172,7 +173,11 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
         }
 
         String delimiter = getDdlBuilder().getDatabaseInfo().getSqlCommandDelimiter();
-        new SqlScript(createSql, getSqlTemplate(), !continueOnError, false, false, delimiter, null).execute(getDatabaseInfo().isRequiresAutoCommitForDdl());
+        try {
+            new SqlScript(createSql, getSqlTemplate(), !continueOnError, false, false, delimiter, null).execute(getDatabaseInfo().isRequiresAutoCommitForDdl());
+        } finally {
+            resetCachedTableModel(targetDatabase);
+        }
     }
 
     public void alterDatabase(Database desiredDatabase, boolean continueOnError) {
@@ -203,7 +208,11 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
         if (StringUtils.isNotBlank(alterSql.trim())) {
             log.info("Running alter sql:\n{}", alterSql);
             String delimiter = getDdlBuilder().getDatabaseInfo().getSqlCommandDelimiter();
-            new SqlScript(alterSql, getSqlTemplate(), !continueOnError, false, false, delimiter, null).execute(getDatabaseInfo().isRequiresAutoCommitForDdl());
+            try {
+                new SqlScript(alterSql, getSqlTemplate(), !continueOnError, false, false, delimiter, null).execute(getDatabaseInfo().isRequiresAutoCommitForDdl());
+            } finally {
+                resetCachedTableModel(desiredDatabase);
+            }
         } else {
             log.info("Tables up to date.  No alters found for {}", tablesProcessed);
         }
@@ -292,9 +301,16 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
     }
 
     public void resetCachedTableModel() {
-        synchronized (this.getClass()) {
-            this.tableCache = new HashMap<String, Table>();
-            lastTimeCachedModelClearedInMs = System.currentTimeMillis();
+        tableCache.invalidateAll();
+    }
+
+    public void resetCachedTableModel(String tableName) {
+        tableCache.invalidate(tableName);
+    }
+
+    protected void resetCachedTableModel(Database database) {
+        for (Table table : database.getTables()) {
+            tableCache.invalidate(table.getName());
         }
     }
 
@@ -304,26 +320,7 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
 
     public Table getTableFromCache(String catalogName, String schemaName, String tableName,
             boolean forceReread) {
-        if (System.currentTimeMillis() - lastTimeCachedModelClearedInMs > clearCacheModelTimeoutInMs) {
-            resetCachedTableModel();
-        }
-        Map<String, Table> model = tableCache;
-        String key = Table.getFullyQualifiedTableName(catalogName, schemaName, tableName);
-        Table retTable = model != null ? model.get(key) : null;
-        if (retTable == null || forceReread) {
-            synchronized (this.getClass()) {
-                try {
-                    Table table = readTableFromDatabase(catalogName, schemaName, tableName);
-                    tableCache.put(key, table);
-                    retTable = table;
-                } catch (RuntimeException ex) {
-                    throw ex;
-                } catch (Exception ex) {
-                    throw new RuntimeException(ex);
-                }
-            }
-        }
-        return retTable;
+        return tableCache.get(catalogName, schemaName, tableName, forceReread);
     }
 
     public Object[] getObjectValues(BinaryEncoding encoding, Table table, String[] columnNames,
@@ -430,6 +427,187 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
 
     }
     
+    public IValueConverter[] createValueConverters(BinaryEncoding encoding,
+            Column[] orderedMetaData, boolean useVariableDates, boolean fitToColumn) {
+        IValueConverter[] converters = new IValueConverter[orderedMetaData.length];
+        for (int i = 0; i < orderedMetaData.length; i++) {
+            if (orderedMetaData[i] != null) {
+                converters[i] = createValueConverter(orderedMetaData[i], encoding,
+                        useVariableDates, fitToColumn);
+            }
+        }
+        return converters;
+    }
+
+    public Object[] getObjectValues(String[] values, Column[] orderedMetaData,
+            IValueConverter[] converters) {
+        if (values != null) {
+            Object[] objectValues = new Object[values.length];
+            int count = 0;
+            for (int i = 0; i < values.length; i++) {
+                IValueConverter converter = converters.length > i ? converters[i] : null;
+                if (converter != null) {
+                    try {
+                        objectValues[count++] = converter.convert(values[i]);
+                    } catch (Exception ex) {
+                        Column column = orderedMetaData[i];
+                        String valueTrimmed = FormatUtils.abbreviateForLogging(values[i]);
+                        log.error("Could not convert a value of {} for column {} of type {}",
+                                new Object[] { valueTrimmed, column.getName(), column.getMappedType() });
+                        log.error("", ex);
+                        throw new RuntimeException(ex);
+                    }
+                }
+            }
+            return count == objectValues.length ? objectValues : Arrays.copyOf(objectValues, count);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a converter that produces the same value as
+     * {@link #getObjectValue(String, Column, BinaryEncoding, boolean, boolean)}
+     * but makes all of the decisions that only depend on the column up front.
+     */
+    protected IValueConverter createValueConverter(final Column column,
+            final BinaryEncoding encoding, final boolean useVariableDates, boolean fitToColumn) {
+        final int type = column.getMappedTypeCode();
+        String jdbcTypeName = column.getJdbcTypeName() == null ? null : column.getJdbcTypeName()
+                .toUpperCase();
+        if (type == Types.DATE || type == Types.TIMESTAMP || type == Types.TIME) {
+            return new ValueConverter(column, fitToColumn) {
+                protected Object convertValue(String value, Object objectValue) {
+                    return parseDate(type, value, useVariableDates);
+                }
+            };
+        } else if (type == Types.CHAR) {
+            DatabaseInfo databaseInfo = getDdlBuilder().getDatabaseInfo();
+            final boolean blankPadded = databaseInfo.isBlankCharColumnSpacePadded();
+            final boolean nonBlankPadded = databaseInfo.isNonBlankCharColumnSpacePadded();
+            if (blankPadded || nonBlankPadded) {
+                return new ValueConverter(column, fitToColumn) {
+                    protected Object convertValue(String value, Object objectValue) {
+                        boolean blank = StringUtils.isBlank(value);
+                        if ((blank && blankPadded) || (!blank && nonBlankPadded)) {
+                            return StringUtils.rightPad(value, size, ' ');
+                        } else {
+                            return objectValue;
+                        }
+                    }
+                };
+            }
+        } else if (type == Types.BIGINT) {
+            return new ValueConverter(column, fitToColumn) {
+                protected Object convertValue(String value, Object objectValue) {
+                    return parseBigInteger(value);
+                }
+            };
+        } else if (type == Types.INTEGER || type == Types.SMALLINT || type == Types.BIT
+                || type == Types.TINYINT) {
+            return new ValueConverter(column, fitToColumn) {
+                protected Object convertValue(String value, Object objectValue) {
+                    return parseInteger(value);
+                }
+            };
+        } else if (type == Types.NUMERIC || type == Types.DECIMAL || type == Types.FLOAT
+                || type == Types.DOUBLE || type == Types.REAL) {
+            return new ValueConverter(column, fitToColumn) {
+                protected Object convertValue(String value, Object objectValue) {
+                    return parseBigDecimal(value);
+                }
+            };
+        } else if (type == Types.BOOLEAN) {
+            return new ValueConverter(column, fitToColumn) {
+                protected Object convertValue(String value, Object objectValue) {
+                    return value.equals("1") ? Boolean.TRUE : Boolean.FALSE;
+                }
+            };
+        } else if (!(jdbcTypeName != null && (jdbcTypeName.contains(TypeMap.GEOMETRY) || jdbcTypeName
+                .contains(TypeMap.GEOGRAPHY)))
+                && (type == Types.BLOB || type == Types.LONGVARBINARY || type == Types.BINARY
+                        || type == Types.VARBINARY ||
+                // SQLServer ntext type
+                type == -10)) {
+            if (encoding == BinaryEncoding.NONE) {
+                return new ValueConverter(column, fitToColumn) {
+                    protected Object convertValue(String value, Object objectValue) {
+                        return value.getBytes();
+                    }
+                };
+            } else if (encoding == BinaryEncoding.BASE64) {
+                return new ValueConverter(column, fitToColumn) {
+                    protected Object convertValue(String value, Object objectValue) {
+                        return Base64.decodeBase64(value.getBytes());
+                    }
+                };
+            } else if (encoding == BinaryEncoding.HEX) {
+                return new ValueConverter(column, fitToColumn) {
+                    protected Object convertValue(String value, Object objectValue)
+                            throws DecoderException {
+                        return Hex.decodeHex(value.toCharArray());
+                    }
+                };
+            }
+        } else if (type == Types.ARRAY) {
+            return new ValueConverter(column, fitToColumn) {
+                protected Object convertValue(String value, Object objectValue) {
+                    return createArray(column, value);
+                }
+            };
+        }
+        return new ValueConverter(column, fitToColumn);
+    }
+
+    /**
+     * Handles the null substitution, text cleanup and fitting that every
+     * column gets. Type specific conversion happens in
+     * {@link #convertValue(String, Object)} for values that are not null.
+     */
+    protected class ValueConverter implements IValueConverter {
+
+        protected Column column;
+
+        protected int size;
+
+        protected boolean fitToColumn;
+
+        protected boolean substituteRequiredNulls;
+
+        protected boolean emptyStringNulled;
+
+        public ValueConverter(Column column, boolean fitToColumn) {
+            this.column = column;
+            this.size = column.getSizeAsInt();
+            this.fitToColumn = fitToColumn && size > 0;
+            this.substituteRequiredNulls = column.isRequired() && column.isOfTextType();
+            this.emptyStringNulled = getDdlBuilder().getDatabaseInfo().isEmptyStringNulled();
+        }
+
+        public Object convert(String value) throws DecoderException {
+            Object objectValue = value;
+            if (substituteRequiredNulls
+                    && (value == null || (emptyStringNulled && value.equals("")))) {
+                objectValue = REQUIRED_FIELD_NULL_SUBSTITUTE;
+            }
+            if (value != null) {
+                objectValue = convertValue(value, objectValue);
+            }
+            if (objectValue instanceof String) {
+                String stringValue = cleanTextForTextBasedColumns((String) objectValue);
+                if (fitToColumn && stringValue.length() > size) {
+                    stringValue = stringValue.substring(0, size);
+                }
+                objectValue = stringValue;
+            }
+            return objectValue;
+        }
+
+        protected Object convertValue(String value, Object objectValue) throws DecoderException {
+            return objectValue;
+        }
+    }
+
     protected Object parseBigDecimal(String value) {
         /*
          * The number will have either one period or one comma for the decimal
@@ -91,6 +91,13 @@ public interface IDatabasePlatform {
     
     public void resetCachedTableModel();
 
+    /**
+     * Removes a table from the cache used by
+     * {@link IDatabasePlatform#getTableFromCache(String, String, String, boolean)}
+     * so it is read from the database the next time it is needed.
+     */
+    public void resetCachedTableModel(String tableName);
+
     public Table getTableFromCache(String tableName, boolean forceReread);
 
     public Table getTableFromCache(String catalogName, String schemaName, String tableName,
@@ -127,6 +134,12 @@ public interface IDatabasePlatform {
     public Object[] getObjectValues(BinaryEncoding encoding, String[] values,
             Column[] orderedMetaData, boolean useVariableDates, boolean fitToColumn);
 
+    public IValueConverter[] createValueConverters(BinaryEncoding encoding,
+            Column[] orderedMetaData, boolean useVariableDates, boolean fitToColumn);
+
+    public Object[] getObjectValues(String[] values, Column[] orderedMetaData,
+            IValueConverter[] converters);
+
     public String[] getStringValues(BinaryEncoding encoding, Column[] metaData, Row row, boolean useVariableDates, boolean indexByPosition);
 
     public Database readDatabaseFromXml(String filePath, boolean alterCaseToMatchDatabaseDefaultCase);
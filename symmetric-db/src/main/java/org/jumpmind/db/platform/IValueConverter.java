@@ -0,0 +1,35 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.platform;
+
+import org.apache.commons.codec.DecoderException;
+
+/**
+ * Converts the string representation of a value into the object that is bound
+ * to a statement for one column. Converters are created once per column by
+ * {@link IDatabasePlatform#createValueConverters} so that the column type only
+ * has to be inspected when the statement is prepared.
+ */
+public interface IValueConverter {
+
+    public Object convert(String value) throws DecoderException;
+
+}
@@ -0,0 +1,210 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.platform;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jumpmind.db.model.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the tables read from the database by {@link IDatabasePlatform}. Each
+ * table is cached on its own and expires on its own. A table that is read
+ * often is read again in the background before it expires, so callers seldom
+ * wait on database metadata. Only callers that need the same table that is
+ * being read wait for each other.
+ */
+public class TableCache {
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * A table is read again in the background once this fraction of the
+     * timeout has passed
+     */
+    protected static final double REFRESH_AHEAD_FRACTION = 0.75;
+
+    protected IDatabasePlatform platform;
+
+    protected ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    protected volatile long timeoutInMs;
+
+    protected ThreadPoolExecutor refreshExecutor;
+
+    public TableCache(IDatabasePlatform platform, long timeoutInMs) {
+        this.platform = platform;
+        this.timeoutInMs = timeoutInMs;
+    }
+
+    public void setTimeoutInMs(long timeoutInMs) {
+        this.timeoutInMs = timeoutInMs;
+    }
+
+    public long getTimeoutInMs() {
+        return timeoutInMs;
+    }
+
+    public Table get(String catalogName, String schemaName, String tableName, boolean forceReread) {
+        String key = Table.getFullyQualifiedTableName(catalogName, schemaName, tableName);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key, catalogName, schemaName, tableName);
+            Entry existing = entries.putIfAbsent(key, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+
+        Table table = entry.table;
+        long age = System.currentTimeMillis() - entry.readTime;
+        if (table == null || forceReread || age > timeoutInMs) {
+            table = read(entry, forceReread ? -1 : entry.readCount);
+        } else if (age > timeoutInMs * REFRESH_AHEAD_FRACTION) {
+            refreshAhead(entry);
+        }
+        return table;
+    }
+
+    /**
+     * Removes a table from the cache. The table is matched by name only, so
+     * it is removed no matter which catalog and schema it was looked up with.
+     */
+    public void invalidate(String tableName) {
+        Iterator<Entry> i = entries.values().iterator();
+        while (i.hasNext()) {
+            Entry entry = i.next();
+            if (entry.tableName != null && entry.tableName.equalsIgnoreCase(tableName)) {
+                i.remove();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param readCount
+     *            the number of reads of the entry the caller saw or -1 to
+     *            read the table even if another thread just read it
+     */
+    protected Table read(Entry entry, long readCount) {
+        synchronized (entry) {
+            if (readCount >= 0 && entry.readCount != readCount && entry.table != null) {
+                return entry.table;
+            }
+
+            Table table = readTableFromDatabase(entry.catalogName, entry.schemaName,
+                    entry.tableName);
+            entry.table = table;
+            entry.readTime = System.currentTimeMillis();
+            entry.readCount++;
+            if (table == null) {
+                entries.remove(entry.key, entry);
+            }
+            return table;
+        }
+    }
+
+    protected Table readTableFromDatabase(String catalogName, String schemaName, String tableName) {
+        return platform.readTableFromDatabase(catalogName, schemaName, tableName);
+    }
+
+    protected void refreshAhead(final Entry entry) {
+        if (entry.refreshing.compareAndSet(false, true)) {
+            final long readCount = entry.readCount;
+            try {
+                getRefreshExecutor().execute(new Runnable() {
+                    public void run() {
+                        try {
+                            read(entry, readCount);
+                        } catch (RuntimeException ex) {
+                            log.warn("Failed to refresh the cached table {}.  {}", entry.key,
+                                    ex.getMessage());
+                        } finally {
+                            entry.refreshing.set(false);
+                        }
+                    }
+                });
+            } catch (RuntimeException ex) {
+                entry.refreshing.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    protected synchronized ThreadPoolExecutor getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            final String name = (platform != null ? platform.getName() : "db")
+                    + "-table-cache-refresh";
+            refreshExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r);
+                            t.setName(name);
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            refreshExecutor.allowCoreThreadTimeOut(true);
+        }
+        return refreshExecutor;
+    }
+
+    protected static class Entry {
+
+        final String key;
+
+        final String catalogName;
+
+        final String schemaName;
+
+        final String tableName;
+
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        volatile Table table;
+
+        volatile long readTime;
+
+        volatile long readCount;
+
+        Entry(String key, String catalogName, String schemaName, String tableName) {
+            this.key = key;
+            this.catalogName = catalogName;
+            this.schemaName = schemaName;
+            this.tableName = tableName;
+        }
+    }
+
+}
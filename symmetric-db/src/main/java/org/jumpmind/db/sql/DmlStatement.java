@@ -37,6 +37,7 @@ import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.model.TypeMap;
 import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IValueConverter;
 import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.util.FormatUtils;
 import org.slf4j.Logger;
@@ -70,6 +71,8 @@ public class DmlStatement {
     protected boolean[] nullKeyValues;
     
     protected String textColumnExpression;
+
+    protected IValueConverter[] valueConverters;
     
     public DmlStatement(DmlType type, String catalogName, String schemaName, String tableName,
             Column[] keysColumns, Column[] columns, boolean[] nullKeyValues, 
@@ -358,6 +361,19 @@ public class DmlStatement {
     public Column[] getKeys() {
         return keys;
     }
+
+    /**
+     * @return the converters for the columns returned by
+     *         {@link #getMetaData()} or null if they have not been created
+     *         for this statement yet
+     */
+    public IValueConverter[] getValueConverters() {
+        return valueConverters;
+    }
+
+    public void setValueConverters(IValueConverter[] valueConverters) {
+        this.valueConverters = valueConverters;
+    }
    
     @SuppressWarnings("unchecked")
     public <T> T[] getValueArray(T[] columnValues, T[] keyValues) {
@@ -26,8 +26,10 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.Date;
 
+import org.jumpmind.db.model.Column;
 import org.jumpmind.db.platform.h2.H2DdlBuilder;
 import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.util.BinaryEncoding;
 import org.junit.Test;
 
 public class AbstractDatabasePlatformTest {
@@ -49,6 +51,33 @@ public class AbstractDatabasePlatformTest {
         }
     }
     
+    @Test
+    public void testValueConvertersMatchObjectValues() {
+        Column[] columns = new Column[] { new Column("ID", true, Types.INTEGER, 10, 0),
+                new Column("CODE", true, Types.CHAR, 5, 0),
+                new Column("NAME", false, Types.VARCHAR, 10, 0),
+                new Column("AMOUNT", false, Types.DECIMAL, 10, 2),
+                new Column("TOTAL", false, Types.BIGINT, 19, 0),
+                new Column("ACTIVE", false, Types.BOOLEAN, 1, 0),
+                new Column("CREATED", false, Types.TIMESTAMP, 0, 0),
+                new Column("BORN", false, Types.DATE, 0, 0),
+                new Column("PHOTO", false, Types.BLOB, 0, 0) };
+        String[][] rows = new String[][] {
+                { "1", "ab", "a name that is too long", "10.50", "12345678901", "1",
+                        "2015-11-03 01:35:03.714566", "2015-11-03", "AQID" },
+                { " 2 ", "", "", "10,5", "9999999999999999999", "0", null, null, null },
+                { "true", null, null, null, null, null, "2015-11-03 01:35:03", "2015-11-03", "" } };
+        for (boolean fitToColumn : new boolean[] { false, true }) {
+            IValueConverter[] converters = testDatabasePlatform.createValueConverters(
+                    BinaryEncoding.BASE64, columns, false, fitToColumn);
+            for (String[] row : rows) {
+                assertArrayEquals(testDatabasePlatform.getObjectValues(BinaryEncoding.BASE64, row,
+                        columns, false, fitToColumn), testDatabasePlatform.getObjectValues(row,
+                        columns, converters));
+            }
+        }
+    }
+
     @Test
     public void testParseTimeZone() {
         assertEquals(-18000000, testDatabasePlatform.getTimeZone("EST").getRawOffset());
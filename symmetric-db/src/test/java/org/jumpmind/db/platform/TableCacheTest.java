@@ -0,0 +1,107 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jumpmind.db.model.Table;
+import org.junit.Test;
+
+public class TableCacheTest {
+
+    @Test
+    public void testCachesUntilInvalidated() {
+        CountingTableCache cache = new CountingTableCache(60000);
+        Table table = cache.get(null, null, "test_table", false);
+        assertSame(table, cache.get(null, null, "test_table", false));
+        assertEquals(1, cache.reads.get());
+
+        assertNotSame(table, cache.get(null, null, "test_table", true));
+        assertEquals(2, cache.reads.get());
+
+        cache.get("cat", "sch", "test_table", false);
+        cache.get(null, null, "other_table", false);
+        assertEquals(3, cache.size());
+        cache.invalidate("TEST_TABLE");
+        assertEquals(1, cache.size());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiredTableIsReadAgain() throws Exception {
+        CountingTableCache cache = new CountingTableCache(0);
+        Table table = cache.get(null, null, "test_table", false);
+        Thread.sleep(5);
+        assertNotSame(table, cache.get(null, null, "test_table", false));
+        assertEquals(2, cache.reads.get());
+    }
+
+    @Test
+    public void testMissingTableIsNotCached() {
+        CountingTableCache cache = new CountingTableCache(60000);
+        assertNull(cache.get(null, null, "missing_table", false));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        CountingTableCache cache = new CountingTableCache(2000);
+        Table table = cache.get(null, null, "test_table", false);
+        Thread.sleep(1600);
+        assertSame(table, cache.get(null, null, "test_table", false));
+        for (int i = 0; i < 100 && cache.reads.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, cache.reads.get());
+        assertNotSame(table, cache.get(null, null, "test_table", false));
+    }
+
+    static class CountingTableCache extends TableCache {
+
+        AtomicInteger reads = new AtomicInteger();
+
+        CountingTableCache(long timeoutInMs) {
+            super(null, timeoutInMs);
+        }
+
+        @Override
+        protected Table readTableFromDatabase(String catalogName, String schemaName,
+                String tableName) {
+            reads.incrementAndGet();
+            if (tableName.startsWith("missing")) {
+                return null;
+            } else {
+                Table table = new Table(tableName);
+                table.setCatalog(catalogName);
+                table.setSchema(schemaName);
+                return table;
+            }
+        }
+    }
+
+}
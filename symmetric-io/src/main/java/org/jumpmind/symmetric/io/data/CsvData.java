@@ -300,13 +300,18 @@ public class CsvData {
         }
     }
     
+    /**
+     * @return an estimate of the size of the captured data. The length of each
+     *         value is used instead of encoding it so the estimate can be
+     *         taken for every row without creating garbage.
+     */
     public long getSizeInBytes() {
         long size = 0;
         if (csvData != null) {
             Collection<String> values = csvData.values();
             for (String string : values) {
                 if (string != null) {
-                    size += string.getBytes().length;
+                    size += string.length();
                 }
             }
         }
@@ -40,18 +40,16 @@ import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.exception.IoException;
-import org.jumpmind.symmetric.csv.CsvReader;
+import org.jumpmind.symmetric.csv.CsvRecordReader;
 import org.jumpmind.symmetric.io.IoConstants;
 import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.io.data.Batch.BatchType;
 import org.jumpmind.symmetric.io.data.CsvConstants;
 import org.jumpmind.symmetric.io.data.CsvData;
-import org.jumpmind.symmetric.io.data.CsvUtils;
 import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.IDataReader;
 import org.jumpmind.symmetric.io.stage.IStagedResource;
-import org.jumpmind.util.CollectionUtils;
 import org.jumpmind.util.Statistics;
 
 public class ProtocolDataReader extends AbstractDataReader implements IDataReader {
@@ -59,10 +57,41 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
     public static final String CTX_LINE_NUMBER = ProtocolDataReader.class.getSimpleName()
             + ".lineNumber";
 
+    /*
+     * the record keywords that are recognized by the csv reader. the most
+     * frequent ones are first because they are matched in order
+     */
+    protected static final String[] KEYWORDS = { CsvConstants.INSERT, CsvConstants.UPDATE,
+            CsvConstants.DELETE, CsvConstants.OLD, CsvConstants.BATCH, CsvConstants.COMMIT,
+            CsvConstants.TABLE, CsvConstants.KEYS, CsvConstants.COLUMNS, CsvConstants.SCHEMA,
+            CsvConstants.CATALOG, CsvConstants.NODEID, CsvConstants.CHANNEL,
+            CsvConstants.BINARY, CsvConstants.NO_BINARY_OLD_DATA, CsvConstants.SQL,
+            CsvConstants.BSH, CsvConstants.CREATE, CsvConstants.IGNORE };
+
+    private static final int INSERT = 0;
+    private static final int UPDATE = 1;
+    private static final int DELETE = 2;
+    private static final int OLD = 3;
+    private static final int BATCH = 4;
+    private static final int COMMIT = 5;
+    private static final int TABLE = 6;
+    private static final int KEYS = 7;
+    private static final int COLUMNS = 8;
+    private static final int SCHEMA = 9;
+    private static final int CATALOG = 10;
+    private static final int NODEID = 11;
+    private static final int CHANNEL = 12;
+    private static final int BINARY = 13;
+    private static final int NO_BINARY_OLD_DATA = 14;
+    private static final int SQL = 15;
+    private static final int BSH = 16;
+    private static final int CREATE = 17;
+    private static final int IGNORE = 18;
+
     protected IStagedResource stagedResource;
     protected Reader reader;
     protected Map<Batch, Statistics> statistics = new HashMap<Batch, Statistics>();
-    protected CsvReader csvReader;
+    protected CsvRecordReader csvReader;
     protected DataContext context;
     protected Object next;
     protected Batch batch;
@@ -73,7 +102,7 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
     protected boolean noBinaryOldData = false;
     protected BatchType batchType;
     protected int lineNumber = 0;
-    protected String[] tokens;
+    protected boolean pendingRecord;
 
     public ProtocolDataReader(BatchType batchType, String targetNodeId, StringBuilder input) {
         this(batchType, targetNodeId, new BufferedReader(new StringReader(input.toString())));
@@ -122,7 +151,7 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
         }
         this.lineNumber = 0;
         this.context = context;
-        this.csvReader = CsvUtils.getCsvReader(reader);
+        this.csvReader = new CsvRecordReader(reader, KEYWORDS);
         this.next = readNext();
     }
 
@@ -134,157 +163,140 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
             String[] parsedOldData = null;
             long bytesRead = 0;
             Table table = null;
-            while (tokens != null || csvReader.readRecord()) {
+            while (pendingRecord || csvReader.readRecord()) {
                 lineNumber++;
                 context.put(CTX_LINE_NUMBER, lineNumber);
-                if (tokens == null) {
-                    tokens = csvReader.getValues();
+                if (!pendingRecord && log.isDebugEnabled()) {
+                    logDebugAndCountBytes(csvReader.getValues());
                 }
-                bytesRead += logDebugAndCountBytes(tokens);
+                pendingRecord = true;
+                bytesRead += csvReader.getRecordLength();
                 if (batch != null) {
                     statistics.get(batch)
                             .increment(DataReaderStatistics.READ_BYTE_COUNT, bytesRead);
                     bytesRead = 0;
                 }
-                
-                if (table != null
-                        && !(tokens[0].equals(CsvConstants.TABLE)
-                                || tokens[0].equals(CsvConstants.KEYS) || tokens[0]
-                                    .equals(CsvConstants.COLUMNS))) {
+
+                int keyword = csvReader.getKeyword();
+                int columnCount = csvReader.getColumnCount();
+                if (table != null && keyword != TABLE && keyword != KEYS && keyword != COLUMNS) {
                     return table;
                 }
-                
-                if (tokens[0].equals(CsvConstants.INSERT)) {
-                    CsvData data = new CsvData();
-                    data.setNoBinaryOldData(noBinaryOldData);
-                    data.setDataEventType(DataEventType.INSERT);
-                    data.putParsedData(CsvData.ROW_DATA,
-                            CollectionUtils.copyOfRange(tokens, 1, tokens.length));
-                    tokens = null;
-                    return data;
-                } else if (tokens[0].equals(CsvConstants.OLD)) {
-                    parsedOldData = CollectionUtils.copyOfRange(tokens, 1, tokens.length);
-                    
-                } else if (tokens[0].equals(CsvConstants.UPDATE)) {
-                    CsvData data = new CsvData();
-                    data.setNoBinaryOldData(noBinaryOldData);
-                    data.setDataEventType(DataEventType.UPDATE);
-                    int columnCount = context.getLastParsedTable().getColumnCount();
-                    if (tokens.length <= columnCount) {
-                        String msg = String.format("Invalid state while parsing csv data.  "
-                                + "The number of columns (%d) reported for table '%s' don't match up with the token data: %s",
-                                columnCount, context.getLastParsedTable().getFullyQualifiedTableName(), ArrayUtils.toString(tokens));
-                        throw new IllegalStateException(msg);
-                    }
-                    data.putParsedData(CsvData.ROW_DATA,
-                            CollectionUtils.copyOfRange(tokens, 1, columnCount + 1));
-                    data.putParsedData(CsvData.PK_DATA, CollectionUtils.copyOfRange(tokens,
-                            columnCount + 1, tokens.length));
-                    data.putParsedData(CsvData.OLD_DATA, parsedOldData);
-                    tokens = null;
-                    return data;
-                } else if (tokens[0].equals(CsvConstants.DELETE)) {
-                    CsvData data = new CsvData();
-                    data.setNoBinaryOldData(noBinaryOldData);
-                    data.setDataEventType(DataEventType.DELETE);
-                    data.putParsedData(CsvData.PK_DATA,
-                            CollectionUtils.copyOfRange(tokens, 1, tokens.length));
-                    data.putParsedData(CsvData.OLD_DATA, parsedOldData);
-                    tokens = null;
-                    return data;
 
-                } else if (tokens[0].equals(CsvConstants.BATCH)) {
-                    Batch batch = new Batch(batchType, Long.parseLong(tokens[1]), channelId,
-                            binaryEncoding, sourceNodeId, targetNodeId, false);
-                    statistics.put(batch, new DataReaderStatistics());
-                    tokens = null;
-                    return batch;
-                } else if (tokens[0].equals(CsvConstants.NO_BINARY_OLD_DATA)) {
-                    if (tokens.length > 1) {
-                        noBinaryOldData = Boolean.parseBoolean(tokens[1]);
+                pendingRecord = false;
+                switch (keyword) {
+                    case INSERT: {
+                        CsvData data = new CsvData();
+                        data.setNoBinaryOldData(noBinaryOldData);
+                        data.setDataEventType(DataEventType.INSERT);
+                        data.putParsedData(CsvData.ROW_DATA, csvReader.getValues(1, columnCount));
+                        return data;
                     }
-                    
-                } else if (tokens[0].equals(CsvConstants.NODEID)) {
-                    this.sourceNodeId = tokens[1];
-                    
-                } else if (tokens[0].equals(CsvConstants.BINARY)) {
-                    this.binaryEncoding = BinaryEncoding.valueOf(tokens[1]);
-                    
-                } else if (tokens[0].equals(CsvConstants.CHANNEL)) {
-                    this.channelId = tokens[1];
-                    
-                } else if (tokens[0].equals(CsvConstants.SCHEMA)) {
-                    schemaName = tokens.length == 1 || StringUtils.isBlank(tokens[1]) ? null
-                            : tokens[1];
-                    
-                } else if (tokens[0].equals(CsvConstants.CATALOG)) {
-                    catalogName = tokens.length == 1 || StringUtils.isBlank(tokens[1]) ? null
-                            : tokens[1];
-                    
-                } else if (tokens[0].equals(CsvConstants.TABLE)) {
-                    String tableName = tokens[1];
-                    table = context.getParsedTables().get(Table.getFullyQualifiedTableName(catalogName, schemaName,
-                            tableName));
-                    if (table != null) {
-                        context.setLastParsedTable(table);
-                    } else {
-                        table = new Table(catalogName, schemaName, tableName);
-                        context.setLastParsedTable(table);
+                    case OLD:
+                        parsedOldData = csvReader.getValues(1, columnCount);
+                        break;
+                    case UPDATE: {
+                        CsvData data = new CsvData();
+                        data.setNoBinaryOldData(noBinaryOldData);
+                        data.setDataEventType(DataEventType.UPDATE);
+                        int tableColumnCount = context.getLastParsedTable().getColumnCount();
+                        if (columnCount <= tableColumnCount) {
+                            String msg = String.format("Invalid state while parsing csv data.  "
+                                    + "The number of columns (%d) reported for table '%s' don't match up with the token data: %s",
+                                    tableColumnCount, context.getLastParsedTable().getFullyQualifiedTableName(), ArrayUtils.toString(csvReader.getValues()));
+                            throw new IllegalStateException(msg);
+                        }
+                        data.putParsedData(CsvData.ROW_DATA,
+                                csvReader.getValues(1, tableColumnCount + 1));
+                        data.putParsedData(CsvData.PK_DATA,
+                                csvReader.getValues(tableColumnCount + 1, columnCount));
+                        data.putParsedData(CsvData.OLD_DATA, parsedOldData);
+                        return data;
                     }
-                    
-                } else if (tokens[0].equals(CsvConstants.KEYS)) {
-                    if (keys == null) {
-                        keys = new HashSet<String>(tokens.length);
+                    case DELETE: {
+                        CsvData data = new CsvData();
+                        data.setNoBinaryOldData(noBinaryOldData);
+                        data.setDataEventType(DataEventType.DELETE);
+                        data.putParsedData(CsvData.PK_DATA, csvReader.getValues(1, columnCount));
+                        data.putParsedData(CsvData.OLD_DATA, parsedOldData);
+                        return data;
                     }
-                    for (int i = 1; i < tokens.length; i++) {
-                        keys.add(tokens[i]);
+                    case BATCH: {
+                        Batch batch = new Batch(batchType, Long.parseLong(csvReader.get(1)),
+                                channelId, binaryEncoding, sourceNodeId, targetNodeId, false);
+                        statistics.put(batch, new DataReaderStatistics());
+                        return batch;
                     }
-                } else if (tokens[0].equals(CsvConstants.COLUMNS)) {
-                    table.removeAllColumns();
-                    for (int i = 1; i < tokens.length; i++) {
-                        Column column = new Column(tokens[i], keys != null
-                                && keys.contains(tokens[i]));
-                        table.addColumn(column);
+                    case NO_BINARY_OLD_DATA:
+                        if (columnCount > 1) {
+                            noBinaryOldData = Boolean.parseBoolean(csvReader.get(1));
+                        }
+                        break;
+                    case NODEID:
+                        this.sourceNodeId = csvReader.get(1);
+                        break;
+                    case BINARY:
+                        this.binaryEncoding = BinaryEncoding.valueOf(csvReader.get(1));
+                        break;
+                    case CHANNEL:
+                        this.channelId = csvReader.get(1);
+                        break;
+                    case SCHEMA:
+                        schemaName = StringUtils.isBlank(csvReader.get(1)) ? null : csvReader.get(1);
+                        break;
+                    case CATALOG:
+                        catalogName = StringUtils.isBlank(csvReader.get(1)) ? null : csvReader.get(1);
+                        break;
+                    case TABLE: {
+                        String tableName = csvReader.get(1);
+                        table = context.getParsedTables().get(Table.getFullyQualifiedTableName(catalogName, schemaName,
+                                tableName));
+                        if (table != null) {
+                            context.setLastParsedTable(table);
+                        } else {
+                            table = new Table(catalogName, schemaName, tableName);
+                            context.setLastParsedTable(table);
+                        }
+                        break;
                     }
-                    context.getParsedTables().put(table.getFullyQualifiedTableName(), table);
-                } else if (tokens[0].equals(CsvConstants.COMMIT)) {
-                    if (batch != null) {
-                        batch.setComplete(true);
-                    }
-                    tokens = null;
-                    return null;
-                } else if (tokens[0].equals(CsvConstants.SQL)) {
-                    CsvData data = new CsvData();
-                    data.setNoBinaryOldData(noBinaryOldData);
-                    data.setDataEventType(DataEventType.SQL);
-                    data.putParsedData(CsvData.ROW_DATA, new String[] { tokens[1] });
-                    tokens = null;
-                    return data;
-                } else if (tokens[0].equals(CsvConstants.BSH)) {
-                    CsvData data = new CsvData();
-                    data.setNoBinaryOldData(noBinaryOldData);
-                    data.setDataEventType(DataEventType.BSH);
-                    data.putParsedData(CsvData.ROW_DATA, new String[] { tokens[1] });
-                    tokens = null;
-                    return data;
-                } else if (tokens[0].equals(CsvConstants.CREATE)) {
-                    CsvData data = new CsvData();
-                    data.setNoBinaryOldData(noBinaryOldData);
-                    data.setDataEventType(DataEventType.CREATE);
-                    data.putParsedData(CsvData.ROW_DATA, new String[] { tokens[1] });
-                    tokens = null;
-                    return data;
-                } else if (tokens[0].equals(CsvConstants.IGNORE)) {
-                    if (batch != null) {
-                        batch.setIgnored(true);
-                    }
-                    
-                } else {
-                    log.info("Unable to handle unknown csv values: " + Arrays.toString(tokens));
-                    
+                    case KEYS:
+                        if (keys == null) {
+                            keys = new HashSet<String>(columnCount);
+                        }
+                        for (int i = 1; i < columnCount; i++) {
+                            keys.add(csvReader.get(i));
+                        }
+                        break;
+                    case COLUMNS:
+                        table.removeAllColumns();
+                        for (int i = 1; i < columnCount; i++) {
+                            String columnName = csvReader.get(i);
+                            Column column = new Column(columnName, keys != null
+                                    && keys.contains(columnName));
+                            table.addColumn(column);
+                        }
+                        context.getParsedTables().put(table.getFullyQualifiedTableName(), table);
+                        break;
+                    case COMMIT:
+                        if (batch != null) {
+                            batch.setComplete(true);
+                        }
+                        return null;
+                    case SQL:
+                        return toCsvData(DataEventType.SQL);
+                    case BSH:
+                        return toCsvData(DataEventType.BSH);
+                    case CREATE:
+                        return toCsvData(DataEventType.CREATE);
+                    case IGNORE:
+                        if (batch != null) {
+                            batch.setIgnored(true);
+                        }
+                        break;
+                    default:
+                        log.info("Unable to handle unknown csv values: " + Arrays.toString(csvReader.getValues()));
+                        break;
                 }
-                
-                tokens = null;
             }
         } catch (IOException ex) {
             throw new IoException(ex);
@@ -294,6 +306,14 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
 
     }
 
+    protected CsvData toCsvData(DataEventType dataEventType) {
+        CsvData data = new CsvData();
+        data.setNoBinaryOldData(noBinaryOldData);
+        data.setDataEventType(dataEventType);
+        data.putParsedData(CsvData.ROW_DATA, new String[] { csvReader.get(1) });
+        return data;
+    }
+
     public Batch nextBatch() {
         if (next instanceof Batch) {
             this.batch = (Batch) next;
@@ -0,0 +1,218 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.IDataWriter;
+
+/**
+ * Buffers a window of rows for the table that is being loaded and collapses
+ * consecutive changes to the same primary key into one net change. When the
+ * window is written, inserts are written first, then updates and then
+ * deletes, so statements of the same type follow each other.
+ * <p>
+ * Only changes that can be merged without changing the outcome are
+ * collapsed: an update after an insert becomes the insert of the new row, an
+ * update after an update keeps the old data of the first one and a delete
+ * after an update deletes with the old data of the update. The merged rows
+ * keep their old data, so conflict detection compares against the state of the
+ * row before the window. Any other combination, a change to a primary key, or
+ * a table without a primary key writes the window out in arrival order first.
+ * <p>
+ * Rows of different keys may be applied in a different order than they were
+ * captured, so this should not be used for tables with unique constraints
+ * other than the primary key whose values are reused, or with foreign keys
+ * that reference the same table.
+ */
+public class CoalescingDataWriter extends NestedDataWriter {
+
+    protected int windowSize;
+
+    protected int[] keyIndexes;
+
+    protected List<CsvData> window = new ArrayList<CsvData>();
+
+    protected Map<List<String>, CsvData> windowByKey = new HashMap<List<String>, CsvData>();
+
+    public CoalescingDataWriter(IDataWriter nestedWriter, int windowSize) {
+        super(nestedWriter);
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public void start(Batch batch) {
+        clear();
+        super.start(batch);
+    }
+
+    @Override
+    public boolean start(Table table) {
+        flush();
+        Column[] keys = table.getPrimaryKeyColumns();
+        if (keys.length > 0) {
+            keyIndexes = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keyIndexes[i] = table.getColumnIndex(keys[i]);
+            }
+        } else {
+            keyIndexes = null;
+        }
+        return super.start(table);
+    }
+
+    @Override
+    public void write(CsvData data) {
+        List<String> key = getKey(data);
+        if (key == null) {
+            flush();
+            super.write(data);
+        } else {
+            CsvData pending = windowByKey.get(key);
+            if (pending == null || !coalesce(pending, data)) {
+                if (pending != null || window.size() >= windowSize) {
+                    flush();
+                }
+                window.add(data);
+                windowByKey.put(key, data);
+            }
+        }
+    }
+
+    @Override
+    public void end(Table table) {
+        flush();
+        super.end(table);
+    }
+
+    @Override
+    public void end(Batch batch, boolean inError) {
+        if (inError) {
+            clear();
+        } else {
+            flush();
+        }
+        super.end(batch, inError);
+    }
+
+    /**
+     * @return the primary key values of a row that can be buffered or null if
+     *         the row has to be written in order
+     */
+    protected List<String> getKey(CsvData data) {
+        DataEventType eventType = data.getDataEventType();
+        if (keyIndexes == null || windowSize <= 1) {
+            return null;
+        } else if (eventType == DataEventType.INSERT) {
+            return getKeyValues(data.getParsedData(CsvData.ROW_DATA));
+        } else if (eventType == DataEventType.UPDATE) {
+            String[] pkData = data.getParsedData(CsvData.PK_DATA);
+            if (pkData != null && pkData.length == keyIndexes.length) {
+                List<String> key = Arrays.asList(pkData);
+                if (key.equals(getKeyValues(data.getParsedData(CsvData.ROW_DATA)))) {
+                    return key;
+                }
+            }
+        } else if (eventType == DataEventType.DELETE) {
+            String[] pkData = data.getParsedData(CsvData.PK_DATA);
+            if (pkData != null && pkData.length == keyIndexes.length) {
+                return Arrays.asList(pkData);
+            }
+        }
+        return null;
+    }
+
+    protected List<String> getKeyValues(String[] rowData) {
+        if (rowData != null) {
+            String[] values = new String[keyIndexes.length];
+            for (int i = 0; i < keyIndexes.length; i++) {
+                if (keyIndexes[i] < 0 || keyIndexes[i] >= rowData.length) {
+                    return null;
+                }
+                values[i] = rowData[keyIndexes[i]];
+            }
+            return Arrays.asList(values);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Merges a change into the pending change for the same primary key.
+     * 
+     * @return false if the changes cannot be merged
+     */
+    protected boolean coalesce(CsvData pending, CsvData data) {
+        DataEventType pendingType = pending.getDataEventType();
+        DataEventType eventType = data.getDataEventType();
+        if (eventType == DataEventType.UPDATE
+                && (pendingType == DataEventType.INSERT || pendingType == DataEventType.UPDATE)) {
+            pending.putParsedData(CsvData.ROW_DATA, data.getParsedData(CsvData.ROW_DATA));
+            return true;
+        } else if (eventType == DataEventType.DELETE && pendingType == DataEventType.UPDATE) {
+            pending.setDataEventType(DataEventType.DELETE);
+            pending.removeAllData(CsvData.ROW_DATA);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    protected void flush() {
+        if (window.size() > 0) {
+            try {
+                flush(DataEventType.INSERT);
+                flush(DataEventType.UPDATE);
+                flush(DataEventType.DELETE);
+            } finally {
+                clear();
+            }
+        }
+    }
+
+    protected void flush(DataEventType eventType) {
+        for (CsvData data : window) {
+            if (data.getDataEventType() == eventType) {
+                /*
+                 * The writers below look at the context for the row that is
+                 * being written when they report an error
+                 */
+                context.setData(data);
+                super.write(data);
+            }
+        }
+    }
+
+    protected void clear() {
+        window.clear();
+        windowByKey.clear();
+    }
+
+}
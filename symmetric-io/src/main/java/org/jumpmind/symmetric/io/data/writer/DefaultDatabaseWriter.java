@@ -38,6 +38,7 @@ import org.jumpmind.db.model.Database;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.DatabaseInfo;
 import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.IValueConverter;
 import org.jumpmind.db.sql.DmlStatement;
 import org.jumpmind.db.sql.DmlStatement.DmlType;
 import org.jumpmind.db.sql.ISqlRowMapper;
@@ -513,7 +514,6 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                 platform.createDatabase(db, writerSettings.isCreateTableDropFirst(), !writerSettings.isCreateTableFailOnError());
             }
 
-            platform.resetCachedTableModel();
             statistics.get(batch).increment(DataWriterStatisticConstants.CREATECOUNT);
             return true;
         } catch (RuntimeException ex) {
@@ -531,9 +531,11 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             String script = data.getParsedData(CsvData.ROW_DATA)[0];
             List<String> sqlStatements = getSqlStatements(script);
             long count = 0;
+            boolean ddl = false;
             for (String sql : sqlStatements) {
 
                 sql = preprocessSqlStatement(sql);
+                ddl |= isDdl(sql);
                 transaction.prepare(sql);
                 if (log.isDebugEnabled()) {
                     log.debug("About to run: {}", sql);
@@ -543,6 +545,14 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                     log.debug("{} rows updated when running: {}", count, sql);
                 }
             }
+            if (ddl) {
+                /*
+                 * The script can alter any table, not only the one the sql
+                 * event was captured for, so none of the cached tables can be
+                 * trusted after it ran
+                 */
+                platform.resetCachedTableModel();
+            }
             statistics.get(batch).increment(DataWriterStatisticConstants.SQLCOUNT);
             statistics.get(batch).increment(DataWriterStatisticConstants.SQLROWSAFFECTEDCOUNT,
                     count);
@@ -551,6 +561,12 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             statistics.get(batch).stopTimer(DataWriterStatisticConstants.DATABASEMILLIS);
         }
     }
+
+    protected boolean isDdl(String sql) {
+        String statement = sql.trim().toLowerCase();
+        return statement.startsWith("alter ") || statement.startsWith("create ")
+                || statement.startsWith("drop ") || statement.startsWith("rename ");
+    }
     
     protected boolean requireNewStatement(DmlType currentType, CsvData data,
             boolean applyChangesOnly, boolean useConflictDetection,
@@ -781,8 +797,14 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     }
 
     protected int execute(CsvData data, String[] values) {
-        currentDmlValues = platform.getObjectValues(batch.getBinaryEncoding(), values,
-                currentDmlStatement.getMetaData(), false, writerSettings.isFitToColumn());
+        Column[] metaData = currentDmlStatement.getMetaData();
+        IValueConverter[] converters = currentDmlStatement.getValueConverters();
+        if (converters == null) {
+            converters = platform.createValueConverters(batch.getBinaryEncoding(), metaData,
+                    false, writerSettings.isFitToColumn());
+            currentDmlStatement.setValueConverters(converters);
+        }
+        currentDmlValues = platform.getObjectValues(values, metaData, converters);
         if (log.isDebugEnabled()) {
             log.debug("Submitting data {} with types {}", Arrays.toString(currentDmlValues),
                     Arrays.toString(this.currentDmlStatement.getTypes()));
@@ -0,0 +1,262 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.stage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.exception.IoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The state, file naming and bookkeeping that staged resources share.
+ * Subclasses decide how the content is held in memory before it is written to
+ * the file and how it is read back.
+ */
+abstract public class AbstractStagedResource implements IStagedResource {
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected long threshold;
+
+    protected File directory;
+
+    protected String path;
+
+    protected File file;
+
+    protected long lastUpdateTime;
+
+    protected State state;
+
+    protected OutputStream outputStream;
+
+    protected BufferedWriter writer;
+
+    protected Map<Thread, InputStream> inputStreams = new ConcurrentHashMap<Thread, InputStream>();
+
+    protected Map<Thread, BufferedReader> readers = new ConcurrentHashMap<Thread, BufferedReader>();
+
+    protected StagingManager stagingManager;
+
+    public AbstractStagedResource(long threshold, File directory, File file,
+            StagingManager stagingManager) {
+        this.threshold = threshold;
+        this.directory = directory;
+        this.stagingManager = stagingManager;
+        this.file = file;
+        this.path = file.getAbsolutePath();
+        this.path = this.path.replaceAll("\\\\", "/");
+        this.path = this.path.substring(directory.getAbsolutePath().length(), file
+                .getAbsolutePath().length());
+        this.path = this.path.substring(1, path.lastIndexOf("."));
+        if (file.exists()) {
+            lastUpdateTime = file.lastModified();
+            String fileName = file.getName();
+            String extension = fileName.substring(fileName.lastIndexOf(".") + 1, fileName.length());
+            this.state = State.valueOf(extension.toUpperCase());
+        } else {
+            throw new IllegalStateException(String.format("The passed in file, %s, does not exist",
+                    file.getAbsolutePath()));
+        }
+    }
+
+    public AbstractStagedResource(long threshold, File directory, String path,
+            StagingManager stagingManager) {
+        this.threshold = threshold;
+        this.directory = directory;
+        this.path = path;
+        this.stagingManager = stagingManager;
+        this.file = new File(directory, String.format("%s.%s", path,
+                State.CREATE.getExtensionName()));
+        lastUpdateTime = System.currentTimeMillis();
+        this.state = State.CREATE;
+    }
+
+    public AbstractStagedResource(long threshold, File directory, String path, State state,
+            long lastUpdateTime, StagingManager stagingManager) {
+        this.threshold = threshold;
+        this.directory = directory;
+        this.path = path;
+        this.stagingManager = stagingManager;
+        this.file = buildFile(state);
+        this.lastUpdateTime = lastUpdateTime;
+        this.state = state;
+    }
+
+    /**
+     * @return the number of bytes or characters held in memory
+     */
+    abstract protected long getMemorySize();
+
+    /**
+     * Let go of the content held in memory. Called when the resource is done
+     * or deleted.
+     */
+    abstract protected void releaseMemory();
+
+    public boolean isInUse() {
+        return readers.size() > 0 || writer != null || inputStreams.size() > 0
+                || outputStream != null;
+    }
+
+    public boolean isFileResource() {
+        return file != null && file.exists();
+    }
+
+    protected File buildFile(State state) {
+        return new File(directory, String.format("%s.%s", path, state.getExtensionName()));
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        if (file.exists()) {
+            File newFile = buildFile(state);
+            if (!newFile.equals(file)) {
+                if (newFile.exists()) {
+                    if (writer != null || outputStream != null) {
+                        throw new IoException("Could not write '{}' it is currently being written to", newFile.getAbsolutePath());
+                    }
+
+                    if (!FileUtils.deleteQuietly(newFile)) {
+                        log.warn("Failed to delete '{}' in preparation for renaming '{}'", newFile.getAbsolutePath(), file.getAbsoluteFile());
+                        if (readers.size() > 0) {
+                            for (Thread thread : readers.keySet()) {
+                                BufferedReader reader = readers.get(thread);
+                                log.warn("Closing unwanted reader for '{}' that had been created on thread '{}'", newFile.getAbsolutePath(), thread.getName());
+                                IOUtils.closeQuietly(reader);
+                            }
+                        }
+
+                        if (!FileUtils.deleteQuietly(newFile)) {
+                            log.warn("Failed to delete '{}' for a second time", newFile.getAbsolutePath());
+                        }
+                    }
+                }
+                if (!file.renameTo(newFile)) {
+                    String msg = String
+                            .format("Had trouble renaming file.  The current name is %s and the desired state was %s",
+                                    file.getAbsolutePath(), state);
+                    log.warn(msg);
+                    throw new IllegalStateException(msg);
+                } else {
+                    this.file = newFile;
+                }
+            }
+        }
+
+        if (state == State.DONE) {
+            releaseMemory();
+        }
+        refreshLastUpdateTime();
+        this.state = state;
+    }
+
+    public void close() {
+        Thread thread = Thread.currentThread();
+        BufferedReader reader = readers.remove(thread);
+        if (reader != null) {
+            IOUtils.closeQuietly(reader);
+        }
+
+        InputStream inputStream = inputStreams.remove(thread);
+        if (inputStream != null) {
+            IOUtils.closeQuietly(inputStream);
+        }
+
+        if (writer != null) {
+            IOUtils.closeQuietly(writer);
+            writer = null;
+        }
+
+        if (outputStream != null) {
+            IOUtils.closeQuietly(outputStream);
+            outputStream = null;
+        }
+    }
+
+    public long getSize() {
+        if (file.exists()) {
+            return file.length();
+        } else {
+            return getMemorySize();
+        }
+    }
+
+    public boolean exists() {
+        return (file.exists() && file.length() > 0) || getMemorySize() > 0;
+    }
+
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    public void refreshLastUpdateTime() {
+        long previousUpdateTime = this.lastUpdateTime;
+        this.lastUpdateTime = System.currentTimeMillis();
+        stagingManager.resourceUpdated(this, previousUpdateTime);
+    }
+
+    public boolean delete() {
+        boolean deleted = true;
+
+        close();
+
+        if (file.exists()) {
+            FileUtils.deleteQuietly(file);
+            deleted = !file.exists();
+        }
+
+        releaseMemory();
+
+        if (deleted) {
+            stagingManager.remove(this);
+        }
+
+        return deleted;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return file.exists() ? file.getAbsolutePath() : String.format("%d bytes in memory",
+                getMemorySize());
+    }
+
+}
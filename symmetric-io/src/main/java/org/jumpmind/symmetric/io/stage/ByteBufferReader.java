@@ -0,0 +1,137 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.stage;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Decode characters directly from a sequence of byte buffers without first
+ * copying the bytes to the heap. The buffers are consumed, so pass in views
+ * that are not shared with anyone else.
+ */
+public class ByteBufferReader extends Reader {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private ByteBuffer[] buffers;
+
+    private int index;
+
+    private CharsetDecoder decoder;
+
+    /* holds the bytes of a character that is split across two buffers */
+    private ByteBuffer split = ByteBuffer.allocate(8);
+
+    private int pendingChar = -1;
+
+    private boolean endOfInput;
+
+    public ByteBufferReader(Charset charset, ByteBuffer... buffers) {
+        this.buffers = buffers;
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    protected ByteBuffer nextBuffer() {
+        while (index < buffers.length && !buffers[index].hasRemaining()) {
+            index++;
+        }
+        return index < buffers.length ? buffers[index] : null;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        } else if (pendingChar >= 0) {
+            cbuf[off] = (char) pendingChar;
+            pendingChar = -1;
+            return 1;
+        } else if (len == 1) {
+            /* a supplementary character needs room for two chars */
+            char[] pair = new char[2];
+            int count = read(pair, 0, 2);
+            if (count > 0) {
+                cbuf[off] = pair[0];
+                if (count > 1) {
+                    pendingChar = pair[1];
+                }
+                return 1;
+            }
+            return -1;
+        }
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (out.position() == off && !endOfInput) {
+            ByteBuffer in = nextBuffer();
+            if (split.position() > 0) {
+                if (in == null) {
+                    split.flip();
+                    decoder.decode(split, out, true);
+                    split.clear();
+                } else {
+                    split.put(in.get());
+                    split.flip();
+                    decoder.decode(split, out, false);
+                    split.compact();
+                }
+            } else if (in == null) {
+                decoder.decode(EMPTY, out, true);
+                decoder.flush(out);
+                endOfInput = true;
+            } else {
+                CoderResult result = decoder.decode(in, out, false);
+                if (result.isOverflow()) {
+                    /*
+                     * out is full, the rest of this buffer is decoded on the
+                     * next read
+                     */
+                    break;
+                } else if (in.hasRemaining()) {
+                    /* the last character continues in the next buffer */
+                    split.put(in);
+                }
+            }
+        }
+
+        int count = out.position() - off;
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public boolean ready() {
+        return pendingChar >= 0 || split.position() > 0 || nextBuffer() != null;
+    }
+
+    @Override
+    public void close() {
+        buffers = new ByteBuffer[0];
+        index = 0;
+        endOfInput = true;
+    }
+
+}
@@ -0,0 +1,330 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.stage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.io.IoConstants;
+
+/**
+ * A staged resource that holds its content as encoded bytes. Content is
+ * written to pooled direct buffers up until the threshold and then to a file.
+ * Readers decode straight from the buffers, or from the file mapped into
+ * memory, so the content is only encoded once when it is written and decoded
+ * once when it is read.
+ */
+public class MappedStagedResource extends AbstractStagedResource {
+
+    static final long MAPPED_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final Charset CHARSET = Charset.forName(IoConstants.ENCODING);
+
+    private List<ByteBuffer> memoryBuffers;
+
+    private long memorySize;
+
+    public MappedStagedResource(long threshold, File directory, File file,
+            MappedStagingManager stagingManager) {
+        super(threshold, directory, file, stagingManager);
+    }
+
+    public MappedStagedResource(long threshold, File directory, String path,
+            MappedStagingManager stagingManager) {
+        super(threshold, directory, path, stagingManager);
+    }
+
+    public MappedStagedResource(long threshold, File directory, String path, State state,
+            long lastUpdateTime, MappedStagingManager stagingManager) {
+        super(threshold, directory, path, state, lastUpdateTime, stagingManager);
+    }
+
+    protected ByteBufferPool getBufferPool() {
+        return ((MappedStagingManager) stagingManager).getBufferPool();
+    }
+
+    @Override
+    protected long getMemorySize() {
+        return memorySize;
+    }
+
+    /**
+     * Give the memory buffers back to the pool. If someone is still reading
+     * the buffers they are left for the garbage collector instead.
+     */
+    @Override
+    protected void releaseMemory() {
+        if (memoryBuffers != null) {
+            if (!isInUse()) {
+                for (ByteBuffer buffer : memoryBuffers) {
+                    getBufferPool().release(buffer);
+                }
+            }
+            memoryBuffers = null;
+            memorySize = 0;
+        }
+    }
+
+    /**
+     * @return read only views of the content of this resource. Each call
+     *         returns new views that can be consumed independently. The
+     *         views are only valid until the resource is done or deleted.
+     */
+    public ByteBuffer[] getByteBuffers() {
+        try {
+            if (file.exists()) {
+                return map();
+            } else if (memoryBuffers != null && memorySize > 0) {
+                List<ByteBuffer> buffers = memoryBuffers;
+                ByteBuffer[] views = new ByteBuffer[buffers.size()];
+                for (int i = 0; i < views.length; i++) {
+                    ByteBuffer view = buffers.get(i).asReadOnlyBuffer();
+                    view.flip();
+                    views[i] = view;
+                }
+                return views;
+            } else {
+                throw new IllegalStateException(
+                        "There is no content to read.  Memory buffer was empty and "
+                                + file.getAbsolutePath() + " was not found.");
+            }
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    protected ByteBuffer[] map() throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            long size = channel.size();
+            ByteBuffer[] segments = new ByteBuffer[(int) ((size + MAPPED_SEGMENT_SIZE - 1) / MAPPED_SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = i * MAPPED_SEGMENT_SIZE;
+                segments[i] = channel.map(MapMode.READ_ONLY, position,
+                        Math.min(MAPPED_SEGMENT_SIZE, size - position));
+            }
+            return segments;
+        } finally {
+            IOUtils.closeQuietly(fis);
+        }
+    }
+
+    /**
+     * Files are read through a stream instead of being mapped when mapping is
+     * turned off because a mapped file cannot be renamed or deleted on some
+     * platforms until the mapping has been garbage collected.
+     */
+    protected boolean isReadThroughStream() {
+        return file.exists() && !((MappedStagingManager) stagingManager).isMapFiles();
+    }
+
+    public BufferedReader getReader() {
+        Thread thread = Thread.currentThread();
+        BufferedReader reader = readers.get(thread);
+        if (reader == null) {
+            if (isReadThroughStream()) {
+                try {
+                    reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                            IoConstants.ENCODING));
+                } catch (IOException ex) {
+                    throw new IoException(ex);
+                }
+            } else {
+                reader = new BufferedReader(new ByteBufferReader(CHARSET, getByteBuffers()));
+            }
+            readers.put(thread, reader);
+        }
+        return reader;
+    }
+
+    public InputStream getInputStream() {
+        Thread thread = Thread.currentThread();
+        InputStream inputStream = inputStreams.get(thread);
+        if (inputStream == null) {
+            if (isReadThroughStream()) {
+                try {
+                    inputStream = new BufferedInputStream(new FileInputStream(file));
+                } catch (IOException ex) {
+                    throw new IoException(ex);
+                }
+            } else {
+                inputStream = new ByteBufferInputStream(getByteBuffers());
+            }
+            inputStreams.put(thread, inputStream);
+        }
+        return inputStream;
+    }
+
+    public OutputStream getOutputStream() {
+        if (outputStream == null) {
+            if (file.exists()) {
+                log.warn("We had to delete {} because it already existed", file.getAbsolutePath());
+                file.delete();
+            } else if (memoryBuffers != null) {
+                log.warn("We had to delete the memory buffer for {} because it already existed",
+                        getPath());
+                releaseMemory();
+            }
+            try {
+                outputStream = new SegmentOutputStream();
+            } catch (IOException ex) {
+                throw new IoException(ex);
+            }
+        }
+        return outputStream;
+    }
+
+    public BufferedWriter getWriter() {
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(getOutputStream(), CHARSET));
+        }
+        return writer;
+    }
+
+    /**
+     * Write to pooled buffers up until the threshold. When the threshold is
+     * reached, the buffers are written to the file and one buffer is kept to
+     * write to the file from that point forward.
+     */
+    class SegmentOutputStream extends OutputStream {
+
+        private FileChannel channel;
+
+        private ByteBuffer buffer;
+
+        public SegmentOutputStream() throws IOException {
+            memoryBuffers = new ArrayList<ByteBuffer>();
+            memorySize = 0;
+            if (threshold <= 0) {
+                /*
+                 * callers that stage with no threshold expect to find the file
+                 * as soon as it is opened
+                 */
+                spill();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (channel == null && memorySize + 1 > threshold) {
+                spill();
+            }
+            nextBuffer().put((byte) b);
+            if (channel == null) {
+                memorySize++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (channel == null && memorySize + len > threshold) {
+                spill();
+            }
+            while (len > 0) {
+                ByteBuffer buffer = nextBuffer();
+                int count = Math.min(len, buffer.remaining());
+                buffer.put(b, off, count);
+                off += count;
+                len -= count;
+                if (channel == null) {
+                    memorySize += count;
+                }
+            }
+        }
+
+        protected ByteBuffer nextBuffer() throws IOException {
+            if (buffer == null || !buffer.hasRemaining()) {
+                if (channel != null) {
+                    drain();
+                } else {
+                    buffer = getBufferPool().acquire();
+                    memoryBuffers.add(buffer);
+                }
+            }
+            return buffer;
+        }
+
+        protected void spill() throws IOException {
+            file.getParentFile().mkdirs();
+            channel = new FileOutputStream(file).getChannel();
+            for (ByteBuffer memoryBuffer : memoryBuffers) {
+                memoryBuffer.flip();
+                while (memoryBuffer.hasRemaining()) {
+                    channel.write(memoryBuffer);
+                }
+            }
+            for (ByteBuffer memoryBuffer : memoryBuffers) {
+                getBufferPool().release(memoryBuffer);
+            }
+            memoryBuffers = null;
+            memorySize = 0;
+            buffer = getBufferPool().acquire();
+        }
+
+        protected void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (channel != null) {
+                drain();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                try {
+                    drain();
+                } finally {
+                    channel.close();
+                    channel = null;
+                    getBufferPool().release(buffer);
+                    buffer = null;
+                }
+            }
+        }
+    }
+
+}
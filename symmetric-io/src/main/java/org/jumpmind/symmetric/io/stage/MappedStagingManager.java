@@ -0,0 +1,86 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.stage;
+
+import java.io.File;
+
+import org.apache.commons.lang.SystemUtils;
+import org.jumpmind.symmetric.io.stage.IStagedResource.State;
+
+/**
+ * A staging manager that stages batches as encoded bytes. Small batches are
+ * held in direct buffers that are reused from a pool. Larger batches spill to
+ * files that are mapped into memory when they are read.
+ */
+public class MappedStagingManager extends StagingManager {
+
+    public static final int BUFFER_SIZE = 8192;
+
+    protected ByteBufferPool bufferPool;
+
+    protected boolean mapFiles;
+
+    /**
+     * @param directory
+     *            The staging directory
+     * @param bufferPoolSize
+     *            The maximum number of released buffers that are kept for
+     *            reuse
+     */
+    public MappedStagingManager(String directory, int bufferPoolSize) {
+        super(directory);
+        this.bufferPool = new ByteBufferPool(BUFFER_SIZE, bufferPoolSize);
+        /*
+         * Windows does not allow a mapped file to be renamed or deleted until
+         * the mapping has been garbage collected
+         */
+        this.mapFiles = !SystemUtils.IS_OS_WINDOWS;
+    }
+
+    @Override
+    protected IStagedResource createStagedResource(long memoryThresholdInBytes, String filePath) {
+        return new MappedStagedResource(memoryThresholdInBytes, directory, filePath, this);
+    }
+
+    @Override
+    protected IStagedResource createStagedResource(File file) {
+        return new MappedStagedResource(0, directory, file, this);
+    }
+
+    @Override
+    protected IStagedResource createStagedResource(String filePath, State state,
+            long lastUpdateTime) {
+        return new MappedStagedResource(0, directory, filePath, state, lastUpdateTime, this);
+    }
+
+    public ByteBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public boolean isMapFiles() {
+        return mapFiles;
+    }
+
+    public void setMapFiles(boolean mapFiles) {
+        this.mapFiles = mapFiles;
+    }
+
+}
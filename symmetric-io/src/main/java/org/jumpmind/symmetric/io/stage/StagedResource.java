@@ -33,136 +33,38 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.StringReader;
-import java.util.HashMap;
-import java.util.Map;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.jumpmind.exception.IoException;
 import org.jumpmind.symmetric.io.IoConstants;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-public class StagedResource implements IStagedResource {
-
-    static final Logger log = LoggerFactory.getLogger(StagedResource.class);
-
-    private long threshold;
-
-    private File directory;
-
-    private String path;
-
-    private File file;
+public class StagedResource extends AbstractStagedResource {
 
     private StringBuilder memoryBuffer;
 
-    private long lastUpdateTime;
-
-    private State state;
-    
-    private OutputStream outputStream = null;
-    
-    private Map<Thread, InputStream> inputStreams = null;
-    
-    private Map<Thread, BufferedReader> readers = new HashMap<Thread, BufferedReader>();
-
-    private BufferedWriter writer;
-    
-    private StagingManager stagingManager;
-
     public StagedResource(long threshold, File directory, File file, StagingManager stagingManager) {
-        this.threshold = threshold;
-        this.directory = directory;
-        this.stagingManager = stagingManager;
-        this.file = file;
-        this.path = file.getAbsolutePath();
-        this.path = this.path.replaceAll("\\\\", "/");
-        this.path = this.path.substring(directory.getAbsolutePath().length(), file
-                .getAbsolutePath().length());
-        this.path = this.path.substring(1, path.lastIndexOf("."));
-        if (file.exists()) {
-            lastUpdateTime = file.lastModified();
-            String fileName = file.getName();
-            String extension = fileName.substring(fileName.lastIndexOf(".") + 1, fileName.length());
-            this.state = State.valueOf(extension.toUpperCase());
-        } else {
-            throw new IllegalStateException(String.format("The passed in file, %s, does not exist",
-                    file.getAbsolutePath()));
-        }
+        super(threshold, directory, file, stagingManager);
     }
 
     public StagedResource(long threshold, File directory, String path, StagingManager stagingManager) {
-        this.threshold = threshold;
-        this.directory = directory;
-        this.path = path;
-        this.stagingManager = stagingManager;
-        this.file = new File(directory, String.format("%s.%s", path,
-                State.CREATE.getExtensionName()));
-        lastUpdateTime = System.currentTimeMillis();
-        this.state = State.CREATE;
-    }
-    
-    public boolean isInUse() {
-        return readers.size() > 0 || writer != null || 
-                (inputStreams != null && inputStreams.size() > 0) ||
-                outputStream != null;
-    }
-    
-    public boolean isFileResource() {     
-        return file != null && file.exists();
+        super(threshold, directory, path, stagingManager);
     }
 
-    protected File buildFile(State state) {
-        return new File(directory, String.format("%s.%s", path, state.getExtensionName()));
+    public StagedResource(long threshold, File directory, String path, State state,
+            long lastUpdateTime, StagingManager stagingManager) {
+        super(threshold, directory, path, state, lastUpdateTime, stagingManager);
     }
 
-    public State getState() {
-        return state;
+    @Override
+    protected long getMemorySize() {
+        return memoryBuffer != null ? memoryBuffer.length() : 0;
     }
 
-    public void setState(State state) {
-        if (file.exists()) {
-            File newFile = buildFile(state);
-            if (!newFile.equals(file)) {
-                if (newFile.exists()) {
-                    if (writer != null || outputStream != null) {
-                        throw new IoException("Could not write '{}' it is currently being written to", newFile.getAbsolutePath());                                
-                    }
-                    
-                    if (!FileUtils.deleteQuietly(newFile)) {
-                        log.warn("Failed to delete '{}' in preparation for renaming '{}'", newFile.getAbsolutePath(), file.getAbsoluteFile());
-                        if (readers.size() > 0) {
-                            for (Thread thread : readers.keySet()) {
-                                BufferedReader reader = readers.get(thread);
-                                log.warn("Closing unwanted reader for '{}' that had been created on thread '{}'", newFile.getAbsolutePath(), thread.getName());                                         
-                                IOUtils.closeQuietly(reader);                                
-                            }
-                        }
-                        
-                        if (!FileUtils.deleteQuietly(newFile)) {
-                            log.warn("Failed to delete '{}' for a second time", newFile.getAbsolutePath());
-                        }
-                    }
-                }
-                if (!file.renameTo(newFile)) {
-                    String msg = String
-                            .format("Had trouble renaming file.  The current name is %s and the desired state was %s",
-                                    file.getAbsolutePath(), state);
-                    log.warn(msg);
-                    throw new IllegalStateException(msg);
-                } else {
-                    this.file = newFile;
-                }
-            }
-        } 
-        
-        if (memoryBuffer != null && state == State.DONE) {
+    @Override
+    protected void releaseMemory() {
+        if (memoryBuffer != null) {
             this.memoryBuffer.setLength(0);
             this.memoryBuffer = null;
         }
-        refreshLastUpdateTime();
-        this.state = state;
     }
 
     public BufferedReader getReader() {
@@ -189,33 +91,6 @@ public class StagedResource implements IStagedResource {
         return reader;
     }
 
-    public void close() {
-        Thread thread = Thread.currentThread();
-        BufferedReader reader = readers.get(thread);
-        if (reader != null) {
-            IOUtils.closeQuietly(reader);
-            readers.remove(thread);
-        }
-
-        if (writer != null) {
-            IOUtils.closeQuietly(writer);
-            writer = null;
-        }
-        
-        if (outputStream != null) {
-            IOUtils.closeQuietly(outputStream);
-            outputStream = null;
-        }
-        
-        if (inputStreams != null) {
-            InputStream inputStream = inputStreams.get(thread);
-            if (inputStream != null) {
-                IOUtils.closeQuietly(inputStream);
-                inputStreams.remove(thread);
-            }
-        }
-    }
-    
     public OutputStream getOutputStream() {
         try {            
             if (outputStream == null) {
@@ -235,9 +110,6 @@ public class StagedResource implements IStagedResource {
 
     public InputStream getInputStream() {
         Thread thread = Thread.currentThread();
-        if (inputStreams == null) {
-            inputStreams = new HashMap<Thread, InputStream>();
-        }
         InputStream reader = inputStreams.get(thread);
         if (reader == null) {
             if (file.exists()) {
@@ -271,64 +143,4 @@ public class StagedResource implements IStagedResource {
         return writer;
     }
 
-    public long getSize() {
-        if (file.exists()) {
-            return file.length();
-        } else if (memoryBuffer != null) {
-            return memoryBuffer.length();
-        } else {
-            return 0;
-        }
-    }
-
-    public boolean exists() {
-        return (file.exists() && file.length() > 0) || (memoryBuffer != null && memoryBuffer.length() > 0);
-    }
-
-    public long getLastUpdateTime() {
-        return lastUpdateTime;
-    }
-    
-    public void refreshLastUpdateTime() {
-        this.lastUpdateTime = System.currentTimeMillis();
-    }
-
-    public boolean delete() {
-        
-        boolean deleted = true;
-        
-        close();
-        
-        if (file.exists()) {
-            FileUtils.deleteQuietly(file);
-            deleted = !file.exists();            
-        }
-
-        if (memoryBuffer != null) {
-            memoryBuffer.setLength(0);
-            memoryBuffer = null;
-        }
-        
-        if (deleted) {
-            stagingManager.resourceList.remove(getPath());
-        }
-        
-        return deleted;
-        
-    }
-
-    public File getFile() {
-        return file;
-    }
-
-    public String getPath() {
-        return path;
-    }
-
-    @Override
-    public String toString() {
-        return file.exists() ? file.getAbsolutePath() : String.format("%d bytes in memory",
-                memoryBuffer.length());
-    }
-
 }
@@ -20,15 +20,27 @@
  */
 package org.jumpmind.symmetric.io.stage;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.symmetric.io.IoConstants;
 import org.jumpmind.symmetric.io.stage.IStagedResource.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,87 +49,329 @@ public class StagingManager implements IStagingManager {
 
     protected static final Logger log = LoggerFactory.getLogger(StagingManager.class);
 
+    protected static final String CATALOG_FILE_NAME = "staging.catalog";
+
+    protected static final String DIRECTORY_ENTRY = "DIR";
+
+    /*
+     * allow for file systems that only record modification times to the
+     * second (or two)
+     */
+    protected static final long DIRECTORY_TIME_RESOLUTION_MS = 2000;
+
     protected File directory;
 
+    /*
+     * resources indexed by path, which is made up of the category, the node
+     * (or other location) and the batch
+     */
     protected Map<String, IStagedResource> resourceList = new ConcurrentHashMap<String, IStagedResource>();
 
+    /* the same resources ordered from least to most recently updated */
+    protected ConcurrentSkipListMap<ResourceKey, IStagedResource> resourcesByLastUpdateTime = new ConcurrentSkipListMap<ResourceKey, IStagedResource>();
+
+    /*
+     * the names of the subdirectories of each directory that has held a
+     * resource, indexed by the directory path
+     */
+    protected ConcurrentMap<String, Set<String>> directories = new ConcurrentHashMap<String, Set<String>>();
+
+    protected AtomicLong catalogChangeCount = new AtomicLong();
+
+    protected long catalogSavedChangeCount = -1;
+
+    protected Object cleanLock = new Object();
+
     public StagingManager(String directory) {
         log.info("The staging directory was initialized at the following location: " + directory);
         this.directory = new File(directory);
         this.directory.mkdirs();
         refreshResourceList();
     }
-    
+
     public Collection<String> getResourceReferences() {
-        synchronized (StagingManager.class) {
-            return resourceList.keySet();
-        }
+        return resourceList.keySet();
     }
 
+    /**
+     * Load the resources from the catalog that was saved by the last clean
+     * and only look for changes in the directories that have been modified
+     * since. The whole staging directory is scanned if there isn't a catalog.
+     */
     protected void refreshResourceList() {
-        synchronized (StagingManager.class) {
+        long ts = System.currentTimeMillis();
+        File catalogFile = new File(directory, CATALOG_FILE_NAME);
+        long catalogTime = -1;
+        if (catalogFile.exists()) {
+            try {
+                catalogTime = loadCatalog(catalogFile);
+            } catch (Exception ex) {
+                log.warn("Failed to read the staging catalog.  The staging directory will be scanned instead", ex);
+                resourceList.clear();
+                resourcesByLastUpdateTime.clear();
+                directories.clear();
+                catalogTime = -1;
+            }
+        }
+
+        if (catalogTime < 0) {
             Collection<File> files = FileUtils.listFiles(this.directory,
                     new String[] { State.CREATE.getExtensionName(), State.READY.getExtensionName(),
                             State.DONE.getExtensionName() }, true);
             for (File file : files) {
-                try {
-                    StagedResource resource = new StagedResource(0, directory,
-                            file, this);
-                    String path = resource.getPath();
-                    if (!resourceList.containsKey(path)) {
-                        resourceList.put(path, resource);
+                addFoundResource(file);
+            }
+        } else {
+            refreshResourceList(directory, "", catalogTime - DIRECTORY_TIME_RESOLUTION_MS);
+        }
+        log.debug("Found {} staged resources in {}ms", resourceList.size(),
+                System.currentTimeMillis() - ts);
+    }
+
+    /**
+     * Only lists the directories that changed since the catalog was saved. The
+     * subdirectories of an unchanged directory are known from the catalog,
+     * which records every directory that has held a resource, including the
+     * ones whose resources have all been cleaned.
+     */
+    protected void refreshResourceList(File dir, String dirPath, long since) {
+        if (dir.lastModified() >= since) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isDirectory()) {
+                        String childPath = buildChildPath(dirPath, file.getName());
+                        addDirectory(childPath);
+                        refreshResourceList(file, childPath, since);
+                    } else if (isStagedFile(file)) {
+                        addFoundResource(file);
+                    }
+                }
+            }
+        } else {
+            Set<String> children = directories.get(dirPath);
+            if (children != null) {
+                for (String child : children.toArray(new String[children.size()])) {
+                    refreshResourceList(new File(dir, child), buildChildPath(dirPath, child),
+                            since);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remember a directory and all of its parents
+     */
+    protected void addDirectory(String dirPath) {
+        String parentPath = "";
+        String[] names = dirPath.split("/");
+        for (int i = 0; i < names.length; i++) {
+            Set<String> children = directories.get(parentPath);
+            if (children == null) {
+                children = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                Set<String> existing = directories.putIfAbsent(parentPath, children);
+                if (existing != null) {
+                    children = existing;
+                }
+            }
+            if (children.add(names[i])) {
+                catalogChangeCount.incrementAndGet();
+            }
+            parentPath = buildChildPath(parentPath, names[i]);
+        }
+    }
+
+    protected String buildChildPath(String parentPath, String name) {
+        return parentPath.length() == 0 ? name : parentPath + "/" + name;
+    }
+
+    protected boolean isStagedFile(File file) {
+        String extension = file.getName().substring(file.getName().lastIndexOf(".") + 1);
+        return extension.equals(State.CREATE.getExtensionName())
+                || extension.equals(State.READY.getExtensionName())
+                || extension.equals(State.DONE.getExtensionName());
+    }
+
+    protected void addFoundResource(File file) {
+        try {
+            IStagedResource resource = createStagedResource(file);
+            String path = resource.getPath();
+            IStagedResource existing = resourceList.get(path);
+            /*
+             * the catalog could be behind if the resource changed state after
+             * the catalog was saved
+             */
+            if (existing == null || !existing.getFile().equals(file)) {
+                add(resource);
+            }
+        } catch (IllegalStateException ex) {
+            log.warn(ex.getMessage());
+        }
+    }
+
+    /**
+     * @return the time the catalog was saved
+     */
+    protected long loadCatalog(File catalogFile) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(
+                catalogFile), IoConstants.ENCODING));
+        try {
+            long catalogTime = Long.parseLong(reader.readLine());
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split("\t", 3);
+                if (values[0].equals(DIRECTORY_ENTRY)) {
+                    addDirectory(values[1]);
+                } else {
+                    State state = State.valueOf(values[0]);
+                    long lastUpdateTime = Long.parseLong(values[1]);
+                    String path = values[2];
+                    add(createStagedResource(path, state, lastUpdateTime));
+                }
+            }
+            catalogSavedChangeCount = catalogChangeCount.get();
+            return catalogTime;
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Save the resources that are staged to files so they can be found
+     * without scanning the staging directory at startup
+     */
+    protected void saveCatalog() {
+        long changeCount = catalogChangeCount.get();
+        if (changeCount != catalogSavedChangeCount) {
+            long catalogTime = System.currentTimeMillis();
+            File catalogFile = new File(directory, CATALOG_FILE_NAME);
+            File tempFile = new File(directory, CATALOG_FILE_NAME + ".tmp");
+            BufferedWriter writer = null;
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile),
+                        IoConstants.ENCODING));
+                writer.write(Long.toString(catalogTime));
+                writer.newLine();
+                for (Map.Entry<String, Set<String>> entry : directories.entrySet()) {
+                    for (String child : entry.getValue()) {
+                        writer.write(DIRECTORY_ENTRY);
+                        writer.write("\t");
+                        writer.write(buildChildPath(entry.getKey(), child));
+                        writer.newLine();
+                    }
+                }
+                for (IStagedResource resource : resourcesByLastUpdateTime.values()) {
+                    if (resource.isFileResource()) {
+                        writer.write(resource.getState().name());
+                        writer.write("\t");
+                        writer.write(Long.toString(resource.getLastUpdateTime()));
+                        writer.write("\t");
+                        writer.write(resource.getPath());
+                        writer.newLine();
                     }
-                } catch (IllegalStateException ex) {
-                    log.warn(ex.getMessage());
                 }
+                writer.close();
+                writer = null;
+                if ((catalogFile.exists() && !catalogFile.delete())
+                        || !tempFile.renameTo(catalogFile)) {
+                    log.warn("Failed to replace the staging catalog at {}",
+                            catalogFile.getAbsolutePath());
+                } else {
+                    catalogSavedChangeCount = changeCount;
+                }
+            } catch (IOException ex) {
+                log.warn("Failed to save the staging catalog", ex);
+            } finally {
+                IOUtils.closeQuietly(writer);
             }
         }
     }
 
+    protected void add(IStagedResource resource) {
+        String path = resource.getPath();
+        int index = path.lastIndexOf("/");
+        if (index > 0) {
+            addDirectory(path.substring(0, index));
+        }
+        IStagedResource previous = resourceList.put(resource.getPath(), resource);
+        if (previous != null && previous != resource) {
+            resourcesByLastUpdateTime.remove(new ResourceKey(previous.getLastUpdateTime(),
+                    previous.getPath()));
+        }
+        resourcesByLastUpdateTime.put(
+                new ResourceKey(resource.getLastUpdateTime(), resource.getPath()), resource);
+        catalogChangeCount.incrementAndGet();
+    }
+
+    protected void remove(IStagedResource resource) {
+        if (resourceList.get(resource.getPath()) == resource) {
+            resourceList.remove(resource.getPath());
+            resourcesByLastUpdateTime.remove(new ResourceKey(resource.getLastUpdateTime(),
+                    resource.getPath()));
+            catalogChangeCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Called by a resource when its last update time changes so that it can
+     * be moved to the most recently updated end of the catalog
+     */
+    protected void resourceUpdated(IStagedResource resource, long previousUpdateTime) {
+        if (resourceList.get(resource.getPath()) == resource) {
+            resourcesByLastUpdateTime.remove(new ResourceKey(previousUpdateTime, resource
+                    .getPath()));
+            resourcesByLastUpdateTime.put(new ResourceKey(resource.getLastUpdateTime(),
+                    resource.getPath()), resource);
+            catalogChangeCount.incrementAndGet();
+        }
+    }
+
     /**
      * Clean up resources that are older than the passed in parameter.
+     * Resources are visited from the least recently updated, so cleaning stops
+     * at the first resource that is not old enough to be purged.
      * 
      * @param ttlInMs
      *            If resources are older than this number of milliseconds they
      *            will be purged
      */
     public long clean(long ttlInMs) {
-        synchronized (StagingManager.class) {
+        synchronized (cleanLock) {
             log.trace("Cleaning staging area");
-            Set<String> keys = new HashSet<String>(resourceList.keySet());
             long purgedFileCount = 0;
             long purgedFileSize = 0;
             long purgedMemCount = 0;
             long purgedMemSize = 0;
-            for (String key : keys) {
-                IStagedResource resource = resourceList.get(key);
-                /* resource could have deleted itself between the time the keys were cloned and now */
-                if (resource != null) {
-                    boolean resourceIsOld = (System.currentTimeMillis() - resource
-                            .getLastUpdateTime()) > ttlInMs;
-                    if ((resource.getState() == State.DONE || (resource.getState() == State.READY && ttlInMs == 0)) 
-                            && (resourceIsOld || !resource.exists())) {
-                        if (!resource.isInUse()) {
-                            boolean file = resource.isFileResource();
-                            long size = resource.getSize();
-                            if (resource.delete()) {
-                                if (file) {
-                                    purgedFileCount++;
-                                    purgedFileSize += size;
-                                } else {
-                                    purgedMemCount++;
-                                    purgedMemSize += size;
-                                }
-                                resourceList.remove(key);
+            long now = System.currentTimeMillis();
+            for (Map.Entry<ResourceKey, IStagedResource> entry : resourcesByLastUpdateTime
+                    .entrySet()) {
+                IStagedResource resource = entry.getValue();
+                boolean resourceIsOld = (now - entry.getKey().lastUpdateTime) > ttlInMs;
+                if (!resourceIsOld && ttlInMs > 0) {
+                    break;
+                }
+                if ((resource.getState() == State.DONE || (resource.getState() == State.READY && ttlInMs == 0))
+                        && (resourceIsOld || !resource.exists())) {
+                    if (!resource.isInUse()) {
+                        boolean file = resource.isFileResource();
+                        long size = resource.getSize();
+                        if (resource.delete()) {
+                            if (file) {
+                                purgedFileCount++;
+                                purgedFileSize += size;
                             } else {
-                                log.warn("Failed to delete the '{}' staging resource",
-                                        resource.getPath());
+                                purgedMemCount++;
+                                purgedMemSize += size;
                             }
+                            remove(resource);
                         } else {
-                            log.info(
-                                    "The '{}' staging resource qualified for being cleaned, but was in use.  It will not be cleaned right now",
+                            log.warn("Failed to delete the '{}' staging resource",
                                     resource.getPath());
                         }
+                    } else {
+                        log.info(
+                                "The '{}' staging resource qualified for being cleaned, but was in use.  It will not be cleaned right now",
+                                resource.getPath());
                     }
                 }
             }
@@ -139,6 +393,7 @@ public class StagingManager implements IStagingManager {
                             purgedMemCount, (int) (purgedMemSize / 1000));
                 }
             }
+            saveCatalog();
             return purgedFileCount + purgedMemCount;
         }
     }
@@ -148,12 +403,30 @@ public class StagingManager implements IStagingManager {
      */
     public IStagedResource create(long memoryThresholdInBytes, Object... path) {
         String filePath = buildFilePath(path);
-        StagedResource resource = new StagedResource(memoryThresholdInBytes, directory, filePath,
-                this);
-        this.resourceList.put(filePath, resource);
+        IStagedResource resource = createStagedResource(memoryThresholdInBytes, filePath);
+        add(resource);
         return resource;
     }
 
+    protected IStagedResource createStagedResource(long memoryThresholdInBytes, String filePath) {
+        return new StagedResource(memoryThresholdInBytes, directory, filePath, this);
+    }
+
+    /**
+     * Create a handle for a resource that was found in the staging directory
+     */
+    protected IStagedResource createStagedResource(File file) {
+        return new StagedResource(0, directory, file, this);
+    }
+
+    /**
+     * Create a handle for a resource that was recorded in the staging catalog
+     */
+    protected IStagedResource createStagedResource(String filePath, State state,
+            long lastUpdateTime) {
+        return new StagedResource(0, directory, filePath, state, lastUpdateTime, this);
+    }
+
     protected String buildFilePath(Object... path) {
         StringBuilder buffer = new StringBuilder();
         for (int i = 0; i < path.length; i++) {
@@ -186,4 +459,34 @@ public class StagingManager implements IStagingManager {
         return find(buildFilePath(path));
     }
 
+    static class ResourceKey implements Comparable<ResourceKey> {
+
+        long lastUpdateTime;
+
+        String path;
+
+        ResourceKey(long lastUpdateTime, String path) {
+            this.lastUpdateTime = lastUpdateTime;
+            this.path = path;
+        }
+
+        public int compareTo(ResourceKey o) {
+            if (lastUpdateTime != o.lastUpdateTime) {
+                return lastUpdateTime < o.lastUpdateTime ? -1 : 1;
+            }
+            return path.compareTo(o.path);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ResourceKey && compareTo((ResourceKey) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+
+    }
+
 }
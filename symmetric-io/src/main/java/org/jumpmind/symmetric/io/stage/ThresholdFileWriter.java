@@ -93,7 +93,7 @@ public class ThresholdFileWriter extends Writer {
             fileWriter.flush();
             buffer.setLength(0);
         } else {
-            buffer.append(new String(cbuf), off, len);
+            buffer.append(cbuf, off, len);
         }
     }
 
@@ -0,0 +1,158 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.stage;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.symmetric.io.IoConstants;
+import org.jumpmind.symmetric.io.stage.ByteBufferReader;
+import org.jumpmind.symmetric.io.stage.IStagedResource;
+import org.jumpmind.symmetric.io.stage.IStagedResource.State;
+import org.jumpmind.symmetric.io.stage.MappedStagingManager;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedStagingManagerTest {
+
+    final String TEST_STR = "The quick brown fox jumped over the lazy dog \u00e9\u20ac\ud83d\ude00\n";
+
+    final Charset CHARSET = Charset.forName(IoConstants.ENCODING);
+
+    MappedStagingManager stagingManager;
+
+    @Before
+    public void setup() throws Exception {
+        File directory = new File("target/test/mapped.staging");
+        FileUtils.deleteDirectory(directory);
+        stagingManager = new MappedStagingManager(directory.getPath(), 10);
+    }
+
+    @Test
+    public void testWriteToMemory() throws Exception {
+        IStagedResource resource = stagingManager.create(1000, "test", 1);
+        resource.getWriter().write(TEST_STR);
+        resource.close();
+        resource.setState(State.READY);
+
+        assertFalse(resource.isFileResource());
+        assertEquals(TEST_STR.getBytes(CHARSET).length, resource.getSize());
+        assertEquals(TEST_STR, IOUtils.toString(resource.getReader()));
+        resource.close();
+        assertArrayEquals(TEST_STR.getBytes(CHARSET), IOUtils.toByteArray(resource.getInputStream()));
+        resource.close();
+
+        assertSame(resource, stagingManager.find("test", 1));
+        resource.setState(State.DONE);
+        assertEquals(1, stagingManager.getBufferPool().getPoolSize());
+        assertTrue(resource.delete());
+        assertNull(stagingManager.find("test", 1));
+    }
+
+    @Test
+    public void testWriteToFile() throws Exception {
+        StringBuilder expected = new StringBuilder();
+        IStagedResource resource = stagingManager.create(100, "test", 2);
+        for (int i = 0; i < 1000; i++) {
+            resource.getWriter().write(TEST_STR);
+            expected.append(TEST_STR);
+        }
+        resource.close();
+        resource.setState(State.READY);
+
+        assertTrue(resource.isFileResource());
+        assertEquals(expected.toString(), IOUtils.toString(resource.getReader()));
+        resource.close();
+
+        stagingManager.setMapFiles(false);
+        assertEquals(expected.toString(), IOUtils.toString(resource.getReader()));
+        resource.close();
+
+        assertTrue(resource.delete());
+        assertFalse(resource.getFile().exists());
+    }
+
+    @Test
+    public void testNoThresholdCreatesFile() throws Exception {
+        IStagedResource resource = stagingManager.create(0, "test", 3);
+        resource.getOutputStream();
+        assertTrue(resource.isFileResource());
+        resource.close();
+        assertTrue(resource.delete());
+    }
+
+    @Test
+    public void testReadCharacterSplitAcrossBuffers() throws Exception {
+        byte[] bytes = TEST_STR.getBytes(CHARSET);
+        ByteBuffer[] buffers = new ByteBuffer[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            buffers[i] = ByteBuffer.wrap(bytes, i, 1);
+        }
+        ByteBufferReader reader = new ByteBufferReader(CHARSET, buffers);
+        StringBuilder actual = new StringBuilder();
+        int c = 0;
+        while ((c = reader.read()) != -1) {
+            actual.append((char) c);
+        }
+        assertEquals(TEST_STR, actual.toString());
+        assertEquals(-1, reader.read());
+
+        assertEquals(TEST_STR, IOUtils.toString(new ByteBufferReader(CHARSET, ByteBuffer
+                .wrap(bytes))));
+    }
+
+    @Test
+    public void testReadSurrogatePairAtEndOfCharBuffer() throws Exception {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < MappedStagingManager.BUFFER_SIZE - 1; i++) {
+            expected.append('a');
+        }
+        expected.append("\ud83d\ude00 end\n");
+        String str = expected.toString();
+
+        /* the 4 bytes of the emoji straddle the first two pooled buffers */
+        IStagedResource resource = stagingManager.create(100000, "test", 4);
+        resource.getWriter().write(str);
+        resource.close();
+        resource.setState(State.READY);
+        assertFalse(resource.isFileResource());
+        assertEquals(str, IOUtils.toString(resource.getReader()));
+        resource.close();
+        assertTrue(resource.delete());
+
+        /* the reader's char buffer fills up in the middle of the surrogate pair */
+        byte[] bytes = str.getBytes(CHARSET);
+        assertEquals(str, IOUtils.toString(new BufferedReader(new ByteBufferReader(CHARSET,
+                ByteBuffer.wrap(bytes)))));
+
+        int splitAt = MappedStagingManager.BUFFER_SIZE + 1;
+        assertEquals(str, IOUtils.toString(new BufferedReader(new ByteBufferReader(CHARSET,
+                ByteBuffer.wrap(bytes, 0, splitAt), ByteBuffer.wrap(bytes, splitAt,
+                        bytes.length - splitAt)))));
+    }
+
+}
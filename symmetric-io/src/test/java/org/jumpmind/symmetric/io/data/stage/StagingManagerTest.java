@@ -0,0 +1,119 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.stage;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.symmetric.io.stage.IStagedResource;
+import org.jumpmind.symmetric.io.stage.IStagedResource.State;
+import org.jumpmind.symmetric.io.stage.StagingManager;
+import org.jumpmind.util.AppUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StagingManagerTest {
+
+    final String TEST_STR = "The quick brown fox jumped over the lazy dog";
+
+    File directory = new File("target/test/staging.catalog");
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testCleanOldestFirst() throws Exception {
+        StagingManager stagingManager = new StagingManager(directory.getPath());
+        IStagedResource first = stage(stagingManager, "outgoing", "001", 1, State.DONE);
+        IStagedResource second = stage(stagingManager, "outgoing", "001", 2, State.READY);
+        AppUtils.sleep(50);
+        IStagedResource third = stage(stagingManager, "outgoing", "002", 3, State.DONE);
+
+        assertEquals(1, stagingManager.clean(25));
+        assertFalse(first.getFile().exists());
+        assertNull(stagingManager.find("outgoing", "001", 1));
+        assertSame(second, stagingManager.find("outgoing", "001", 2));
+        assertSame(third, stagingManager.find("outgoing", "002", 3));
+
+        /* a resource that was updated moves to the end of the line */
+        AppUtils.sleep(50);
+        second.setState(State.DONE);
+        assertEquals(1, stagingManager.clean(25));
+        assertNull(stagingManager.find("outgoing", "002", 3));
+        assertSame(second, stagingManager.find("outgoing", "001", 2));
+    }
+
+    @Test
+    public void testLoadFromCatalog() throws Exception {
+        StagingManager stagingManager = new StagingManager(directory.getPath());
+        stage(stagingManager, "outgoing", "001", 1, State.READY);
+        stage(stagingManager, "incoming", "001", 2, State.DONE);
+        stagingManager.clean(Long.MAX_VALUE);
+        assertTrue(new File(directory, "staging.catalog").exists());
+
+        /* staged after the catalog was saved */
+        stage(stagingManager, "outgoing", "002", 3, State.READY);
+
+        stagingManager = new StagingManager(directory.getPath());
+        assertEquals(3, stagingManager.getResourceReferences().size());
+        IStagedResource resource = stagingManager.find("outgoing", "001", 1);
+        assertNotNull(resource);
+        assertEquals(State.READY, resource.getState());
+        assertEquals(TEST_STR, IOUtils.toString(resource.getReader()));
+        resource.close();
+        assertEquals(State.DONE, stagingManager.find("incoming", "001", 2).getState());
+        assertEquals(State.READY, stagingManager.find("outgoing", "002", 3).getState());
+    }
+
+    @Test
+    public void testLoadFromCatalogAfterDirectoryWasCleaned() throws Exception {
+        StagingManager stagingManager = new StagingManager(directory.getPath());
+        stage(stagingManager, "outgoing", "001", 1, State.DONE);
+        AppUtils.sleep(10);
+        assertEquals(1, stagingManager.clean(0));
+
+        /* staged after the catalog was saved in a directory the catalog has no resources for */
+        stage(stagingManager, "outgoing", "001", 2, State.READY);
+        File outgoing = new File(directory, "outgoing");
+        assertTrue(outgoing.setLastModified(System.currentTimeMillis() - 60000));
+
+        stagingManager = new StagingManager(directory.getPath());
+        assertNull(stagingManager.find("outgoing", "001", 1));
+        IStagedResource resource = stagingManager.find("outgoing", "001", 2);
+        assertNotNull(resource);
+        assertEquals(State.READY, resource.getState());
+    }
+
+    protected IStagedResource stage(StagingManager stagingManager, String category,
+            String nodeId, long batchId, State state) throws Exception {
+        IStagedResource resource = stagingManager.create(0, category, nodeId, batchId);
+        resource.getWriter().write(TEST_STR);
+        resource.close();
+        resource.setState(state);
+        return resource;
+    }
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.List;
+
+import org.jumpmind.db.DbTestUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.symmetric.io.AbstractWriterTest;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CoalescingDataWriterTest extends AbstractWriterTest {
+
+    protected MockDataWriter mockWriter = new MockDataWriter();
+
+    protected Table table = Table.buildTable("coalesce", new String[] { "id" }, new String[] {
+            "id", "value" });
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        platform = DbTestUtils.createDatabasePlatform(DbTestUtils.ROOT);
+        platform.createDatabase(platform.readDatabaseFromXml("/testDatabaseWriter.xml", true),
+                true, false);
+    }
+
+    @Before
+    public void notExpectingError() {
+        setErrorExpected(false);
+        mockWriter.reset();
+    }
+
+    @Test
+    public void testChangesToSameKeyAreCollapsed() {
+        writeData(new CoalescingDataWriter(mockWriter, 100), new TableCsvData(table,
+                insert("1", "a"), update("1", "a", "b"), update("1", "b", "c"), insert("2", "a"),
+                delete("3", "a"), update("4", "a", "b"), delete("4", "b"), update("5", "a", "b")));
+
+        List<CsvData> datas = mockWriter.writtenDatas.get(table.getFullyQualifiedTableName());
+        Assert.assertEquals(5, datas.size());
+        assertData(datas.get(0), DataEventType.INSERT, "1", "c");
+        assertData(datas.get(1), DataEventType.INSERT, "2", "a");
+        assertData(datas.get(2), DataEventType.UPDATE, "5", "b");
+        Assert.assertArrayEquals(new String[] { "5", "a" },
+                datas.get(2).getParsedData(CsvData.OLD_DATA));
+        assertData(datas.get(3), DataEventType.DELETE, "3", null);
+        assertData(datas.get(4), DataEventType.DELETE, "4", null);
+        Assert.assertArrayEquals(new String[] { "4", "a" },
+                datas.get(4).getParsedData(CsvData.OLD_DATA));
+    }
+
+    @Test
+    public void testChangesThatCannotBeCollapsedKeepTheirOrder() {
+        CsvData keyChange = update("3", "a", "b");
+        keyChange.putParsedData(CsvData.ROW_DATA, new String[] { "4", "b" });
+        writeData(new CoalescingDataWriter(mockWriter, 100), new TableCsvData(table,
+                delete("1", "a"), insert("2", "a"), insert("1", "b"), delete("2", "a"),
+                keyChange, insert("5", "a")));
+
+        List<CsvData> datas = mockWriter.writtenDatas.get(table.getFullyQualifiedTableName());
+        Assert.assertEquals(6, datas.size());
+        assertData(datas.get(0), DataEventType.INSERT, "2", "a");
+        assertData(datas.get(1), DataEventType.DELETE, "1", null);
+        assertData(datas.get(2), DataEventType.INSERT, "1", "b");
+        assertData(datas.get(3), DataEventType.DELETE, "2", null);
+        Assert.assertSame(keyChange, datas.get(4));
+        assertData(datas.get(5), DataEventType.INSERT, "5", "a");
+    }
+
+    @Test
+    public void testWindowSize() {
+        writeData(new CoalescingDataWriter(mockWriter, 2), new TableCsvData(table,
+                update("1", "a", "b"), insert("2", "a"), insert("3", "a"), update("1", "b", "c")));
+
+        List<CsvData> datas = mockWriter.writtenDatas.get(table.getFullyQualifiedTableName());
+        Assert.assertEquals(4, datas.size());
+        assertData(datas.get(0), DataEventType.INSERT, "2", "a");
+        assertData(datas.get(1), DataEventType.UPDATE, "1", "b");
+        assertData(datas.get(2), DataEventType.INSERT, "3", "a");
+        assertData(datas.get(3), DataEventType.UPDATE, "1", "c");
+    }
+
+    @Test
+    public void testFinalStateMatchesDatabaseWriter() {
+        Table testTable = buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+        String id = getNextId();
+        String[] inserted = new String[] { id, "string", "string not null", null,
+                "char not null", null, "2012-03-12 07:00:00.000", "0", "2", "67.89", null };
+        String[] updated = inserted.clone();
+        updated[1] = "updated";
+        String[] updatedAgain = updated.clone();
+        updatedAgain[8] = "3";
+
+        String deletedId = getNextId();
+        String[] toDelete = inserted.clone();
+        toDelete[0] = deletedId;
+        writeData(new TableCsvData(testTable, new CsvData(DataEventType.INSERT, toDelete)));
+
+        CsvData update = new CsvData(DataEventType.UPDATE, new String[] { id }, updated);
+        update.putParsedData(CsvData.OLD_DATA, inserted);
+        CsvData updateAgain = new CsvData(DataEventType.UPDATE, new String[] { id }, updatedAgain);
+        updateAgain.putParsedData(CsvData.OLD_DATA, updated);
+        CsvData updateDeleted = new CsvData(DataEventType.UPDATE, new String[] { deletedId },
+                toDelete);
+        CsvData delete = new CsvData(DataEventType.DELETE);
+        delete.putParsedData(CsvData.PK_DATA, new String[] { deletedId });
+
+        long statements = writeData(new CoalescingDataWriter(new DefaultDatabaseWriter(platform,
+                writerSettings), 100), new TableCsvData(testTable, new CsvData(
+                DataEventType.INSERT, inserted), update, updateAgain, updateDeleted, delete));
+
+        Assert.assertEquals(2, statements);
+        assertTestTableEquals(id, updatedAgain);
+        Assert.assertEquals(0, platform.getSqlTemplate().queryForInt(
+                "select count(*) from " + TEST_TABLE + " where id=?", new Long(deletedId)));
+    }
+
+    protected void assertData(CsvData data, DataEventType eventType, String id, String value) {
+        Assert.assertEquals(eventType, data.getDataEventType());
+        if (eventType == DataEventType.DELETE) {
+            Assert.assertNull(data.getParsedData(CsvData.ROW_DATA));
+            Assert.assertArrayEquals(new String[] { id }, data.getParsedData(CsvData.PK_DATA));
+        } else {
+            Assert.assertArrayEquals(new String[] { id, value },
+                    data.getParsedData(CsvData.ROW_DATA));
+        }
+    }
+
+    protected CsvData insert(String id, String value) {
+        return new CsvData(DataEventType.INSERT, new String[] { id, value });
+    }
+
+    protected CsvData update(String id, String oldValue, String value) {
+        CsvData data = new CsvData(DataEventType.UPDATE, new String[] { id }, new String[] { id,
+                value });
+        data.putParsedData(CsvData.OLD_DATA, new String[] { id, oldValue });
+        return data;
+    }
+
+    protected CsvData delete(String id, String oldValue) {
+        CsvData data = new CsvData(DataEventType.DELETE);
+        data.putParsedData(CsvData.PK_DATA, new String[] { id });
+        data.putParsedData(CsvData.OLD_DATA, new String[] { id, oldValue });
+        return data;
+    }
+
+}
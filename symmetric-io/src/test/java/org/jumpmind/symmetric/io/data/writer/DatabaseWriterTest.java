@@ -583,6 +583,25 @@ public class DatabaseWriterTest extends AbstractWriterTest {
         }
     }
 
+    @Test
+    public void testSqlDdlResetsCachedTables() throws Exception {
+        String otherTable = "test_sql_ddl_cache";
+        platform.getSqlTemplate().update("create table " + otherTable + " (id integer not null primary key)");
+        try {
+            Table cached = platform.getTableFromCache(null, null, otherTable, false);
+            Assert.assertNotNull(cached.findColumn("id"));
+            Assert.assertNull(cached.findColumn("added_value"));
+
+            writeData(new CsvData(DataEventType.SQL, new String[] { "alter table " + otherTable
+                    + " add column added_value varchar(10)" }));
+
+            Table reread = platform.getTableFromCache(null, null, otherTable, false);
+            Assert.assertNotNull(reread.findColumn("added_value"));
+        } finally {
+            platform.getSqlTemplate().update("drop table " + otherTable);
+        }
+    }
+
     @Test
     public void testBenchmark() throws Exception {
         Table table = buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
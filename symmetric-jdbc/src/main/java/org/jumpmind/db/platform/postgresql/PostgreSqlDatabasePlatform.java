@@ -28,10 +28,12 @@ import java.util.Map;
 import javax.sql.DataSource;
 import javax.sql.rowset.serial.SerialBlob;
 
+import org.apache.commons.codec.DecoderException;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Column;
 import org.jumpmind.db.platform.AbstractJdbcDatabasePlatform;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
+import org.jumpmind.db.platform.IValueConverter;
 import org.jumpmind.db.sql.SqlTemplateSettings;
 import org.jumpmind.db.sql.SymmetricLobHandler;
 import org.jumpmind.db.util.BinaryEncoding;
@@ -194,5 +196,29 @@ public class PostgreSqlDatabasePlatform extends AbstractJdbcDatabasePlatform {
         }
         return objectValues;
     }
+
+    @Override
+    protected IValueConverter createValueConverter(Column column, BinaryEncoding encoding,
+            boolean useVariableDates, boolean fitToColumn) {
+        final IValueConverter converter = super.createValueConverter(column, encoding,
+                useVariableDates, fitToColumn);
+        if (column.getMappedTypeCode() == Types.BLOB) {
+            return new IValueConverter() {
+                public Object convert(String value) throws DecoderException {
+                    Object objectValue = converter.convert(value);
+                    if (objectValue != null) {
+                        try {
+                            objectValue = new SerialBlob((byte[]) objectValue);
+                        } catch (SQLException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                    return objectValue;
+                }
+            };
+        } else {
+            return converter;
+        }
+    }
     
 }
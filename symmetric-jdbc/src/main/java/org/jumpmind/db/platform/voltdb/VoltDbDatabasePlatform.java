@@ -32,6 +32,7 @@ import org.jumpmind.db.model.Database;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.AbstractJdbcDatabasePlatform;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
+import org.jumpmind.db.platform.IValueConverter;
 import org.jumpmind.db.sql.ISqlTemplate;
 import org.jumpmind.db.sql.SqlTemplateSettings;
 import org.jumpmind.db.sql.SymmetricLobHandler;
@@ -81,6 +82,26 @@ public class VoltDbDatabasePlatform extends AbstractJdbcDatabasePlatform {
         return objectValue;
     }
 
+    @Override
+    protected IValueConverter createValueConverter(Column column, BinaryEncoding encoding,
+            boolean useVariableDates, boolean fitToColumn) {
+        final IValueConverter converter = super.createValueConverter(column, encoding,
+                useVariableDates, fitToColumn);
+        if (column.getJdbcTypeCode() == Types.VARBINARY || column.getJdbcTypeCode() == Types.CLOB) {
+            return new IValueConverter() {
+                public Object convert(String value) throws DecoderException {
+                    Object objectValue = converter.convert(value);
+                    if (objectValue instanceof byte[]) {
+                        objectValue = new String(Hex.encode((byte[]) objectValue));
+                    }
+                    return objectValue;
+                }
+            };
+        } else {
+            return converter;
+        }
+    }
+
     @Override
     public String getDefaultSchema() {
         return null;
@@ -29,10 +29,13 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +56,14 @@ public class JdbcSqlTransaction implements ISqlTransaction {
 
     protected PreparedStatement pstmt;
 
+    /*
+     * Prepared dml statements keyed by sql in least recently used order. The
+     * sql identifies the table, dml type and column set of the statement, so
+     * switching between inserts, updates and deletes on the same tables does
+     * not have to prepare the statements again.
+     */
+    protected Map<String, PreparedStatement> statementCache;
+
     protected JdbcSqlTemplate jdbcSqlTemplate;
 
     protected boolean autoCommit = false;
@@ -72,6 +83,22 @@ public class JdbcSqlTransaction implements ISqlTransaction {
         this.autoCommit = autoCommit;
         this.jdbcSqlTemplate = jdbcSqlTemplate;
         this.logSqlBuilder = jdbcSqlTemplate.logSqlBuilder;
+        final int statementCacheSize = jdbcSqlTemplate.getSettings().getStatementCacheSize();
+        this.statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<String, PreparedStatement> eldest) {
+                if (size() > statementCacheSize) {
+                    if (eldest.getValue() != pstmt) {
+                        JdbcSqlTemplate.close(eldest.getValue());
+                    }
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
         this.init();
     }
 
@@ -137,7 +164,7 @@ public class JdbcSqlTransaction implements ISqlTransaction {
 
     public void close() {
         if (connection != null) {
-            JdbcSqlTemplate.close(pstmt);
+            closeStatements();
             try {
                 connection.setAutoCommit(this.oldAutoCommitValue);
             } catch (SQLException ex) {
@@ -391,21 +418,68 @@ public class JdbcSqlTransaction implements ISqlTransaction {
 
     public void prepare(String sql) {
         try {
+            if (pstmt != null && sql.equals(psql)) {
+                /*
+                 * Rows that are pending for the same statement stay in the
+                 * same batch
+                 */
+                return;
+            }
             if (this.markers.size() > 0) {
+                /*
+                 * Rows have to be applied in the order they were added, so
+                 * only one statement can have a pending batch at a time
+                 */
                 throw new IllegalStateException(
                         "Cannot prepare a new batch before the last batch has been flushed.");
             }
-            JdbcSqlTemplate.close(pstmt);
-            if (log.isDebugEnabled()) {
-                log.debug("Preparing: {}", sql);
+            if (!statementCache.containsValue(pstmt)) {
+                JdbcSqlTemplate.close(pstmt);
+            }
+            pstmt = statementCache.get(sql);
+            if (pstmt == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Preparing: {}", sql);
+                }
+                pstmt = connection.prepareStatement(sql);
+                if (isCacheable(sql)) {
+                    statementCache.put(sql, pstmt);
+                }
             }
-            pstmt = connection.prepareStatement(sql);
             psql = sql;
         } catch (SQLException ex) {
             throw jdbcSqlTemplate.translate(ex);
         }
     }
 
+    /**
+     * Only dml statements are kept after another statement is prepared.
+     * Anything else is likely to be run once, and it might change the
+     * structure of the tables that the cached statements use.
+     */
+    protected boolean isCacheable(String sql) {
+        if (jdbcSqlTemplate.getSettings().getStatementCacheSize() > 0) {
+            String trimmed = sql.trim();
+            return StringUtils.startsWithIgnoreCase(trimmed, "insert")
+                    || StringUtils.startsWithIgnoreCase(trimmed, "update")
+                    || StringUtils.startsWithIgnoreCase(trimmed, "delete");
+        } else {
+            return false;
+        }
+    }
+
+    protected void closeStatements() {
+        if (!statementCache.containsValue(pstmt)) {
+            JdbcSqlTemplate.close(pstmt);
+        }
+        for (PreparedStatement statement : statementCache.values()) {
+            JdbcSqlTemplate.close(statement);
+        }
+        statementCache.clear();
+        pstmt = null;
+        psql = null;
+    }
+
     public int addRow(Object marker, Object[] args, int[] argTypes) {
         int rowsUpdated = 0;
         try {
@@ -0,0 +1,141 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.util.ResettableBasicDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JdbcSqlTransactionTest {
+
+    static final String INSERT = "insert into B (ID, NOTE) values (?, ?)";
+
+    static final String UPDATE = "update B set NOTE = ? where ID = ?";
+
+    static final String DELETE = "delete from B where ID = ?";
+
+    IDatabasePlatform platform;
+
+    @Before
+    public void setup() throws Exception {
+        platform = SqlPersistenceManagerTest.createDatabasePlatform();
+        Table table = new Table("B");
+        table.addColumn(new Column("ID", true, Types.INTEGER, -1, -1));
+        table.addColumn(new Column("NOTE", false, Types.VARCHAR, 100, -1));
+        platform.alterCaseToMatchDatabaseDefaultCase(table);
+        platform.createTables(true, true, table);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ResettableBasicDataSource ds = platform.getDataSource();
+        ds.close();
+    }
+
+    @Test
+    public void testInterleavedStatementsAreReused() {
+        JdbcSqlTransaction transaction = (JdbcSqlTransaction) platform.getSqlTemplate()
+                .startSqlTransaction();
+        try {
+            transaction.prepare(INSERT);
+            PreparedStatement insert = transaction.pstmt;
+            for (int i = 1; i <= 3; i++) {
+                transaction.prepare(INSERT);
+                assertEquals(1, transaction.addRow(null, new Object[] { i, "inserted" }, null));
+                transaction.prepare(UPDATE);
+                assertEquals(1, transaction.addRow(null, new Object[] { "updated", i }, null));
+                assertNotSame(insert, transaction.pstmt);
+            }
+            transaction.prepare(DELETE);
+            assertEquals(1, transaction.addRow(null, new Object[] { 2 }, null));
+            transaction.prepare(INSERT);
+            assertSame(insert, transaction.pstmt);
+            transaction.commit();
+        } finally {
+            transaction.close();
+        }
+
+        ISqlTemplate template = platform.getSqlTemplate();
+        assertEquals(2, template.queryForInt("select count(*) from B where NOTE='updated'"));
+        assertEquals(0, template.queryForInt("select count(*) from B where ID=2"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedStatementIsClosed() throws Exception {
+        ((JdbcSqlTemplate) platform.getSqlTemplate()).getSettings().setStatementCacheSize(2);
+        JdbcSqlTransaction transaction = (JdbcSqlTransaction) platform.getSqlTemplate()
+                .startSqlTransaction();
+        try {
+            transaction.prepare(INSERT);
+            PreparedStatement insert = transaction.pstmt;
+            transaction.prepare(UPDATE);
+            PreparedStatement update = transaction.pstmt;
+            transaction.prepare(INSERT);
+            transaction.prepare(DELETE);
+            assertFalse(insert.isClosed());
+            assertTrue(update.isClosed());
+        } finally {
+            transaction.close();
+        }
+    }
+
+    @Test
+    public void testPendingBatchMustBeFlushedBeforeSwitching() {
+        JdbcSqlTransaction transaction = (JdbcSqlTransaction) platform.getSqlTemplate()
+                .startSqlTransaction();
+        try {
+            transaction.setInBatchMode(true);
+            transaction.prepare(INSERT);
+            transaction.addRow(null, new Object[] { 1, "inserted" }, null);
+            transaction.prepare(INSERT);
+            transaction.addRow(null, new Object[] { 2, "inserted" }, null);
+            try {
+                transaction.prepare(UPDATE);
+                fail("Expected the pending inserts to prevent a new statement");
+            } catch (IllegalStateException ex) {
+            }
+            assertEquals(2, transaction.flush());
+            transaction.prepare(UPDATE);
+            transaction.addRow(null, new Object[] { "updated", 1 }, null);
+            assertEquals(1, transaction.flush());
+            transaction.commit();
+        } finally {
+            transaction.close();
+        }
+        assertEquals(1, platform.getSqlTemplate().queryForInt(
+                "select count(*) from B where NOTE='updated'"));
+    }
+
+}
@@ -29,6 +29,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.transport.compression.CompressionCodecs;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.jumpmind.symmetric.web.compression.CompressionServletResponseWrapper;
 
 abstract public class AbstractCompressionUriHandler extends AbstractUriHandler {
@@ -49,7 +51,7 @@ abstract public class AbstractCompressionUriHandler extends AbstractUriHandler {
                     .getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_STRATEGY);
             log.debug("@doFilter");
 
-            boolean supportCompression = false;
+            ICompressionCodec codec = null;
             log.debug("requestURI= {}", req.getRequestURI());
 
             // Are we allowed to compress ?
@@ -61,24 +63,24 @@ abstract public class AbstractCompressionUriHandler extends AbstractUriHandler {
             }
 
             @SuppressWarnings("rawtypes")
-            Enumeration e = req.getHeaders("Accept-Encoding");
-            while (e.hasMoreElements()) {
+            Enumeration e = req.getHeaders(WebConstants.HEADER_ACCEPT_ENCODING);
+            while (e.hasMoreElements() && codec == null) {
                 String name = (String) e.nextElement();
-                if (name.indexOf("gzip") != -1) {
-                    log.debug("Supports compression.");
-                    supportCompression = true;
+                codec = CompressionCodecs.negotiate(name, null);
+                if (codec != null) {
+                    log.debug("Supports compression with {}.", codec.getName());
                 } else {
                     log.debug("Does not support compression.");
                 }
             }
 
-            if (!supportCompression) {
+            if (codec == null) {
                 log.debug("doFilter gets called without compression");
                 handleWithCompression(req, res);
                 return;
             } else {
                 CompressionServletResponseWrapper wrappedResponse = new CompressionServletResponseWrapper(
-                        res, compressionLevel, compressionStrategy);
+                        res, codec, compressionLevel, compressionStrategy);
                 log.debug("doFilter gets called with compression");
                 try {
                     handleWithCompression(req, wrappedResponse);
@@ -33,6 +33,7 @@ import org.jumpmind.symmetric.service.IConfigurationService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
 import org.jumpmind.symmetric.transport.IConcurrentConnectionManager;
 import org.jumpmind.symmetric.transport.IConcurrentConnectionManager.ReservationType;
+import org.jumpmind.symmetric.transport.compression.CompressionCodecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,6 +78,11 @@ public class NodeConcurrencyInterceptor implements IInterceptor {
             } else {
                 try {
                     buildSuspendIgnoreResponseHeaders(nodeId, resp);
+                    /*
+                     * Tell the client which codecs it can compress the push
+                     * with
+                     */
+                    resp.setHeader(WebConstants.HEADER_ACCEPT_ENCODING, CompressionCodecs.getNames());
                 } catch (Exception ex) {
                     concurrentConnectionManager.releaseConnection(nodeId, poolId);
                     log.error("Error building response headers", ex);
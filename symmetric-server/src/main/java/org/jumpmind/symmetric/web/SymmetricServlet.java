@@ -32,6 +32,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -85,6 +86,7 @@ public class SymmetricServlet extends HttpServlet {
             ServletUtils.sendError(res, WebConstants.SC_SERVICE_UNAVAILABLE);
 
         } else if (engine.isStarted()) {
+            setKeepAliveHeader(engine, res);
             IUriHandler handler = findMatchingHandler(engine, req);
             if (handler != null) {
                 List<IInterceptor> beforeInterceptors = handler.getInterceptors();
@@ -179,6 +181,18 @@ public class SymmetricServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Tells the client how long it may keep the connection open for its next
+     * request.
+     */
+    protected void setKeepAliveHeader(ISymmetricEngine engine, HttpServletResponse res) {
+        int keepAliveTimeout = engine.getParameterService().getInt(
+                ParameterConstants.TRANSPORT_HTTP_KEEP_ALIVE_TIMEOUT_SECONDS, 0);
+        if (keepAliveTimeout > 0) {
+            res.setHeader("Keep-Alive", "timeout=" + keepAliveTimeout);
+        }
+    }
+
     protected IUriHandler findMatchingHandler(ServerSymmetricEngine engine, HttpServletRequest req)
             throws ServletException {
         Collection<IUriHandler> handlers = getUriHandlersFrom(engine);
@@ -22,12 +22,13 @@ package org.jumpmind.symmetric.web.compression;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 
+import org.jumpmind.symmetric.transport.compression.CompressionCodecs;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,9 +49,9 @@ public class CompressionResponseStream extends ServletOutputStream {
     static final Logger logger = LoggerFactory.getLogger(CompressionResponseStream.class);
 
     /**
-     * The underlying gzip output stream to which we should write data.
+     * The underlying compressed output stream to which we should write data.
      */
-    protected OutputStream gzipstream = null;
+    protected OutputStream compressedStream = null;
 
     /**
      * Has this stream been closed?
@@ -69,15 +70,16 @@ public class CompressionResponseStream extends ServletOutputStream {
      *                The associated response
      */
     public CompressionResponseStream(HttpServletResponse response, final int compressionLevel, final int compressionStrategy) throws IOException {
+        this(response, CompressionCodecs.getDefault(), compressionLevel, compressionStrategy);
+    }
+
+    public CompressionResponseStream(HttpServletResponse response, ICompressionCodec codec,
+            int compressionLevel, int compressionStrategy) throws IOException {
         this.closed = false;
         this.response = response;
-        response.addHeader("Content-Encoding", "gzip");
-        gzipstream = new GZIPOutputStream(response.getOutputStream()) {
-            {
-                this.def.setLevel(compressionLevel);
-                this.def.setStrategy(compressionStrategy);
-            }
-        };
+        response.addHeader("Content-Encoding", codec.getName());
+        compressedStream = codec.compress(response.getOutputStream(), compressionLevel,
+                compressionStrategy);
     }
 
     /**
@@ -90,9 +92,9 @@ public class CompressionResponseStream extends ServletOutputStream {
             return;
         }
 
-        if (gzipstream != null) {
-            gzipstream.close();
-            gzipstream = null;
+        if (compressedStream != null) {
+            compressedStream.close();
+            compressedStream = null;
         }
 
         closed = true;
@@ -108,8 +110,8 @@ public class CompressionResponseStream extends ServletOutputStream {
             return;
         }
 
-        if (gzipstream != null) {
-            gzipstream.flush();
+        if (compressedStream != null) {
+            compressedStream.flush();
         }
 
     }
@@ -165,7 +167,7 @@ public class CompressionResponseStream extends ServletOutputStream {
             return;
         }
 
-        gzipstream.write(b, off, len);
+        compressedStream.write(b, off, len);
     }
     
     @Override
@@ -29,6 +29,8 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
+import org.jumpmind.symmetric.transport.compression.CompressionCodecs;
+import org.jumpmind.symmetric.transport.compression.ICompressionCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,12 +56,20 @@ public class CompressionServletResponseWrapper extends HttpServletResponseWrappe
 
     int compressionStrategy = Deflater.DEFAULT_STRATEGY;
 
+    ICompressionCodec codec;
+
     /**
      * Calls the parent constructor which creates a ServletResponse adaptor
      * wrapping the given response object.
      */
     public CompressionServletResponseWrapper(HttpServletResponse response, int compressionLevel, int compressionStrategy) {
+        this(response, CompressionCodecs.getDefault(), compressionLevel, compressionStrategy);
+    }
+
+    public CompressionServletResponseWrapper(HttpServletResponse response, ICompressionCodec codec,
+            int compressionLevel, int compressionStrategy) {
         super(response);
+        this.codec = codec;
         this.compressionLevel = compressionLevel;
         this.compressionStrategy = compressionStrategy;
         origResponse = response;
@@ -117,8 +127,8 @@ public class CompressionServletResponseWrapper extends HttpServletResponseWrappe
      */
     public ServletOutputStream createOutputStream() throws IOException {
         log.debug("createOutputStream gets called");
-        CompressionResponseStream stream = new CompressionResponseStream(origResponse, compressionLevel,
-                compressionStrategy);
+        CompressionResponseStream stream = new CompressionResponseStream(origResponse, codec,
+                compressionLevel, compressionStrategy);
         return stream;
 
     }
@@ -0,0 +1,62 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.web;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Test;
+
+public class SymmetricServletTest {
+
+    @Test
+    public void testKeepAliveHeader() throws Exception {
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        new SymmetricServlet().setKeepAliveHeader(newEngine(60), res);
+        verify(res).setHeader("Keep-Alive", "timeout=60");
+    }
+
+    @Test
+    public void testNoKeepAliveHeaderWhenTimeoutIsZero() throws Exception {
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        new SymmetricServlet().setKeepAliveHeader(newEngine(0), res);
+        verify(res, never()).setHeader(eq("Keep-Alive"), anyString());
+    }
+
+    protected ISymmetricEngine newEngine(int keepAliveTimeout) {
+        IParameterService parameterService = mock(IParameterService.class);
+        when(parameterService.getInt(ParameterConstants.TRANSPORT_HTTP_KEEP_ALIVE_TIMEOUT_SECONDS, 0))
+                .thenReturn(keepAliveTimeout);
+        ISymmetricEngine engine = mock(ISymmetricEngine.class);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        return engine;
+    }
+
+}
@@ -251,24 +251,7 @@ public class AppUtils {
             do {
                 entry = is.getNextEntry();
                 if (entry != null) {
-                    if (entry.isDirectory()) {
-                        File dir = new File(toDir, entry.getName());
-                        dir.mkdirs();
-                        dir.setLastModified(entry.getTime());
-                    } else {
-                        File file = new File(toDir, entry.getName());
-                        if (!file.getParentFile().exists()) {
-                            file.getParentFile().mkdirs();
-                            file.getParentFile().setLastModified(entry.getTime());
-                        }
-                        FileOutputStream fos = new FileOutputStream(file);
-                        try {
-                            IOUtils.copy(is, fos);
-                            file.setLastModified(entry.getTime());
-                        } finally {
-                            IOUtils.closeQuietly(fos);
-                        }
-                    }
+                    unzipEntry(is, entry, toDir);
                 }
             } while (entry != null);
         } catch (IOException e) {
@@ -277,4 +260,34 @@ public class AppUtils {
 
     }
 
+    /**
+     * Writes the current entry of a zip stream under a directory, keeping the
+     * modification time of the entry.
+     *
+     * @return the number of bytes written
+     */
+    public static long unzipEntry(ZipInputStream is, ZipEntry entry, File toDir)
+            throws IOException {
+        long byteCount = 0;
+        if (entry.isDirectory()) {
+            File dir = new File(toDir, entry.getName());
+            dir.mkdirs();
+            dir.setLastModified(entry.getTime());
+        } else {
+            File file = new File(toDir, entry.getName());
+            if (!file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+                file.getParentFile().setLastModified(entry.getTime());
+            }
+            FileOutputStream fos = new FileOutputStream(file);
+            try {
+                byteCount = IOUtils.copyLarge(is, fos);
+            } finally {
+                IOUtils.closeQuietly(fos);
+            }
+            file.setLastModified(entry.getTime());
+        }
+        return byteCount;
+    }
+
 }